@@ -0,0 +1,198 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.jetty9;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.HttpServer;
+import org.apache.http.benchmark.InProcessChannel;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.PayloadFile;
+import org.apache.http.benchmark.ServerConfig;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * Jetty 9 server. Unlike Jetty 8, the selectors run independently of the
+ * acceptors and chunked responses and uploads are handled with the
+ * non-blocking I/O of Servlet 3.1 instead of continuations. HTTP/2 is served
+ * in cleartext with prior knowledge (h2c) if requested.
+ */
+public class Jetty9Server implements HttpServer {
+
+    private static final int H2_MAX_CONCURRENT_STREAMS = 1000;
+
+    private final int port;
+    private final boolean http2;
+    private final PayloadFile payloadFile;
+    private final HttpConnectionFactory connectionFactory;
+    private final Server server;
+    // Resumes chunked responses after the inter-chunk delay
+    private final ScheduledExecutorService scheduler;
+
+    private LocalConnector localConnector;
+
+    public Jetty9Server(final int port) throws IOException {
+        this(port, ServerConfig.DEFAULT);
+    }
+
+    public Jetty9Server(final int port, final ServerConfig config) throws IOException {
+        super();
+        if (port <= 0) {
+            throw new IllegalArgumentException("Server port may not be negative or null");
+        }
+        if (config.isHttp2() && config.getSslContext() != null) {
+            throw new UnsupportedOperationException("HTTP/2 over TLS is not supported");
+        }
+        this.port = port;
+        this.http2 = config.isHttp2();
+        this.payloadFile = config.getFile() != null ? new PayloadFile(config.getFile()) : null;
+
+        // Acceptor and selector threads are taken from the same pool as the request handling threads
+        final QueuedThreadPool threadpool = new QueuedThreadPool();
+        this.server = new Server(threadpool);
+
+        final HttpConfiguration httpConfig = new HttpConfiguration();
+        httpConfig.setOutputBufferSize(BenchConsts.BUF_SIZE);
+        this.connectionFactory = new HttpConnectionFactory(httpConfig);
+        // The selectors are the I/O threads
+        final int selectors = config.getIoThreads() > 0 ? config.getIoThreads() : -1;
+        final ServerConnector connector;
+        if (config.getSslContext() != null) {
+            final SslContextFactory sslContextFactory = new SslContextFactory();
+            sslContextFactory.setSslContext(config.getSslContext());
+            connector = new ServerConnector(this.server, -1, selectors,
+                    new SslConnectionFactory(sslContextFactory, this.connectionFactory.getProtocol()),
+                    this.connectionFactory);
+        } else if (this.http2) {
+            final HTTP2CServerConnectionFactory h2cConnectionFactory = new HTTP2CServerConnectionFactory(httpConfig);
+            h2cConnectionFactory.setMaxConcurrentStreams(H2_MAX_CONCURRENT_STREAMS);
+            connector = new ServerConnector(this.server, -1, selectors, h2cConnectionFactory);
+        } else {
+            connector = new ServerConnector(this.server, -1, selectors, this.connectionFactory);
+        }
+        connector.setPort(port);
+        connector.setReuseAddress(config.isReuseAddress());
+        if (config.getBacklog() > 0) {
+            connector.setAcceptQueueSize(config.getBacklog());
+        }
+        if (config.getWorkerThreads() > 0) {
+            threadpool.setMaxThreads(connector.getAcceptors()
+                    + connector.getSelectorManager().getSelectorCount() + config.getWorkerThreads());
+            threadpool.setMinThreads(Math.min(8, threadpool.getMaxThreads()));
+        }
+        this.server.addConnector(connector);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.server.setHandler(new RandomDataHandler(new PayloadCache(config), this.payloadFile, this.scheduler));
+    }
+
+    @Override
+    public String getName() {
+        return this.http2 ? "Jetty 9 (h2c)" : "Jetty 9";
+    }
+
+    @Override
+    public String getVersion() {
+        return Server.getVersion();
+    }
+
+    @Override
+    public int getPort() {
+        return this.port;
+    }
+
+    @Override
+    public void start() throws Exception {
+        this.server.start();
+    }
+
+    @Override
+    public void shutdown() {
+        try {
+            this.server.stop();
+        } catch (final Exception ex) {
+        }
+        try {
+            this.server.join();
+        } catch (final InterruptedException ex) {
+        }
+        this.scheduler.shutdownNow();
+        if (this.payloadFile != null) {
+            try {
+                this.payloadFile.close();
+            } catch (final IOException ignore) {
+            }
+        }
+    }
+
+    @Override
+    public synchronized InProcessChannel connectInProcess(final int socketTimeout) throws IOException {
+        if (this.localConnector == null) {
+            final LocalConnector connector = new LocalConnector(this.server, this.connectionFactory);
+            connector.setIdleTimeout(socketTimeout);
+            this.server.addConnector(connector);
+            try {
+                connector.start();
+            } catch (final Exception ex) {
+                throw new IOException("Failed to start local connector: " + ex.getMessage(), ex);
+            }
+            this.localConnector = connector;
+        }
+        return new LocalEndPointChannel(this.localConnector.connect(), socketTimeout);
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length != 1) {
+            System.out.println("Usage: <port>");
+            System.exit(1);
+        }
+        final int port = Integer.parseInt(args[0]);
+        final Jetty9Server server = new Jetty9Server(port);
+        System.out.println("Listening on port: " + port);
+        server.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+
+            @Override
+            public void run() {
+                server.shutdown();
+            }
+
+        });
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.jetty9;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.benchmark.InProcessChannel;
+import org.eclipse.jetty.server.LocalConnector;
+
+/**
+ * In-process channel on top of an endpoint of Jetty's {@link LocalConnector}.
+ * Unlike with Jetty 8, the endpoint stays open across exchanges: request bytes
+ * are fed to the server connection as they are written and response bytes are
+ * taken from the endpoint as soon as the server has produced them.
+ */
+class LocalEndPointChannel implements InProcessChannel {
+
+    private final LocalConnector.LocalEndPoint endPoint;
+    private final long socketTimeout;
+    private final InputStream instream;
+    private final OutputStream outstream;
+
+    private ByteBuffer current;
+    private volatile boolean closed;
+
+    LocalEndPointChannel(final LocalConnector.LocalEndPoint endPoint, final int socketTimeout) {
+        super();
+        this.endPoint = endPoint;
+        this.socketTimeout = socketTimeout > 0 ? socketTimeout : Long.MAX_VALUE;
+        this.instream = new InputStream() {
+
+            @Override
+            public int read() throws IOException {
+                final byte[] tmp = new byte[1];
+                final int n = read(tmp, 0, 1);
+                return n == -1 ? -1 : tmp[0] & 0xff;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                return receive(b, off, len);
+            }
+
+        };
+        this.outstream = new OutputStream() {
+
+            @Override
+            public void write(final int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                send(b, off, len);
+            }
+
+        };
+    }
+
+    private void send(final byte[] b, final int off, final int len) throws IOException {
+        if (this.closed || !this.endPoint.isOpen()) {
+            throw new ClosedChannelException();
+        }
+        // The endpoint queues the buffer as is
+        final byte[] copy = new byte[len];
+        System.arraycopy(b, off, copy, 0, len);
+        this.endPoint.addInput(ByteBuffer.wrap(copy));
+    }
+
+    private int receive(final byte[] b, final int off, final int len) throws IOException {
+        if (this.closed) {
+            throw new ClosedChannelException();
+        }
+        while (this.current == null || !this.current.hasRemaining()) {
+            try {
+                this.current = this.endPoint.waitForOutput(this.socketTimeout, TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (this.current == null) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            // No output is only returned once the output has been shut down
+            if (!this.current.hasRemaining()) {
+                return -1;
+            }
+        }
+        final int n = Math.min(len, this.current.remaining());
+        this.current.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return this.instream;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return this.outstream;
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        this.endPoint.close();
+    }
+
+}
@@ -0,0 +1,309 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.jetty9;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.Payload;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.PayloadFile;
+import org.apache.http.benchmark.RequestParams;
+import org.apache.http.benchmark.UploadDigest;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+class RandomDataHandler extends AbstractHandler {
+
+    private final PayloadCache payloadCache;
+    private final ScheduledExecutorService scheduler;
+    private final ByteBuffer fileContent;
+
+    public RandomDataHandler(
+            final PayloadCache payloadCache,
+            final PayloadFile payloadFile,
+            final ScheduledExecutorService scheduler) throws IOException {
+        super();
+        this.payloadCache = payloadCache;
+        this.scheduler = scheduler;
+        this.fileContent = payloadFile != null ? payloadFile.map() : null;
+    }
+
+    @Override
+    public void handle(
+            final String target,
+            final Request baseRequest,
+            final HttpServletRequest request,
+            final HttpServletResponse response) throws IOException, ServletException {
+        baseRequest.setHandled(true);
+        if (target.equals("/rnd")) {
+            rnd(baseRequest, request, response);
+        } else if (target.equals("/file") && this.fileContent != null) {
+            file(baseRequest, request, response);
+        } else if (target.equals("/upload")) {
+            upload(request, response);
+        } else {
+            writeError(response, HttpStatus.NOT_FOUND_404, "Target not found: " + target);
+        }
+    }
+
+    private static void writeError(
+            final HttpServletResponse response, final int status, final String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("text/plain");
+        final Writer writer = response.getWriter();
+        writer.write(message);
+        writer.flush();
+    }
+
+    private void rnd(
+            final Request baseRequest,
+            final HttpServletRequest request,
+            final HttpServletResponse response) throws IOException {
+        final RequestParams params = new RequestParams();
+        try {
+            params.parseQuery(request.getQueryString());
+        } catch (final NumberFormatException ex) {
+            writeError(response, HttpStatus.BAD_REQUEST_400, "Invalid query format: " + ex.getMessage());
+            return;
+        }
+
+        final Payload payload = this.payloadCache.get(params.getSize());
+        response.setStatus(params.getStatus());
+        response.setContentType("text/plain");
+
+        if (params.isChunked()) {
+            stream(request, response, payload, params);
+            return;
+        }
+
+        response.setContentLength(payload.size());
+        // Hand the content over to the connection as is rather than copying it into the output buffer
+        final HttpOutput outstream = baseRequest.getResponse().getHttpOutput();
+        outstream.sendContent(payload.asBuffer());
+    }
+
+    /**
+     * Streams the content as chunk coded content, flushing every chunk. Output
+     * is non-blocking: the chunks are written as the connection becomes writable
+     * and, if there is a delay between chunks, once the delay has elapsed,
+     * without holding up a thread in between.
+     */
+    private void stream(
+            final HttpServletRequest request,
+            final HttpServletResponse response,
+            final Payload payload,
+            final RequestParams params) throws IOException {
+        final AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        final ServletOutputStream outstream = response.getOutputStream();
+        outstream.setWriteListener(new ChunkWriter(async, outstream, payload, params.getChunkSize(),
+                params.getDelay(), this.scheduler));
+    }
+
+    static class ChunkWriter implements WriteListener, Runnable {
+
+        private final AsyncContext async;
+        private final ServletOutputStream outstream;
+        private final Payload payload;
+        private final int chunkSize;
+        private final long delay;
+        private final ScheduledExecutorService scheduler;
+
+        private int pos;
+        private boolean flushPending;
+        private boolean delayElapsed;
+
+        ChunkWriter(
+                final AsyncContext async,
+                final ServletOutputStream outstream,
+                final Payload payload,
+                final int chunkSize,
+                final long delay,
+                final ScheduledExecutorService scheduler) {
+            super();
+            this.async = async;
+            this.outstream = outstream;
+            this.payload = payload;
+            this.chunkSize = chunkSize;
+            this.delay = delay;
+            this.scheduler = scheduler;
+        }
+
+        /**
+         * Called by the container once the connection is writable again and by
+         * the scheduler once the delay has elapsed. The two never overlap: the
+         * delay is only scheduled while the connection is writable, in which
+         * case the container does not call back.
+         */
+        @Override
+        public void onWritePossible() throws IOException {
+            final int size = this.payload.size();
+            while (this.outstream.isReady()) {
+                if (this.flushPending) {
+                    this.flushPending = false;
+                    this.outstream.flush();
+                    continue;
+                }
+                if (this.pos == size) {
+                    this.async.complete();
+                    return;
+                }
+                if (this.delay > 0 && this.pos > 0 && !this.delayElapsed) {
+                    this.scheduler.schedule(this, this.delay, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                this.delayElapsed = false;
+                final int len = Math.min(this.chunkSize, size - this.pos);
+                this.payload.writeTo(this.outstream, this.pos, len);
+                this.pos += len;
+                this.flushPending = true;
+            }
+        }
+
+        @Override
+        public void run() {
+            this.delayElapsed = true;
+            try {
+                onWritePossible();
+            } catch (final IOException ex) {
+                onError(ex);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable ex) {
+            this.async.complete();
+        }
+
+    }
+
+    private void upload(
+            final HttpServletRequest request,
+            final HttpServletResponse response) throws IOException {
+        final String method = request.getMethod();
+        if (!method.equals("POST") && !method.equals("PUT")) {
+            writeError(response, HttpStatus.METHOD_NOT_ALLOWED_405, method + " method not supported");
+            return;
+        }
+        // Checksum the content as it arrives rather than buffering it or blocking a thread on it
+        final AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        final ServletInputStream instream = request.getInputStream();
+        instream.setReadListener(new DigestReader(async, instream, response));
+    }
+
+    static class DigestReader implements ReadListener {
+
+        private final AsyncContext async;
+        private final ServletInputStream instream;
+        private final HttpServletResponse response;
+        private final UploadDigest digest;
+        private final byte[] buf;
+
+        DigestReader(
+                final AsyncContext async,
+                final ServletInputStream instream,
+                final HttpServletResponse response) {
+            super();
+            this.async = async;
+            this.instream = instream;
+            this.response = response;
+            this.digest = new UploadDigest();
+            this.buf = new byte[BenchConsts.BUF_SIZE];
+        }
+
+        @Override
+        public void onDataAvailable() throws IOException {
+            while (this.instream.isReady() && !this.instream.isFinished()) {
+                final int n = this.instream.read(this.buf);
+                if (n > 0) {
+                    this.digest.update(this.buf, 0, n);
+                }
+            }
+        }
+
+        @Override
+        public void onAllDataRead() throws IOException {
+            final byte[] content = this.digest.toString().getBytes("US-ASCII");
+            this.response.setStatus(200);
+            this.response.setContentType("text/plain");
+            this.response.setContentLength(content.length);
+            final OutputStream outstream = this.response.getOutputStream();
+            outstream.write(content);
+            outstream.flush();
+            this.async.complete();
+        }
+
+        @Override
+        public void onError(final Throwable ex) {
+            this.async.complete();
+        }
+
+    }
+
+    private void file(
+            final Request baseRequest,
+            final HttpServletRequest request,
+            final HttpServletResponse response) throws IOException {
+        final RequestParams params = new RequestParams();
+        try {
+            params.parseQuery(request.getQueryString());
+        } catch (final NumberFormatException ex) {
+            writeError(response, HttpStatus.BAD_REQUEST_400, "Invalid query format: " + ex.getMessage());
+            return;
+        }
+        final int len = params.hasSize() ? Math.min(params.getSize(), this.fileContent.remaining())
+                : this.fileContent.remaining();
+
+        response.setStatus(200);
+        response.setContentType("application/octet-stream");
+        response.setContentLength(len);
+
+        // Hand the memory mapped buffer over to the connection as is
+        final ByteBuffer content = this.fileContent.duplicate();
+        content.limit(len);
+        baseRequest.getResponse().getHttpOutput().sendContent(content);
+    }
+
+}
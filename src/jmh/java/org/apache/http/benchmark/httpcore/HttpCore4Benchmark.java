@@ -0,0 +1,168 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.HttpStatus;
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.ImmutableHttpProcessor;
+import org.apache.http.protocol.ResponseConnControl;
+import org.apache.http.protocol.ResponseContent;
+import org.apache.http.protocol.ResponseDate;
+import org.apache.http.protocol.ResponseServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures response head construction and content production of the
+ * HttpCore 4 request handler against a stub content encoder that never
+ * touches the network.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpCore4Benchmark {
+
+    @Param({"128", "2048", "65536"})
+    public int size;
+
+    /**
+     * Maximum number of bytes accepted by a single write, like a socket send buffer.
+     */
+    @Param({"8192"})
+    public int window;
+
+    private HttpProcessor httpproc;
+    private PayloadCache payloadCache;
+    private HttpContext context;
+    private StubContentEncoder encoder;
+
+    @Setup
+    public void setup() {
+        // Same protocol interceptors as HttpCore4Server
+        this.httpproc = new ImmutableHttpProcessor(new HttpResponseInterceptor[] {
+                new ResponseDate(),
+                new ResponseServer("HttpCore-NIO-Test/1.1"),
+                new ResponseContent(),
+                new ResponseConnControl()
+        });
+        this.payloadCache = new PayloadCache(BenchConsts.PAYLOAD_CACHE_SIZE, false);
+        this.context = new BasicHttpContext();
+        this.context.setAttribute(HttpCoreContext.HTTP_REQUEST, new BasicHttpRequest("GET", "/rnd?c=" + this.size));
+        this.encoder = new StubContentEncoder(this.window);
+    }
+
+    @Benchmark
+    public HttpResponse head() throws HttpException, IOException {
+        final NRandomDataHandler.RandomAsyncResponseProducer producer = createProducer();
+        final HttpResponse response = producer.generateResponse();
+        this.httpproc.process(response, this.context);
+        return response;
+    }
+
+    @Benchmark
+    public long produce() throws IOException {
+        final NRandomDataHandler.RandomAsyncResponseProducer producer = createProducer();
+        this.encoder.reset();
+        while (!this.encoder.isCompleted()) {
+            producer.produceContent(this.encoder, null);
+        }
+        producer.close();
+        return this.encoder.total;
+    }
+
+    private NRandomDataHandler.RandomAsyncResponseProducer createProducer() {
+        return new NRandomDataHandler.RandomAsyncResponseProducer(
+                HttpStatus.SC_OK, this.payloadCache.get(this.size).asBuffer(), null);
+    }
+
+    /**
+     * Consumes at most {@code window} bytes per write by advancing the buffer position.
+     */
+    static class StubContentEncoder implements ContentEncoder {
+
+        private final int window;
+
+        long total;
+        boolean completed;
+
+        StubContentEncoder(final int window) {
+            super();
+            this.window = window;
+        }
+
+        void reset() {
+            this.total = 0;
+            this.completed = false;
+        }
+
+        @Override
+        public int write(final ByteBuffer src) {
+            final int n = Math.min(src.remaining(), this.window);
+            src.position(src.position() + n);
+            this.total += n;
+            return n;
+        }
+
+        @Override
+        public void complete() {
+            this.completed = true;
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return this.completed;
+        }
+
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.impl.BasicEntityDetails;
+import org.apache.hc.core5.http.impl.HttpProcessors;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncPushProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseProducer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.ResponseChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http.protocol.HttpProcessor;
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.RequestParams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures response head construction and content production of the
+ * HttpCore 5 request handler against stub channels that never touch
+ * the network.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpCore5Benchmark {
+
+    @Param({"128", "2048", "65536"})
+    public int size;
+
+    /**
+     * Maximum number of bytes accepted by a single write, like a socket send buffer.
+     */
+    @Param({"8192"})
+    public int window;
+
+    private HttpProcessor httpProcessor;
+    private RandomDataHandler handler;
+    private HttpCoreContext context;
+    private RequestParams params;
+    private StubResponseTrigger responseTrigger;
+    private StubResponseChannel responseChannel;
+    private StubDataStreamChannel dataChannel;
+
+    @Setup
+    public void setup() {
+        this.httpProcessor = HttpProcessors.server();
+        // Responses are not chunked, so no scheduler is needed
+        this.handler = new RandomDataHandler(new PayloadCache(BenchConsts.PAYLOAD_CACHE_SIZE, false), null,
+                null, null);
+        this.context = HttpCoreContext.create();
+        this.context.setAttribute(HttpCoreContext.HTTP_REQUEST, new BasicHttpRequest("GET", "/rnd?c=" + this.size));
+        this.params = new RequestParams().parseQuery("c=" + this.size);
+        this.responseTrigger = new StubResponseTrigger();
+        this.responseChannel = new StubResponseChannel();
+        this.dataChannel = new StubDataStreamChannel(this.window);
+    }
+
+    @Benchmark
+    public HttpResponse head() throws HttpException, IOException {
+        final HttpResponse response = new BasicHttpResponse(HttpStatus.SC_OK);
+        final EntityDetails entityDetails = new BasicEntityDetails(this.size, ContentType.TEXT_PLAIN);
+        this.httpProcessor.process(response, entityDetails, this.context);
+        return response;
+    }
+
+    @Benchmark
+    public long exchange() throws HttpException, IOException {
+        this.handler.handle(this.params, this.responseTrigger, this.context);
+        final AsyncResponseProducer producer = this.responseTrigger.producer;
+        producer.sendResponse(this.responseChannel, this.context);
+        this.httpProcessor.process(this.responseChannel.response, this.responseChannel.entityDetails, this.context);
+        this.dataChannel.reset();
+        while (!this.dataChannel.ended) {
+            producer.produce(this.dataChannel);
+        }
+        producer.releaseResources();
+        return this.dataChannel.total;
+    }
+
+    static class StubResponseTrigger implements AsyncServerRequestHandler.ResponseTrigger {
+
+        AsyncResponseProducer producer;
+
+        @Override
+        public void sendInformation(final HttpResponse response, final HttpContext context) {
+        }
+
+        @Override
+        public void submitResponse(final AsyncResponseProducer producer, final HttpContext context) {
+            this.producer = producer;
+        }
+
+        @Override
+        public void pushPromise(
+                final HttpRequest promise, final HttpContext context, final AsyncPushProducer pushProducer) {
+        }
+
+    }
+
+    static class StubResponseChannel implements ResponseChannel {
+
+        HttpResponse response;
+        EntityDetails entityDetails;
+
+        @Override
+        public void sendInformation(final HttpResponse response, final HttpContext context) {
+        }
+
+        @Override
+        public void sendResponse(
+                final HttpResponse response, final EntityDetails entityDetails, final HttpContext context) {
+            this.response = response;
+            this.entityDetails = entityDetails;
+        }
+
+        @Override
+        public void pushPromise(
+                final HttpRequest promise, final HttpContext context, final AsyncPushProducer pushProducer) {
+        }
+
+    }
+
+    /**
+     * Consumes at most {@code window} bytes per write by advancing the buffer position.
+     */
+    static class StubDataStreamChannel implements DataStreamChannel {
+
+        private final int window;
+
+        long total;
+        boolean ended;
+
+        StubDataStreamChannel(final int window) {
+            super();
+            this.window = window;
+        }
+
+        void reset() {
+            this.total = 0;
+            this.ended = false;
+        }
+
+        @Override
+        public void requestOutput() {
+        }
+
+        @Override
+        public int write(final ByteBuffer src) {
+            final int n = Math.min(src.remaining(), this.window);
+            src.position(src.position() + n);
+            this.total += n;
+            return n;
+        }
+
+        @Override
+        public void endStream(final List<? extends Header> trailers) {
+            this.ended = true;
+        }
+
+        @Override
+        public void endStream() {
+            this.ended = true;
+        }
+
+    }
+
+}
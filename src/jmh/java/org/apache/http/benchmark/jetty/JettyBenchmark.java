@@ -0,0 +1,93 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.jetty;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeaders;
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.ByteArrayBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures population of the Jetty response header fields, which are
+ * recycled by the connection, and their serialization into a header buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JettyBenchmark {
+
+    @Param({"128", "2048", "65536"})
+    public int size;
+
+    private HttpFields fields;
+    private Buffer header;
+
+    @Setup
+    public void setup() {
+        this.fields = new HttpFields();
+        this.header = new ByteArrayBuffer(4096);
+    }
+
+    @Benchmark
+    public HttpFields head() {
+        populate();
+        return this.fields;
+    }
+
+    @Benchmark
+    public Buffer encode() throws IOException {
+        populate();
+        this.header.clear();
+        this.fields.putTo(this.header);
+        return this.header;
+    }
+
+    private void populate() {
+        this.fields.clear();
+        this.fields.put(HttpHeaders.CONTENT_TYPE_BUFFER, "text/plain");
+        this.fields.putLongField(HttpHeaders.CONTENT_LENGTH_BUFFER, this.size);
+        this.fields.putDateField(HttpHeaders.DATE_BUFFER, System.currentTimeMillis());
+    }
+
+}
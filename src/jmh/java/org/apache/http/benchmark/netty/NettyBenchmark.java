@@ -0,0 +1,109 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.netty;
+
+import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONNECTION;
+import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONTENT_LENGTH;
+import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
+import static org.jboss.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.jboss.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.PayloadCache;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.EncoderEmbedder;
+import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures construction of the Netty response object and its encoding
+ * by the HTTP response encoder.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NettyBenchmark {
+
+    @Param({"128", "2048", "65536"})
+    public int size;
+
+    private PayloadCache payloadCache;
+    private EncoderEmbedder<ChannelBuffer> encoder;
+
+    @Setup
+    public void setup() {
+        this.payloadCache = new PayloadCache(BenchConsts.PAYLOAD_CACHE_SIZE, false);
+        this.encoder = new EncoderEmbedder<ChannelBuffer>(new HttpResponseEncoder());
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.encoder.finish();
+    }
+
+    @Benchmark
+    public HttpResponse head() {
+        return createResponse();
+    }
+
+    @Benchmark
+    public ChannelBuffer encode() {
+        this.encoder.offer(createResponse());
+        return this.encoder.poll();
+    }
+
+    private HttpResponse createResponse() {
+        // Same steps as RandomDataHandler#writeResponse for a keep-alive connection
+        final HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
+        response.setContent(ChannelBuffers.wrappedBuffer(this.payloadCache.get(this.size).asBuffer()));
+        response.setHeader(CONTENT_TYPE, "text/plain");
+        response.setHeader(CONTENT_LENGTH, response.getContent().readableBytes());
+        response.setHeader(CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+        return response;
+    }
+
+}
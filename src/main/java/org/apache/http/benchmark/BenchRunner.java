@@ -29,21 +29,274 @@ package org.apache.http.benchmark;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
 import org.apache.hc.core5.benchmark.CommandLineUtils;
 import org.apache.hc.core5.benchmark.Config;
 import org.apache.hc.core5.benchmark.HttpBenchmark;
+import org.apache.hc.core5.benchmark.Results;
+import org.apache.http.benchmark.client.BenchConnection;
+import org.apache.http.benchmark.client.ChurnClient;
+import org.apache.http.benchmark.client.ClosedLoopClient;
+import org.apache.http.benchmark.client.ConnectionFactory;
+import org.apache.http.benchmark.client.LoadResult;
+import org.apache.http.benchmark.client.MultiplexingClient;
+import org.apache.http.benchmark.client.OpenLoopClient;
+import org.apache.http.benchmark.client.PipelinedClient;
+import org.apache.http.benchmark.client.RateSweep;
+import org.apache.http.benchmark.client.RequestEncoder;
+import org.apache.http.benchmark.client.Scenario;
+import org.apache.http.benchmark.client.ScenarioClient;
+import org.apache.http.benchmark.client.TlsConnectionFactory;
+import org.apache.http.benchmark.client.UploadClient;
+import org.apache.http.benchmark.result.BenchResult;
+import org.apache.http.benchmark.result.IterationSummary;
+import org.apache.http.benchmark.result.ListenQueueStats;
+import org.apache.http.benchmark.result.ResultWriter;
+import org.apache.http.benchmark.result.RuntimeStats;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.net.URL;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public final class BenchRunner {
 
+    private static final int WARMUP_MAX_REQUESTS = 100000000;
+    private static final int OPEN_LOOP_WARMUP_TIME = 5;
+    private static final int WARMUP_WINDOW = 3;
+    private static final double WARMUP_TOLERANCE = 0.03;
+
+    public static Options getOptions() {
+        final Options options = CommandLineUtils.getOptions();
+
+        final Option freshPayloadOption = new Option(null, "fresh-payload", false,
+                "Generate a new payload for every request instead of serving cached payloads");
+        options.addOption(freshPayloadOption);
+
+        final Option payloadCacheOption = new Option(null, "payload-cache-size", true,
+                "Max total size of cached payloads in bytes");
+        payloadCacheOption.setArgName("bytes");
+        options.addOption(payloadCacheOption);
+
+        final Option fileSizeOption = new Option(null, "file-size", true,
+                "Serve a pre-created file of the given size (e.g. 64k, 10m, 1g) from /file " +
+                "and benchmark that endpoint instead of /rnd");
+        fileSizeOption.setArgName("size");
+        options.addOption(fileSizeOption);
+
+        final Option latencyOption = new Option(null, "latency", false,
+                "Record the latency of every request and report latency percentiles");
+        options.addOption(latencyOption);
+
+        final Option expectedIntervalOption = new Option(null, "expected-interval", true,
+                "Expected interval between requests in microseconds used to correct latency " +
+                "for coordinated omission. Defaults to the mean latency");
+        expectedIntervalOption.setArgName("micros");
+        options.addOption(expectedIntervalOption);
+
+        final Option rateOption = new Option(null, "rate", true,
+                "Generate load at a constant request rate independent of response times " +
+                "(open-loop) instead of a fixed number of requests per thread");
+        rateOption.setArgName("reqs/sec");
+        options.addOption(rateOption);
+
+        final Option maxRateOption = new Option(null, "max-rate", true,
+                "Sweep the open-loop request rate up to the given rate and report the knee point");
+        maxRateOption.setArgName("reqs/sec");
+        options.addOption(maxRateOption);
+
+        final Option rateStepOption = new Option(null, "rate-step", true,
+                "Request rate increment of the sweep. Defaults to the initial rate");
+        rateStepOption.setArgName("reqs/sec");
+        options.addOption(rateStepOption);
+
+        final Option stepDurationOption = new Option(null, "step-duration", true,
+                "Duration of the open-loop run or of each sweep step in seconds. Default is 10");
+        stepDurationOption.setArgName("sec");
+        options.addOption(stepDurationOption);
+
+        final Option h2Option = new Option(null, "h2", false,
+                "Use HTTP/2 over cleartext connections with prior knowledge (HttpCore 5, Netty 4 and Jetty 9). " +
+                "The concurrency level is the total number of concurrent streams");
+        options.addOption(h2Option);
+
+        final Option pipelineOption = new Option(null, "pipeline", true,
+                "Pipeline the given number of requests on each connection and verify that the responses " +
+                "arrive in order. With -u the requests are POSTs with chunk coded content");
+        pipelineOption.setArgName("depth");
+        options.addOption(pipelineOption);
+
+        final Option ioThreadsOption = new Option(null, "io-threads", true,
+                "Number of server I/O threads. Defaults to the framework default");
+        ioThreadsOption.setArgName("n");
+        options.addOption(ioThreadsOption);
+
+        final Option workerThreadsOption = new Option(null, "worker-threads", true,
+                "Max number of server worker threads (Jetty only). Defaults to the framework default");
+        workerThreadsOption.setArgName("n");
+        options.addOption(workerThreadsOption);
+
+        final Option backlogOption = new Option(null, "backlog", true,
+                "Size of the listen backlog of the server. Defaults to the framework default");
+        backlogOption.setArgName("n");
+        options.addOption(backlogOption);
+
+        final Option noReuseAddressOption = new Option(null, "no-reuse-address", false,
+                "Do not set SO_REUSEADDR on the listening socket of the server");
+        options.addOption(noReuseAddressOption);
+
+        final Option nativeTransportOption = new Option(null, "native-transport", false,
+                "Use the native epoll transport of the server where available (Netty 4 only)");
+        options.addOption(nativeTransportOption);
+
+        final Option directBuffersOption = new Option(null, "direct-buffers", false,
+                "Write responses from direct buffers instead of heap buffers (HttpCore 5 and Netty 3 only)");
+        options.addOption(directBuffersOption);
+
+        final Option cachedHeadersOption = new Option(null, "cached-headers", false,
+                "Reuse pre-serialised response headers with a Date header refreshed once per second " +
+                "(HttpCore 4, HttpCore 5, Jetty 8 and Netty 3 only)");
+        options.addOption(cachedHeadersOption);
+
+        final Option scalingSweepOption = new Option(null, "scaling-sweep", true,
+                "Rerun the server with 1, 2, 4, ... up to the given number of I/O threads and report " +
+                "throughput per thread and scaling efficiency");
+        scalingSweepOption.setArgName("n");
+        options.addOption(scalingSweepOption);
+
+        final Option h2ConnectionsOption = new Option(null, "h2-connections", true,
+                "Number of HTTP/2 connections to multiplex the streams over. Default is 1");
+        h2ConnectionsOption.setArgName("n");
+        options.addOption(h2ConnectionsOption);
+
+        final Option outOption = new Option(null, "out", true,
+                "Append the results to the given file for later comparison with RunCompare. " +
+                "The results are written as CSV if the file name ends with .csv and as JSON otherwise");
+        outOption.setArgName("file");
+        options.addOption(outOption);
+
+        final Option inProcessOption = new Option(null, "in-process", false,
+                "Connect to the server in-process bypassing the network stack and measure " +
+                "the latency of every request. Can be combined with --pipeline");
+        options.addOption(inProcessOption);
+
+        final Option uploadOption = new Option(null, "upload", true,
+                "POST content of the given size (e.g. 64k, 10m, 500m) with every request to /upload, " +
+                "which checksums the content as it streams in and echoes the digest. " +
+                "With -u the content is chunk coded");
+        uploadOption.setArgName("size");
+        options.addOption(uploadOption);
+
+        final Option streamOption = new Option(null, "stream", true,
+                "Request chunk coded content of the given size (e.g. 64k, 10m) from /rnd, " +
+                "which the server streams one chunk at a time");
+        streamOption.setArgName("size");
+        options.addOption(streamOption);
+
+        final Option chunkSizeOption = new Option(null, "chunk-size", true,
+                "Size of the chunks of streamed content in bytes. Default is " + RequestParams.DEFAULT_CHUNK_SIZE);
+        chunkSizeOption.setArgName("bytes");
+        options.addOption(chunkSizeOption);
+
+        final Option chunkDelayOption = new Option(null, "chunk-delay", true,
+                "Delay between chunks of streamed content in milliseconds. Default is 0");
+        chunkDelayOption.setArgName("ms");
+        options.addOption(chunkDelayOption);
+
+        final Option slowClientsOption = new Option(null, "slow-clients", true,
+                "Run the load generator on its own and then alongside the given number of connections " +
+                "that read large responses slowly, and report heap growth and the latency impact");
+        slowClientsOption.setArgName("n");
+        options.addOption(slowClientsOption);
+
+        final Option slowRateOption = new Option(null, "slow-rate", true,
+                "Read rate of each slow connection in bytes per second (e.g. 512, 4k). Default is 1k");
+        slowRateOption.setArgName("bytes/sec");
+        options.addOption(slowRateOption);
+
+        final Option slowSizeOption = new Option(null, "slow-size", true,
+                "Size of the responses requested by the slow connections (e.g. 256k, 10m). Default is 1m");
+        slowSizeOption.setArgName("size");
+        options.addOption(slowSizeOption);
+
+        final Option idleConnectionsOption = new Option(null, "idle-connections", true,
+                "Ramp up idle keep-alive connections to 1000, 2000, 4000, ... up to the given number " +
+                "while the load generator drives load, and report accept rate, memory per connection " +
+                "and latency. Requires a high limit of open files");
+        idleConnectionsOption.setArgName("n");
+        options.addOption(idleConnectionsOption);
+
+        final Option tlsOption = new Option(null, "tls", false,
+                "Serve HTTPS with a self-signed certificate generated on the fly, over TLS 1.2. Sessions " +
+                "are resumed by later connections unless --tls-full-handshake is given");
+        options.addOption(tlsOption);
+
+        final Option tlsFullHandshakeOption = new Option(null, "tls-full-handshake", false,
+                "Perform a full TLS handshake on every connection");
+        options.addOption(tlsFullHandshakeOption);
+
+        final Option tlsProviderOption = new Option(null, "tls-provider", true,
+                "JSSE provider of the server and client SSL contexts, either the name of a registered " +
+                "provider or the class name of a provider on the classpath");
+        tlsProviderOption.setArgName("name");
+        options.addOption(tlsProviderOption);
+
+        final Option churnOption = new Option(null, "churn", false,
+                "Open a new connection for every request and report connection rate, connect time, " +
+                "time to first byte and listen queue overflows. Ignores -k");
+        options.addOption(churnOption);
+
+        final Option requestsPerConnectionOption = new Option(null, "requests-per-connection", true,
+                "Number of requests per connection of the connection churn workload, either fixed " +
+                "or drawn uniformly from the range min-max. Implies --churn");
+        requestsPerConnectionOption.setArgName("n[-m]");
+        options.addOption(requestsPerConnectionOption);
+
+        final Option scenarioOption = new Option(null, "scenario", true,
+                "Sample the requests from the weighted mix of request profiles defined in the given " +
+                "properties file instead of repeating the same request");
+        scenarioOption.setArgName("file");
+        options.addOption(scenarioOption);
+
+        final Option warmupOption = new Option(null, "warmup", true,
+                "Warm up in rounds of one second until throughput stabilises, for at most the given " +
+                "number of seconds. By default 1% of the requests (at most 100) are used to warm up, " +
+                "or " + OPEN_LOOP_WARMUP_TIME + " seconds of closed-loop load with --rate");
+        warmupOption.setArgName("seconds");
+        options.addOption(warmupOption);
+
+        final Option iterationsOption = new Option(null, "iterations", true,
+                "Number of measurement iterations. The mean and its 95% confidence interval " +
+                "are reported if more than one. Default is 1");
+        iterationsOption.setArgName("n");
+        options.addOption(iterationsOption);
+
+        final Option serveOption = new Option(null, "serve", false,
+                "Run the server only, until standard input is closed. Used by RunForked");
+        options.addOption(serveOption);
+
+        final Option connectOption = new Option(null, "connect", true,
+                "Run the load generator only, against a server started with --serve on the given " +
+                "local port. Used by RunForked");
+        connectOption.setArgName("port");
+        options.addOption(connectOption);
+
+        return options;
+    }
+
     public static Config parseConfig(final String[] args) throws ParseException {
         final Config config = new Config();
         if (args.length > 0) {
-            final Options options = CommandLineUtils.getOptions();
+            final Options options = getOptions();
             final CommandLineParser parser = new PosixParser();
             final CommandLine cmd = parser.parse(options, args);
             if (cmd.hasOption('h')) {
@@ -60,32 +313,942 @@ public final class BenchRunner {
         return config;
     }
 
+    public static ServerConfig parseServerConfig(final String[] args) throws ParseException, IOException {
+        if (args.length == 0) {
+            return ServerConfig.DEFAULT;
+        }
+        final CommandLineParser parser = new PosixParser();
+        final CommandLine cmd = parser.parse(getOptions(), args);
+        final ServerConfig.Builder builder = ServerConfig.custom();
+        if (cmd.hasOption("fresh-payload")) {
+            builder.setFreshPayload(true);
+        }
+        if (cmd.hasOption("payload-cache-size")) {
+            final String s = cmd.getOptionValue("payload-cache-size");
+            try {
+                builder.setPayloadCacheSize(Long.parseLong(s));
+            } catch (final NumberFormatException ex) {
+                throw new ParseException("Invalid payload cache size: " + s);
+            }
+        }
+        // The load generator of a server in another JVM (--connect) needs neither a file
+        // nor an SSL context of its own
+        final boolean remote = cmd.hasOption("connect");
+        if (cmd.hasOption("file-size") && !remote) {
+            final long size = parseSize(cmd.getOptionValue("file-size"));
+            builder.setFile(PayloadFile.create(size));
+        }
+        if (cmd.hasOption("h2")) {
+            builder.setHttp2(true);
+        }
+        if (cmd.hasOption("io-threads")) {
+            builder.setIoThreads(parseThreadCount(cmd.getOptionValue("io-threads")));
+        }
+        if (cmd.hasOption("worker-threads")) {
+            builder.setWorkerThreads(parseThreadCount(cmd.getOptionValue("worker-threads")));
+        }
+        if (cmd.hasOption("backlog")) {
+            final String s = cmd.getOptionValue("backlog");
+            try {
+                final int n = Integer.parseInt(s);
+                if (n <= 0) {
+                    throw new ParseException("Invalid backlog: " + s);
+                }
+                builder.setBacklog(n);
+            } catch (final NumberFormatException ex) {
+                throw new ParseException("Invalid backlog: " + s);
+            }
+        }
+        if (cmd.hasOption("no-reuse-address")) {
+            builder.setReuseAddress(false);
+        }
+        if (cmd.hasOption("native-transport")) {
+            builder.setNativeTransport(true);
+        }
+        if (cmd.hasOption("direct-buffers")) {
+            builder.setDirectBuffers(true);
+        }
+        if (cmd.hasOption("cached-headers")) {
+            builder.setCachedHeaders(true);
+        }
+        if (cmd.hasOption("tls") && !remote) {
+            builder.setSslContext(TlsSupport.createServerContext(cmd.getOptionValue("tls-provider")));
+        }
+        return builder.build();
+    }
 
-    public static void run(final HttpServer server, final Config config) throws Exception {
-        final URL target = new URL("http", "localhost", server.getPort(), "/rnd?c=2048");
-        config.setUrl(target);
+    public static RunnerConfig parseRunnerConfig(final String[] args) throws ParseException {
+        if (args.length == 0) {
+            return RunnerConfig.DEFAULT;
+        }
+        final CommandLineParser parser = new PosixParser();
+        final CommandLine cmd = parser.parse(getOptions(), args);
+        final RunnerConfig.Builder builder = RunnerConfig.custom();
+        if (cmd.hasOption("file-size")) {
+            builder.setRequestTarget("/file");
+            builder.setFileSize(parseSize(cmd.getOptionValue("file-size")));
+        }
+        if (cmd.hasOption("latency")) {
+            builder.setLatency(true);
+        }
+        if (cmd.hasOption("expected-interval")) {
+            final String s = cmd.getOptionValue("expected-interval");
+            try {
+                builder.setExpectedInterval(Long.parseLong(s) * 1000L);
+            } catch (final NumberFormatException ex) {
+                throw new ParseException("Invalid expected interval: " + s);
+            }
+        }
+        if (cmd.hasOption("rate")) {
+            final double rate = parseRate(cmd.getOptionValue("rate"));
+            builder.setRate(rate);
+            builder.setRateStep(rate);
+        }
+        if (!cmd.hasOption("rate")
+                && (cmd.hasOption("max-rate") || cmd.hasOption("rate-step") || cmd.hasOption("step-duration"))) {
+            throw new ParseException("--max-rate, --rate-step and --step-duration require --rate");
+        }
+        if (cmd.hasOption("max-rate")) {
+            final double maxRate = parseRate(cmd.getOptionValue("max-rate"));
+            if (maxRate <= parseRate(cmd.getOptionValue("rate"))) {
+                throw new ParseException("Max rate must be greater than the rate: " + cmd.getOptionValue("max-rate"));
+            }
+            builder.setMaxRate(maxRate);
+        }
+        if (cmd.hasOption("rate-step")) {
+            builder.setRateStep(parseRate(cmd.getOptionValue("rate-step")));
+        }
+        if (cmd.hasOption("step-duration")) {
+            final String s = cmd.getOptionValue("step-duration");
+            try {
+                builder.setStepDuration(Integer.parseInt(s));
+            } catch (final NumberFormatException ex) {
+                throw new ParseException("Invalid step duration: " + s);
+            }
+        }
+        if (cmd.hasOption("h2")) {
+            if (cmd.hasOption("rate")) {
+                throw new ParseException("Open-loop load generation is not supported over HTTP/2");
+            }
+            builder.setHttp2(true);
+        }
+        if (cmd.hasOption("h2-connections")) {
+            final String s = cmd.getOptionValue("h2-connections");
+            try {
+                final int n = Integer.parseInt(s);
+                if (n <= 0) {
+                    throw new ParseException("Invalid number of HTTP/2 connections: " + s);
+                }
+                builder.setH2Connections(n);
+            } catch (final NumberFormatException ex) {
+                throw new ParseException("Invalid number of HTTP/2 connections: " + s);
+            }
+        }
+        if (cmd.hasOption("pipeline")) {
+            if (cmd.hasOption("rate") || cmd.hasOption("h2")) {
+                throw new ParseException("Pipelining cannot be combined with open-loop load generation or HTTP/2");
+            }
+            final String s = cmd.getOptionValue("pipeline");
+            try {
+                final int depth = Integer.parseInt(s);
+                if (depth <= 0) {
+                    throw new ParseException("Invalid pipeline depth: " + s);
+                }
+                builder.setPipelineDepth(depth);
+            } catch (final NumberFormatException ex) {
+                throw new ParseException("Invalid pipeline depth: " + s);
+            }
+        }
+        if (cmd.hasOption("scaling-sweep")) {
+            if (cmd.hasOption("rate")) {
+                throw new ParseException("Scaling sweep cannot be combined with open-loop load generation");
+            }
+            builder.setScalingSweep(parseThreadCount(cmd.getOptionValue("scaling-sweep")));
+        }
+        if (cmd.hasOption("in-process")) {
+            if (cmd.hasOption("rate") || cmd.hasOption("h2") || cmd.hasOption("scaling-sweep")) {
+                throw new ParseException("In-process connections cannot be combined with open-loop load " +
+                        "generation, HTTP/2 or a scaling sweep");
+            }
+            builder.setInProcess(true);
+        }
+        if (cmd.hasOption("stream")) {
+            if (cmd.hasOption("file-size") || cmd.hasOption("upload")) {
+                throw new ParseException("Streamed content cannot be combined with file content or uploads");
+            }
+            final long size = parseSize(cmd.getOptionValue("stream"));
+            if (size > Integer.MAX_VALUE) {
+                throw new ParseException("Streamed content size out of range: " + cmd.getOptionValue("stream"));
+            }
+            final StringBuilder buf = new StringBuilder("/rnd?c=").append(size).append("&chunked");
+            if (cmd.hasOption("chunk-size")) {
+                final long chunkSize = parseSize(cmd.getOptionValue("chunk-size"));
+                if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE) {
+                    throw new ParseException("Invalid chunk size: " + cmd.getOptionValue("chunk-size"));
+                }
+                buf.append("&chunk=").append(chunkSize);
+            }
+            if (cmd.hasOption("chunk-delay")) {
+                final String s = cmd.getOptionValue("chunk-delay");
+                try {
+                    final int delay = Integer.parseInt(s);
+                    if (delay < 0) {
+                        throw new ParseException("Invalid chunk delay: " + s);
+                    }
+                    buf.append("&delay=").append(delay);
+                } catch (final NumberFormatException ex) {
+                    throw new ParseException("Invalid chunk delay: " + s);
+                }
+            }
+            builder.setRequestTarget(buf.toString());
+        } else if (cmd.hasOption("chunk-size") || cmd.hasOption("chunk-delay")) {
+            throw new ParseException("Chunk size and delay require --stream");
+        }
+        if (cmd.hasOption("upload")) {
+            if (cmd.hasOption("rate") || cmd.hasOption("h2") || cmd.hasOption("pipeline")) {
+                throw new ParseException("Uploads cannot be combined with open-loop load generation, " +
+                        "HTTP/2 or pipelining");
+            }
+            final long size = parseSize(cmd.getOptionValue("upload"));
+            if (size <= 0) {
+                throw new ParseException("Invalid upload size: " + cmd.getOptionValue("upload"));
+            }
+            builder.setRequestTarget("/upload");
+            builder.setUploadSize(size);
+        }
+        if (cmd.hasOption("slow-clients")) {
+            if (cmd.hasOption("rate") || cmd.hasOption("h2") || cmd.hasOption("pipeline")
+                    || cmd.hasOption("scaling-sweep") || cmd.hasOption("in-process") || cmd.hasOption("upload")) {
+                throw new ParseException("Slow clients cannot be combined with open-loop load generation, " +
+                        "HTTP/2, pipelining, a scaling sweep, in-process connections or uploads");
+            }
+            final String s = cmd.getOptionValue("slow-clients");
+            try {
+                final int n = Integer.parseInt(s);
+                if (n <= 0) {
+                    throw new ParseException("Invalid number of slow clients: " + s);
+                }
+                builder.setSlowClients(n);
+            } catch (final NumberFormatException ex) {
+                throw new ParseException("Invalid number of slow clients: " + s);
+            }
+            if (cmd.hasOption("slow-rate")) {
+                final long rate = parseSize(cmd.getOptionValue("slow-rate"));
+                if (rate <= 0) {
+                    throw new ParseException("Invalid slow read rate: " + cmd.getOptionValue("slow-rate"));
+                }
+                builder.setSlowRate(rate);
+            }
+            if (cmd.hasOption("slow-size")) {
+                final long size = parseSize(cmd.getOptionValue("slow-size"));
+                if (size > Integer.MAX_VALUE) {
+                    throw new ParseException("Slow response size out of range: " + cmd.getOptionValue("slow-size"));
+                }
+                builder.setSlowContentSize(size);
+            }
+        } else if (cmd.hasOption("slow-rate") || cmd.hasOption("slow-size")) {
+            throw new ParseException("Slow read rate and response size require --slow-clients");
+        }
+        if (cmd.hasOption("idle-connections")) {
+            if (cmd.hasOption("rate") || cmd.hasOption("h2") || cmd.hasOption("pipeline")
+                    || cmd.hasOption("scaling-sweep") || cmd.hasOption("in-process") || cmd.hasOption("upload")
+                    || cmd.hasOption("slow-clients")) {
+                throw new ParseException("Idle connections cannot be combined with open-loop load generation, " +
+                        "HTTP/2, pipelining, a scaling sweep, in-process connections, uploads or slow clients");
+            }
+            final String s = cmd.getOptionValue("idle-connections");
+            try {
+                final int n = Integer.parseInt(s);
+                if (n <= 0) {
+                    throw new ParseException("Invalid number of idle connections: " + s);
+                }
+                builder.setIdleConnections(n);
+            } catch (final NumberFormatException ex) {
+                throw new ParseException("Invalid number of idle connections: " + s);
+            }
+        }
+        if (cmd.hasOption("tls")) {
+            if (cmd.hasOption("rate") || cmd.hasOption("h2") || cmd.hasOption("scaling-sweep")
+                    || cmd.hasOption("in-process") || cmd.hasOption("slow-clients")
+                    || cmd.hasOption("idle-connections")) {
+                throw new ParseException("TLS cannot be combined with open-loop load generation, HTTP/2, " +
+                        "a scaling sweep, in-process connections, slow clients or idle connections");
+            }
+            builder.setTls(true);
+            builder.setTlsFullHandshake(cmd.hasOption("tls-full-handshake"));
+            builder.setTlsProvider(cmd.getOptionValue("tls-provider"));
+        } else if (cmd.hasOption("tls-full-handshake") || cmd.hasOption("tls-provider")) {
+            throw new ParseException("TLS handshake mode and provider require --tls");
+        }
+        if (cmd.hasOption("churn") || cmd.hasOption("requests-per-connection")) {
+            if (cmd.hasOption("rate") || cmd.hasOption("h2") || cmd.hasOption("pipeline")
+                    || cmd.hasOption("scaling-sweep") || cmd.hasOption("upload") || cmd.hasOption("slow-clients")
+                    || cmd.hasOption("idle-connections")) {
+                throw new ParseException("Connection churn cannot be combined with open-loop load generation, " +
+                        "HTTP/2, pipelining, a scaling sweep, uploads, slow clients or idle connections");
+            }
+            int min = 1;
+            int max = 1;
+            if (cmd.hasOption("requests-per-connection")) {
+                final String s = cmd.getOptionValue("requests-per-connection");
+                final int i = s.indexOf('-');
+                try {
+                    min = Integer.parseInt(i != -1 ? s.substring(0, i) : s);
+                    max = i != -1 ? Integer.parseInt(s.substring(i + 1)) : min;
+                } catch (final NumberFormatException ex) {
+                    throw new ParseException("Invalid number of requests per connection: " + s);
+                }
+                if (min <= 0 || max < min) {
+                    throw new ParseException("Invalid number of requests per connection: " + s);
+                }
+            }
+            builder.setMinRequestsPerConnection(min);
+            builder.setMaxRequestsPerConnection(max);
+        }
+        if (cmd.hasOption("scenario")) {
+            if (cmd.hasOption("rate") || cmd.hasOption("h2") || cmd.hasOption("pipeline")
+                    || cmd.hasOption("upload") || cmd.hasOption("churn") || cmd.hasOption("requests-per-connection")
+                    || cmd.hasOption("slow-clients") || cmd.hasOption("idle-connections")
+                    || cmd.hasOption("scaling-sweep")) {
+                throw new ParseException("A scenario cannot be combined with open-loop load generation, HTTP/2, " +
+                        "pipelining, uploads, connection churn, slow clients, idle connections or a scaling sweep");
+            }
+            final String file = cmd.getOptionValue("scenario");
+            try {
+                builder.setScenario(Scenario.load(new File(file)));
+            } catch (final IOException ex) {
+                throw new ParseException("Cannot load scenario " + file + ": " + ex.getMessage());
+            }
+        }
+        if (cmd.hasOption("warmup")) {
+            final String s = cmd.getOptionValue("warmup");
+            try {
+                final int n = Integer.parseInt(s);
+                if (n <= 0) {
+                    throw new ParseException("Invalid warm-up time: " + s);
+                }
+                builder.setWarmupTime(n);
+            } catch (final NumberFormatException ex) {
+                throw new ParseException("Invalid warm-up time: " + s);
+            }
+        }
+        if (cmd.hasOption("iterations")) {
+            if (cmd.hasOption("scaling-sweep")) {
+                throw new ParseException("Multiple iterations cannot be combined with a scaling sweep");
+            }
+            final String s = cmd.getOptionValue("iterations");
+            try {
+                final int n = Integer.parseInt(s);
+                if (n <= 0) {
+                    throw new ParseException("Invalid number of iterations: " + s);
+                }
+                builder.setIterations(n);
+            } catch (final NumberFormatException ex) {
+                throw new ParseException("Invalid number of iterations: " + s);
+            }
+        }
+        if (cmd.hasOption("serve")) {
+            if (cmd.hasOption("connect") || cmd.hasOption("scaling-sweep")) {
+                throw new ParseException("--serve cannot be combined with --connect or a scaling sweep");
+            }
+            builder.setServe(true);
+        }
+        if (cmd.hasOption("connect")) {
+            if (cmd.hasOption("in-process") || cmd.hasOption("scaling-sweep") || cmd.hasOption("tls")) {
+                // Each JVM generates its own self-signed certificate
+                throw new ParseException("--connect cannot be combined with in-process connections, " +
+                        "a scaling sweep or TLS");
+            }
+            final String s = cmd.getOptionValue("connect");
+            try {
+                final int port = Integer.parseInt(s);
+                if (port <= 0 || port > 65535) {
+                    throw new ParseException("Invalid port: " + s);
+                }
+                builder.setConnectPort(port);
+            } catch (final NumberFormatException ex) {
+                throw new ParseException("Invalid port: " + s);
+            }
+        }
+        if (cmd.hasOption("out")) {
+            builder.setOutputFile(new File(cmd.getOptionValue("out")));
+        }
+        return builder.build();
+    }
 
-        server.start();
+    static double parseRate(final String s) throws ParseException {
         try {
-            System.out.println("---------------------------------------------------------------");
-            System.out.println(server.getName() + "; version: " + server.getVersion());
-            System.out.println("---------------------------------------------------------------");
+            final double rate = Double.parseDouble(s);
+            if (rate <= 0) {
+                throw new ParseException("Invalid request rate: " + s);
+            }
+            return rate;
+        } catch (final NumberFormatException ex) {
+            throw new ParseException("Invalid request rate: " + s);
+        }
+    }
+
+    static int parseThreadCount(final String s) throws ParseException {
+        try {
+            final int n = Integer.parseInt(s);
+            if (n <= 0) {
+                throw new ParseException("Invalid number of threads: " + s);
+            }
+            return n;
+        } catch (final NumberFormatException ex) {
+            throw new ParseException("Invalid number of threads: " + s);
+        }
+    }
+
+    static long parseSize(final String s) throws ParseException {
+        if (s == null || s.length() == 0) {
+            throw new ParseException("Invalid size: " + s);
+        }
+        final char unit = Character.toLowerCase(s.charAt(s.length() - 1));
+        final long multiplier;
+        switch (unit) {
+            case 'k':
+                multiplier = 1024L;
+                break;
+            case 'm':
+                multiplier = 1024L * 1024L;
+                break;
+            case 'g':
+                multiplier = 1024L * 1024L * 1024L;
+                break;
+            default:
+                multiplier = 1L;
+        }
+        final String digits = multiplier > 1 ? s.substring(0, s.length() - 1) : s;
+        try {
+            return Long.parseLong(digits) * multiplier;
+        } catch (final NumberFormatException ex) {
+            throw new ParseException("Invalid size: " + s);
+        }
+    }
+
 
-            final Config warmupConfig = config.copy();
+    /**
+     * Warms up the server with the client used for the measured run, either with a small
+     * fraction of the requests or, if a warm-up time is given, in rounds of one second until
+     * the throughput of the last rounds stabilises. Open-loop runs have no meaningful request
+     * count and are warmed up for a fixed time instead.
+     */
+    static void warmUp(
+            final HttpServer server, final Config config, final RunnerConfig runnerConfig) throws Exception {
+        final Config warmupConfig = config.copy();
+        if (runnerConfig.getWarmupTime() <= 0 && runnerConfig.getRate() > 0) {
+            warmupConfig.setRequests(WARMUP_MAX_REQUESTS);
+            warmupConfig.setTimeLimit(OPEN_LOOP_WARMUP_TIME);
+            warmUp(server, config, warmupConfig, runnerConfig);
+            return;
+        }
+        if (runnerConfig.getWarmupTime() <= 0) {
             int n = warmupConfig.getRequests() / 100;
             if (n > 100) {
                 n = 100;
             }
             warmupConfig.setRequests(n);
+            warmUp(server, config, warmupConfig, runnerConfig);
+            return;
+        }
+        // Rounds are ended by the time limit
+        warmupConfig.setRequests(WARMUP_MAX_REQUESTS);
+        warmupConfig.setTimeLimit(1);
+        final double[] window = new double[WARMUP_WINDOW];
+        final long deadline = System.nanoTime() + runnerConfig.getWarmupTime() * 1000000000L;
+        int rounds = 0;
+        boolean stable;
+        do {
+            window[rounds % WARMUP_WINDOW] = warmUp(server, config, warmupConfig, runnerConfig);
+            rounds++;
+            stable = rounds >= WARMUP_WINDOW && isStable(window);
+        } while (!stable && deadline - System.nanoTime() > 0);
+        System.out.println(String.format(Locale.ROOT, "Warm-up:\t\t\t%d rounds, %,.2f [#/sec]%s",
+                rounds, window[(rounds - 1) % WARMUP_WINDOW], stable ? "" : " (not stable)"));
+    }
+
+    /**
+     * Returns {@code true} if all the rates are within the warm-up tolerance of their mean.
+     */
+    static boolean isStable(final double[] rates) {
+        double sum = 0;
+        for (final double rate : rates) {
+            sum += rate;
+        }
+        final double mean = sum / rates.length;
+        if (mean <= 0) {
+            return false;
+        }
+        for (final double rate : rates) {
+            if (Math.abs(rate - mean) > mean * WARMUP_TOLERANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Executes one warm-up round and returns the achieved request rate.
+     */
+    static double warmUp(
+            final HttpServer server,
+            final Config config,
+            final Config warmupConfig,
+            final RunnerConfig runnerConfig) throws Exception {
+        final LoadResult result;
+        if (runnerConfig.isHttp2()) {
+            final MultiplexingClient warmUp = new MultiplexingClient(warmupConfig,
+                    runnerConfig.getH2Connections());
+            result = warmUp.execute();
+        } else if (runnerConfig.getUploadSize() > 0) {
+            final UploadClient warmUp = new UploadClient(warmupConfig, runnerConfig.getUploadSize(),
+                    createConnectionFactory(server, config, runnerConfig));
+            result = warmUp.execute();
+        } else if (runnerConfig.getScenario() != null) {
+            final ScenarioClient warmUp = new ScenarioClient(warmupConfig, runnerConfig.getScenario(),
+                    createConnectionFactory(server, config, runnerConfig));
+            result = warmUp.execute();
+        } else if (runnerConfig.getMinRequestsPerConnection() > 0) {
+            final ChurnClient warmUp = new ChurnClient(warmupConfig, runnerConfig.getMinRequestsPerConnection(),
+                    runnerConfig.getMaxRequestsPerConnection(), createConnectionFactory(server, config, runnerConfig));
+            result = warmUp.execute();
+        } else if (runnerConfig.getPipelineDepth() > 0) {
+            final PipelinedClient warmUp = new PipelinedClient(warmupConfig, runnerConfig.getPipelineDepth(),
+                    createConnectionFactory(server, config, runnerConfig));
+            result = warmUp.execute();
+        } else if (runnerConfig.getRate() > 0 || runnerConfig.isLatency() || runnerConfig.getScalingSweep() > 0
+                || runnerConfig.isInProcess() || runnerConfig.getSlowClients() > 0
+                || runnerConfig.getIdleConnections() > 0 || runnerConfig.isTls()) {
+            final ClosedLoopClient warmUp = new ClosedLoopClient(warmupConfig, 0,
+                    createConnectionFactory(server, config, runnerConfig));
+            result = warmUp.execute();
+        } else {
             final HttpBenchmark warmUp = new HttpBenchmark(warmupConfig);
-            warmUp.doExecute();
+            final Results results = warmUp.doExecute();
+            final double duration = results.getTotalTimeNano() / 1000000000.0 / results.getConcurrencyLevel();
+            return duration > 0 ? results.getSuccessCount() / duration : 0;
+        }
+        return result.getRequestsPerSecond();
+    }
 
-            final HttpBenchmark benchmark = new HttpBenchmark(config);
-            benchmark.execute();
+    public static void run(
+            final HttpServerFactory serverFactory,
+            final Config config,
+            final ServerConfig serverConfig,
+            final RunnerConfig runnerConfig) throws Exception {
+        if (runnerConfig.getScalingSweep() > 0) {
+            final ScalingSweep sweep = new ScalingSweep(serverFactory, BenchConsts.PORT, config, serverConfig,
+                    runnerConfig);
+            export(sweep.execute(System.out), runnerConfig);
+        } else if (runnerConfig.isServe()) {
+            serve(ServerThreads.create(serverFactory, BenchConsts.PORT, serverConfig));
+        } else if (runnerConfig.getConnectPort() > 0) {
+            run(RemoteServer.connect(runnerConfig.getConnectPort()), config, serverConfig, runnerConfig);
+        } else {
+            run(ServerThreads.create(serverFactory, BenchConsts.PORT, serverConfig), config, serverConfig,
+                    runnerConfig);
+        }
+    }
+
+    /**
+     * Runs the server until standard input is closed. The load generator obtains the runtime
+     * statistics of this JVM over the control connection on the following port.
+     */
+    static void serve(final HttpServer server) throws Exception {
+        final ControlListener control = new ControlListener(server, server.getPort() + 1);
+        control.start();
+        ServerThreads.start(server);
+        try {
+            System.out.println(server.getName() + "; version: " + server.getVersion()
+                    + "; listening on port " + server.getPort());
+            final InputStream instream = System.in;
+            while (instream.read() != -1) {
+            }
+        } finally {
+            control.close();
+            server.shutdown();
+        }
+    }
+
+    public static void run(final HttpServer server, final Config config) throws Exception {
+        run(server, config, ServerConfig.DEFAULT, RunnerConfig.DEFAULT);
+    }
+
+    public static void run(
+            final HttpServer server,
+            final Config config,
+            final ServerConfig serverConfig,
+            final RunnerConfig runnerConfig) throws Exception {
+        final URL target = new URL(runnerConfig.isTls() ? "https" : "http", "localhost", server.getPort(),
+                runnerConfig.getRequestTarget());
+        config.setUrl(target);
+
+        final List<BenchResult> results = new ArrayList<BenchResult>();
+        ServerThreads.start(server);
+        try {
+            System.out.println("---------------------------------------------------------------");
+            System.out.println(server.getName() + "; version: " + server.getVersion());
+            System.out.println("---------------------------------------------------------------");
+
+            warmUp(server, config, runnerConfig);
+
+            final ConnectionFactory connectionFactory = createConnectionFactory(server, config, runnerConfig);
+            if (runnerConfig.isInProcess()) {
+                System.out.println("Transport:\t\t\tin-process");
+            }
+            for (int i = 0; i < runnerConfig.getIterations(); i++) {
+                if (runnerConfig.getIterations() > 1) {
+                    System.out.println("Iteration:\t\t\t" + (i + 1) + " of " + runnerConfig.getIterations());
+                }
+                measure(server, config, serverConfig, runnerConfig, connectionFactory, results);
+                if (runnerConfig.getIterations() > 1) {
+                    System.out.println();
+                }
+            }
+            if (runnerConfig.getIterations() > 1) {
+                IterationSummary.print(results, System.out);
+            }
+            if (connectionFactory instanceof TlsConnectionFactory) {
+                System.out.println();
+                ((TlsConnectionFactory) connectionFactory).print(System.out);
+            }
             System.out.println("---------------------------------------------------------------");
         } finally {
             server.shutdown();
         }
+        export(results, runnerConfig);
+    }
+
+    /**
+     * Executes one measurement iteration and adds its results to the given list.
+     */
+    static void measure(
+            final HttpServer server,
+            final Config config,
+            final ServerConfig serverConfig,
+            final RunnerConfig runnerConfig,
+            final ConnectionFactory connectionFactory,
+            final List<BenchResult> results) throws Exception {
+        final RuntimeStats start = startRuntimeStats(server);
+        if (runnerConfig.isHttp2()) {
+            final MultiplexingClient client = new MultiplexingClient(config, runnerConfig.getH2Connections());
+            final LoadResult result = client.execute();
+            System.out.println("HTTP/2 connections:\t\t" + Math.min(runnerConfig.getH2Connections(),
+                    config.getThreads()));
+            result.print(System.out);
+            results.add(createResult(server, config, serverConfig, runnerConfig)
+                    .setLoadResult(result)
+                    .setRuntimeStats(reportRuntimeStats(server, start, result.getSuccessCount()))
+                    .build());
+        } else if (runnerConfig.getIdleConnections() > 0) {
+            final IdleConnectionScaling scaling = new IdleConnectionScaling(config, runnerConfig);
+            scaling.execute(System.out);
+            for (int i = 0; i < scaling.getSteps().size(); i++) {
+                results.add(createResult(server, config, serverConfig, runnerConfig)
+                        .setParameter("idleConnections", scaling.getSteps().get(i))
+                        .setLoadResult(scaling.getResults().get(i))
+                        .build());
+            }
+        } else if (runnerConfig.getScenario() != null) {
+            final ScenarioClient client = new ScenarioClient(config, runnerConfig.getScenario(), connectionFactory);
+            final LoadResult result = client.execute();
+            client.print(System.out);
+            System.out.println();
+            result.print(System.out);
+            results.add(createResult(server, config, serverConfig, runnerConfig)
+                    .setLoadResult(result)
+                    .setRuntimeStats(reportRuntimeStats(server, start, result.getSuccessCount()))
+                    .build());
+        } else if (runnerConfig.getMinRequestsPerConnection() > 0) {
+            final ChurnClient client = new ChurnClient(config, runnerConfig.getMinRequestsPerConnection(),
+                    runnerConfig.getMaxRequestsPerConnection(), connectionFactory);
+            final ListenQueueStats listenQueueStart = ListenQueueStats.capture();
+            final LoadResult result = client.execute();
+            final ListenQueueStats listenQueue = ListenQueueStats.capture().since(listenQueueStart);
+            client.print(System.out);
+            if (listenQueue.getOverflows() >= 0) {
+                // System wide, so other activity on the host is counted as well
+                System.out.println("Listen queue overflows:\t\t" + listenQueue.getOverflows()
+                        + " (" + listenQueue.getDrops() + " dropped)");
+            }
+            System.out.println();
+            result.print(System.out);
+            results.add(createResult(server, config, serverConfig, runnerConfig)
+                    .setLoadResult(result)
+                    .setRuntimeStats(reportRuntimeStats(server, start, result.getSuccessCount()))
+                    .build());
+        } else if (runnerConfig.getSlowClients() > 0) {
+            final SlowConsumerStress stress = new SlowConsumerStress(config, runnerConfig);
+            stress.execute(System.out);
+            // GC and CPU usage are not broken down by phase
+            results.add(createResult(server, config, serverConfig, runnerConfig)
+                    .setParameter("slowClients", Integer.valueOf(0))
+                    .setLoadResult(stress.getBaseline())
+                    .build());
+            results.add(createResult(server, config, serverConfig, runnerConfig)
+                    .setLoadResult(stress.getLoaded())
+                    .build());
+        } else if (runnerConfig.getUploadSize() > 0) {
+            final UploadClient client = new UploadClient(config, runnerConfig.getUploadSize(),
+                    connectionFactory);
+            final LoadResult result = client.execute();
+            System.out.println("Upload size:\t\t\t" + runnerConfig.getUploadSize() + " bytes"
+                    + (config.isUseChunking() ? " (chunked)" : ""));
+            System.out.println(String.format(Locale.ROOT, "Upload rate:\t\t\t%,.2f [MB/sec]",
+                    result.getBytesSent() * 1000.0 / result.getDurationNanos()));
+            result.print(System.out);
+            results.add(createResult(server, config, serverConfig, runnerConfig)
+                    .setLoadResult(result)
+                    .setRuntimeStats(reportRuntimeStats(server, start, result.getSuccessCount()))
+                    .build());
+        } else if (runnerConfig.getPipelineDepth() > 0) {
+            final PipelinedClient client = new PipelinedClient(config, runnerConfig.getPipelineDepth(),
+                    connectionFactory);
+            final LoadResult result = client.execute();
+            System.out.println("Pipeline depth:\t\t\t" + runnerConfig.getPipelineDepth());
+            result.print(System.out);
+            results.add(createResult(server, config, serverConfig, runnerConfig)
+                    .setLoadResult(result)
+                    .setRuntimeStats(reportRuntimeStats(server, start, result.getSuccessCount()))
+                    .build());
+        } else if (runnerConfig.getRate() > 0) {
+            final long stepDuration = runnerConfig.getStepDuration() * 1000000000L;
+            if (runnerConfig.getMaxRate() > runnerConfig.getRate()) {
+                final RateSweep sweep = new RateSweep(config, runnerConfig.getRate(),
+                        runnerConfig.getMaxRate(), runnerConfig.getRateStep(), stepDuration);
+                sweep.execute(System.out);
+                // GC and CPU usage are not broken down by step
+                for (final Map.Entry<Double, LoadResult> entry : sweep.getResults().entrySet()) {
+                    results.add(createResult(server, config, serverConfig, runnerConfig)
+                            .setParameter("rate", Long.valueOf(Math.round(entry.getKey().doubleValue())))
+                            .setLoadResult(entry.getValue())
+                            .build());
+                }
+            } else {
+                final OpenLoopClient client = new OpenLoopClient(config);
+                final LoadResult result = client.execute(runnerConfig.getRate(), stepDuration);
+                result.print(System.out);
+                results.add(createResult(server, config, serverConfig, runnerConfig)
+                        .setParameter("rate", Long.valueOf(Math.round(runnerConfig.getRate())))
+                        .setLoadResult(result)
+                        .setRuntimeStats(reportRuntimeStats(server, start, result.getSuccessCount()))
+                        .build());
+            }
+        } else if (runnerConfig.isLatency() || runnerConfig.isInProcess() || runnerConfig.isTls()) {
+            final ClosedLoopClient client = new ClosedLoopClient(config, runnerConfig.getExpectedInterval(),
+                    connectionFactory);
+            final LoadResult result = client.execute();
+            result.print(System.out);
+            results.add(createResult(server, config, serverConfig, runnerConfig)
+                    .setLoadResult(result)
+                    .setRuntimeStats(reportRuntimeStats(server, start, result.getSuccessCount()))
+                    .build());
+        } else {
+            final HttpBenchmark benchmark = new HttpBenchmark(config);
+            final Results result = benchmark.doExecute();
+            printResults(result, System.out);
+            final double duration = result.getTotalTimeNano() / 1000000.0 / result.getConcurrencyLevel();
+            results.add(createResult(server, config, serverConfig, runnerConfig)
+                    .setConcurrency(result.getConcurrencyLevel())
+                    .setDurationMillis(duration)
+                    .setSuccessCount(result.getSuccessCount())
+                    .setFailureCount(result.getFailureCount())
+                    .setBytesReceived(result.getTotalBytesRcvd())
+                    .setBytesSent(result.getTotalBytesSent())
+                    .setRequestsPerSecond(duration > 0 ? result.getSuccessCount() * 1000.0 / duration : 0)
+                    .setRuntimeStats(reportRuntimeStats(server, start, result.getSuccessCount()))
+                    .build());
+        }
+    }
+
+    /**
+     * Creates a result of the given server identified by the load generation mode
+     * and the settings of the run. Server settings are only recorded if they differ
+     * from the defaults, so that results of default runs keep their keys.
+     */
+    static BenchResult.Builder createResult(
+            final HttpServer server,
+            final Config config,
+            final ServerConfig serverConfig,
+            final RunnerConfig runnerConfig) {
+        final BenchResult.Builder builder = BenchResult.custom()
+                .setServer(server.getName(), server.getVersion())
+                .setParameter("target", runnerConfig.getRequestTarget())
+                .setParameter("method", config.isHeadInsteadOfGet() ? "HEAD" : config.getMethod())
+                .setParameter("keepAlive", Boolean.valueOf(config.isKeepAlive()))
+                .setParameter("concurrency", Integer.valueOf(config.getThreads()));
+        if (runnerConfig.getUploadSize() > 0) {
+            builder.setMode("upload")
+                    .setParameter("method", "POST")
+                    .setParameter("uploadSize", Long.valueOf(runnerConfig.getUploadSize()))
+                    .setParameter("chunked", Boolean.valueOf(config.isUseChunking()));
+        } else if (runnerConfig.isHttp2()) {
+            builder.setMode("h2c")
+                    .setParameter("connections", Integer.valueOf(Math.min(runnerConfig.getH2Connections(),
+                            config.getThreads())));
+        } else if (runnerConfig.getScenario() != null) {
+            builder.setMode("scenario")
+                    .setParameter("target", runnerConfig.getScenario().getName())
+                    .setParameter("method", "mixed");
+        } else if (runnerConfig.getMinRequestsPerConnection() > 0) {
+            final int min = runnerConfig.getMinRequestsPerConnection();
+            final int max = runnerConfig.getMaxRequestsPerConnection();
+            builder.setMode("churn")
+                    .setParameter("keepAlive", Boolean.valueOf(max > 1))
+                    .setParameter("requestsPerConnection", min == max ? Integer.toString(min) : min + "-" + max);
+        } else if (runnerConfig.getPipelineDepth() > 0) {
+            builder.setMode("pipelined")
+                    .setParameter("depth", Integer.valueOf(runnerConfig.getPipelineDepth()));
+        } else if (runnerConfig.getRate() > 0) {
+            builder.setMode("open-loop");
+        } else {
+            builder.setMode("closed-loop");
+        }
+        if (runnerConfig.isInProcess()) {
+            builder.setParameter("transport", "in-process");
+        }
+        if (runnerConfig.isTls()) {
+            builder.setParameter("tls", runnerConfig.isTlsFullHandshake() ? "full-handshake" : "resumption");
+        }
+        if (runnerConfig.getSlowClients() > 0) {
+            builder.setParameter("slowClients", Integer.valueOf(runnerConfig.getSlowClients()))
+                    .setParameter("slowRate", Long.valueOf(runnerConfig.getSlowRate()))
+                    .setParameter("slowSize", Long.valueOf(runnerConfig.getSlowContentSize()));
+        }
+        if (runnerConfig.getFileSize() > 0) {
+            builder.setParameter("fileSize", Long.valueOf(runnerConfig.getFileSize()));
+        }
+        if (serverConfig.getIoThreads() > 0) {
+            builder.setParameter("ioThreads", Integer.valueOf(serverConfig.getIoThreads()));
+        }
+        if (serverConfig.getWorkerThreads() > 0) {
+            builder.setParameter("workerThreads", Integer.valueOf(serverConfig.getWorkerThreads()));
+        }
+        if (serverConfig.getBacklog() > 0) {
+            builder.setParameter("backlog", Integer.valueOf(serverConfig.getBacklog()));
+        }
+        if (!serverConfig.isReuseAddress()) {
+            builder.setParameter("reuseAddress", Boolean.FALSE);
+        }
+        if (serverConfig.isFreshPayload()) {
+            builder.setParameter("freshPayload", Boolean.TRUE);
+        }
+        if (serverConfig.getPayloadCacheSize() != BenchConsts.PAYLOAD_CACHE_SIZE) {
+            builder.setParameter("payloadCacheSize", Long.valueOf(serverConfig.getPayloadCacheSize()));
+        }
+        if (serverConfig.isNativeTransport()) {
+            builder.setParameter("nativeTransport", Boolean.TRUE);
+        }
+        if (serverConfig.isDirectBuffers()) {
+            builder.setParameter("directBuffers", Boolean.TRUE);
+        }
+        if (serverConfig.isCachedHeaders()) {
+            builder.setParameter("cachedHeaders", Boolean.TRUE);
+        }
+        return builder;
+    }
+
+    /**
+     * Returns a factory of in-process or TLS connections to the server if requested
+     * or {@code null} if the load generators are to connect over plain TCP.
+     */
+    static ConnectionFactory createConnectionFactory(
+            final HttpServer server, final Config config, final RunnerConfig runnerConfig) throws IOException {
+        if (runnerConfig.isTls()) {
+            return new TlsConnectionFactory(RequestEncoder.getAddress(config.getUrl()),
+                    config.getSocketTimeoutMillis(), runnerConfig.getTlsProvider(), runnerConfig.isTlsFullHandshake());
+        }
+        if (!runnerConfig.isInProcess()) {
+            return null;
+        }
+        final int socketTimeout = config.getSocketTimeoutMillis();
+        return new ConnectionFactory() {
+
+            @Override
+            public BenchConnection open() throws IOException {
+                final InProcessChannel channel = server.connectInProcess(socketTimeout);
+                return new BenchConnection(channel.getInputStream(), channel.getOutputStream(), channel);
+            }
+
+        };
+    }
+
+    static void export(final List<BenchResult> results, final RunnerConfig runnerConfig) throws IOException {
+        final File file = runnerConfig.getOutputFile();
+        if (file != null && !results.isEmpty()) {
+            ResultWriter.write(file, results);
+            System.out.println("Results written to " + file);
+        }
+    }
+
+    /**
+     * Captures a snapshot of the runtime statistics before a run. The statistics of a server
+     * in another JVM are captured by that JVM, in which case {@code null} is returned.
+     */
+    static RuntimeStats startRuntimeStats(final HttpServer server) throws IOException {
+        if (server instanceof RemoteServer) {
+            ((RemoteServer) server).startRuntimeStats();
+            return null;
+        }
+        return RuntimeStats.capture(ServerThreads.GROUP);
+    }
+
+    /**
+     * Captures the runtime statistics of the run started at the given snapshot and prints them.
+     */
+    static RuntimeStats reportRuntimeStats(
+            final HttpServer server, final RuntimeStats start, final long requests) throws IOException {
+        // Runtime statistics of this JVM say nothing about a server running in another one
+        final RuntimeStats stats = server instanceof RemoteServer
+                ? ((RemoteServer) server).stopRuntimeStats()
+                : RuntimeStats.capture(ServerThreads.GROUP).since(start);
+        System.out.println();
+        stats.print(System.out, requests);
+        return stats;
+    }
+
+    /**
+     * Prints the results of {@link HttpBenchmark} the same way {@link HttpBenchmark#execute()} does.
+     */
+    static void printResults(final Results results, final PrintStream out) {
+        final NumberFormat nf2 = NumberFormat.getInstance();
+        nf2.setMaximumFractionDigits(2);
+        nf2.setMinimumFractionDigits(2);
+        final NumberFormat nf3 = NumberFormat.getInstance();
+        nf3.setMaximumFractionDigits(3);
+        nf3.setMinimumFractionDigits(3);
+        final NumberFormat nf6 = NumberFormat.getInstance();
+        nf6.setMaximumFractionDigits(6);
+        nf6.setMinimumFractionDigits(6);
+
+        // Total time is the sum of the time taken by each of the concurrent workers
+        final double totalTimeMs = results.getTotalTimeNano() / results.getConcurrencyLevel() / 1000000;
+        final double timePerReqMs = totalTimeMs / results.getSuccessCount();
+        final double totalTimeSec = totalTimeMs / 1000;
+        final double reqsPerSec = results.getSuccessCount() / totalTimeSec;
+
+        out.println("\nServer Software:\t\t" + results.getServerName());
+        out.println("Server Hostname:\t\t" + results.getHostName());
+        out.println("Server Port:\t\t\t" + results.getHostPort());
+        out.println("Document Path:\t\t\t" + results.getDocumentPath());
+        out.println("Document Length:\t\t" + results.getContentLength() + " bytes\n");
+        out.println("Concurrency Level:\t\t" + results.getConcurrencyLevel());
+        out.println("Time taken for tests:\t\t" + nf6.format(totalTimeSec) + " seconds");
+        out.println("Complete requests:\t\t" + results.getSuccessCount());
+        out.println("Failed requests:\t\t" + results.getFailureCount());
+        out.println("Write errors:\t\t\t" + results.getWriteErrors());
+        out.println("Kept alive:\t\t\t" + results.getKeepAliveCount());
+        out.println("Total transferred:\t\t" + results.getTotalBytes() + " bytes");
+        out.println("Requests per second:\t\t" + nf2.format(reqsPerSec) + " [#/sec] (mean)");
+        out.println("Time per request:\t\t" + nf3.format(timePerReqMs * results.getConcurrencyLevel())
+                + " [ms] (mean)");
+        out.println("Time per request:\t\t" + nf3.format(timePerReqMs)
+                + " [ms] (mean, across all concurrent requests)");
+        out.println("Transfer rate:\t\t\t" + nf2.format(results.getTotalBytesRcvd() / 1000 / totalTimeSec)
+                + " [Kbytes/sec] received");
+        out.println("\t\t\t\t" + nf2.format(results.getTotalBytesSent() / 1000 / totalTimeSec) + " kb/s sent");
+        out.println("\t\t\t\t" + nf2.format(results.getTotalBytes() / 1000 / totalTimeSec) + " kb/s total");
     }
 
 }
@@ -0,0 +1,116 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.apache.http.benchmark.result.RuntimeStats;
+
+/**
+ * Control connection of a server started with {@code --serve}, accepted on the port following
+ * the port of the server. The load generator in the other JVM ({@link RemoteServer}) reads the
+ * name and the version of the server from it and has the runtime statistics of each measurement
+ * captured here, in the JVM of the server threads. Commands and replies are lines of text:
+ * <ul>
+ * <li>{@code server}: the name and the version of the server on two lines</li>
+ * <li>{@code start}: captures a snapshot and replies {@code ok}</li>
+ * <li>{@code stop}: the usage since the last snapshot as formatted by {@link RuntimeStats#format()}</li>
+ * </ul>
+ * Connections are served one at a time.
+ */
+final class ControlListener implements Runnable {
+
+    private final HttpServer server;
+    private final ServerSocket serverSocket;
+
+    ControlListener(final HttpServer server, final int port) throws IOException {
+        super();
+        this.server = server;
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.setReuseAddress(true);
+        this.serverSocket.bind(new InetSocketAddress("localhost", port));
+    }
+
+    void start() {
+        final Thread thread = new Thread(this, "bench-control");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        while (!this.serverSocket.isClosed()) {
+            try {
+                final Socket socket = this.serverSocket.accept();
+                try {
+                    handle(socket);
+                } finally {
+                    socket.close();
+                }
+            } catch (final IOException ex) {
+                if (!this.serverSocket.isClosed()) {
+                    System.err.println("Control connection failed: " + ex);
+                }
+            }
+        }
+    }
+
+    private void handle(final Socket socket) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+        final Writer writer = new OutputStreamWriter(socket.getOutputStream(), "US-ASCII");
+        RuntimeStats start = null;
+        String command;
+        while ((command = reader.readLine()) != null) {
+            if (command.equals("server")) {
+                writer.write(this.server.getName() + "\n" + this.server.getVersion() + "\n");
+            } else if (command.equals("start")) {
+                start = RuntimeStats.capture(ServerThreads.GROUP);
+                writer.write("ok\n");
+            } else if (command.equals("stop") && start != null) {
+                writer.write(RuntimeStats.capture(ServerThreads.GROUP).since(start).format() + "\n");
+            } else {
+                writer.write("error: " + command + "\n");
+            }
+            writer.flush();
+        }
+    }
+
+    void close() {
+        try {
+            this.serverSocket.close();
+        } catch (final IOException ignore) {
+        }
+    }
+
+}
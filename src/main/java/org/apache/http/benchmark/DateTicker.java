@@ -0,0 +1,82 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.core5.concurrent.DefaultThreadFactory;
+
+/**
+ * Current date in the format of the HTTP {@code Date} header, formatted once
+ * per second by a background thread rather than for every response. The same
+ * string instance is returned until the next tick, so callers can cache what
+ * they derive from it and rebuild it only if the instance changes.
+ */
+public final class DateTicker {
+
+    private final SimpleDateFormat dateFormat;
+    private final ScheduledExecutorService executor;
+
+    private volatile String date;
+
+    public DateTicker() {
+        super();
+        this.dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        this.dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        tick();
+        this.executor = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("date-ticker", true));
+        // Tick right after the start of each second
+        final long now = System.currentTimeMillis();
+        this.executor.scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public void run() {
+                tick();
+            }
+
+        }, 1000 - now % 1000, 1000, TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        this.date = this.dateFormat.format(new Date());
+    }
+
+    public String getDate() {
+        return this.date;
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+}
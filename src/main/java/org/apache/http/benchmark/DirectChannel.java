@@ -0,0 +1,362 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+
+/**
+ * Base class of in-process channels that drive a non-blocking server connection
+ * directly from the client thread. Request bytes written by the client are
+ * handed to the server connection as input events and its output is produced
+ * on output events, both in the calling thread, so that no I/O reactor thread
+ * is involved. Output requested by other threads, for instance by a handler
+ * completing a response asynchronously, wakes up the client waiting for
+ * the response.
+ * <p>
+ * Like a socket send buffer, the output not yet read by the client is limited
+ * to {@link #OUTBOUND_CAPACITY} bytes. Once it is full the server connection
+ * cannot write any more and receives output events again only after the client
+ * has read the output.
+ */
+public abstract class DirectChannel implements InProcessChannel {
+
+    static final int OUTBOUND_CAPACITY = 64 * 1024;
+
+    private final int socketTimeout;
+    private final ByteChannel serverChannel;
+    private final InputStream instream;
+    private final OutputStream outstream;
+
+    // Bytes written by the client not yet read by the server
+    private byte[] inbound;
+    private int inboundPos;
+    private int inboundLimit;
+    // Bytes written by the server not yet read by the client
+    private byte[] outbound;
+    private int outboundPos;
+    private int outboundLimit;
+    private long outboundTotal;
+
+    private boolean signalled;
+    private boolean clientClosed;
+    private boolean serverClosed;
+
+    protected DirectChannel(final int socketTimeout) {
+        super();
+        this.socketTimeout = socketTimeout;
+        this.inbound = new byte[BenchConsts.BUF_SIZE];
+        this.outbound = new byte[BenchConsts.BUF_SIZE];
+        this.serverChannel = new ServerChannel();
+        this.instream = new ChannelInputStream();
+        this.outstream = new ChannelOutputStream();
+    }
+
+    /**
+     * Signals the server connection that input is available.
+     */
+    protected abstract void inputReady() throws IOException;
+
+    /**
+     * Signals the server connection that output can be written.
+     */
+    protected abstract void outputReady() throws IOException;
+
+    protected abstract boolean isInputRequested();
+
+    protected abstract boolean isOutputRequested();
+
+    /**
+     * Returns {@code true} if the server connection holds input it has read
+     * from the channel but not processed yet. Such a connection receives input
+     * events even if no more bytes are available, like it would from an I/O
+     * reactor.
+     */
+    protected boolean hasBufferedInput() {
+        return false;
+    }
+
+    /**
+     * Signals the server connection that the client has closed the channel.
+     */
+    protected abstract void disconnected();
+
+    /**
+     * Returns the channel the server connection reads requests from and writes responses to.
+     */
+    protected final ByteChannel getServerChannel() {
+        return this.serverChannel;
+    }
+
+    /**
+     * Wakes up the client waiting for output. To be called when the server
+     * connection requests output.
+     */
+    protected final synchronized void signal() {
+        this.signalled = true;
+        notifyAll();
+    }
+
+    /**
+     * Marks the channel as closed by the server. The client reads end of stream
+     * once it has read all output.
+     */
+    protected final synchronized void serverClosed() {
+        this.serverClosed = true;
+        this.signalled = true;
+        notifyAll();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return this.instream;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return this.outstream;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (this.clientClosed) {
+                return;
+            }
+            this.clientClosed = true;
+        }
+        disconnected();
+    }
+
+    private synchronized int getInboundRemaining() {
+        return this.inboundLimit - this.inboundPos;
+    }
+
+    private synchronized long getOutboundTotal() {
+        return this.outboundTotal;
+    }
+
+    private synchronized boolean hasOutboundRoom() {
+        return this.outboundLimit - this.outboundPos < OUTBOUND_CAPACITY;
+    }
+
+    private synchronized boolean isServerClosed() {
+        return this.serverClosed;
+    }
+
+    /**
+     * Generates input and output events as long as the server connection makes progress.
+     */
+    private void pump() throws IOException {
+        for (;;) {
+            if (isServerClosed()) {
+                return;
+            }
+            boolean progress = false;
+            final int remaining = getInboundRemaining();
+            if ((remaining > 0 || hasBufferedInput()) && isInputRequested()) {
+                final long total = getOutboundTotal();
+                final boolean outputRequested = isOutputRequested();
+                inputReady();
+                progress = getInboundRemaining() < remaining
+                        || getOutboundTotal() > total
+                        || isOutputRequested() != outputRequested;
+            }
+            // A full outbound buffer is drained by the client before output is written again
+            if (isOutputRequested() && hasOutboundRoom()) {
+                final long total = getOutboundTotal();
+                outputReady();
+                progress |= getOutboundTotal() > total || !isOutputRequested();
+            }
+            if (!progress) {
+                return;
+            }
+        }
+    }
+
+    private synchronized void append(final byte[] b, final int off, final int len) throws IOException {
+        if (this.clientClosed) {
+            throw new ClosedChannelException();
+        }
+        if (this.serverClosed) {
+            throw new IOException("Connection closed by peer");
+        }
+        if (this.inboundPos == this.inboundLimit) {
+            this.inboundPos = 0;
+            this.inboundLimit = 0;
+        }
+        if (this.inboundLimit + len > this.inbound.length) {
+            this.inbound = compact(this.inbound, this.inboundPos, this.inboundLimit, len);
+            this.inboundLimit -= this.inboundPos;
+            this.inboundPos = 0;
+        }
+        System.arraycopy(b, off, this.inbound, this.inboundLimit, len);
+        this.inboundLimit += len;
+    }
+
+    private int read(final byte[] b, final int off, final int len) throws IOException {
+        final long deadline = this.socketTimeout > 0 ? System.currentTimeMillis() + this.socketTimeout : 0;
+        for (;;) {
+            synchronized (this) {
+                if (this.outboundLimit > this.outboundPos) {
+                    final int n = Math.min(len, this.outboundLimit - this.outboundPos);
+                    System.arraycopy(this.outbound, this.outboundPos, b, off, n);
+                    this.outboundPos += n;
+                    return n;
+                }
+                if (this.serverClosed) {
+                    return -1;
+                }
+                this.signalled = false;
+            }
+            pump();
+            synchronized (this) {
+                if (this.outboundLimit > this.outboundPos || this.serverClosed || this.signalled) {
+                    continue;
+                }
+                long wait = 0;
+                if (deadline > 0) {
+                    wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        throw new SocketTimeoutException("Read timed out");
+                    }
+                }
+                try {
+                    wait(wait);
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the unread bytes to the start of the buffer, or of a larger buffer
+     * if there is not enough room for another {@code len} bytes.
+     */
+    private static byte[] compact(final byte[] buf, final int pos, final int limit, final int len) {
+        final int used = limit - pos;
+        final byte[] newbuf = used + len <= buf.length ? buf : new byte[Math.max(buf.length * 2, used + len)];
+        System.arraycopy(buf, pos, newbuf, 0, used);
+        return newbuf;
+    }
+
+    class ServerChannel implements ByteChannel {
+
+        @Override
+        public int read(final ByteBuffer dst) {
+            synchronized (DirectChannel.this) {
+                final int remaining = inboundLimit - inboundPos;
+                if (remaining == 0) {
+                    return clientClosed ? -1 : 0;
+                }
+                final int n = Math.min(remaining, dst.remaining());
+                dst.put(inbound, inboundPos, n);
+                inboundPos += n;
+                return n;
+            }
+        }
+
+        @Override
+        public int write(final ByteBuffer src) {
+            synchronized (DirectChannel.this) {
+                if (outboundPos == outboundLimit) {
+                    outboundPos = 0;
+                    outboundLimit = 0;
+                }
+                final int n = Math.min(src.remaining(), OUTBOUND_CAPACITY - (outboundLimit - outboundPos));
+                if (n <= 0) {
+                    return 0;
+                }
+                if (outboundLimit + n > outbound.length) {
+                    outbound = compact(outbound, outboundPos, outboundLimit, n);
+                    outboundLimit -= outboundPos;
+                    outboundPos = 0;
+                }
+                src.get(outbound, outboundLimit, n);
+                outboundLimit += n;
+                outboundTotal += n;
+                return n;
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            synchronized (DirectChannel.this) {
+                return !serverClosed;
+            }
+        }
+
+        @Override
+        public void close() {
+            serverClosed();
+        }
+
+    }
+
+    class ChannelInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            final byte[] tmp = new byte[1];
+            final int n = read(tmp, 0, 1);
+            return n == -1 ? -1 : tmp[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            return DirectChannel.this.read(b, off, len);
+        }
+
+    }
+
+    class ChannelOutputStream extends OutputStream {
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            append(b, off, len);
+            pump();
+        }
+
+    }
+
+}
@@ -27,6 +27,8 @@
 
 package org.apache.http.benchmark;
 
+import java.io.IOException;
+
 public interface HttpServer {
 
     String getName();
@@ -39,4 +41,12 @@ public interface HttpServer {
 
     void shutdown();
 
+    /**
+     * Opens a connection to the running server that bypasses the network stack.
+     *
+     * @param socketTimeout max time in milliseconds to wait for response data.
+     * @throws UnsupportedOperationException if the server does not support in-process connections.
+     */
+    InProcessChannel connectInProcess(int socketTimeout) throws IOException;
+
 }
@@ -0,0 +1,171 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.hc.core5.benchmark.Config;
+import org.apache.http.benchmark.client.ClosedLoopClient;
+import org.apache.http.benchmark.client.IdleConnectionPool;
+import org.apache.http.benchmark.client.LoadResult;
+
+/**
+ * Ramps up a population of idle keep-alive connections to 1000, 2000, 4000, ...
+ * up to N connections. At every step the closed-loop load generator drives
+ * load over a small set of active connections. The run reports the rate at
+ * which the server accepted the new connections, the memory used per idle
+ * connection and the latency of the active set.
+ * <p>
+ * Memory is the heap retained after GC plus direct buffers, relative to the
+ * server without idle connections. It includes the client side of each idle
+ * connection (a socket channel, a few hundred bytes). The number of open files
+ * allowed by the operating system needs to be raised to more than twice the
+ * number of connections, as both ends of each connection live in this process.
+ */
+final class IdleConnectionScaling {
+
+    static final int FIRST_STEP = 1000;
+
+    private final Config config;
+    private final RunnerConfig runnerConfig;
+    private final List<Integer> steps;
+    private final List<LoadResult> results;
+
+    IdleConnectionScaling(final Config config, final RunnerConfig runnerConfig) {
+        super();
+        this.config = config;
+        this.runnerConfig = runnerConfig;
+        this.steps = new ArrayList<Integer>();
+        this.results = new ArrayList<LoadResult>();
+    }
+
+    static List<Integer> getSteps(final int maxConnections) {
+        final List<Integer> steps = new ArrayList<Integer>();
+        steps.add(Integer.valueOf(0));
+        for (int n = FIRST_STEP; n < maxConnections; n *= 2) {
+            steps.add(Integer.valueOf(n));
+        }
+        steps.add(Integer.valueOf(maxConnections));
+        return steps;
+    }
+
+    void execute(final PrintStream out) throws Exception {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        final IdleConnectionPool pool = new IdleConnectionPool(this.config.getUrl(),
+                this.config.getSocketTimeoutMillis());
+        this.steps.clear();
+        this.results.clear();
+        out.println("Active connections:\t\t" + this.config.getThreads());
+        out.println();
+        out.println("Idle\t\tOpen rate [#/sec]\tMemory [MB]\tPer connection [bytes]\t"
+                + "Requests per second\tp50 [ms]\tp99 [ms]");
+        try {
+            long baseline = -1;
+            for (final Integer step : getSteps(this.runnerConfig.getIdleConnections())) {
+                final int n = step.intValue();
+                final int before = pool.size();
+                final long start = System.nanoTime();
+                String failure = null;
+                try {
+                    pool.grow(n);
+                } catch (final IOException ex) {
+                    failure = ex.getMessage();
+                }
+                final long openTime = System.nanoTime() - start;
+                final double openRate = pool.size() > before
+                        ? (pool.size() - before) * 1000000000.0 / openTime : 0;
+
+                final LoadResult result = new ClosedLoopClient(this.config, 0).execute();
+                final long used = usedMemoryAfterGc(memory);
+                if (baseline < 0) {
+                    baseline = used;
+                }
+                final int idle = pool.size();
+                this.steps.add(Integer.valueOf(idle));
+                this.results.add(result);
+                out.println(String.format(Locale.ROOT, "%d\t\t%,.0f\t\t\t%.1f\t\t%s\t\t\t%,.2f\t\t%.3f\t\t%.3f%s",
+                        idle,
+                        openRate,
+                        used / 1048576.0,
+                        idle > 0 ? String.format(Locale.ROOT, "%,d", Math.max(0, used - baseline) / idle) : "-",
+                        result.getRequestsPerSecond(),
+                        result.getLatency().getValueAtPercentile(50.0) / 1000000.0,
+                        result.getLatency().getValueAtPercentile(99.0) / 1000000.0,
+                        result.getFailureCount() > 0 ? "\t(" + result.getFailureCount() + " failed)" : ""));
+                if (failure != null) {
+                    out.println();
+                    out.println("Ramp stopped at " + idle + " connections: " + failure);
+                    break;
+                }
+            }
+            final int open = pool.countOpen();
+            if (open < pool.size()) {
+                out.println();
+                out.println("Idle connections closed by the server:\t" + (pool.size() - open));
+            }
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * Returns the number of idle connections of each completed step.
+     */
+    List<Integer> getSteps() {
+        return this.steps;
+    }
+
+    /**
+     * Returns the result of the active set at each completed step.
+     */
+    List<LoadResult> getResults() {
+        return this.results;
+    }
+
+    private static long usedMemoryAfterGc(final MemoryMXBean memory) throws InterruptedException {
+        // One collection may not be enough to release everything unreachable
+        for (int i = 0; i < 2; i++) {
+            memory.gc();
+            Thread.sleep(50);
+        }
+        long used = memory.getHeapMemoryUsage().getUsed();
+        for (final BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                used += pool.getMemoryUsed();
+            }
+        }
+        return used;
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Immutable block of random printable characters served as a response body.
+ * The content is never exposed in a writable form.
+ */
+public final class Payload {
+
+    private final byte[] data;
+    private final ByteBuffer buffer;
+
+    volatile long lastAccess;
+
+    private Payload(final byte[] data) {
+        super();
+        this.data = data;
+        this.buffer = ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
+    public static Payload generate(final int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Payload size may not be negative");
+        }
+        final byte[] b = new byte[size];
+        final int r = Math.abs(b.hashCode());
+        for (int i = 0; i < size; i++) {
+            b[i] = (byte) ((r + i) % 96 + 32);
+        }
+        return new Payload(b);
+    }
+
+    public int size() {
+        return this.data.length;
+    }
+
+    /**
+     * Returns a new read-only view of the content with its own position and limit.
+     */
+    public ByteBuffer asBuffer() {
+        return this.buffer.duplicate();
+    }
+
+    public void writeTo(final OutputStream outstream) throws IOException {
+        outstream.write(this.data, 0, this.data.length);
+    }
+
+    /**
+     * Writes {@code len} bytes of the content starting at {@code off}.
+     */
+    public void writeTo(final OutputStream outstream, final int off, final int len) throws IOException {
+        outstream.write(this.data, off, len);
+    }
+
+}
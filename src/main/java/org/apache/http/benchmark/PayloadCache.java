@@ -0,0 +1,136 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bounded cache of pre-generated payloads keyed by size. Once the total size
+ * of cached payloads exceeds the limit the least recently used payloads are
+ * evicted. Payloads larger than the limit are generated on each request.
+ * <p>
+ * In the fresh mode every request gets a newly allocated and filled payload,
+ * which is how the benchmark handlers used to behave.
+ */
+public final class PayloadCache {
+
+    // Access time stamps are refreshed at most once per millisecond
+    // to avoid contended writes on hot entries
+    private static final long TOUCH_INTERVAL = 1000000L;
+
+    private final long maxSize;
+    private final boolean fresh;
+    private final ConcurrentMap<Integer, Payload> map;
+
+    private long totalSize;
+
+    public PayloadCache(final long maxSize, final boolean fresh) {
+        super();
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Max cache size may not be negative");
+        }
+        this.maxSize = maxSize;
+        this.fresh = fresh;
+        this.map = new ConcurrentHashMap<Integer, Payload>();
+    }
+
+    public PayloadCache(final ServerConfig config) {
+        this(config.getPayloadCacheSize(), config.isFreshPayload());
+    }
+
+    public Payload get(final int size) {
+        if (this.fresh) {
+            return Payload.generate(size);
+        }
+        Payload payload = this.map.get(Integer.valueOf(size));
+        if (payload == null) {
+            payload = load(size);
+        }
+        final long now = System.nanoTime();
+        if (now - payload.lastAccess > TOUCH_INTERVAL) {
+            payload.lastAccess = now;
+        }
+        return payload;
+    }
+
+    private synchronized Payload load(final int size) {
+        if (size > this.maxSize) {
+            return Payload.generate(size);
+        }
+        final Integer key = Integer.valueOf(size);
+        Payload payload = this.map.get(key);
+        if (payload != null) {
+            return payload;
+        }
+        while (this.totalSize + size > this.maxSize) {
+            evictEldest();
+        }
+        payload = Payload.generate(size);
+        payload.lastAccess = System.nanoTime();
+        this.map.put(key, payload);
+        this.totalSize += size;
+        return payload;
+    }
+
+    private void evictEldest() {
+        Integer eldestKey = null;
+        long eldestAccess = Long.MAX_VALUE;
+        final Iterator<Map.Entry<Integer, Payload>> it = this.map.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<Integer, Payload> entry = it.next();
+            final long lastAccess = entry.getValue().lastAccess;
+            if (eldestKey == null || lastAccess - eldestAccess < 0) {
+                eldestKey = entry.getKey();
+                eldestAccess = lastAccess;
+            }
+        }
+        if (eldestKey != null) {
+            final Payload payload = this.map.remove(eldestKey);
+            this.totalSize -= payload.size();
+        }
+    }
+
+    public boolean isFresh() {
+        return this.fresh;
+    }
+
+    public long getMaxSize() {
+        return this.maxSize;
+    }
+
+    public synchronized long getTotalSize() {
+        return this.totalSize;
+    }
+
+    public int getCount() {
+        return this.map.size();
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Static file served by the {@code /file} endpoint. The file is opened once
+ * per server and shared by all requests, which only ever use positional reads
+ * or transfers so that no per-request state is kept in the channel.
+ */
+public final class PayloadFile implements Closeable {
+
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final long length;
+
+    public PayloadFile(final File file) throws IOException {
+        super();
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "r");
+        this.channel = this.raf.getChannel();
+        this.length = this.channel.size();
+    }
+
+    /**
+     * Creates a temporary file of the given size filled with random printable characters.
+     */
+    public static File create(final long size) throws IOException {
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid payload file size: " + size);
+        }
+        final File file = File.createTempFile("httpcore-bench-", ".bin");
+        file.deleteOnExit();
+        final Payload block = Payload.generate((int) Math.min(size, BLOCK_SIZE));
+        final FileOutputStream outstream = new FileOutputStream(file);
+        try {
+            final FileChannel channel = outstream.getChannel();
+            long remaining = size;
+            while (remaining > 0) {
+                final ByteBuffer buf = block.asBuffer();
+                if (remaining < buf.remaining()) {
+                    buf.limit((int) remaining);
+                }
+                remaining -= buf.remaining();
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+            }
+        } finally {
+            outstream.close();
+        }
+        return file;
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+    public long length() {
+        return this.length;
+    }
+
+    /**
+     * Returns the length of the content served for the given request parameters:
+     * the requested number of bytes from the start of the file, at most the whole file.
+     */
+    public long contentLength(final RequestParams params) {
+        return params.hasSize() ? Math.min(params.getSize(), this.length) : this.length;
+    }
+
+    public FileChannel getChannel() {
+        return this.channel;
+    }
+
+    /**
+     * Maps the entire file into memory in read-only mode.
+     */
+    public MappedByteBuffer map() throws IOException {
+        return this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.raf.close();
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+
+import org.apache.http.benchmark.result.RuntimeStats;
+
+/**
+ * Stand-in for a server running in another JVM that the load generator
+ * connects to over TCP. Starting it has no effect. The name and the version
+ * of the server and its runtime statistics are obtained over the control
+ * connection of the server ({@link ControlListener}), so the statistics cover
+ * the JVM of the server rather than that of the load generator.
+ */
+final class RemoteServer implements HttpServer {
+
+    private final String name;
+    private final String version;
+    private final int port;
+    private final Socket control;
+    private final BufferedReader reader;
+    private final Writer writer;
+
+    private RemoteServer(
+            final String name,
+            final String version,
+            final int port,
+            final Socket control,
+            final BufferedReader reader,
+            final Writer writer) {
+        super();
+        this.name = name;
+        this.version = version;
+        this.port = port;
+        this.control = control;
+        this.reader = reader;
+        this.writer = writer;
+    }
+
+    /**
+     * Opens the control connection of the server started with {@code --serve} on the given port.
+     */
+    static RemoteServer connect(final int port) throws IOException {
+        final Socket control = new Socket("localhost", port + 1);
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(control.getInputStream(),
+                    "US-ASCII"));
+            final Writer writer = new OutputStreamWriter(control.getOutputStream(), "US-ASCII");
+            final String name = call(reader, writer, "server");
+            final String version = reader.readLine();
+            return new RemoteServer(name, version, port, control, reader, writer);
+        } catch (final IOException ex) {
+            control.close();
+            throw ex;
+        }
+    }
+
+    private static String call(final BufferedReader reader, final Writer writer, final String command)
+            throws IOException {
+        writer.write(command + "\n");
+        writer.flush();
+        final String reply = reader.readLine();
+        if (reply == null) {
+            throw new IOException("Control connection closed by the server");
+        }
+        if (reply.startsWith("error")) {
+            throw new IOException("Control command rejected by the server: " + reply);
+        }
+        return reply;
+    }
+
+    /**
+     * Captures a snapshot of the runtime statistics in the JVM of the server.
+     */
+    void startRuntimeStats() throws IOException {
+        call(this.reader, this.writer, "start");
+    }
+
+    /**
+     * Returns the runtime statistics of the JVM of the server since the last snapshot.
+     */
+    RuntimeStats stopRuntimeStats() throws IOException {
+        final String reply = call(this.reader, this.writer, "stop");
+        try {
+            return RuntimeStats.parse(reply);
+        } catch (final IllegalArgumentException ex) {
+            throw new IOException(ex.getMessage());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public String getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public int getPort() {
+        return this.port;
+    }
+
+    @Override
+    public void start() throws Exception {
+    }
+
+    /**
+     * Closes the control connection. The server keeps running.
+     */
+    @Override
+    public void shutdown() {
+        try {
+            this.control.close();
+        } catch (final IOException ignore) {
+        }
+    }
+
+    @Override
+    public InProcessChannel connectInProcess(final int socketTimeout) throws IOException {
+        throw new UnsupportedOperationException("In-process connections to a server in another JVM");
+    }
+
+}
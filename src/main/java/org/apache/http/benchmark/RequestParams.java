@@ -0,0 +1,232 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+/**
+ * Request parameters understood by the benchmark handlers, decoded from the
+ * query component of the request target without creating intermediate strings.
+ * <ul>
+ *   <li>{@code c} or {@code size} - size of the response content in bytes; the
+ *   {@code /file} endpoint serves at most that many bytes from the start of the file</li>
+ *   <li>{@code delay} - delay in milliseconds between successive chunks of chunk
+ *   coded response content</li>
+ *   <li>{@code status} - status code of the response; codes that do not allow
+ *   response content (204, 205 and 304) are rejected</li>
+ *   <li>{@code chunked} - chunk coded response content ({@code chunked},
+ *   {@code chunked=true} or {@code chunked=1}), streamed as it is produced</li>
+ *   <li>{@code chunk} - size of the chunks of chunk coded response content in bytes</li>
+ * </ul>
+ * Unknown parameters are ignored. Instances are mutable and can be reused
+ * by calling {@link #reset()} or {@link #parse(CharSequence)} again.
+ */
+public final class RequestParams {
+
+    public static final int DEFAULT_SIZE = 100;
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private int size;
+    private boolean sizeGiven;
+    private int delay;
+    private int status;
+    private boolean chunked;
+    private int chunkSize;
+
+    public RequestParams() {
+        super();
+        reset();
+    }
+
+    public void reset() {
+        this.size = DEFAULT_SIZE;
+        this.sizeGiven = false;
+        this.delay = 0;
+        this.status = 200;
+        this.chunked = false;
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+    }
+
+    /**
+     * Resets the parameters and decodes the query component of the given request target.
+     *
+     * @throws NumberFormatException if a parameter value is malformed or out of range.
+     */
+    public RequestParams parse(final CharSequence target) {
+        reset();
+        if (target != null) {
+            final int len = target.length();
+            for (int i = 0; i < len; i++) {
+                final char ch = target.charAt(i);
+                if (ch == '?') {
+                    parseQuery(target, i + 1, len);
+                    break;
+                }
+                if (ch == '#') {
+                    break;
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Resets the parameters and decodes the given query string (without the leading '?').
+     *
+     * @throws NumberFormatException if a parameter value is malformed or out of range.
+     */
+    public RequestParams parseQuery(final CharSequence query) {
+        reset();
+        if (query != null) {
+            parseQuery(query, 0, query.length());
+        }
+        return this;
+    }
+
+    private void parseQuery(final CharSequence s, final int from, final int to) {
+        int pos = from;
+        while (pos < to) {
+            int end = pos;
+            int eq = -1;
+            while (end < to) {
+                final char ch = s.charAt(end);
+                if (ch == '&' || ch == ';' || ch == '#') {
+                    break;
+                }
+                if (ch == '=' && eq == -1) {
+                    eq = end;
+                }
+                end++;
+            }
+            final int nameEnd = eq != -1 ? eq : end;
+            if (matches(s, pos, nameEnd, "c") || matches(s, pos, nameEnd, "size")) {
+                this.size = parseInt(s, eq, end, "size");
+                this.sizeGiven = true;
+            } else if (matches(s, pos, nameEnd, "delay")) {
+                this.delay = parseInt(s, eq, end, "delay");
+            } else if (matches(s, pos, nameEnd, "status")) {
+                final int code = parseInt(s, eq, end, "status");
+                if (code < 200 || code > 599 || code == 204 || code == 205 || code == 304) {
+                    throw new NumberFormatException("Invalid status: " + code);
+                }
+                this.status = code;
+            } else if (matches(s, pos, nameEnd, "chunked")) {
+                this.chunked = eq == -1 || matches(s, eq + 1, end, "true") || matches(s, eq + 1, end, "1");
+            } else if (matches(s, pos, nameEnd, "chunk")) {
+                final int n = parseInt(s, eq, end, "chunk");
+                if (n == 0) {
+                    throw new NumberFormatException("Invalid chunk size: " + n);
+                }
+                this.chunkSize = n;
+            }
+            if (end < to && s.charAt(end) == '#') {
+                break;
+            }
+            pos = end + 1;
+        }
+    }
+
+    private static boolean matches(final CharSequence s, final int from, final int to, final String name) {
+        final int len = name.length();
+        if (to - from != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (s.charAt(from + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a non-negative decimal integer between {@code eq + 1} and {@code to}.
+     */
+    private static int parseInt(final CharSequence s, final int eq, final int to, final String name) {
+        if (eq == -1 || eq + 1 == to) {
+            throw new NumberFormatException("Missing value of parameter '" + name + "'");
+        }
+        int n = 0;
+        for (int i = eq + 1; i < to; i++) {
+            final int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid value of parameter '" + name + "': "
+                        + s.subSequence(eq + 1, to));
+            }
+            if (n > (Integer.MAX_VALUE - digit) / 10) {
+                throw new NumberFormatException("Value of parameter '" + name + "' is out of range: "
+                        + s.subSequence(eq + 1, to));
+            }
+            n = n * 10 + digit;
+        }
+        return n;
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Returns {@code true} if the size was given rather than defaulted.
+     */
+    public boolean hasSize() {
+        return this.sizeGiven;
+    }
+
+    /**
+     * Returns the delay in milliseconds.
+     */
+    public int getDelay() {
+        return this.delay;
+    }
+
+    public int getStatus() {
+        return this.status;
+    }
+
+    public boolean isChunked() {
+        return this.chunked;
+    }
+
+    /**
+     * Returns the size of the chunks of chunk coded response content in bytes.
+     */
+    public int getChunkSize() {
+        return this.chunkSize;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder();
+        buf.append("[size=").append(this.size)
+            .append(", delay=").append(this.delay)
+            .append(", status=").append(this.status)
+            .append(", chunked=").append(this.chunked)
+            .append(", chunkSize=").append(this.chunkSize)
+            .append("]");
+        return buf.toString();
+    }
+
+}
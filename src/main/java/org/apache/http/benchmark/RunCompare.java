@@ -0,0 +1,86 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.apache.http.benchmark.result.BenchResult;
+import org.apache.http.benchmark.result.ResultComparison;
+import org.apache.http.benchmark.result.ResultReader;
+
+/**
+ * Compares two result files written with {@code --out} and exits with status 1
+ * if any regression beyond the noise threshold is found.
+ */
+public class RunCompare {
+
+    private static final double DEFAULT_THRESHOLD = 5.0;
+
+    public static void main(final String[] args) throws Exception {
+        final Options options = new Options();
+        final Option thresholdOption = new Option("t", "threshold", true,
+                "Relative change in percent considered to be noise. Default is " + DEFAULT_THRESHOLD);
+        thresholdOption.setArgName("percent");
+        options.addOption(thresholdOption);
+        options.addOption(new Option("h", "help", false, "Display usage information"));
+
+        final CommandLineParser parser = new PosixParser();
+        final CommandLine cmd = parser.parse(options, args);
+        final String[] files = cmd.getArgs();
+        if (cmd.hasOption('h') || files.length != 2) {
+            final HelpFormatter formatter = new HelpFormatter();
+            formatter.printHelp("RunCompare [options] <baseline file> <current file>", options);
+            System.exit(2);
+        }
+        double threshold = DEFAULT_THRESHOLD;
+        if (cmd.hasOption("threshold")) {
+            final String s = cmd.getOptionValue("threshold");
+            try {
+                threshold = Double.parseDouble(s);
+            } catch (final NumberFormatException ex) {
+                throw new ParseException("Invalid threshold: " + s);
+            }
+            if (threshold < 0) {
+                throw new ParseException("Invalid threshold: " + s);
+            }
+        }
+        final List<BenchResult> baseline = ResultReader.read(new File(files[0]));
+        final List<BenchResult> current = ResultReader.read(new File(files[1]));
+        final ResultComparison comparison = new ResultComparison(threshold / 100.0);
+        final int regressions = comparison.compare(baseline, current, System.out);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+}
@@ -0,0 +1,302 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Runs each server and its load generator in two separate forked JVMs, so
+ * that they do not compete for heap, GC and JIT compiler threads and can be
+ * given different JVM flags. The server JVM is started with {@code --serve}
+ * and the load generator JVM with {@code --connect}; all other options are
+ * passed to both. Combine with {@code --warmup} and {@code --iterations}
+ * to get results of compiled code with confidence intervals.
+ * <p>
+ * The harness options are parsed before the benchmark options, so JVM flags
+ * may be given as separate arguments ({@code --jvm-arg -Xmx1g}).
+ * <p>
+ * Jetty 9 shares its packages with Jetty 8 and cannot be on the same class path.
+ * It is run with the class path given by {@code --jetty9-classpath} and skipped
+ * by default if there is none.
+ */
+public class RunForked {
+
+    private static final String[] SERVERS = {
+            "Jetty", "Jetty9", "HttpCore4", "HttpCore5", "HttpCore5Classic", "Netty", "Netty4" };
+    private static final String JETTY9 = "Jetty9";
+
+    private static final long START_TIMEOUT = 30000;
+    private static final long STOP_TIMEOUT = 10000;
+    private static final long PAUSE = 2000;
+
+    public static void main(final String[] args) throws Exception {
+        final Options options = getOptions();
+        final List<String> servers = new ArrayList<String>();
+        final List<String> serverJvmArgs = new ArrayList<String>();
+        final List<String> clientJvmArgs = new ArrayList<String>();
+        final List<String> benchArgs = new ArrayList<String>();
+        String jetty9ClassPath = null;
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            if (arg.equals("-h") || arg.equals("--help")) {
+                final HelpFormatter formatter = new HelpFormatter();
+                formatter.printHelp("RunForked [options] [benchmark options]", options);
+                System.exit(1);
+            }
+            final int eq = arg.indexOf('=');
+            final String name = arg.startsWith("--") ? (eq != -1 ? arg.substring(2, eq) : arg.substring(2)) : null;
+            if (name == null || !options.hasOption(name)) {
+                benchArgs.add(arg);
+                continue;
+            }
+            final String value;
+            if (eq != -1) {
+                value = arg.substring(eq + 1);
+            } else if (i + 1 < args.length) {
+                value = args[++i];
+            } else {
+                throw new ParseException("Missing argument of --" + name);
+            }
+            if (name.equals("servers")) {
+                servers.addAll(Arrays.asList(value.split(",")));
+            } else if (name.equals("jvm-arg")) {
+                serverJvmArgs.add(value);
+                clientJvmArgs.add(value);
+            } else if (name.equals("server-jvm-arg")) {
+                serverJvmArgs.add(value);
+            } else if (name.equals("jetty9-classpath")) {
+                jetty9ClassPath = value;
+            } else {
+                clientJvmArgs.add(value);
+            }
+        }
+        if (servers.isEmpty()) {
+            for (final String server : SERVERS) {
+                if (server.equals(JETTY9) && jetty9ClassPath == null) {
+                    System.out.println("Skipping " + JETTY9 + ": no --jetty9-classpath given");
+                } else {
+                    servers.add(server);
+                }
+            }
+        }
+        for (final String server : servers) {
+            if (server.equals(JETTY9)) {
+                if (jetty9ClassPath == null) {
+                    throw new ParseException(JETTY9 + " requires --jetty9-classpath");
+                }
+                continue;
+            }
+            try {
+                Class.forName(getMainClass(server));
+            } catch (final ClassNotFoundException ex) {
+                throw new ParseException("Unknown server: " + server);
+            }
+        }
+        if (benchArgs.isEmpty()) {
+            // Same defaults as a run without arguments
+            benchArgs.addAll(Arrays.asList("-k", "-n", "100000", "-c", "50"));
+        }
+        final String[] a = benchArgs.toArray(new String[benchArgs.size()]);
+        BenchRunner.parseConfig(a);
+        final RunnerConfig runnerConfig = BenchRunner.parseRunnerConfig(a);
+        if (runnerConfig.isServe() || runnerConfig.getConnectPort() > 0) {
+            throw new ParseException("--serve and --connect are set by RunForked");
+        }
+        if (runnerConfig.isInProcess() || runnerConfig.getScalingSweep() > 0 || runnerConfig.isTls()) {
+            throw new ParseException("In-process connections, scaling sweeps and TLS require the server " +
+                    "and the load generator to run in the same JVM");
+        }
+
+        int failures = 0;
+        for (int i = 0; i < servers.size(); i++) {
+            if (i > 0) {
+                Thread.sleep(PAUSE);
+            }
+            final String server = servers.get(i);
+            final String classPath = server.equals(JETTY9) ? jetty9ClassPath : System.getProperty("java.class.path");
+            if (!run(getMainClass(server), classPath, serverJvmArgs, clientJvmArgs, benchArgs)) {
+                failures++;
+            }
+        }
+        System.exit(failures > 0 ? 1 : 0);
+    }
+
+    static Options getOptions() {
+        final Options options = new Options();
+
+        final Option serversOption = new Option(null, "servers", true,
+                "Comma separated list of the servers to run (" + Arrays.toString(SERVERS) + "). Default is all, " +
+                "except " + JETTY9 + " without --jetty9-classpath");
+        serversOption.setArgName("list");
+        options.addOption(serversOption);
+
+        final Option jvmArgOption = new Option(null, "jvm-arg", true,
+                "Flag of the server and load generator JVMs. May be given more than once");
+        jvmArgOption.setArgName("flag");
+        options.addOption(jvmArgOption);
+
+        final Option serverJvmArgOption = new Option(null, "server-jvm-arg", true,
+                "Flag of the server JVM. May be given more than once");
+        serverJvmArgOption.setArgName("flag");
+        options.addOption(serverJvmArgOption);
+
+        final Option clientJvmArgOption = new Option(null, "client-jvm-arg", true,
+                "Flag of the load generator JVM. May be given more than once");
+        clientJvmArgOption.setArgName("flag");
+        options.addOption(clientJvmArgOption);
+
+        final Option jetty9ClassPathOption = new Option(null, "jetty9-classpath", true,
+                "Class path of the " + JETTY9 + " server and its load generator");
+        jetty9ClassPathOption.setArgName("path");
+        options.addOption(jetty9ClassPathOption);
+
+        return options;
+    }
+
+    static String getMainClass(final String server) {
+        return RunForked.class.getPackage().getName() + ".Run" + server;
+    }
+
+    /**
+     * Runs the given server and the load generator against it and returns {@code true}
+     * if the load generator completed successfully.
+     */
+    static boolean run(
+            final String mainClass,
+            final String classPath,
+            final List<String> serverJvmArgs,
+            final List<String> clientJvmArgs,
+            final List<String> benchArgs) throws Exception {
+        final List<String> serverArgs = new ArrayList<String>(benchArgs);
+        serverArgs.add("--serve");
+        final ProcessBuilder serverBuilder = new ProcessBuilder(
+                getCommand(mainClass, classPath, serverJvmArgs, serverArgs));
+        serverBuilder.redirectOutput(Redirect.INHERIT);
+        serverBuilder.redirectError(Redirect.INHERIT);
+        final Process server = serverBuilder.start();
+        try {
+            awaitListening(server, BenchConsts.PORT);
+
+            final List<String> clientArgs = new ArrayList<String>(benchArgs);
+            clientArgs.add("--connect");
+            clientArgs.add(Integer.toString(BenchConsts.PORT));
+            final ProcessBuilder clientBuilder = new ProcessBuilder(
+                    getCommand(mainClass, classPath, clientJvmArgs, clientArgs));
+            clientBuilder.inheritIO();
+            final Process client = clientBuilder.start();
+            final int status = client.waitFor();
+            if (status != 0) {
+                System.err.println("Load generator exited with status " + status);
+            }
+            return status == 0;
+        } finally {
+            stop(server);
+        }
+    }
+
+    static List<String> getCommand(
+            final String mainClass,
+            final String classPath,
+            final List<String> jvmArgs,
+            final List<String> args) {
+        final List<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(classPath);
+        command.add(mainClass);
+        command.addAll(args);
+        return command;
+    }
+
+    /**
+     * Waits until the server accepts connections on the given port.
+     */
+    static void awaitListening(final Process server, final int port) throws Exception {
+        final long deadline = System.currentTimeMillis() + START_TIMEOUT;
+        while (true) {
+            if (!isAlive(server)) {
+                throw new IllegalStateException("Server exited with status " + server.exitValue());
+            }
+            final Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress("localhost", port), 1000);
+                return;
+            } catch (final IOException ex) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Server not listening on port " + port
+                            + " after " + START_TIMEOUT + " ms");
+                }
+            } finally {
+                socket.close();
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    /**
+     * Closes standard input of the server, which shuts it down, and kills it
+     * if it does not exit in time.
+     */
+    static void stop(final Process server) throws InterruptedException {
+        try {
+            server.getOutputStream().close();
+        } catch (final IOException ignore) {
+        }
+        final long deadline = System.currentTimeMillis() + STOP_TIMEOUT;
+        while (isAlive(server) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        if (isAlive(server)) {
+            System.err.println("Server did not shut down in time");
+            server.destroy();
+        }
+        server.waitFor();
+    }
+
+    private static boolean isAlive(final Process process) {
+        try {
+            process.exitValue();
+            return false;
+        } catch (final IllegalThreadStateException ex) {
+            return true;
+        }
+    }
+
+}
@@ -26,6 +26,8 @@
  */
 package org.apache.http.benchmark;
 
+import java.io.IOException;
+
 import org.apache.hc.core5.benchmark.Config;
 import org.apache.http.benchmark.httpcore5.HttpCore5Server;
 
@@ -33,7 +35,16 @@ public class RunHttpCore5 {
 
     public static void main(final String[] args) throws Exception {
         final Config config = BenchRunner.parseConfig(args);
-        BenchRunner.run(new HttpCore5Server(BenchConsts.PORT), config);
+        final ServerConfig serverConfig = BenchRunner.parseServerConfig(args);
+        final RunnerConfig runnerConfig = BenchRunner.parseRunnerConfig(args);
+        BenchRunner.run(new HttpServerFactory() {
+
+            @Override
+            public HttpServer create(final int port, final ServerConfig serverConfig) throws IOException {
+                return new HttpCore5Server(port, serverConfig);
+            }
+
+        }, config, serverConfig, runnerConfig);
     }
 
 }
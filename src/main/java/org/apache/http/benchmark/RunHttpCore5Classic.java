@@ -0,0 +1,54 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.io.IOException;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.hc.core5.benchmark.Config;
+import org.apache.http.benchmark.httpcore5.classic.HttpCore5ClassicServer;
+
+public class RunHttpCore5Classic {
+
+    public static void main(final String[] args) throws Exception {
+        final Config config = BenchRunner.parseConfig(args);
+        final ServerConfig serverConfig = BenchRunner.parseServerConfig(args);
+        final RunnerConfig runnerConfig = BenchRunner.parseRunnerConfig(args);
+        if (runnerConfig.isInProcess()) {
+            throw new ParseException("In-process connections are not supported by the classic server");
+        }
+        BenchRunner.run(new HttpServerFactory() {
+
+            @Override
+            public HttpServer create(final int port, final ServerConfig serverConfig) throws IOException {
+                return new HttpCore5ClassicServer(port, serverConfig);
+            }
+
+        }, config, serverConfig, runnerConfig);
+    }
+
+}
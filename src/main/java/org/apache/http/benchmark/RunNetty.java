@@ -26,6 +26,8 @@
  */
 package org.apache.http.benchmark;
 
+import java.io.IOException;
+
 import org.apache.hc.core5.benchmark.Config;
 import org.apache.http.benchmark.netty.NettyNIOServer;
 
@@ -33,7 +35,16 @@ public class RunNetty {
 
     public static void main(final String[] args) throws Exception {
         final Config config = BenchRunner.parseConfig(args);
-        BenchRunner.run(new NettyNIOServer(BenchConsts.PORT), config);
+        final ServerConfig serverConfig = BenchRunner.parseServerConfig(args);
+        final RunnerConfig runnerConfig = BenchRunner.parseRunnerConfig(args);
+        BenchRunner.run(new HttpServerFactory() {
+
+            @Override
+            public HttpServer create(final int port, final ServerConfig serverConfig) throws IOException {
+                return new NettyNIOServer(port, serverConfig);
+            }
+
+        }, config, serverConfig, runnerConfig);
     }
 
 }
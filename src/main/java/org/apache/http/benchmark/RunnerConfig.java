@@ -0,0 +1,629 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.io.File;
+
+import org.apache.http.benchmark.client.Scenario;
+
+/**
+ * Settings of {@link BenchRunner} that select what is measured and how.
+ */
+public final class RunnerConfig {
+
+    public static final RunnerConfig DEFAULT = new Builder().build();
+
+    private final String requestTarget;
+    private final long fileSize;
+    private final boolean latency;
+    private final long expectedInterval;
+    private final double rate;
+    private final double maxRate;
+    private final double rateStep;
+    private final int stepDuration;
+    private final boolean http2;
+    private final int h2Connections;
+    private final int scalingSweep;
+    private final int pipelineDepth;
+    private final File outputFile;
+    private final boolean inProcess;
+    private final long uploadSize;
+    private final int slowClients;
+    private final long slowRate;
+    private final long slowContentSize;
+    private final int idleConnections;
+    private final int minRequestsPerConnection;
+    private final int maxRequestsPerConnection;
+    private final boolean tls;
+    private final boolean tlsFullHandshake;
+    private final String tlsProvider;
+    private final int warmupTime;
+    private final int iterations;
+    private final boolean serve;
+    private final int connectPort;
+    private final Scenario scenario;
+
+    RunnerConfig(
+            final String requestTarget,
+            final long fileSize,
+            final boolean latency,
+            final long expectedInterval,
+            final double rate,
+            final double maxRate,
+            final double rateStep,
+            final int stepDuration,
+            final boolean http2,
+            final int h2Connections,
+            final int scalingSweep,
+            final int pipelineDepth,
+            final File outputFile,
+            final boolean inProcess,
+            final long uploadSize,
+            final int slowClients,
+            final long slowRate,
+            final long slowContentSize,
+            final int idleConnections,
+            final int minRequestsPerConnection,
+            final int maxRequestsPerConnection,
+            final boolean tls,
+            final boolean tlsFullHandshake,
+            final String tlsProvider,
+            final int warmupTime,
+            final int iterations,
+            final boolean serve,
+            final int connectPort,
+            final Scenario scenario) {
+        super();
+        this.requestTarget = requestTarget;
+        this.fileSize = fileSize;
+        this.latency = latency;
+        this.expectedInterval = expectedInterval;
+        this.rate = rate;
+        this.maxRate = maxRate;
+        this.rateStep = rateStep;
+        this.stepDuration = stepDuration;
+        this.http2 = http2;
+        this.h2Connections = h2Connections;
+        this.scalingSweep = scalingSweep;
+        this.pipelineDepth = pipelineDepth;
+        this.outputFile = outputFile;
+        this.inProcess = inProcess;
+        this.uploadSize = uploadSize;
+        this.slowClients = slowClients;
+        this.slowRate = slowRate;
+        this.slowContentSize = slowContentSize;
+        this.idleConnections = idleConnections;
+        this.minRequestsPerConnection = minRequestsPerConnection;
+        this.maxRequestsPerConnection = maxRequestsPerConnection;
+        this.tls = tls;
+        this.tlsFullHandshake = tlsFullHandshake;
+        this.tlsProvider = tlsProvider;
+        this.warmupTime = warmupTime;
+        this.iterations = iterations;
+        this.serve = serve;
+        this.connectPort = connectPort;
+        this.scenario = scenario;
+    }
+
+    public String getRequestTarget() {
+        return this.requestTarget;
+    }
+
+    /**
+     * Returns the length of the content served by {@code /file} or zero if the
+     * endpoint is not requested.
+     */
+    public long getFileSize() {
+        return this.fileSize;
+    }
+
+    /**
+     * Returns {@code true} if the latency of individual requests is to be recorded.
+     */
+    public boolean isLatency() {
+        return this.latency;
+    }
+
+    /**
+     * Returns expected interval between requests in nanoseconds used to correct
+     * latency for coordinated omission. Zero means the mean latency is used.
+     */
+    public long getExpectedInterval() {
+        return this.expectedInterval;
+    }
+
+    /**
+     * Returns target request rate (requests per second) of the open-loop load
+     * generator or zero if closed-loop load generation is to be used.
+     */
+    public double getRate() {
+        return this.rate;
+    }
+
+    /**
+     * Returns the request rate up to which the open-loop rate is increased
+     * by {@link #getRateStep()} or zero if the rate is not to be swept.
+     */
+    public double getMaxRate() {
+        return this.maxRate;
+    }
+
+    public double getRateStep() {
+        return this.rateStep;
+    }
+
+    /**
+     * Returns duration of an open-loop run (or of each sweep step) in seconds.
+     */
+    public int getStepDuration() {
+        return this.stepDuration;
+    }
+
+    /**
+     * Returns {@code true} if requests are to be multiplexed over HTTP/2 connections.
+     */
+    public boolean isHttp2() {
+        return this.http2;
+    }
+
+    /**
+     * Returns the number of HTTP/2 connections the concurrent streams are spread over.
+     */
+    public int getH2Connections() {
+        return this.h2Connections;
+    }
+
+    /**
+     * Returns the max number of server I/O threads of the scaling sweep or
+     * zero if no sweep is to be run.
+     */
+    public int getScalingSweep() {
+        return this.scalingSweep;
+    }
+
+    /**
+     * Returns the number of requests pipelined on each connection or zero
+     * if requests are not to be pipelined.
+     */
+    public int getPipelineDepth() {
+        return this.pipelineDepth;
+    }
+
+    /**
+     * Returns the file the results are written to or {@code null} if results are
+     * not to be exported. The format depends on the file extension.
+     */
+    public File getOutputFile() {
+        return this.outputFile;
+    }
+
+    /**
+     * Returns {@code true} if the load generator is to connect to the server in-process,
+     * bypassing the network stack.
+     */
+    public boolean isInProcess() {
+        return this.inProcess;
+    }
+
+    /**
+     * Returns the length of the content uploaded to {@code /upload} with every request
+     * or zero if requests do not enclose content.
+     */
+    public long getUploadSize() {
+        return this.uploadSize;
+    }
+
+    /**
+     * Returns the number of connections that read responses slowly alongside the load
+     * generator or zero if there are none.
+     */
+    public int getSlowClients() {
+        return this.slowClients;
+    }
+
+    /**
+     * Returns the rate at which each slow connection reads in bytes per second.
+     */
+    public long getSlowRate() {
+        return this.slowRate;
+    }
+
+    /**
+     * Returns the size of the responses requested by slow connections.
+     */
+    public long getSlowContentSize() {
+        return this.slowContentSize;
+    }
+
+    /**
+     * Returns the max number of idle connections of the idle connection ramp or zero
+     * if no ramp is to be run.
+     */
+    public int getIdleConnections() {
+        return this.idleConnections;
+    }
+
+    /**
+     * Returns the min number of requests per connection of the connection churn
+     * workload or zero if connections are not to be churned.
+     */
+    public int getMinRequestsPerConnection() {
+        return this.minRequestsPerConnection;
+    }
+
+    /**
+     * Returns the max number of requests per connection of the connection churn workload.
+     */
+    public int getMaxRequestsPerConnection() {
+        return this.maxRequestsPerConnection;
+    }
+
+    /**
+     * Returns {@code true} if the load generator is to connect over TLS.
+     */
+    public boolean isTls() {
+        return this.tls;
+    }
+
+    /**
+     * Returns {@code true} if every TLS connection is to perform a full handshake
+     * rather than resume the session of an earlier connection.
+     */
+    public boolean isTlsFullHandshake() {
+        return this.tlsFullHandshake;
+    }
+
+    /**
+     * Returns the name or class name of the JSSE provider or {@code null} for the default.
+     */
+    public String getTlsProvider() {
+        return this.tlsProvider;
+    }
+
+    /**
+     * Returns max time in seconds to warm up until throughput stabilises or {@code 0} to warm up
+     * with a fixed fraction of the requests.
+     */
+    public int getWarmupTime() {
+        return this.warmupTime;
+    }
+
+    /**
+     * Returns the number of measurement iterations.
+     */
+    public int getIterations() {
+        return this.iterations;
+    }
+
+    /**
+     * Returns {@code true} if the server is to be run without a load generator until
+     * its standard input is closed.
+     */
+    public boolean isServe() {
+        return this.serve;
+    }
+
+    /**
+     * Returns the port of a server running in another JVM to generate load against
+     * or {@code 0} to start the server in this JVM.
+     */
+    public int getConnectPort() {
+        return this.connectPort;
+    }
+
+    /**
+     * Returns the request mix to sample the requests from or {@code null} to repeat the same request.
+     */
+    public Scenario getScenario() {
+        return this.scenario;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder();
+        buf.append("[requestTarget=").append(this.requestTarget)
+            .append(", fileSize=").append(this.fileSize)
+            .append(", latency=").append(this.latency)
+            .append(", expectedInterval=").append(this.expectedInterval)
+            .append(", rate=").append(this.rate)
+            .append(", maxRate=").append(this.maxRate)
+            .append(", rateStep=").append(this.rateStep)
+            .append(", stepDuration=").append(this.stepDuration)
+            .append(", http2=").append(this.http2)
+            .append(", h2Connections=").append(this.h2Connections)
+            .append(", scalingSweep=").append(this.scalingSweep)
+            .append(", pipelineDepth=").append(this.pipelineDepth)
+            .append(", outputFile=").append(this.outputFile)
+            .append(", inProcess=").append(this.inProcess)
+            .append(", uploadSize=").append(this.uploadSize)
+            .append(", slowClients=").append(this.slowClients)
+            .append(", slowRate=").append(this.slowRate)
+            .append(", slowContentSize=").append(this.slowContentSize)
+            .append(", idleConnections=").append(this.idleConnections)
+            .append(", minRequestsPerConnection=").append(this.minRequestsPerConnection)
+            .append(", maxRequestsPerConnection=").append(this.maxRequestsPerConnection)
+            .append(", tls=").append(this.tls)
+            .append(", tlsFullHandshake=").append(this.tlsFullHandshake)
+            .append(", tlsProvider=").append(this.tlsProvider)
+            .append(", warmupTime=").append(this.warmupTime)
+            .append(", iterations=").append(this.iterations)
+            .append(", serve=").append(this.serve)
+            .append(", connectPort=").append(this.connectPort)
+            .append(", scenario=").append(this.scenario)
+            .append("]");
+        return buf.toString();
+    }
+
+    public static RunnerConfig.Builder custom() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private String requestTarget;
+        private long fileSize;
+        private boolean latency;
+        private long expectedInterval;
+        private double rate;
+        private double maxRate;
+        private double rateStep;
+        private int stepDuration;
+        private boolean http2;
+        private int h2Connections;
+        private int scalingSweep;
+        private int pipelineDepth;
+        private File outputFile;
+        private boolean inProcess;
+        private long uploadSize;
+        private int slowClients;
+        private long slowRate;
+        private long slowContentSize;
+        private int idleConnections;
+        private int minRequestsPerConnection;
+        private int maxRequestsPerConnection;
+        private boolean tls;
+        private boolean tlsFullHandshake;
+        private String tlsProvider;
+        private int warmupTime;
+        private int iterations;
+        private boolean serve;
+        private int connectPort;
+        private Scenario scenario;
+
+        Builder() {
+            this.requestTarget = "/rnd?c=2048";
+            this.fileSize = 0;
+            this.latency = false;
+            this.expectedInterval = 0;
+            this.rate = 0;
+            this.maxRate = 0;
+            this.rateStep = 0;
+            this.stepDuration = 10;
+            this.http2 = false;
+            this.h2Connections = 1;
+            this.scalingSweep = 0;
+            this.pipelineDepth = 0;
+            this.outputFile = null;
+            this.inProcess = false;
+            this.uploadSize = 0;
+            this.slowClients = 0;
+            this.slowRate = 1024;
+            this.slowContentSize = 1024 * 1024;
+            this.idleConnections = 0;
+            this.minRequestsPerConnection = 0;
+            this.maxRequestsPerConnection = 0;
+            this.tls = false;
+            this.tlsFullHandshake = false;
+            this.tlsProvider = null;
+            this.warmupTime = 0;
+            this.iterations = 1;
+            this.serve = false;
+            this.connectPort = 0;
+            this.scenario = null;
+        }
+
+        public Builder setRequestTarget(final String requestTarget) {
+            this.requestTarget = requestTarget;
+            return this;
+        }
+
+        public Builder setFileSize(final long fileSize) {
+            this.fileSize = fileSize;
+            return this;
+        }
+
+        public Builder setLatency(final boolean latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        public Builder setExpectedInterval(final long expectedInterval) {
+            this.expectedInterval = expectedInterval;
+            return this;
+        }
+
+        public Builder setRate(final double rate) {
+            this.rate = rate;
+            return this;
+        }
+
+        public Builder setMaxRate(final double maxRate) {
+            this.maxRate = maxRate;
+            return this;
+        }
+
+        public Builder setRateStep(final double rateStep) {
+            this.rateStep = rateStep;
+            return this;
+        }
+
+        public Builder setStepDuration(final int stepDuration) {
+            this.stepDuration = stepDuration;
+            return this;
+        }
+
+        public Builder setHttp2(final boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        public Builder setH2Connections(final int h2Connections) {
+            this.h2Connections = h2Connections;
+            return this;
+        }
+
+        public Builder setScalingSweep(final int scalingSweep) {
+            this.scalingSweep = scalingSweep;
+            return this;
+        }
+
+        public Builder setPipelineDepth(final int pipelineDepth) {
+            this.pipelineDepth = pipelineDepth;
+            return this;
+        }
+
+        public Builder setOutputFile(final File outputFile) {
+            this.outputFile = outputFile;
+            return this;
+        }
+
+        public Builder setInProcess(final boolean inProcess) {
+            this.inProcess = inProcess;
+            return this;
+        }
+
+        public Builder setUploadSize(final long uploadSize) {
+            this.uploadSize = uploadSize;
+            return this;
+        }
+
+        public Builder setSlowClients(final int slowClients) {
+            this.slowClients = slowClients;
+            return this;
+        }
+
+        public Builder setSlowRate(final long slowRate) {
+            this.slowRate = slowRate;
+            return this;
+        }
+
+        public Builder setSlowContentSize(final long slowContentSize) {
+            this.slowContentSize = slowContentSize;
+            return this;
+        }
+
+        public Builder setIdleConnections(final int idleConnections) {
+            this.idleConnections = idleConnections;
+            return this;
+        }
+
+        public Builder setMinRequestsPerConnection(final int minRequestsPerConnection) {
+            this.minRequestsPerConnection = minRequestsPerConnection;
+            return this;
+        }
+
+        public Builder setMaxRequestsPerConnection(final int maxRequestsPerConnection) {
+            this.maxRequestsPerConnection = maxRequestsPerConnection;
+            return this;
+        }
+
+        public Builder setTls(final boolean tls) {
+            this.tls = tls;
+            return this;
+        }
+
+        public Builder setTlsFullHandshake(final boolean tlsFullHandshake) {
+            this.tlsFullHandshake = tlsFullHandshake;
+            return this;
+        }
+
+        public Builder setTlsProvider(final String tlsProvider) {
+            this.tlsProvider = tlsProvider;
+            return this;
+        }
+
+        public Builder setWarmupTime(final int warmupTime) {
+            this.warmupTime = warmupTime;
+            return this;
+        }
+
+        public Builder setIterations(final int iterations) {
+            this.iterations = iterations;
+            return this;
+        }
+
+        public Builder setServe(final boolean serve) {
+            this.serve = serve;
+            return this;
+        }
+
+        public Builder setConnectPort(final int connectPort) {
+            this.connectPort = connectPort;
+            return this;
+        }
+
+        public Builder setScenario(final Scenario scenario) {
+            this.scenario = scenario;
+            return this;
+        }
+
+        public RunnerConfig build() {
+            return new RunnerConfig(
+                    this.requestTarget,
+                    this.fileSize,
+                    this.latency,
+                    this.expectedInterval,
+                    this.rate,
+                    this.maxRate,
+                    this.rateStep,
+                    this.stepDuration,
+                    this.http2,
+                    this.h2Connections,
+                    this.scalingSweep,
+                    this.pipelineDepth,
+                    this.outputFile,
+                    this.inProcess,
+                    this.uploadSize,
+                    this.slowClients,
+                    this.slowRate,
+                    this.slowContentSize,
+                    this.idleConnections,
+                    this.minRequestsPerConnection,
+                    this.maxRequestsPerConnection,
+                    this.tls,
+                    this.tlsFullHandshake,
+                    this.tlsProvider,
+                    this.warmupTime,
+                    this.iterations,
+                    this.serve,
+                    this.connectPort,
+                    this.scenario);
+        }
+
+    }
+
+}
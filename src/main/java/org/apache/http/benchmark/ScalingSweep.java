@@ -0,0 +1,152 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.hc.core5.benchmark.Config;
+import org.apache.http.benchmark.client.ClosedLoopClient;
+import org.apache.http.benchmark.client.LoadResult;
+import org.apache.http.benchmark.client.MultiplexingClient;
+import org.apache.http.benchmark.client.PipelinedClient;
+import org.apache.http.benchmark.result.BenchResult;
+import org.apache.http.benchmark.result.RuntimeStats;
+
+/**
+ * Reruns a server with 1, 2, 4, ... up to N I/O threads (and as many worker
+ * threads, where applicable, unless configured explicitly) and reports the
+ * throughput per thread and the scaling efficiency relative to a single thread.
+ * <p>
+ * The JVM offers no means of pinning threads to CPU cores. To measure per-core
+ * scaling the server and the load generator should be confined to disjoint
+ * sets of cores externally, for instance with {@code taskset}.
+ */
+final class ScalingSweep {
+
+    private final HttpServerFactory serverFactory;
+    private final int port;
+    private final Config config;
+    private final ServerConfig serverConfig;
+    private final RunnerConfig runnerConfig;
+
+    ScalingSweep(
+            final HttpServerFactory serverFactory,
+            final int port,
+            final Config config,
+            final ServerConfig serverConfig,
+            final RunnerConfig runnerConfig) {
+        super();
+        this.serverFactory = serverFactory;
+        this.port = port;
+        this.config = config;
+        this.serverConfig = serverConfig;
+        this.runnerConfig = runnerConfig;
+    }
+
+    static List<Integer> getSteps(final int maxThreads) {
+        final List<Integer> steps = new ArrayList<Integer>();
+        for (int n = 1; n < maxThreads; n *= 2) {
+            steps.add(Integer.valueOf(n));
+        }
+        steps.add(Integer.valueOf(maxThreads));
+        return steps;
+    }
+
+    /**
+     * Executes the sweep and returns the result of each step.
+     */
+    List<BenchResult> execute(final PrintStream out) throws Exception {
+        this.config.setUrl(new URL("http", "localhost", this.port, this.runnerConfig.getRequestTarget()));
+
+        final List<BenchResult> results = new ArrayList<BenchResult>();
+        double baseline = -1;
+        boolean first = true;
+        for (final Integer step : getSteps(this.runnerConfig.getScalingSweep())) {
+            final int n = step.intValue();
+            final ServerConfig stepConfig = ServerConfig.copy(this.serverConfig)
+                    .setIoThreads(n)
+                    .setWorkerThreads(this.serverConfig.getWorkerThreads() > 0
+                            ? this.serverConfig.getWorkerThreads() : n)
+                    .build();
+            final HttpServer server = ServerThreads.create(this.serverFactory, this.port, stepConfig);
+            if (first) {
+                out.println("---------------------------------------------------------------");
+                out.println(server.getName() + "; version: " + server.getVersion());
+                out.println("---------------------------------------------------------------");
+                out.println("Available processors:\t\t" + Runtime.getRuntime().availableProcessors());
+                out.println("Concurrency Level:\t\t" + this.config.getThreads());
+                out.println();
+                out.println("I/O threads\tRequests per second\tPer thread\tEfficiency [%]\tp99 [ms]");
+                first = false;
+            }
+            final LoadResult result;
+            final RuntimeStats stats;
+            ServerThreads.start(server);
+            try {
+                BenchRunner.warmUp(server, this.config, this.runnerConfig);
+                final RuntimeStats start = RuntimeStats.capture(ServerThreads.GROUP);
+                result = measure();
+                stats = RuntimeStats.capture(ServerThreads.GROUP).since(start);
+            } finally {
+                server.shutdown();
+            }
+            results.add(BenchRunner.createResult(server, this.config, stepConfig, this.runnerConfig)
+                    .setLoadResult(result)
+                    .setRuntimeStats(stats)
+                    .build());
+            final double perThread = result.getRequestsPerSecond() / n;
+            if (baseline < 0) {
+                baseline = perThread;
+            }
+            out.println(String.format(Locale.ROOT, "%d\t\t%,.2f\t\t%,.2f\t%.1f\t\t%.3f%s",
+                    n,
+                    result.getRequestsPerSecond(),
+                    perThread,
+                    baseline > 0 ? perThread / baseline * 100.0 : 0.0,
+                    result.getLatency().getValueAtPercentile(99.0) / 1000000.0,
+                    result.getFailureCount() > 0 ? "\t(" + result.getFailureCount() + " failed)" : ""));
+        }
+        out.println("---------------------------------------------------------------");
+        return results;
+    }
+
+    private LoadResult measure() throws InterruptedException, IOException {
+        if (this.runnerConfig.isHttp2()) {
+            return new MultiplexingClient(this.config, this.runnerConfig.getH2Connections()).execute();
+        }
+        if (this.runnerConfig.getPipelineDepth() > 0) {
+            return new PipelinedClient(this.config, this.runnerConfig.getPipelineDepth()).execute();
+        }
+        return new ClosedLoopClient(this.config, 0).execute();
+    }
+
+}
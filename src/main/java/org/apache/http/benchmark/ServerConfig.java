@@ -0,0 +1,319 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.io.File;
+
+import javax.net.ssl.SSLContext;
+
+/**
+ * Server side settings shared by all {@link HttpServer} implementations.
+ */
+public final class ServerConfig {
+
+    public static final ServerConfig DEFAULT = new Builder().build();
+
+    private final boolean freshPayload;
+    private final long payloadCacheSize;
+    private final File file;
+    private final boolean http2;
+    private final int ioThreads;
+    private final int workerThreads;
+    private final int backlog;
+    private final boolean reuseAddress;
+    private final SSLContext sslContext;
+    private final boolean nativeTransport;
+    private final boolean directBuffers;
+    private final boolean cachedHeaders;
+
+    ServerConfig(
+            final boolean freshPayload,
+            final long payloadCacheSize,
+            final File file,
+            final boolean http2,
+            final int ioThreads,
+            final int workerThreads,
+            final int backlog,
+            final boolean reuseAddress,
+            final SSLContext sslContext,
+            final boolean nativeTransport,
+            final boolean directBuffers,
+            final boolean cachedHeaders) {
+        super();
+        this.freshPayload = freshPayload;
+        this.payloadCacheSize = payloadCacheSize;
+        this.file = file;
+        this.http2 = http2;
+        this.ioThreads = ioThreads;
+        this.workerThreads = workerThreads;
+        this.backlog = backlog;
+        this.reuseAddress = reuseAddress;
+        this.sslContext = sslContext;
+        this.nativeTransport = nativeTransport;
+        this.directBuffers = directBuffers;
+        this.cachedHeaders = cachedHeaders;
+    }
+
+    public boolean isFreshPayload() {
+        return this.freshPayload;
+    }
+
+    public long getPayloadCacheSize() {
+        return this.payloadCacheSize;
+    }
+
+    /**
+     * Returns the file served by the {@code /file} endpoint or {@code null}
+     * if the endpoint is disabled.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Returns {@code true} if the server is to speak HTTP/2 over cleartext
+     * connections (h2c with prior knowledge) instead of HTTP/1.1.
+     */
+    public boolean isHttp2() {
+        return this.http2;
+    }
+
+    /**
+     * Returns the number of I/O (event loop / selector) threads or zero
+     * if the framework default is to be used.
+     */
+    public int getIoThreads() {
+        return this.ioThreads;
+    }
+
+    /**
+     * Returns the max number of worker threads or zero if the framework
+     * default is to be used. Only applies to servers that execute request
+     * handlers outside of the I/O threads (Jetty).
+     */
+    public int getWorkerThreads() {
+        return this.workerThreads;
+    }
+
+    /**
+     * Returns the size of the listen backlog (the queue of connections not yet
+     * accepted) or zero if the framework default is to be used. The operating
+     * system caps the backlog, on Linux at {@code net.core.somaxconn}.
+     */
+    public int getBacklog() {
+        return this.backlog;
+    }
+
+    /**
+     * Returns {@code true} if {@code SO_REUSEADDR} is to be set on the listening socket.
+     */
+    public boolean isReuseAddress() {
+        return this.reuseAddress;
+    }
+
+    /**
+     * Returns the SSL context of the HTTPS variant of the server or {@code null}
+     * if the server is to accept plain connections.
+     */
+    public SSLContext getSslContext() {
+        return this.sslContext;
+    }
+
+    /**
+     * Returns {@code true} if the native transport (epoll) is to be used where
+     * the server and the platform support it (Netty 4). Servers fall back to
+     * the NIO transport otherwise.
+     */
+    public boolean isNativeTransport() {
+        return this.nativeTransport;
+    }
+
+    /**
+     * Returns {@code true} if responses are to be written from direct buffers rather
+     * than from heap buffers where the server supports it: from pooled buffers
+     * (HttpCore 5) or with pre-encoded heads and gathering writes (Netty 3).
+     */
+    public boolean isDirectBuffers() {
+        return this.directBuffers;
+    }
+
+    /**
+     * Returns {@code true} if response headers are to be serialised once and reused
+     * rather than built for every response where the server supports it, with the
+     * {@code Date} header refreshed once per second (see {@link DateTicker}).
+     */
+    public boolean isCachedHeaders() {
+        return this.cachedHeaders;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder();
+        buf.append("[freshPayload=").append(this.freshPayload)
+            .append(", payloadCacheSize=").append(this.payloadCacheSize)
+            .append(", file=").append(this.file)
+            .append(", http2=").append(this.http2)
+            .append(", ioThreads=").append(this.ioThreads)
+            .append(", workerThreads=").append(this.workerThreads)
+            .append(", backlog=").append(this.backlog)
+            .append(", reuseAddress=").append(this.reuseAddress)
+            .append(", tls=").append(this.sslContext != null)
+            .append(", nativeTransport=").append(this.nativeTransport)
+            .append(", directBuffers=").append(this.directBuffers)
+            .append(", cachedHeaders=").append(this.cachedHeaders)
+            .append("]");
+        return buf.toString();
+    }
+
+    public static ServerConfig.Builder custom() {
+        return new Builder();
+    }
+
+    public static ServerConfig.Builder copy(final ServerConfig config) {
+        return new Builder()
+                .setFreshPayload(config.isFreshPayload())
+                .setPayloadCacheSize(config.getPayloadCacheSize())
+                .setFile(config.getFile())
+                .setHttp2(config.isHttp2())
+                .setIoThreads(config.getIoThreads())
+                .setWorkerThreads(config.getWorkerThreads())
+                .setBacklog(config.getBacklog())
+                .setReuseAddress(config.isReuseAddress())
+                .setSslContext(config.getSslContext())
+                .setNativeTransport(config.isNativeTransport())
+                .setDirectBuffers(config.isDirectBuffers())
+                .setCachedHeaders(config.isCachedHeaders());
+    }
+
+    public static class Builder {
+
+        private boolean freshPayload;
+        private long payloadCacheSize;
+        private File file;
+        private boolean http2;
+        private int ioThreads;
+        private int workerThreads;
+        private int backlog;
+        private boolean reuseAddress;
+        private SSLContext sslContext;
+        private boolean nativeTransport;
+        private boolean directBuffers;
+        private boolean cachedHeaders;
+
+        Builder() {
+            this.freshPayload = false;
+            this.payloadCacheSize = BenchConsts.PAYLOAD_CACHE_SIZE;
+            this.http2 = false;
+            this.ioThreads = 0;
+            this.workerThreads = 0;
+            this.backlog = 0;
+            this.reuseAddress = true;
+            this.sslContext = null;
+            this.nativeTransport = false;
+            this.directBuffers = false;
+            this.cachedHeaders = false;
+        }
+
+        public Builder setFreshPayload(final boolean freshPayload) {
+            this.freshPayload = freshPayload;
+            return this;
+        }
+
+        public Builder setPayloadCacheSize(final long payloadCacheSize) {
+            this.payloadCacheSize = payloadCacheSize;
+            return this;
+        }
+
+        public Builder setFile(final File file) {
+            this.file = file;
+            return this;
+        }
+
+        public Builder setHttp2(final boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        public Builder setIoThreads(final int ioThreads) {
+            this.ioThreads = ioThreads;
+            return this;
+        }
+
+        public Builder setWorkerThreads(final int workerThreads) {
+            this.workerThreads = workerThreads;
+            return this;
+        }
+
+        public Builder setBacklog(final int backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        public Builder setReuseAddress(final boolean reuseAddress) {
+            this.reuseAddress = reuseAddress;
+            return this;
+        }
+
+        public Builder setSslContext(final SSLContext sslContext) {
+            this.sslContext = sslContext;
+            return this;
+        }
+
+        public Builder setNativeTransport(final boolean nativeTransport) {
+            this.nativeTransport = nativeTransport;
+            return this;
+        }
+
+        public Builder setDirectBuffers(final boolean directBuffers) {
+            this.directBuffers = directBuffers;
+            return this;
+        }
+
+        public Builder setCachedHeaders(final boolean cachedHeaders) {
+            this.cachedHeaders = cachedHeaders;
+            return this;
+        }
+
+        public ServerConfig build() {
+            return new ServerConfig(
+                    this.freshPayload,
+                    this.payloadCacheSize,
+                    this.file,
+                    this.http2,
+                    this.ioThreads,
+                    this.workerThreads,
+                    this.backlog,
+                    this.reuseAddress,
+                    this.sslContext,
+                    this.nativeTransport,
+                    this.directBuffers,
+                    this.cachedHeaders);
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Creates and starts the servers under test from a thread of a dedicated thread group.
+ * Thread pools and factories of the servers take the thread group of the thread that
+ * creates them, so the server threads end up in this group and their CPU time and
+ * allocations can be told apart from those of the load generator.
+ */
+final class ServerThreads {
+
+    static final ThreadGroup GROUP = new ThreadGroup("bench-server");
+
+    private ServerThreads() {
+    }
+
+    static HttpServer create(
+            final HttpServerFactory serverFactory,
+            final int port,
+            final ServerConfig serverConfig) throws Exception {
+        return call(new Callable<HttpServer>() {
+
+            @Override
+            public HttpServer call() throws Exception {
+                return serverFactory.create(port, serverConfig);
+            }
+
+        });
+    }
+
+    static void start(final HttpServer server) throws Exception {
+        call(new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+                server.start();
+                return null;
+            }
+
+        });
+    }
+
+    private static <T> T call(final Callable<T> callable) throws Exception {
+        final Object[] outcome = new Object[2];
+        final Thread thread = new Thread(GROUP, new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    outcome[0] = callable.call();
+                } catch (final Throwable ex) {
+                    outcome[1] = ex;
+                }
+            }
+
+        }, "bench-server-init");
+        thread.start();
+        thread.join();
+        final Throwable ex = (Throwable) outcome[1];
+        if (ex instanceof Exception) {
+            throw (Exception) ex;
+        } else if (ex instanceof Error) {
+            throw (Error) ex;
+        }
+        @SuppressWarnings("unchecked")
+        final T result = (T) outcome[0];
+        return result;
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URL;
+import java.util.Locale;
+
+import org.apache.hc.core5.benchmark.Config;
+import org.apache.http.benchmark.client.ClosedLoopClient;
+import org.apache.http.benchmark.client.LoadResult;
+import org.apache.http.benchmark.client.SlowConsumerClient;
+
+/**
+ * Measures how a server copes with clients that read responses slowly. The
+ * closed-loop load generator is run once on its own and once while a number
+ * of slow connections keep requesting large responses. The run reports how
+ * much the heap grows while the slow connections are open, how much of it
+ * is retained per slow connection (that is, buffered on behalf of the slow
+ * readers), and how much the latency of the fast clients suffers.
+ * <p>
+ * The heap is shared with the load generators; their own footprint is small
+ * and does not depend on the response size.
+ */
+final class SlowConsumerStress {
+
+    private static final long HEAP_SAMPLE_INTERVAL = 20;
+    private static final long RAMP_UP_MILLIS = 5000;
+
+    private final Config config;
+    private final RunnerConfig runnerConfig;
+
+    private LoadResult baseline;
+    private LoadResult loaded;
+
+    SlowConsumerStress(final Config config, final RunnerConfig runnerConfig) {
+        super();
+        this.config = config;
+        this.runnerConfig = runnerConfig;
+    }
+
+    void execute(final PrintStream out) throws Exception {
+        final URL url = this.config.getUrl();
+        final URL slowUrl = new URL(url.getProtocol(), url.getHost(), url.getPort(),
+                "/rnd?c=" + this.runnerConfig.getSlowContentSize());
+        final SlowConsumerClient slowClient = new SlowConsumerClient(slowUrl, this.runnerConfig.getSlowClients(),
+                this.runnerConfig.getSlowRate(), this.config.getSocketTimeoutMillis());
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        // Discarded run so that both measured runs see a warmed-up server
+        new ClosedLoopClient(this.config, 0).execute();
+        this.baseline = new ClosedLoopClient(this.config, 0).execute();
+        final long heapBefore = usedHeapAfterGc(memory);
+
+        final HeapSampler sampler = new HeapSampler(memory);
+        final Thread samplerThread = new Thread(sampler, "bench-heap-sampler");
+        samplerThread.setDaemon(true);
+        samplerThread.start();
+        final long heapRetained;
+        slowClient.start();
+        try {
+            if (!slowClient.awaitReceiving(RAMP_UP_MILLIS)) {
+                out.println("Warning: not all slow connections receive content");
+            }
+            this.loaded = new ClosedLoopClient(this.config, 0).execute();
+            heapRetained = usedHeapAfterGc(memory);
+        } finally {
+            slowClient.stop();
+            sampler.stopped = true;
+            samplerThread.join();
+        }
+
+        final int n = slowClient.getConnections();
+        out.println("Slow connections:\t\t" + n);
+        out.println("Slow read rate:\t\t\t" + slowClient.getBytesPerSecond() + " [bytes/sec] per connection");
+        out.println("Slow response size:\t\t" + this.runnerConfig.getSlowContentSize() + " bytes");
+        out.println("Slow responses completed:\t" + slowClient.getResponseCount()
+                + (slowClient.getFailureCount() > 0 ? " (" + slowClient.getFailureCount() + " failed)" : ""));
+        out.println("Slow bytes received:\t\t" + slowClient.getBytesReceived() + " bytes");
+        out.println();
+        out.println(String.format(Locale.ROOT, "Heap used [MB]:\t\t\t%.1f before, %.1f peak, %.1f retained",
+                heapBefore / 1048576.0, Math.max(sampler.peak, heapRetained) / 1048576.0, heapRetained / 1048576.0));
+        out.println(String.format(Locale.ROOT, "Retained per slow connection:\t%,d bytes",
+                Math.max(0, heapRetained - heapBefore) / n));
+        out.println();
+        out.println("Fast clients\t\tRequests per second\tp50 [ms]\tp99 [ms]\tmax [ms]\tFailed");
+        print(out, "alone\t\t", this.baseline);
+        print(out, "with slow clients", this.loaded);
+        final long p99Before = this.baseline.getLatency().getValueAtPercentile(99.0);
+        final long p99After = this.loaded.getLatency().getValueAtPercentile(99.0);
+        if (p99Before > 0) {
+            out.println(String.format(Locale.ROOT, "p99 latency change:\t\t%+.1f%%",
+                    (p99After - p99Before) * 100.0 / p99Before));
+        }
+    }
+
+    LoadResult getBaseline() {
+        return this.baseline;
+    }
+
+    LoadResult getLoaded() {
+        return this.loaded;
+    }
+
+    private static void print(final PrintStream out, final String label, final LoadResult result) {
+        out.println(String.format(Locale.ROOT, "%s\t%,.2f\t\t%.3f\t\t%.3f\t\t%.3f\t\t%d",
+                label,
+                result.getRequestsPerSecond(),
+                result.getLatency().getValueAtPercentile(50.0) / 1000000.0,
+                result.getLatency().getValueAtPercentile(99.0) / 1000000.0,
+                result.getLatency().getMaxValue() / 1000000.0,
+                result.getFailureCount()));
+    }
+
+    private static long usedHeapAfterGc(final MemoryMXBean memory) throws InterruptedException {
+        // One collection may not be enough to release everything unreachable
+        for (int i = 0; i < 2; i++) {
+            memory.gc();
+            Thread.sleep(50);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    static class HeapSampler implements Runnable {
+
+        private final MemoryMXBean memory;
+
+        volatile boolean stopped;
+        volatile long peak;
+
+        HeapSampler(final MemoryMXBean memory) {
+            super();
+            this.memory = memory;
+        }
+
+        @Override
+        public void run() {
+            while (!this.stopped) {
+                final long used = this.memory.getHeapMemoryUsage().getUsed();
+                if (used > this.peak) {
+                    this.peak = used;
+                }
+                try {
+                    Thread.sleep(HEAP_SAMPLE_INTERVAL);
+                } catch (final InterruptedException ex) {
+                    return;
+                }
+            }
+        }
+
+    }
+
+}
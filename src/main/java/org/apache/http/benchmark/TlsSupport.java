@@ -0,0 +1,185 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.Provider;
+import java.security.Security;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * Key material for the HTTPS variants of the servers. A self-signed
+ * certificate for {@code localhost} is generated with the {@code keytool}
+ * of the running JVM the first time it is needed and deleted on exit.
+ * <p>
+ * The SSL contexts can be created by an alternative JSSE provider, given
+ * either by the name of a registered provider or by the class name of a
+ * provider on the classpath, which is then registered.
+ */
+public final class TlsSupport {
+
+    private static final String ALIAS = "bench";
+    private static final char[] PASSWORD = "benchmark".toCharArray();
+
+    private static KeyStore keyStore;
+
+    private TlsSupport() {
+    }
+
+    /**
+     * Creates an SSL context of a server presenting the self-signed certificate.
+     *
+     * @param provider name or class name of the JSSE provider or {@code null} for the default.
+     */
+    public static SSLContext createServerContext(final String provider) throws IOException {
+        try {
+            final KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(
+                    KeyManagerFactory.getDefaultAlgorithm());
+            keyManagerFactory.init(getKeyStore(), PASSWORD);
+            final SSLContext sslContext = getInstance(provider);
+            sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+            return sslContext;
+        } catch (final GeneralSecurityException ex) {
+            throw new IOException("Cannot create server SSL context: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Creates an SSL context of a client trusting the self-signed certificate only.
+     *
+     * @param provider name or class name of the JSSE provider or {@code null} for the default.
+     */
+    public static SSLContext createClientContext(final String provider) throws IOException {
+        try {
+            final TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(
+                    TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init(getKeyStore());
+            final SSLContext sslContext = getInstance(provider);
+            sslContext.init(null, trustManagerFactory.getTrustManagers(), null);
+            return sslContext;
+        } catch (final GeneralSecurityException ex) {
+            throw new IOException("Cannot create client SSL context: " + ex.getMessage(), ex);
+        }
+    }
+
+    private static SSLContext getInstance(final String provider) throws IOException, GeneralSecurityException {
+        if (provider == null) {
+            return SSLContext.getInstance("TLS");
+        }
+        return SSLContext.getInstance("TLS", getProvider(provider));
+    }
+
+    static synchronized Provider getProvider(final String name) throws IOException {
+        final Provider provider = Security.getProvider(name);
+        if (provider != null) {
+            return provider;
+        }
+        for (final Provider candidate : Security.getProviders()) {
+            if (candidate.getClass().getName().equals(name)) {
+                return candidate;
+            }
+        }
+        try {
+            final Provider loaded = (Provider) Class.forName(name).newInstance();
+            Security.addProvider(loaded);
+            return loaded;
+        } catch (final ClassNotFoundException ex) {
+            throw new IOException("Unknown JSSE provider: " + name);
+        } catch (final Exception ex) {
+            throw new IOException("Cannot load JSSE provider " + name + ": " + ex, ex);
+        }
+    }
+
+    private static synchronized KeyStore getKeyStore() throws IOException, GeneralSecurityException {
+        if (keyStore == null) {
+            final File file = File.createTempFile("bench-keystore", ".p12");
+            file.deleteOnExit();
+            // keytool refuses to write to an existing empty file
+            file.delete();
+            generate(file);
+            final KeyStore ks = KeyStore.getInstance("PKCS12");
+            final InputStream instream = new FileInputStream(file);
+            try {
+                ks.load(instream, PASSWORD);
+            } finally {
+                instream.close();
+            }
+            file.delete();
+            keyStore = ks;
+        }
+        return keyStore;
+    }
+
+    private static void generate(final File file) throws IOException {
+        final File keytool = new File(new File(System.getProperty("java.home"), "bin"), "keytool");
+        final ProcessBuilder builder = new ProcessBuilder(
+                keytool.getPath(), "-genkeypair",
+                "-alias", ALIAS,
+                "-keyalg", "RSA",
+                "-keysize", "2048",
+                "-validity", "365",
+                "-dname", "CN=localhost",
+                "-ext", "SAN=dns:localhost,ip:127.0.0.1",
+                "-storetype", "PKCS12",
+                "-keystore", file.getPath(),
+                "-storepass", new String(PASSWORD),
+                "-keypass", new String(PASSWORD));
+        builder.redirectErrorStream(true);
+        final Process process = builder.start();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final InputStream instream = process.getInputStream();
+        try {
+            final byte[] buf = new byte[1024];
+            int n;
+            while ((n = instream.read(buf)) != -1) {
+                output.write(buf, 0, n);
+            }
+        } finally {
+            instream.close();
+        }
+        final int status;
+        try {
+            status = process.waitFor();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating the key store");
+        }
+        if (status != 0) {
+            throw new IOException("Cannot generate the key store: " + output.toString().trim());
+        }
+    }
+
+}
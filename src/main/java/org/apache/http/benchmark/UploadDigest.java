@@ -0,0 +1,99 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * CRC32 checksum and length of uploaded content, computed incrementally as
+ * the content is received so that it never has to be held in memory. The
+ * upload handlers echo the digest as the response content in the format
+ * returned by {@link #format(long, long)}.
+ */
+public final class UploadDigest {
+
+    private final CRC32 crc;
+    private final byte[] tmp;
+
+    private long length;
+
+    public UploadDigest() {
+        super();
+        this.crc = new CRC32();
+        this.tmp = new byte[BenchConsts.BUF_SIZE];
+    }
+
+    public void update(final byte[] b, final int off, final int len) {
+        this.crc.update(b, off, len);
+        this.length += len;
+    }
+
+    /**
+     * Consumes all remaining bytes of the given buffer.
+     */
+    public void update(final ByteBuffer src) {
+        if (src.hasArray()) {
+            final int len = src.remaining();
+            update(src.array(), src.arrayOffset() + src.position(), len);
+            src.position(src.limit());
+        } else {
+            while (src.hasRemaining()) {
+                final int len = Math.min(src.remaining(), this.tmp.length);
+                src.get(this.tmp, 0, len);
+                update(this.tmp, 0, len);
+            }
+        }
+    }
+
+    public long getLength() {
+        return this.length;
+    }
+
+    public long getValue() {
+        return this.crc.getValue();
+    }
+
+    @Override
+    public String toString() {
+        return format(getValue(), this.length);
+    }
+
+    /**
+     * Formats the checksum and the length of content as the eight digit hex
+     * checksum followed by a space and the decimal length.
+     */
+    public static String format(final long crc, final long length) {
+        final String hex = Long.toHexString(crc);
+        final StringBuilder buf = new StringBuilder(8 + 1 + 20);
+        for (int i = hex.length(); i < 8; i++) {
+            buf.append('0');
+        }
+        return buf.append(hex).append(' ').append(length).toString();
+    }
+
+}
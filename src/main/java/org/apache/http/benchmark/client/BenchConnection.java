@@ -0,0 +1,419 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import org.apache.http.benchmark.BenchConsts;
+
+/**
+ * Minimal blocking HTTP/1.1 client connection used by the load generators.
+ * Requests are sent pre-encoded; response heads are parsed in place and
+ * response bodies are consumed without being retained, so that the client
+ * does not allocate per request.
+ */
+public final class BenchConnection {
+
+    private static final byte[] CONTENT_LENGTH = "content-length".getBytes();
+    private static final byte[] TRANSFER_ENCODING = "transfer-encoding".getBytes();
+    private static final byte[] CONNECTION = "connection".getBytes();
+    private static final byte[] CHUNKED = "chunked".getBytes();
+    private static final byte[] CLOSE = "close".getBytes();
+    private static final byte[] KEEP_ALIVE = "keep-alive".getBytes();
+
+    private final Socket socket;
+    private final Closeable closeable;
+    private final InputStream instream;
+    private final OutputStream outstream;
+    private final byte[] buffer;
+    private final byte[] line;
+
+    private int pos;
+    private int limit;
+    private int lineLen;
+
+    private byte[] capture;
+    private int captured;
+
+    private long responseTime;
+    private int status;
+    private long contentLength;
+    private long bytesReceived;
+    private long bytesSent;
+
+    public BenchConnection(final Socket socket) throws IOException {
+        this(socket, socket.getInputStream(), socket.getOutputStream(), socket);
+    }
+
+    /**
+     * Creates a connection over a transport other than a socket.
+     *
+     * @param closeable closed together with the connection.
+     */
+    public BenchConnection(
+            final InputStream instream, final OutputStream outstream, final Closeable closeable) {
+        this(null, instream, outstream, closeable);
+    }
+
+    private BenchConnection(
+            final Socket socket,
+            final InputStream instream,
+            final OutputStream outstream,
+            final Closeable closeable) {
+        super();
+        this.socket = socket;
+        this.closeable = closeable;
+        this.instream = instream;
+        this.outstream = outstream;
+        this.buffer = new byte[BenchConsts.BUF_SIZE];
+        this.line = new byte[BenchConsts.BUF_SIZE];
+    }
+
+    public static BenchConnection open(
+            final InetSocketAddress address, final int socketTimeout) throws IOException {
+        final Socket socket = new Socket();
+        socket.setTcpNoDelay(BenchConsts.TCP_NO_DELAY);
+        socket.setSoTimeout(socketTimeout);
+        socket.connect(address, socketTimeout);
+        return new BenchConnection(socket);
+    }
+
+    /**
+     * Returns the underlying socket or {@code null} if the connection is not a socket connection.
+     */
+    public Socket getSocket() {
+        return this.socket;
+    }
+
+    public void sendRequest(final byte[] request) throws IOException {
+        send(request, 0, request.length);
+    }
+
+    /**
+     * Sends a part of a request, for instance a block of content streamed after the request head.
+     */
+    public void send(final byte[] b, final int off, final int len) throws IOException {
+        this.outstream.write(b, off, len);
+        this.bytesSent += len;
+    }
+
+    /**
+     * Retains up to {@code buf.length} bytes of the content of each response in the given
+     * buffer instead of discarding them. A {@code null} buffer disables capturing.
+     */
+    public void setContentCapture(final byte[] buf) {
+        this.capture = buf;
+        this.captured = 0;
+    }
+
+    /**
+     * Returns the number of content bytes of the last response retained in the capture buffer.
+     */
+    public int getCapturedLength() {
+        return this.captured;
+    }
+
+    /**
+     * Reads a complete response and discards its content.
+     *
+     * @param head {@code true} if the response is to a HEAD request and has no content.
+     * @return {@code true} if the connection can be re-used for another request.
+     */
+    public boolean receiveResponse(final boolean head) throws IOException {
+        if (this.pos == this.limit && !fill()) {
+            throw new IOException("Connection closed by peer");
+        }
+        this.responseTime = System.nanoTime();
+        for (;;) {
+            if (!readLine()) {
+                throw new IOException("Connection closed by peer");
+            }
+            if (this.lineLen < 12 || !startsWith(this.line, 0, "HTTP/1.")) {
+                throw new IOException("Invalid status line");
+            }
+            final boolean http10 = this.line[7] == '0';
+            this.status = parseStatus(this.line);
+
+            long declaredLength = -1;
+            boolean chunked = false;
+            boolean keepAlive = !http10;
+            for (;;) {
+                if (!readLine()) {
+                    throw new IOException("Connection closed by peer");
+                }
+                if (this.lineLen == 0) {
+                    break;
+                }
+                final int colon = indexOf(this.line, (byte) ':', this.lineLen);
+                if (colon <= 0) {
+                    continue;
+                }
+                int valueStart = colon + 1;
+                while (valueStart < this.lineLen && this.line[valueStart] == ' ') {
+                    valueStart++;
+                }
+                if (equalsIgnoreCase(this.line, 0, colon, CONTENT_LENGTH)) {
+                    declaredLength = parseLong(this.line, valueStart, this.lineLen);
+                } else if (equalsIgnoreCase(this.line, 0, colon, TRANSFER_ENCODING)) {
+                    chunked = containsIgnoreCase(this.line, valueStart, this.lineLen, CHUNKED);
+                } else if (equalsIgnoreCase(this.line, 0, colon, CONNECTION)) {
+                    if (containsIgnoreCase(this.line, valueStart, this.lineLen, CLOSE)) {
+                        keepAlive = false;
+                    } else if (containsIgnoreCase(this.line, valueStart, this.lineLen, KEEP_ALIVE)) {
+                        keepAlive = true;
+                    }
+                }
+            }
+            if (this.status >= 100 && this.status < 200) {
+                continue;
+            }
+            this.contentLength = 0;
+            this.captured = 0;
+            if (head || this.status == 204 || this.status == 304) {
+                return keepAlive;
+            }
+            if (chunked) {
+                skipChunked();
+                return keepAlive;
+            } else if (declaredLength >= 0) {
+                skip(declaredLength);
+                return keepAlive;
+            } else {
+                skipToEnd();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Returns the time ({@link System#nanoTime()}) at which the first byte of the last
+     * response was available. If the response had already been buffered along with
+     * the previous one this is the time its reception started.
+     */
+    public long getResponseTime() {
+        return this.responseTime;
+    }
+
+    public int getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Returns length of the content of the last response.
+     */
+    public long getContentLength() {
+        return this.contentLength;
+    }
+
+    public long getBytesReceived() {
+        return this.bytesReceived;
+    }
+
+    public long getBytesSent() {
+        return this.bytesSent;
+    }
+
+    public void close() {
+        try {
+            this.closeable.close();
+        } catch (final IOException ignore) {
+        }
+    }
+
+    private boolean fill() throws IOException {
+        final int n = this.instream.read(this.buffer);
+        if (n == -1) {
+            return false;
+        }
+        this.pos = 0;
+        this.limit = n;
+        this.bytesReceived += n;
+        return true;
+    }
+
+    private boolean readLine() throws IOException {
+        this.lineLen = 0;
+        for (;;) {
+            if (this.pos == this.limit && !fill()) {
+                return false;
+            }
+            final byte b = this.buffer[this.pos++];
+            if (b == '\n') {
+                if (this.lineLen > 0 && this.line[this.lineLen - 1] == '\r') {
+                    this.lineLen--;
+                }
+                return true;
+            }
+            if (this.lineLen == this.line.length) {
+                throw new IOException("Line too long");
+            }
+            this.line[this.lineLen++] = b;
+        }
+    }
+
+    private void skip(final long len) throws IOException {
+        long remaining = len;
+        while (remaining > 0) {
+            if (this.pos == this.limit && !fill()) {
+                throw new IOException("Premature end of content");
+            }
+            final int chunk = (int) Math.min(remaining, this.limit - this.pos);
+            if (this.capture != null && this.captured < this.capture.length) {
+                final int n = Math.min(chunk, this.capture.length - this.captured);
+                System.arraycopy(this.buffer, this.pos, this.capture, this.captured, n);
+                this.captured += n;
+            }
+            this.pos += chunk;
+            remaining -= chunk;
+            this.contentLength += chunk;
+        }
+    }
+
+    private void skipChunked() throws IOException {
+        for (;;) {
+            if (!readLine()) {
+                throw new IOException("Premature end of chunk coded content");
+            }
+            int end = indexOf(this.line, (byte) ';', this.lineLen);
+            if (end == -1) {
+                end = this.lineLen;
+            }
+            final long chunkSize = parseHex(this.line, 0, end);
+            if (chunkSize == 0) {
+                // Skip trailers
+                do {
+                    if (!readLine()) {
+                        throw new IOException("Premature end of chunk coded content");
+                    }
+                } while (this.lineLen > 0);
+                return;
+            }
+            skip(chunkSize);
+            if (!readLine() || this.lineLen != 0) {
+                throw new IOException("Invalid chunk terminator");
+            }
+        }
+    }
+
+    private void skipToEnd() throws IOException {
+        this.contentLength += this.limit - this.pos;
+        this.pos = this.limit;
+        while (fill()) {
+            this.contentLength += this.limit;
+            this.pos = this.limit;
+        }
+    }
+
+    private static int parseStatus(final byte[] b) throws IOException {
+        int status = 0;
+        for (int i = 9; i < 12; i++) {
+            final int digit = b[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IOException("Invalid status code");
+            }
+            status = status * 10 + digit;
+        }
+        return status;
+    }
+
+    private static long parseLong(final byte[] b, final int from, final int to) throws IOException {
+        long n = 0;
+        int i = from;
+        for (; i < to; i++) {
+            final int digit = b[i] - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            n = n * 10 + digit;
+        }
+        if (i == from) {
+            throw new IOException("Invalid content length");
+        }
+        return n;
+    }
+
+    private static long parseHex(final byte[] b, final int from, final int to) throws IOException {
+        long n = 0;
+        int i = from;
+        for (; i < to; i++) {
+            final int digit = Character.digit(b[i], 16);
+            if (digit == -1) {
+                break;
+            }
+            n = (n << 4) + digit;
+        }
+        if (i == from) {
+            throw new IOException("Invalid chunk size");
+        }
+        return n;
+    }
+
+    private static int indexOf(final byte[] b, final byte c, final int len) {
+        for (int i = 0; i < len; i++) {
+            if (b[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(final byte[] b, final int from, final String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (b[from + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(final byte[] b, final int from, final int to, final byte[] lowerCase) {
+        if (to - from != lowerCase.length) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length; i++) {
+            if (Character.toLowerCase(b[from + i]) != lowerCase[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsIgnoreCase(final byte[] b, final int from, final int to, final byte[] lowerCase) {
+        for (int i = from; i <= to - lowerCase.length; i++) {
+            if (equalsIgnoreCase(b, i, i + lowerCase.length, lowerCase)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.PrintStream;
+import java.net.URL;
+import java.util.Locale;
+
+import org.apache.hc.core5.benchmark.Config;
+
+/**
+ * Closed-loop load generator that opens a new connection every few requests,
+ * so that connection establishment is not amortised over a long-lived
+ * keep-alive connection. With one request per connection every request
+ * pays for the TCP handshake, the accept by the server and the setup of the
+ * server side connection state. Besides request latency the client reports
+ * the connection rate, the connect time and the time to first byte (from the
+ * start of the connect to the first byte of the first response).
+ */
+public final class ChurnClient {
+
+    private final Config config;
+    private final int minRequests;
+    private final int maxRequests;
+    private final ConnectionFactory connectionFactory;
+
+    private long connectionCount;
+    private long durationNanos;
+    private LatencyHistogram connectLatency;
+    private LatencyHistogram firstByteLatency;
+
+    /**
+     * @param config load generator settings. The keep-alive setting is ignored.
+     * @param minRequests min number of requests per connection.
+     * @param maxRequests max number of requests per connection.
+     * @param connectionFactory factory of connections to the server or {@code null}
+     *   to connect to the target URL of the configuration over TCP.
+     */
+    public ChurnClient(
+            final Config config,
+            final int minRequests,
+            final int maxRequests,
+            final ConnectionFactory connectionFactory) {
+        super();
+        if (minRequests <= 0 || maxRequests < minRequests) {
+            throw new IllegalArgumentException("Invalid number of requests per connection");
+        }
+        this.config = config;
+        this.minRequests = minRequests;
+        this.maxRequests = maxRequests;
+        this.connectionFactory = connectionFactory;
+    }
+
+    public LoadResult execute() throws InterruptedException {
+        final URL url = this.config.getUrl();
+        final ConnectionFactory connectionFactory = this.connectionFactory != null
+                ? this.connectionFactory
+                : new SocketConnectionFactory(RequestEncoder.getAddress(url), this.config.getSocketTimeoutMillis());
+        final boolean head = this.config.isHeadInsteadOfGet();
+        final String method = head ? "HEAD" : "GET";
+        final byte[] request = RequestEncoder.encode(method, url, true, this.config.getHeaders());
+        final byte[] closeRequest = RequestEncoder.encode(method, url, false, this.config.getHeaders());
+
+        final int threadCount = this.config.getThreads();
+        final ChurnWorker[] workers = new ChurnWorker[threadCount];
+        final long start = System.nanoTime();
+        final long deadline = this.config.getTimeLimit() > 0
+                ? start + this.config.getTimeLimit() * 1000000000L : 0;
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new ChurnWorker(connectionFactory, request, closeRequest, head,
+                    this.minRequests, this.maxRequests, this.config.getRequests(), deadline);
+        }
+        LoadWorker.join(LoadWorker.start(workers));
+        this.durationNanos = System.nanoTime() - start;
+        this.connectionCount = 0;
+        this.connectLatency = new LatencyHistogram();
+        this.firstByteLatency = new LatencyHistogram();
+        for (final ChurnWorker worker : workers) {
+            this.connectionCount += worker.getConnectionCount();
+            this.connectLatency.add(worker.getConnectLatency());
+            this.firstByteLatency.add(worker.getFirstByteLatency());
+        }
+        return LoadWorker.merge(workers, this.durationNanos, 0);
+    }
+
+    /**
+     * Returns the number of connections established by the last run.
+     */
+    public long getConnectionCount() {
+        return this.connectionCount;
+    }
+
+    public double getConnectionsPerSecond() {
+        return this.durationNanos > 0 ? this.connectionCount * 1000000000.0 / this.durationNanos : 0;
+    }
+
+    /**
+     * Returns the distribution of connect times of the last run in nanoseconds.
+     */
+    public LatencyHistogram getConnectLatency() {
+        return this.connectLatency;
+    }
+
+    /**
+     * Returns the distribution of the time from the start of the connect to the
+     * first byte of the first response of the last run in nanoseconds.
+     */
+    public LatencyHistogram getFirstByteLatency() {
+        return this.firstByteLatency;
+    }
+
+    public void print(final PrintStream out) {
+        out.println("Requests per connection:\t" + (this.minRequests == this.maxRequests
+                ? Integer.toString(this.minRequests) : this.minRequests + "-" + this.maxRequests));
+        out.println("Connections established:\t" + this.connectionCount);
+        out.println(String.format(Locale.ROOT, "Connections per second:\t\t%,.2f [#/sec] (mean)",
+                getConnectionsPerSecond()));
+        out.println();
+        LoadResult.printLatency(out, "Connect time [ms]", this.connectLatency);
+        LoadResult.printLatency(out, "Time to first byte [ms]", this.firstByteLatency);
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Opens a new connection for every few requests. The number of requests
+ * per connection is drawn uniformly from {@code [minRequests, maxRequests]}.
+ * The last request on a connection asks the server to close the connection,
+ * as a short-lived client would. Besides request latency the worker records
+ * how long it takes to establish each connection and the time to the first
+ * byte of the first response, measured from the start of the connect.
+ */
+class ChurnWorker extends LoadWorker {
+
+    private final byte[] closeRequest;
+    private final int minRequests;
+    private final int maxRequests;
+    private final int requests;
+    private final long deadline;
+    private final Random random;
+    private final LatencyHistogram connectLatency;
+    private final LatencyHistogram firstByteLatency;
+
+    private long connectionCount;
+    private long connectStart;
+    private boolean firstRequest;
+    private boolean lastRequest;
+
+    ChurnWorker(
+            final ConnectionFactory connectionFactory,
+            final byte[] request,
+            final byte[] closeRequest,
+            final boolean head,
+            final int minRequests,
+            final int maxRequests,
+            final int requests,
+            final long deadline) {
+        super(connectionFactory, request, head, true);
+        this.closeRequest = closeRequest;
+        this.minRequests = minRequests;
+        this.maxRequests = maxRequests;
+        this.requests = requests;
+        this.deadline = deadline;
+        this.random = new Random();
+        this.connectLatency = new LatencyHistogram();
+        this.firstByteLatency = new LatencyHistogram();
+    }
+
+    @Override
+    public void run() {
+        try {
+            int i = 0;
+            while (i < this.requests && !isPastDeadline()) {
+                final int n = this.minRequests + this.random.nextInt(this.maxRequests - this.minRequests + 1);
+                this.connectStart = System.nanoTime();
+                // A failed connect is retried by the first request, which then counts as failed
+                connect();
+                if (isConnected()) {
+                    this.connectLatency.recordValue(System.nanoTime() - this.connectStart);
+                    this.connectionCount++;
+                }
+                for (int k = 0; k < n && i < this.requests; k++, i++) {
+                    if (k > 0 && (!isConnected() || isPastDeadline())) {
+                        break;
+                    }
+                    this.firstRequest = k == 0;
+                    this.lastRequest = k == n - 1 || i == this.requests - 1;
+                    execute(System.nanoTime());
+                }
+                closeConnection();
+            }
+        } finally {
+            closeConnection();
+        }
+    }
+
+    private boolean isPastDeadline() {
+        return this.deadline != 0 && System.nanoTime() - this.deadline > 0;
+    }
+
+    @Override
+    void sendRequest(final BenchConnection conn, final byte[] request) throws IOException {
+        conn.sendRequest(this.lastRequest ? this.closeRequest : request);
+    }
+
+    @Override
+    boolean verifyResponse(final BenchConnection conn) {
+        if (this.firstRequest) {
+            this.firstByteLatency.recordValue(conn.getResponseTime() - this.connectStart);
+        }
+        return true;
+    }
+
+    long getConnectionCount() {
+        return this.connectionCount;
+    }
+
+    LatencyHistogram getConnectLatency() {
+        return this.connectLatency;
+    }
+
+    LatencyHistogram getFirstByteLatency() {
+        return this.firstByteLatency;
+    }
+
+}
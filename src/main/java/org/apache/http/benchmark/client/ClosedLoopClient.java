@@ -0,0 +1,90 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import org.apache.hc.core5.benchmark.Config;
+
+/**
+ * Closed-loop load generator equivalent to {@code HttpBenchmark} that records
+ * the latency of every request. Each thread records into its own histogram;
+ * the histograms are merged once all threads have completed.
+ */
+public final class ClosedLoopClient {
+
+    private final Config config;
+    private final long expectedInterval;
+    private final ConnectionFactory connectionFactory;
+
+    /**
+     * @param config load generator settings.
+     * @param expectedInterval expected interval between requests in nanoseconds
+     *   used to correct for coordinated omission. If not positive the mean
+     *   latency of the run is used.
+     */
+    public ClosedLoopClient(final Config config, final long expectedInterval) {
+        this(config, expectedInterval, null);
+    }
+
+    /**
+     * @param config load generator settings.
+     * @param expectedInterval expected interval between requests in nanoseconds
+     *   used to correct for coordinated omission. If not positive the mean
+     *   latency of the run is used.
+     * @param connectionFactory factory of connections to the server or {@code null}
+     *   to connect to the target URL of the configuration over TCP.
+     */
+    public ClosedLoopClient(
+            final Config config, final long expectedInterval, final ConnectionFactory connectionFactory) {
+        super();
+        this.config = config;
+        this.expectedInterval = expectedInterval;
+        this.connectionFactory = connectionFactory;
+    }
+
+    public LoadResult execute() throws InterruptedException {
+        final ConnectionFactory connectionFactory = this.connectionFactory != null
+                ? this.connectionFactory
+                : new SocketConnectionFactory(RequestEncoder.getAddress(this.config.getUrl()),
+                        this.config.getSocketTimeoutMillis());
+        final boolean head = this.config.isHeadInsteadOfGet();
+        final byte[] request = RequestEncoder.encode(this.config);
+
+        final int threadCount = this.config.getThreads();
+        final LoadWorker[] workers = new LoadWorker[threadCount];
+        final long start = System.nanoTime();
+        final long deadline = this.config.getTimeLimit() > 0
+                ? start + this.config.getTimeLimit() * 1000000000L : 0;
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new ClosedLoopWorker(connectionFactory, request, head, this.config.isKeepAlive(),
+                    this.config.getRequests(), deadline);
+        }
+        LoadWorker.join(LoadWorker.start(workers));
+        final long duration = System.nanoTime() - start;
+        return LoadWorker.merge(workers, duration, Math.max(this.expectedInterval, 0));
+    }
+
+}
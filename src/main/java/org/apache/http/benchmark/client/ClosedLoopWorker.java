@@ -0,0 +1,65 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+/**
+ * Executes requests one after another over a single connection, issuing
+ * the next request as soon as the previous response has been received.
+ */
+class ClosedLoopWorker extends LoadWorker {
+
+    private final int requests;
+    private final long deadline;
+
+    ClosedLoopWorker(
+            final ConnectionFactory connectionFactory,
+            final byte[] request,
+            final boolean head,
+            final boolean keepAlive,
+            final int requests,
+            final long deadline) {
+        super(connectionFactory, request, head, keepAlive);
+        this.requests = requests;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (int i = 0; i < this.requests; i++) {
+                final long start = System.nanoTime();
+                if (this.deadline != 0 && start - this.deadline > 0) {
+                    break;
+                }
+                execute(start);
+            }
+        } finally {
+            closeConnection();
+        }
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Distribution of a request attribute such as a content size or a think time,
+ * given as {@code kind:arg[:arg...]}:
+ * <ul>
+ *   <li>{@code n} or {@code fixed:n} - always {@code n}</li>
+ *   <li>{@code uniform:min:max} - uniform between {@code min} and {@code max} inclusive</li>
+ *   <li>{@code exp:mean[:max]} - exponential with the given mean</li>
+ *   <li>{@code lognormal:median:sigma[:max]} - log-normal with the given median and
+ *   standard deviation of the logarithm</li>
+ *   <li>{@code pareto:min:alpha[:max]} - Pareto with the given minimum and shape;
+ *   the smaller {@code alpha} the heavier the tail</li>
+ * </ul>
+ * Values other than {@code sigma} and {@code alpha} may have a {@code k},
+ * {@code m} or {@code g} suffix (powers of 1024). Samples are rounded and
+ * truncated to {@code max} if given.
+ */
+public final class Distribution {
+
+    enum Kind { FIXED, UNIFORM, EXPONENTIAL, LOGNORMAL, PARETO }
+
+    private final String spec;
+    private final Kind kind;
+    private final double a;
+    private final double b;
+    private final long max;
+
+    Distribution(final String spec, final Kind kind, final double a, final double b, final long max) {
+        super();
+        this.spec = spec;
+        this.kind = kind;
+        this.a = a;
+        this.b = b;
+        this.max = max;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the specification is malformed.
+     */
+    public static Distribution parse(final String spec) {
+        final String[] args = spec.trim().split(":");
+        final String kind = args[0].toLowerCase(Locale.ROOT);
+        if (args.length == 1) {
+            return new Distribution(spec, Kind.FIXED, parseValue(args[0]), 0, Long.MAX_VALUE);
+        }
+        if (kind.equals("fixed") && args.length == 2) {
+            return new Distribution(spec, Kind.FIXED, parseValue(args[1]), 0, Long.MAX_VALUE);
+        }
+        if (kind.equals("uniform") && args.length == 3) {
+            final long min = parseValue(args[1]);
+            final long max = parseValue(args[2]);
+            if (max < min) {
+                throw new IllegalArgumentException("Invalid distribution: " + spec);
+            }
+            return new Distribution(spec, Kind.UNIFORM, min, max, max);
+        }
+        if (kind.equals("exp") && (args.length == 2 || args.length == 3)) {
+            return new Distribution(spec, Kind.EXPONENTIAL, parseValue(args[1]), 0,
+                    args.length == 3 ? parseValue(args[2]) : Long.MAX_VALUE);
+        }
+        if (kind.equals("lognormal") && (args.length == 3 || args.length == 4)) {
+            return new Distribution(spec, Kind.LOGNORMAL, parseValue(args[1]), parseParameter(args[2], spec),
+                    args.length == 4 ? parseValue(args[3]) : Long.MAX_VALUE);
+        }
+        if (kind.equals("pareto") && (args.length == 3 || args.length == 4)) {
+            final double alpha = parseParameter(args[2], spec);
+            if (alpha == 0) {
+                throw new IllegalArgumentException("Invalid distribution: " + spec);
+            }
+            return new Distribution(spec, Kind.PARETO, parseValue(args[1]), alpha,
+                    args.length == 4 ? parseValue(args[3]) : Long.MAX_VALUE);
+        }
+        throw new IllegalArgumentException("Invalid distribution: " + spec);
+    }
+
+    static long parseValue(final String s) {
+        if (s.length() == 0) {
+            throw new IllegalArgumentException("Invalid value: " + s);
+        }
+        final char unit = Character.toLowerCase(s.charAt(s.length() - 1));
+        final long multiplier;
+        switch (unit) {
+            case 'k':
+                multiplier = 1024L;
+                break;
+            case 'm':
+                multiplier = 1024L * 1024L;
+                break;
+            case 'g':
+                multiplier = 1024L * 1024L * 1024L;
+                break;
+            default:
+                multiplier = 1L;
+        }
+        final String digits = multiplier > 1 ? s.substring(0, s.length() - 1) : s;
+        try {
+            final long value = Long.parseLong(digits) * multiplier;
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid value: " + s);
+            }
+            return value;
+        } catch (final NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid value: " + s);
+        }
+    }
+
+    private static double parseParameter(final String s, final String spec) {
+        try {
+            final double value = Double.parseDouble(s);
+            if (value < 0 || Double.isNaN(value) || Double.isInfinite(value)) {
+                throw new IllegalArgumentException("Invalid distribution: " + spec);
+            }
+            return value;
+        } catch (final NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid distribution: " + spec);
+        }
+    }
+
+    public long sample(final Random random) {
+        final double value;
+        switch (this.kind) {
+            case UNIFORM:
+                value = this.a + Math.floor(random.nextDouble() * (this.b - this.a + 1));
+                break;
+            case EXPONENTIAL:
+                value = -this.a * Math.log(1.0 - random.nextDouble());
+                break;
+            case LOGNORMAL:
+                value = this.a * Math.exp(this.b * random.nextGaussian());
+                break;
+            case PARETO:
+                value = this.a / Math.pow(1.0 - random.nextDouble(), 1.0 / this.b);
+                break;
+            default:
+                value = this.a;
+        }
+        // Values too large for a long are truncated to Long.MAX_VALUE by the cast
+        final long n = Math.round(value);
+        return n > this.max ? this.max : n;
+    }
+
+    @Override
+    public String toString() {
+        return this.spec;
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.benchmark.BenchConsts;
+
+/**
+ * Population of idle keep-alive connections. Every connection executes one
+ * request after it has been established, so that the server has set up
+ * whatever it keeps per HTTP connection, and then stays open without
+ * further activity.
+ * <p>
+ * Connections to a loopback address are spread over the local addresses
+ * 127.0.0.1, 127.0.0.2, ... so that the number of connections is not limited
+ * by the ephemeral port range of a single source address. Only the channel of
+ * each connection is retained, to keep the footprint of the client small.
+ */
+public final class IdleConnectionPool {
+
+    // Connections per local address, comfortably below the default ephemeral port range
+    static final int CONNECTIONS_PER_LOCAL_ADDRESS = 25000;
+
+    private final InetSocketAddress address;
+    private final byte[] request;
+    private final int socketTimeout;
+    private final boolean loopback;
+    private final List<SocketChannel> channels;
+
+    public IdleConnectionPool(final URL url, final int socketTimeout) throws IOException {
+        super();
+        this.address = RequestEncoder.getAddress(url);
+        this.request = RequestEncoder.encode("GET", url, true, null);
+        this.socketTimeout = socketTimeout;
+        // Other local addresses can only be used with IPv4
+        this.loopback = this.address.getAddress() instanceof Inet4Address
+                && this.address.getAddress().isLoopbackAddress();
+        this.channels = new ArrayList<SocketChannel>();
+    }
+
+    /**
+     * Opens connections until the pool holds the given number of connections.
+     *
+     * @throws IOException if a connection cannot be established or its request
+     *   fails. The connections opened so far are kept.
+     */
+    public void grow(final int count) throws IOException {
+        while (this.channels.size() < count) {
+            final SocketChannel channel = SocketChannel.open();
+            try {
+                channel.socket().setTcpNoDelay(BenchConsts.TCP_NO_DELAY);
+                channel.socket().setSoTimeout(this.socketTimeout);
+                if (this.loopback) {
+                    channel.socket().bind(new InetSocketAddress(getLocalAddress(this.channels.size()), 0));
+                }
+                channel.socket().connect(this.address, this.socketTimeout);
+                final BenchConnection conn = new BenchConnection(
+                        channel.socket().getInputStream(), channel.socket().getOutputStream(), channel);
+                conn.sendRequest(this.request);
+                if (!conn.receiveResponse(false)) {
+                    throw new IOException("Connection not kept alive by the server");
+                }
+                channel.configureBlocking(false);
+            } catch (final IOException ex) {
+                channel.close();
+                throw ex;
+            }
+            this.channels.add(channel);
+        }
+    }
+
+    static InetAddress getLocalAddress(final int index) throws IOException {
+        final int n = 1 + index / CONNECTIONS_PER_LOCAL_ADDRESS;
+        if (n > 254) {
+            throw new IOException("Out of loopback addresses");
+        }
+        return InetAddress.getByAddress(new byte[] { 127, 0, 0, (byte) n });
+    }
+
+    public int size() {
+        return this.channels.size();
+    }
+
+    /**
+     * Returns the number of connections not closed by the server.
+     */
+    public int countOpen() {
+        final ByteBuffer buf = ByteBuffer.allocate(1);
+        int open = 0;
+        for (final SocketChannel channel : this.channels) {
+            try {
+                buf.clear();
+                if (channel.read(buf) >= 0) {
+                    open++;
+                }
+            } catch (final IOException ignore) {
+            }
+        }
+        return open;
+    }
+
+    public void close() {
+        for (final SocketChannel channel : this.channels) {
+            try {
+                channel.close();
+            } catch (final IOException ignore) {
+            }
+        }
+        this.channels.clear();
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+/**
+ * Log-linear latency histogram modelled after HdrHistogram. Values are kept
+ * with two significant decimal digits of precision over the entire positive
+ * {@code long} range: each power of two is split into 128 sub-buckets, so the
+ * relative error is below 1/128 (0.8%).
+ * <p>
+ * Instances are not thread-safe. Each load generating thread is expected to
+ * record into its own histogram, which are then merged with {@link #add}
+ * once the threads have completed.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (Long.SIZE - SUB_BUCKET_BITS - 1) * SUB_BUCKET_HALF;
+
+    private final long[] counts;
+
+    private long totalCount;
+    private long totalValue;
+    private long minValue;
+    private long maxValue;
+
+    public LatencyHistogram() {
+        super();
+        this.counts = new long[BUCKET_COUNT];
+        this.minValue = Long.MAX_VALUE;
+    }
+
+    static int indexOf(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (int) ((value >>> shift) - SUB_BUCKET_HALF);
+    }
+
+    static long highestEquivalentValue(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        final long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public void recordValue(final long value) {
+        recordValues(value, 1);
+    }
+
+    private void recordValues(final long value, final long count) {
+        final long v = value < 0 ? 0 : value;
+        this.counts[indexOf(v)] += count;
+        this.totalCount += count;
+        this.totalValue += v * count;
+        if (v < this.minValue) {
+            this.minValue = v;
+        }
+        if (v > this.maxValue) {
+            this.maxValue = v;
+        }
+    }
+
+    /**
+     * Merges the content of the other histogram into this one.
+     */
+    public void add(final LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.totalCount += other.totalCount;
+        this.totalValue += other.totalValue;
+        if (other.minValue < this.minValue) {
+            this.minValue = other.minValue;
+        }
+        if (other.maxValue > this.maxValue) {
+            this.maxValue = other.maxValue;
+        }
+    }
+
+    /**
+     * Returns a copy of this histogram corrected for coordinated omission.
+     * For every recorded value larger than the expected interval between
+     * requests the values the stalled requests would have seen had they been
+     * issued on schedule ({@code value - interval}, {@code value - 2 * interval},
+     * ...) are back-filled.
+     */
+    public LatencyHistogram copyCorrectedForCoordinatedOmission(final long expectedInterval) {
+        final LatencyHistogram copy = new LatencyHistogram();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            final long count = this.counts[i];
+            if (count == 0) {
+                continue;
+            }
+            final long value = Math.min(highestEquivalentValue(i), this.maxValue);
+            copy.recordValues(value, count);
+            if (expectedInterval > 0) {
+                for (long missing = value - expectedInterval; missing >= expectedInterval;
+                        missing -= expectedInterval) {
+                    copy.recordValues(missing, count);
+                }
+            }
+        }
+        if (this.totalCount > 0 && this.minValue < copy.minValue) {
+            copy.minValue = this.minValue;
+        }
+        return copy;
+    }
+
+    public long getTotalCount() {
+        return this.totalCount;
+    }
+
+    public long getMinValue() {
+        return this.totalCount > 0 ? this.minValue : 0;
+    }
+
+    public long getMaxValue() {
+        return this.maxValue;
+    }
+
+    public double getMean() {
+        return this.totalCount > 0 ? (double) this.totalValue / this.totalCount : 0;
+    }
+
+    /**
+     * Returns the value below which the given percentage of recorded values fall.
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (this.totalCount == 0) {
+            return 0;
+        }
+        final double p = Math.min(Math.max(percentile, 0.0), 100.0);
+        long countAtPercentile = (long) Math.ceil(p / 100.0 * this.totalCount);
+        if (countAtPercentile < 1) {
+            countAtPercentile = 1;
+        }
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += this.counts[i];
+            if (total >= countAtPercentile) {
+                return Math.min(highestEquivalentValue(i), this.maxValue);
+            }
+        }
+        return this.maxValue;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.counts[i] = 0;
+        }
+        this.totalCount = 0;
+        this.totalValue = 0;
+        this.minValue = Long.MAX_VALUE;
+        this.maxValue = 0;
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Outcome of a load generator run.
+ */
+public final class LoadResult {
+
+    private static final double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+
+    private final int concurrency;
+    private final long successCount;
+    private final long failureCount;
+    private final long bytesReceived;
+    private final long bytesSent;
+    private final long durationNanos;
+    private final LatencyHistogram latency;
+    private final LatencyHistogram correctedLatency;
+
+    public LoadResult(
+            final int concurrency,
+            final long successCount,
+            final long failureCount,
+            final long bytesReceived,
+            final long bytesSent,
+            final long durationNanos,
+            final LatencyHistogram latency,
+            final LatencyHistogram correctedLatency) {
+        super();
+        this.concurrency = concurrency;
+        this.successCount = successCount;
+        this.failureCount = failureCount;
+        this.bytesReceived = bytesReceived;
+        this.bytesSent = bytesSent;
+        this.durationNanos = durationNanos;
+        this.latency = latency;
+        this.correctedLatency = correctedLatency;
+    }
+
+    public int getConcurrency() {
+        return this.concurrency;
+    }
+
+    public long getSuccessCount() {
+        return this.successCount;
+    }
+
+    public long getFailureCount() {
+        return this.failureCount;
+    }
+
+    public long getBytesReceived() {
+        return this.bytesReceived;
+    }
+
+    public long getBytesSent() {
+        return this.bytesSent;
+    }
+
+    public long getDurationNanos() {
+        return this.durationNanos;
+    }
+
+    public double getRequestsPerSecond() {
+        return this.durationNanos > 0 ? this.successCount * 1000000000.0 / this.durationNanos : 0;
+    }
+
+    /**
+     * Returns latency distribution in nanoseconds.
+     */
+    public LatencyHistogram getLatency() {
+        return this.latency;
+    }
+
+    /**
+     * Returns latency distribution in nanoseconds corrected for coordinated omission
+     * or {@code null} if the load generator is not subject to coordinated omission.
+     */
+    public LatencyHistogram getCorrectedLatency() {
+        return this.correctedLatency;
+    }
+
+    public void print(final PrintStream out) {
+        out.println("Concurrency Level:\t\t" + this.concurrency);
+        out.println(String.format(Locale.ROOT, "Time taken for tests:\t\t%.3f seconds",
+                this.durationNanos / 1000000000.0));
+        out.println("Complete requests:\t\t" + this.successCount);
+        out.println("Failed requests:\t\t" + this.failureCount);
+        out.println("Total received:\t\t\t" + this.bytesReceived + " bytes");
+        out.println(String.format(Locale.ROOT, "Requests per second:\t\t%,.2f [#/sec] (mean)",
+                getRequestsPerSecond()));
+        out.println();
+        printLatency(out, "Latency [ms]", this.latency);
+        if (this.correctedLatency != null) {
+            printLatency(out, "Latency [ms] (corrected for coordinated omission)", this.correctedLatency);
+        }
+    }
+
+    static void printLatency(final PrintStream out, final String title, final LatencyHistogram histogram) {
+        out.println(title);
+        out.println(String.format(Locale.ROOT, "  mean:\t\t\t\t%.3f", histogram.getMean() / 1000000.0));
+        for (final double percentile : PERCENTILES) {
+            out.println(String.format(Locale.ROOT, "  p%s:\t\t\t\t%.3f", formatPercentile(percentile),
+                    histogram.getValueAtPercentile(percentile) / 1000000.0));
+        }
+        out.println(String.format(Locale.ROOT, "  max:\t\t\t\t%.3f", histogram.getMaxValue() / 1000000.0));
+    }
+
+    static String formatPercentile(final double percentile) {
+        return percentile == Math.rint(percentile)
+                ? Integer.toString((int) percentile) : Double.toString(percentile);
+    }
+
+}
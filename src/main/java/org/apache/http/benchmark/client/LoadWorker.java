@@ -0,0 +1,262 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.IOException;
+
+/**
+ * Base class for load generating threads. Each worker owns one connection
+ * at a time and records request latency into its own histogram.
+ */
+abstract class LoadWorker implements Runnable {
+
+    private final ConnectionFactory connectionFactory;
+    private final byte[] request;
+    private final boolean head;
+    private final boolean keepAlive;
+    private final LatencyHistogram histogram;
+
+    private BenchConnection conn;
+    private long successCount;
+    private long failureCount;
+    private long bytesReceived;
+    private long bytesSent;
+    // Unexpected exception that terminated the worker, reported by merge()
+    private volatile Throwable error;
+
+    LoadWorker(
+            final ConnectionFactory connectionFactory,
+            final byte[] request,
+            final boolean head,
+            final boolean keepAlive) {
+        super();
+        this.connectionFactory = connectionFactory;
+        this.request = request;
+        this.head = head;
+        this.keepAlive = keepAlive;
+        this.histogram = new LatencyHistogram();
+    }
+
+    /**
+     * Opens the connection ahead of the first request. Connection failures
+     * are reported by the first request.
+     */
+    final void connect() {
+        if (this.conn == null) {
+            try {
+                this.conn = this.connectionFactory.open();
+            } catch (final IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Executes one request and records its latency relative to the given start time.
+     */
+    final void execute(final long startTime) {
+        execute(startTime, this.request, this.head);
+    }
+
+    /**
+     * Executes the given request instead of the request of this worker.
+     */
+    final void execute(final long startTime, final byte[] request, final boolean head) {
+        try {
+            if (this.conn == null) {
+                this.conn = this.connectionFactory.open();
+            }
+            sendRequest(this.conn, request);
+            final boolean reusable = this.conn.receiveResponse(head);
+            this.histogram.recordValue(System.nanoTime() - startTime);
+            final int status = this.conn.getStatus();
+            if (status >= 200 && status < 300 && verifyResponse(this.conn)) {
+                this.successCount++;
+            } else {
+                this.failureCount++;
+            }
+            if (!reusable || !this.keepAlive) {
+                closeConnection();
+            }
+        } catch (final IOException ex) {
+            this.failureCount++;
+            closeConnection();
+        }
+    }
+
+    /**
+     * Sends a batch of pipelined requests in one go and reads the responses
+     * in order, recording the latency of each response relative to the given
+     * start time. A response is counted as failed if its status is not 2xx
+     * or if its content length differs from the expected one (unless the
+     * expected length is negative). Responses that can no longer be received
+     * because the connection was closed by the server count as failed.
+     *
+     * @param batch the encoded requests.
+     * @param expectedLengths expected content length of each response.
+     */
+    final void executeBatch(final byte[] batch, final long[] expectedLengths, final long startTime) {
+        int received = 0;
+        try {
+            if (this.conn == null) {
+                this.conn = this.connectionFactory.open();
+            }
+            this.conn.sendRequest(batch);
+            boolean reusable = true;
+            while (received < expectedLengths.length && reusable) {
+                reusable = this.conn.receiveResponse(this.head);
+                this.histogram.recordValue(System.nanoTime() - startTime);
+                final int status = this.conn.getStatus();
+                final long expectedLength = expectedLengths[received];
+                received++;
+                if (status >= 200 && status < 300
+                        && (expectedLength < 0 || expectedLength == this.conn.getContentLength())) {
+                    this.successCount++;
+                } else {
+                    this.failureCount++;
+                }
+            }
+            this.failureCount += expectedLengths.length - received;
+            if (!reusable || !this.keepAlive) {
+                closeConnection();
+            }
+        } catch (final IOException ex) {
+            this.failureCount += expectedLengths.length - received;
+            closeConnection();
+        }
+    }
+
+    /**
+     * Sends the request. Subclasses may stream content after the request head.
+     */
+    void sendRequest(final BenchConnection conn, final byte[] request) throws IOException {
+        conn.sendRequest(request);
+    }
+
+    /**
+     * Returns {@code true} if the successful response just received by
+     * {@link #execute(long)} is the expected one.
+     */
+    boolean verifyResponse(final BenchConnection conn) {
+        return true;
+    }
+
+    final boolean isConnected() {
+        return this.conn != null;
+    }
+
+    final void closeConnection() {
+        if (this.conn != null) {
+            this.bytesReceived += this.conn.getBytesReceived();
+            this.bytesSent += this.conn.getBytesSent();
+            this.conn.close();
+            this.conn = null;
+        }
+    }
+
+    LatencyHistogram getHistogram() {
+        return this.histogram;
+    }
+
+    long getSuccessCount() {
+        return this.successCount;
+    }
+
+    long getFailureCount() {
+        return this.failureCount;
+    }
+
+    long getBytesReceived() {
+        return this.bytesReceived;
+    }
+
+    long getBytesSent() {
+        return this.bytesSent;
+    }
+
+    static Thread[] start(final LoadWorker[] workers) {
+        final Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            final LoadWorker worker = workers[i];
+            threads[i] = new Thread(worker, "bench-client-" + (i + 1));
+            threads[i].setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+
+                @Override
+                public void uncaughtException(final Thread thread, final Throwable ex) {
+                    worker.error = ex;
+                }
+
+            });
+            threads[i].start();
+        }
+        return threads;
+    }
+
+    static void join(final Thread[] threads) throws InterruptedException {
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Merges the results of all workers.
+     *
+     * @param expectedInterval interval used to correct latency for coordinated omission
+     *   or a negative value if the workers are not subject to coordinated omission.
+     * @throws IllegalStateException if a worker was terminated by an unexpected exception,
+     *   as its results would be incomplete.
+     */
+    static LoadResult merge(
+            final LoadWorker[] workers, final long duration, final long expectedInterval) {
+        for (final LoadWorker worker : workers) {
+            if (worker.error != null) {
+                throw new IllegalStateException("Load worker failed: " + worker.error, worker.error);
+            }
+        }
+        final LatencyHistogram latency = new LatencyHistogram();
+        long successCount = 0;
+        long failureCount = 0;
+        long bytesReceived = 0;
+        long bytesSent = 0;
+        for (final LoadWorker worker : workers) {
+            latency.add(worker.getHistogram());
+            successCount += worker.getSuccessCount();
+            failureCount += worker.getFailureCount();
+            bytesReceived += worker.getBytesReceived();
+            bytesSent += worker.getBytesSent();
+        }
+        final LatencyHistogram correctedLatency;
+        if (expectedInterval >= 0) {
+            final long interval = expectedInterval > 0 ? expectedInterval : (long) latency.getMean();
+            correctedLatency = latency.copyCorrectedForCoordinatedOmission(interval);
+        } else {
+            correctedLatency = null;
+        }
+        return new LoadResult(workers.length, successCount, failureCount, bytesReceived, bytesSent, duration,
+                latency, correctedLatency);
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.net.URL;
+
+import org.apache.hc.core5.benchmark.Config;
+import org.apache.hc.core5.http.HttpHost;
+
+/**
+ * HTTP/2 load generator that multiplexes concurrent streams over a small
+ * number of cleartext connections (h2c with prior knowledge). The concurrency
+ * level of the configuration is the total number of concurrent streams,
+ * which are spread evenly over the connections. Each stream executes the
+ * configured number of requests one after another and the latency of every
+ * request is recorded.
+ */
+public final class MultiplexingClient {
+
+    private final Config config;
+    private final int connections;
+
+    public MultiplexingClient(final Config config, final int connections) {
+        super();
+        if (connections <= 0) {
+            throw new IllegalArgumentException("Number of connections must be positive");
+        }
+        this.config = config;
+        this.connections = connections;
+    }
+
+    public LoadResult execute() throws InterruptedException {
+        final URL url = this.config.getUrl();
+        final HttpHost host = new HttpHost(url.getHost(), url.getPort() != -1 ? url.getPort() : url.getDefaultPort());
+        final String method = this.config.isHeadInsteadOfGet() ? "HEAD" : "GET";
+        final String path = RequestEncoder.getRequestTarget(url);
+
+        final int streamCount = this.config.getThreads();
+        final int connectionCount = Math.min(this.connections, streamCount);
+        final MultiplexingWorker[] workers = new MultiplexingWorker[connectionCount];
+        final long start = System.nanoTime();
+        final long deadline = this.config.getTimeLimit() > 0
+                ? start + this.config.getTimeLimit() * 1000000000L : 0;
+        for (int i = 0; i < connectionCount; i++) {
+            final int streams = streamCount / connectionCount + (i < streamCount % connectionCount ? 1 : 0);
+            workers[i] = new MultiplexingWorker(host, method, path, this.config.getHeaders(),
+                    streams, (long) streams * this.config.getRequests(), deadline,
+                    this.config.getSocketTimeoutMillis());
+        }
+        try {
+            for (final MultiplexingWorker worker : workers) {
+                worker.start();
+            }
+            for (final MultiplexingWorker worker : workers) {
+                worker.awaitCompletion();
+            }
+        } finally {
+            for (final MultiplexingWorker worker : workers) {
+                worker.shutdown();
+            }
+        }
+        final long duration = System.nanoTime() - start;
+
+        final LatencyHistogram latency = new LatencyHistogram();
+        long successCount = 0;
+        long failureCount = 0;
+        long bytesReceived = 0;
+        for (final MultiplexingWorker worker : workers) {
+            latency.add(worker.getHistogram());
+            successCount += worker.getSuccessCount();
+            failureCount += worker.getFailureCount();
+            bytesReceived += worker.getBytesReceived();
+        }
+        // Request frames are HPACK encoded, the number of bytes sent is not tracked
+        return new LoadResult(streamCount, successCount, failureCount, bytesReceived, 0, duration,
+                latency, null);
+    }
+
+}
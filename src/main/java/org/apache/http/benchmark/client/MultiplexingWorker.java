@@ -0,0 +1,183 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.Http2MultiplexingRequester;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.Http2MultiplexingRequesterBootstrap;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+/**
+ * Keeps a fixed number of concurrent streams busy on one HTTP/2 connection.
+ * Every completed stream is immediately replaced by a new one until the
+ * request budget or the time limit is exhausted.
+ * <p>
+ * Stream outcomes are reported by the single I/O dispatch thread of the
+ * connection. The state is nevertheless guarded by the worker's monitor
+ * as the initial streams are submitted by the calling thread.
+ */
+class MultiplexingWorker {
+
+    private final Http2MultiplexingRequester requester;
+    private final HttpHost host;
+    private final String method;
+    private final String path;
+    private final String[] headers;
+    private final int streams;
+    private final long deadline;
+    private final Timeout timeout;
+    private final AtomicLong remaining;
+    private final CountDownLatch latch;
+    private final LatencyHistogram histogram;
+
+    private int inFlight;
+    private long successCount;
+    private long failureCount;
+    private long bytesReceived;
+
+    MultiplexingWorker(
+            final HttpHost host,
+            final String method,
+            final String path,
+            final String[] headers,
+            final int streams,
+            final long requests,
+            final long deadline,
+            final int socketTimeout) {
+        super();
+        this.requester = Http2MultiplexingRequesterBootstrap.bootstrap()
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setIoThreadCount(1)
+                        .setTcpNoDelay(true)
+                        .build())
+                .create();
+        this.host = host;
+        this.method = method;
+        this.path = path;
+        this.headers = headers;
+        this.streams = streams;
+        this.deadline = deadline;
+        this.timeout = Timeout.ofMillis(socketTimeout);
+        this.remaining = new AtomicLong(requests);
+        this.latch = new CountDownLatch(1);
+        this.histogram = new LatencyHistogram();
+    }
+
+    void start() {
+        this.requester.start();
+        synchronized (this) {
+            for (int i = 0; i < this.streams; i++) {
+                if (this.remaining.getAndDecrement() <= 0) {
+                    break;
+                }
+                this.inFlight++;
+                submit();
+            }
+            if (this.inFlight == 0) {
+                this.latch.countDown();
+            }
+        }
+    }
+
+    private void submit() {
+        final BasicHttpRequest request = new BasicHttpRequest(this.method, this.host, this.path);
+        if (this.headers != null) {
+            for (final String header : this.headers) {
+                final int idx = header.indexOf(':');
+                if (idx > 0) {
+                    request.addHeader(header.substring(0, idx).trim(), header.substring(idx + 1).trim());
+                }
+            }
+        }
+        this.requester.execute(new StreamExchangeHandler(this, request), this.timeout, HttpCoreContext.create());
+    }
+
+    synchronized void completed(final long startTime, final int status, final long bytes) {
+        this.histogram.recordValue(System.nanoTime() - startTime);
+        if (status >= 200 && status < 300) {
+            this.successCount++;
+        } else {
+            this.failureCount++;
+        }
+        this.bytesReceived += bytes;
+        next();
+    }
+
+    synchronized void failed() {
+        this.failureCount++;
+        next();
+    }
+
+    private void next() {
+        final boolean expired = this.deadline != 0 && System.nanoTime() - this.deadline > 0;
+        if (!expired && this.remaining.getAndDecrement() > 0) {
+            submit();
+        } else {
+            this.inFlight--;
+            if (this.inFlight == 0) {
+                this.latch.countDown();
+            }
+        }
+    }
+
+    void awaitCompletion() throws InterruptedException {
+        this.latch.await();
+    }
+
+    void shutdown() {
+        this.requester.initiateShutdown();
+        try {
+            this.requester.awaitShutdown(TimeValue.ofSeconds(1L));
+        } catch (final InterruptedException ignore) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    synchronized LatencyHistogram getHistogram() {
+        return this.histogram;
+    }
+
+    synchronized long getSuccessCount() {
+        return this.successCount;
+    }
+
+    synchronized long getFailureCount() {
+        return this.failureCount;
+    }
+
+    synchronized long getBytesReceived() {
+        return this.bytesReceived;
+    }
+
+}
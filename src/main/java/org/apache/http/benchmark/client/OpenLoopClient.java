@@ -0,0 +1,78 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import org.apache.hc.core5.benchmark.Config;
+
+/**
+ * Open-loop (constant rate) load generator. The target rate is spread evenly
+ * over the configured number of connections, each driven by its own thread
+ * with a fixed schedule. Latency is measured from the scheduled send time,
+ * so the results are not subject to coordinated omission.
+ */
+public final class OpenLoopClient {
+
+    private static final long RAMP_UP = 100000000L;
+
+    private final Config config;
+
+    public OpenLoopClient(final Config config) {
+        super();
+        this.config = config;
+    }
+
+    /**
+     * Generates load at the given rate for the given period of time.
+     *
+     * @param rate target request rate in requests per second.
+     * @param duration duration in nanoseconds.
+     */
+    public LoadResult execute(final double rate, final long duration) throws InterruptedException {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Request rate must be positive");
+        }
+        final ConnectionFactory connectionFactory = new SocketConnectionFactory(
+                RequestEncoder.getAddress(this.config.getUrl()), this.config.getSocketTimeoutMillis());
+        final boolean head = this.config.isHeadInsteadOfGet();
+        final byte[] request = RequestEncoder.encode(this.config);
+
+        final int threadCount = this.config.getThreads();
+        final long interval = (long) (threadCount * 1000000000.0 / rate);
+        final LoadWorker[] workers = new LoadWorker[threadCount];
+        // Leave time for the connections to be established before the first request is due
+        final long start = System.nanoTime() + RAMP_UP;
+        for (int i = 0; i < threadCount; i++) {
+            // Stagger the schedules so that requests are evenly spaced in time
+            final long offset = (long) (i * 1000000000.0 / rate);
+            workers[i] = new OpenLoopWorker(connectionFactory, request, head, this.config.isKeepAlive(),
+                    start + offset, start + duration, interval);
+        }
+        LoadWorker.join(LoadWorker.start(workers));
+        return LoadWorker.merge(workers, System.nanoTime() - start, -1);
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Issues requests according to a fixed schedule. The send time of request
+ * {@code k} is {@code start + k * interval} regardless of when the previous
+ * responses arrived, and latency is measured from the scheduled send time.
+ * A slow server therefore shows up as growing latency rather than as a lower
+ * request rate.
+ */
+class OpenLoopWorker extends LoadWorker {
+
+    private final long start;
+    private final long end;
+    private final long interval;
+
+    OpenLoopWorker(
+            final ConnectionFactory connectionFactory,
+            final byte[] request,
+            final boolean head,
+            final boolean keepAlive,
+            final long start,
+            final long end,
+            final long interval) {
+        super(connectionFactory, request, head, keepAlive);
+        this.start = start;
+        this.end = end;
+        this.interval = interval;
+    }
+
+    @Override
+    public void run() {
+        try {
+            connect();
+            for (long scheduled = this.start; this.end - scheduled > 0; scheduled += this.interval) {
+                long now = System.nanoTime();
+                if (now - this.end > 0) {
+                    // Requests still pending at the end of the run are dropped
+                    break;
+                }
+                while (scheduled - now > 0) {
+                    LockSupport.parkNanos(scheduled - now);
+                    now = System.nanoTime();
+                }
+                execute(scheduled);
+            }
+        } finally {
+            closeConnection();
+        }
+    }
+
+}
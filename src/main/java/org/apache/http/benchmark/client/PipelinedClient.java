@@ -0,0 +1,131 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.ByteArrayOutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+
+import org.apache.hc.core5.benchmark.Config;
+import org.apache.http.benchmark.RequestParams;
+
+/**
+ * HTTP/1.1 load generator that pipelines requests. Each thread writes
+ * {@code depth} requests back-to-back on its connection and then reads the
+ * responses in order. Requests to {@code /rnd} ask for a different content
+ * length at every position of the batch so that each response can be
+ * verified to match its request. Each thread sends the configured number of
+ * requests; if that is not a multiple of the depth the last batch is shorter.
+ * <p>
+ * If chunk coding is enabled in the configuration the requests are POSTs
+ * enclosing a small chunk coded entity.
+ */
+public final class PipelinedClient {
+
+    private static final int CHUNKED_CONTENT_LENGTH = 256;
+    private static final int CHUNK_SIZE = 100;
+
+    private final Config config;
+    private final int depth;
+    private final ConnectionFactory connectionFactory;
+
+    public PipelinedClient(final Config config, final int depth) {
+        this(config, depth, null);
+    }
+
+    /**
+     * @param connectionFactory factory of connections to the server or {@code null}
+     *   to connect to the target URL of the configuration over TCP.
+     */
+    public PipelinedClient(final Config config, final int depth, final ConnectionFactory connectionFactory) {
+        super();
+        if (depth <= 0) {
+            throw new IllegalArgumentException("Pipeline depth must be positive");
+        }
+        this.config = config;
+        this.depth = depth;
+        this.connectionFactory = connectionFactory;
+    }
+
+    public LoadResult execute() throws InterruptedException, MalformedURLException {
+        final URL url = this.config.getUrl();
+        final ConnectionFactory connectionFactory = this.connectionFactory != null
+                ? this.connectionFactory
+                : new SocketConnectionFactory(RequestEncoder.getAddress(url), this.config.getSocketTimeoutMillis());
+        final boolean head = this.config.isHeadInsteadOfGet();
+        final boolean verifiable = url.getPath().equals("/rnd") && !head;
+        final int baseSize = new RequestParams().parseQuery(url.getQuery()).getSize();
+        final byte[] content = new byte[CHUNKED_CONTENT_LENGTH];
+        Arrays.fill(content, (byte) 'x');
+
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        final long[] expectedLengths = new long[this.depth];
+        // End of each request in the batch
+        final int[] ends = new int[this.depth];
+        for (int i = 0; i < this.depth; i++) {
+            final URL requestUrl;
+            if (verifiable) {
+                // The last occurrence of a parameter takes precedence
+                final String target = RequestEncoder.getRequestTarget(url);
+                requestUrl = new URL(url, target + (url.getQuery() != null ? "&" : "?") + "c=" + (baseSize + i));
+                expectedLengths[i] = baseSize + i;
+            } else {
+                requestUrl = url;
+                expectedLengths[i] = -1;
+            }
+            final byte[] request;
+            if (this.config.isUseChunking()) {
+                request = RequestEncoder.encodeChunked("POST", requestUrl, true, this.config.getHeaders(),
+                        content, CHUNK_SIZE);
+            } else {
+                request = RequestEncoder.encode(head ? "HEAD" : "GET", requestUrl, true, this.config.getHeaders());
+            }
+            buf.write(request, 0, request.length);
+            ends[i] = buf.size();
+        }
+        final byte[] batch = buf.toByteArray();
+        final int remainder = this.config.getRequests() % this.depth;
+        final byte[] lastBatch = Arrays.copyOf(batch, remainder > 0 ? ends[remainder - 1] : 0);
+        final long[] lastExpectedLengths = Arrays.copyOf(expectedLengths, remainder);
+
+        final int threadCount = this.config.getThreads();
+        final int batches = this.config.getRequests() / this.depth;
+        final LoadWorker[] workers = new LoadWorker[threadCount];
+        final long start = System.nanoTime();
+        final long deadline = this.config.getTimeLimit() > 0
+                ? start + this.config.getTimeLimit() * 1000000000L : 0;
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new PipelinedWorker(connectionFactory, batch, expectedLengths, batches,
+                    lastBatch, lastExpectedLengths, head, deadline);
+        }
+        LoadWorker.join(LoadWorker.start(workers));
+        final long duration = System.nanoTime() - start;
+        return LoadWorker.merge(workers, duration, -1);
+    }
+
+}
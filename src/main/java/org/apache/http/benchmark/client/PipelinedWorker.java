@@ -0,0 +1,94 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+/**
+ * Writes batches of pipelined requests back-to-back over a single connection
+ * and reads the responses in order before sending the next batch. The full
+ * batches may be followed by a shorter last one.
+ */
+class PipelinedWorker extends LoadWorker {
+
+    private final byte[] batch;
+    private final long[] expectedLengths;
+    private final int batches;
+    private final byte[] lastBatch;
+    private final long[] lastExpectedLengths;
+    private final long deadline;
+
+    /**
+     * @param batches number of full batches.
+     * @param lastBatch requests of the last batch, sent after the full batches unless empty.
+     */
+    PipelinedWorker(
+            final ConnectionFactory connectionFactory,
+            final byte[] batch,
+            final long[] expectedLengths,
+            final int batches,
+            final byte[] lastBatch,
+            final long[] lastExpectedLengths,
+            final boolean head,
+            final long deadline) {
+        super(connectionFactory, batch, head, true);
+        this.batch = batch;
+        this.expectedLengths = expectedLengths;
+        this.batches = batches;
+        this.lastBatch = lastBatch;
+        this.lastExpectedLengths = lastExpectedLengths;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (int i = 0; i < this.batches; i++) {
+                if (!execute(this.batch, this.expectedLengths)) {
+                    return;
+                }
+            }
+            if (this.lastExpectedLengths.length > 0) {
+                execute(this.lastBatch, this.lastExpectedLengths);
+            }
+        } finally {
+            closeConnection();
+        }
+    }
+
+    /**
+     * Executes the given batch unless the deadline has passed, in which case
+     * {@code false} is returned.
+     */
+    private boolean execute(final byte[] batch, final long[] expectedLengths) {
+        final long start = System.nanoTime();
+        if (this.deadline != 0 && start - this.deadline > 0) {
+            return false;
+        }
+        executeBatch(batch, expectedLengths, start);
+        return true;
+    }
+
+}
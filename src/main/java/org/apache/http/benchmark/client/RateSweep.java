@@ -0,0 +1,127 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.hc.core5.benchmark.Config;
+
+/**
+ * Runs the open-loop load generator at increasing request rates until
+ * latency explodes. The knee point is the first rate at which the server
+ * can no longer keep up: the achieved rate falls below 90% of the target,
+ * more than 1% of requests fail, or the 99th percentile latency grows to
+ * more than ten times the lowest 99th percentile seen at the previous steps.
+ */
+public final class RateSweep {
+
+    private static final double KNEE_LATENCY_FACTOR = 10.0;
+    private static final double KNEE_THROUGHPUT_RATIO = 0.9;
+    private static final double KNEE_FAILURE_RATIO = 0.01;
+
+    private final Config config;
+    private final double startRate;
+    private final double maxRate;
+    private final double step;
+    private final long stepDuration;
+    private final Map<Double, LoadResult> results;
+
+    public RateSweep(
+            final Config config,
+            final double startRate,
+            final double maxRate,
+            final double step,
+            final long stepDuration) {
+        super();
+        if (startRate <= 0 || step <= 0) {
+            throw new IllegalArgumentException("Start rate and step must be positive");
+        }
+        this.config = config;
+        this.startRate = startRate;
+        this.maxRate = maxRate;
+        this.step = step;
+        this.stepDuration = stepDuration;
+        this.results = new LinkedHashMap<Double, LoadResult>();
+    }
+
+    /**
+     * Executes the sweep and returns the knee point rate, or {@code -1} if
+     * latency did not explode up to the max rate.
+     */
+    public double execute(final PrintStream out) throws InterruptedException {
+        final OpenLoopClient client = new OpenLoopClient(this.config);
+        this.results.clear();
+        out.println("Target [#/sec]\tAchieved [#/sec]\tFailed\tp50 [ms]\tp99 [ms]\tp99.9 [ms]\tmax [ms]");
+        long baseline = -1;
+        double sustainable = -1;
+        for (double rate = this.startRate; rate <= this.maxRate; rate += this.step) {
+            final LoadResult result = client.execute(rate, this.stepDuration);
+            this.results.put(Double.valueOf(rate), result);
+            final LatencyHistogram latency = result.getLatency();
+            final long p99 = latency.getValueAtPercentile(99.0);
+            out.println(String.format(Locale.ROOT, "%.0f\t\t%.0f\t\t\t%d\t%.3f\t\t%.3f\t\t%.3f\t\t%.3f",
+                    rate,
+                    result.getRequestsPerSecond(),
+                    result.getFailureCount(),
+                    latency.getValueAtPercentile(50.0) / 1000000.0,
+                    p99 / 1000000.0,
+                    latency.getValueAtPercentile(99.9) / 1000000.0,
+                    latency.getMaxValue() / 1000000.0));
+            if (baseline < 0 || p99 < baseline) {
+                baseline = p99;
+            }
+            final long total = result.getSuccessCount() + result.getFailureCount();
+            final boolean exploded = result.getRequestsPerSecond() < rate * KNEE_THROUGHPUT_RATIO
+                    || result.getFailureCount() > total * KNEE_FAILURE_RATIO
+                    || p99 > baseline * KNEE_LATENCY_FACTOR;
+            if (exploded) {
+                out.println();
+                if (sustainable > 0) {
+                    out.println(String.format(Locale.ROOT, "Max sustainable rate:\t\t%.0f [#/sec]", sustainable));
+                }
+                out.println(String.format(Locale.ROOT, "Knee point:\t\t\t%.0f [#/sec]", rate));
+                return rate;
+            }
+            sustainable = rate;
+        }
+        out.println();
+        out.println(String.format(Locale.ROOT, "No knee point up to:\t\t%.0f [#/sec]", sustainable));
+        return -1;
+    }
+
+    /**
+     * Returns the result of each step of the last sweep keyed by the target rate.
+     */
+    public Map<Double, LoadResult> getResults() {
+        return Collections.unmodifiableMap(this.results);
+    }
+
+}
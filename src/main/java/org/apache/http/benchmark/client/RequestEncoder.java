@@ -0,0 +1,156 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+import org.apache.hc.core5.benchmark.Config;
+
+/**
+ * Encodes request heads once so that they can be sent repeatedly as is.
+ */
+public final class RequestEncoder {
+
+    private RequestEncoder() {
+    }
+
+    public static InetSocketAddress getAddress(final URL url) {
+        return new InetSocketAddress(url.getHost(), url.getPort() != -1 ? url.getPort() : url.getDefaultPort());
+    }
+
+    public static String getRequestTarget(final URL url) {
+        final String path = url.getPath().length() > 0 ? url.getPath() : "/";
+        return url.getQuery() != null ? path + "?" + url.getQuery() : path;
+    }
+
+    /**
+     * Encodes a GET (or HEAD) request to the target URL of the given configuration.
+     */
+    public static byte[] encode(final Config config) {
+        return encode(config.isHeadInsteadOfGet() ? "HEAD" : "GET", config.getUrl(),
+                config.isKeepAlive(), config.getHeaders());
+    }
+
+    public static byte[] encode(
+            final String method,
+            final URL url,
+            final boolean keepAlive,
+            final String[] headers) {
+        final StringBuilder buf = new StringBuilder();
+        appendHead(buf, method, url, keepAlive, headers);
+        buf.append("\r\n");
+        return toAscii(buf);
+    }
+
+    /**
+     * Encodes a request enclosing the given content with chunk coding.
+     */
+    public static byte[] encodeChunked(
+            final String method,
+            final URL url,
+            final boolean keepAlive,
+            final String[] headers,
+            final byte[] content,
+            final int chunkSize) {
+        final StringBuilder buf = new StringBuilder();
+        appendHead(buf, method, url, keepAlive, headers);
+        buf.append("Transfer-Encoding: chunked\r\n");
+        buf.append("Content-Type: application/octet-stream\r\n");
+        buf.append("\r\n");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] head = toAscii(buf);
+        out.write(head, 0, head.length);
+        for (int off = 0; off < content.length; off += chunkSize) {
+            final int len = Math.min(chunkSize, content.length - off);
+            final byte[] chunkHead = toAscii(new StringBuilder().append(Integer.toHexString(len)).append("\r\n"));
+            out.write(chunkHead, 0, chunkHead.length);
+            out.write(content, off, len);
+            out.write('\r');
+            out.write('\n');
+        }
+        final byte[] lastChunk = toAscii(new StringBuilder("0\r\n\r\n"));
+        out.write(lastChunk, 0, lastChunk.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Encodes the head of a request whose content is sent separately, with
+     * the given content length or chunk coded if the length is negative.
+     */
+    public static byte[] encodeHead(
+            final String method,
+            final URL url,
+            final boolean keepAlive,
+            final String[] headers,
+            final long contentLength) {
+        final StringBuilder buf = new StringBuilder();
+        appendHead(buf, method, url, keepAlive, headers);
+        if (contentLength >= 0) {
+            buf.append("Content-Length: ").append(contentLength).append("\r\n");
+        } else {
+            buf.append("Transfer-Encoding: chunked\r\n");
+        }
+        buf.append("Content-Type: application/octet-stream\r\n");
+        buf.append("\r\n");
+        return toAscii(buf);
+    }
+
+    private static void appendHead(
+            final StringBuilder buf,
+            final String method,
+            final URL url,
+            final boolean keepAlive,
+            final String[] headers) {
+        buf.append(method).append(' ').append(getRequestTarget(url)).append(" HTTP/1.1\r\n");
+        buf.append("Host: ").append(url.getHost());
+        if (url.getPort() != -1) {
+            buf.append(':').append(url.getPort());
+        }
+        buf.append("\r\n");
+        buf.append("User-Agent: HttpCore-Benchmark\r\n");
+        if (!keepAlive) {
+            buf.append("Connection: close\r\n");
+        }
+        if (headers != null) {
+            for (final String header : headers) {
+                buf.append(header).append("\r\n");
+            }
+        }
+    }
+
+    static byte[] toAscii(final CharSequence s) {
+        try {
+            return s.toString().getBytes("US-ASCII");
+        } catch (final UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+}
@@ -0,0 +1,346 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Weighted mix of request profiles the load generator samples from. A scenario
+ * is defined in a properties file with one group of properties per profile:
+ * <pre>
+ * name = mixed
+ * small.weight = 80
+ * small.path = /rnd
+ * small.size = lognormal:2k:1.0:1m
+ * large.weight = 5
+ * large.path = /rnd
+ * large.query = chunked&amp;chunk=8192
+ * large.size = pareto:64k:1.2:16m
+ * post.weight = 15
+ * post.method = POST
+ * post.path = /upload
+ * post.body = exp:16k:1m
+ * post.headers = Content-Type: application/json | X-Request-Id: 1
+ * post.think = exp:5
+ * </pre>
+ * Profile attributes:
+ * <ul>
+ *   <li>{@code weight} - relative frequency of the profile. Default is 1</li>
+ *   <li>{@code method} - {@code GET}, {@code HEAD} or {@code POST}. Default is {@code POST}
+ *   if a body is given and {@code GET} otherwise</li>
+ *   <li>{@code path} - path of the request target, for instance {@code /rnd}, {@code /file}
+ *   or {@code /upload}</li>
+ *   <li>{@code query} - additional query parameters</li>
+ *   <li>{@code size} - {@link Distribution} of the requested response content size,
+ *   passed as the {@code c} query parameter</li>
+ *   <li>{@code body} - distribution of the request content size ({@code POST} only)</li>
+ *   <li>{@code headers} - additional request headers separated by {@code |}</li>
+ *   <li>{@code think} - distribution of the think time in milliseconds after the response</li>
+ * </ul>
+ * The name of the scenario defaults to the name of the file without extension.
+ */
+public final class Scenario {
+
+    private final String name;
+    private final List<Profile> profiles;
+    private final double[] cumulativeWeights;
+
+    Scenario(final String name, final List<Profile> profiles) {
+        super();
+        if (profiles.isEmpty()) {
+            throw new IllegalArgumentException("Scenario has no profiles");
+        }
+        this.name = name;
+        this.profiles = Collections.unmodifiableList(new ArrayList<Profile>(profiles));
+        this.cumulativeWeights = new double[profiles.size()];
+        double total = 0;
+        for (int i = 0; i < profiles.size(); i++) {
+            total += profiles.get(i).getWeight();
+            this.cumulativeWeights[i] = total;
+        }
+    }
+
+    public static Scenario load(final File file) throws IOException {
+        final Properties props = new Properties();
+        final InputStream instream = new FileInputStream(file);
+        try {
+            props.load(instream);
+        } finally {
+            instream.close();
+        }
+        String name = file.getName();
+        final int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return parse(props, name);
+    }
+
+    static Scenario parse(final Properties props, final String defaultName) throws IOException {
+        final Map<String, Map<String, String>> groups = new TreeMap<String, Map<String, String>>();
+        for (final String key : props.stringPropertyNames()) {
+            if (key.equals("name")) {
+                continue;
+            }
+            final int dot = key.indexOf('.');
+            if (dot <= 0 || dot == key.length() - 1) {
+                throw new IOException("Invalid scenario property: " + key);
+            }
+            final String profile = key.substring(0, dot);
+            Map<String, String> attributes = groups.get(profile);
+            if (attributes == null) {
+                attributes = new TreeMap<String, String>();
+                groups.put(profile, attributes);
+            }
+            attributes.put(key.substring(dot + 1), props.getProperty(key).trim());
+        }
+        final List<Profile> profiles = new ArrayList<Profile>();
+        for (final Map.Entry<String, Map<String, String>> entry : groups.entrySet()) {
+            try {
+                profiles.add(Profile.parse(entry.getKey(), entry.getValue()));
+            } catch (final IllegalArgumentException ex) {
+                throw new IOException("Invalid scenario profile '" + entry.getKey() + "': " + ex.getMessage());
+            }
+        }
+        if (profiles.isEmpty()) {
+            throw new IOException("Scenario has no profiles");
+        }
+        return new Scenario(props.getProperty("name", defaultName).trim(), profiles);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public List<Profile> getProfiles() {
+        return this.profiles;
+    }
+
+    /**
+     * Returns the index of a profile drawn according to the profile weights.
+     */
+    int sample(final Random random) {
+        final double x = random.nextDouble() * this.cumulativeWeights[this.cumulativeWeights.length - 1];
+        for (int i = 0; i < this.cumulativeWeights.length - 1; i++) {
+            if (x < this.cumulativeWeights[i]) {
+                return i;
+            }
+        }
+        return this.cumulativeWeights.length - 1;
+    }
+
+    @Override
+    public String toString() {
+        return this.name + " " + this.profiles;
+    }
+
+    public static final class Profile {
+
+        private final String name;
+        private final double weight;
+        private final String method;
+        private final String path;
+        private final String query;
+        private final Distribution size;
+        private final Distribution body;
+        private final String[] headers;
+        private final Distribution thinkTime;
+
+        Profile(
+                final String name,
+                final double weight,
+                final String method,
+                final String path,
+                final String query,
+                final Distribution size,
+                final Distribution body,
+                final String[] headers,
+                final Distribution thinkTime) {
+            super();
+            this.name = name;
+            this.weight = weight;
+            this.method = method;
+            this.path = path;
+            this.query = query;
+            this.size = size;
+            this.body = body;
+            this.headers = headers;
+            this.thinkTime = thinkTime;
+        }
+
+        static Profile parse(final String name, final Map<String, String> attributes) {
+            double weight = 1;
+            String method = null;
+            String path = null;
+            String query = null;
+            Distribution size = null;
+            Distribution body = null;
+            String[] headers = null;
+            Distribution thinkTime = null;
+            for (final Map.Entry<String, String> entry : attributes.entrySet()) {
+                final String attribute = entry.getKey();
+                final String value = entry.getValue();
+                if (attribute.equals("weight")) {
+                    try {
+                        weight = Double.parseDouble(value);
+                    } catch (final NumberFormatException ex) {
+                        throw new IllegalArgumentException("Invalid weight: " + value);
+                    }
+                    if (!(weight > 0) || Double.isInfinite(weight)) {
+                        throw new IllegalArgumentException("Invalid weight: " + value);
+                    }
+                } else if (attribute.equals("method")) {
+                    method = value.toUpperCase(Locale.ROOT);
+                    if (!method.equals("GET") && !method.equals("HEAD") && !method.equals("POST")) {
+                        throw new IllegalArgumentException("Unsupported method: " + value);
+                    }
+                } else if (attribute.equals("path")) {
+                    if (!value.startsWith("/") || value.indexOf('?') != -1) {
+                        throw new IllegalArgumentException("Invalid path: " + value);
+                    }
+                    path = value;
+                } else if (attribute.equals("query")) {
+                    query = value.length() > 0 ? value : null;
+                } else if (attribute.equals("size")) {
+                    size = Distribution.parse(value);
+                } else if (attribute.equals("body")) {
+                    body = Distribution.parse(value);
+                } else if (attribute.equals("headers")) {
+                    final List<String> list = new ArrayList<String>();
+                    for (final String header : value.split("\\|")) {
+                        final String s = header.trim();
+                        if (s.length() > 0) {
+                            if (s.indexOf(':') <= 0) {
+                                throw new IllegalArgumentException("Invalid header: " + s);
+                            }
+                            list.add(s);
+                        }
+                    }
+                    headers = list.toArray(new String[list.size()]);
+                } else if (attribute.equals("think")) {
+                    thinkTime = Distribution.parse(value);
+                } else {
+                    throw new IllegalArgumentException("Unknown attribute: " + attribute);
+                }
+            }
+            if (path == null) {
+                throw new IllegalArgumentException("Missing path");
+            }
+            if (method == null) {
+                method = body != null ? "POST" : "GET";
+            } else if (body != null && !method.equals("POST")) {
+                throw new IllegalArgumentException("Request content requires the POST method");
+            }
+            return new Profile(name, weight, method, path, query, size, body, headers, thinkTime);
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public double getWeight() {
+            return this.weight;
+        }
+
+        public String getMethod() {
+            return this.method;
+        }
+
+        public String getPath() {
+            return this.path;
+        }
+
+        /**
+         * Returns additional query parameters or {@code null}.
+         */
+        public String getQuery() {
+            return this.query;
+        }
+
+        /**
+         * Returns the distribution of the response content size or {@code null} if not given.
+         */
+        public Distribution getSize() {
+            return this.size;
+        }
+
+        /**
+         * Returns the distribution of the request content size or {@code null} if the request
+         * has no content.
+         */
+        public Distribution getBody() {
+            return this.body;
+        }
+
+        /**
+         * Returns additional request headers or {@code null}.
+         */
+        public String[] getHeaders() {
+            return this.headers;
+        }
+
+        /**
+         * Returns the distribution of the think time in milliseconds or {@code null}.
+         */
+        public Distribution getThinkTime() {
+            return this.thinkTime;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder buf = new StringBuilder();
+            buf.append(this.name).append(": ").append(this.method).append(' ').append(this.path);
+            if (this.query != null) {
+                buf.append('?').append(this.query);
+            }
+            buf.append(" weight=").append(this.weight);
+            if (this.size != null) {
+                buf.append(" size=").append(this.size);
+            }
+            if (this.body != null) {
+                buf.append(" body=").append(this.body);
+            }
+            if (this.thinkTime != null) {
+                buf.append(" think=").append(this.thinkTime);
+            }
+            return buf.toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.PrintStream;
+import java.net.URL;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.apache.hc.core5.benchmark.Config;
+
+/**
+ * Closed-loop load generator that samples the requests from a weighted mix
+ * of request profiles. Each worker draws from its own random sequence with
+ * a fixed seed, so every server is exposed to the same sequence of requests.
+ * Latency and failures are reported in total and per profile.
+ */
+public final class ScenarioClient {
+
+    private final Config config;
+    private final Scenario scenario;
+    private final ConnectionFactory connectionFactory;
+
+    private ScenarioWorker[] workers;
+
+    /**
+     * @param config load generator settings. The number of requests is per thread.
+     * @param scenario request profiles to sample from.
+     * @param connectionFactory factory of connections to the server or {@code null}
+     *   to connect to the target URL of the configuration over TCP.
+     */
+    public ScenarioClient(final Config config, final Scenario scenario, final ConnectionFactory connectionFactory) {
+        super();
+        this.config = config;
+        this.scenario = scenario;
+        this.connectionFactory = connectionFactory;
+    }
+
+    public LoadResult execute() throws InterruptedException {
+        final URL url = this.config.getUrl();
+        final ConnectionFactory connectionFactory = this.connectionFactory != null
+                ? this.connectionFactory
+                : new SocketConnectionFactory(RequestEncoder.getAddress(url), this.config.getSocketTimeoutMillis());
+
+        // Incompressible request content, the same for every request
+        final byte[] block = new byte[UploadClient.BLOCK_SIZE];
+        new Random(0).nextBytes(block);
+
+        final int threadCount = this.config.getThreads();
+        final ScenarioWorker[] workers = new ScenarioWorker[threadCount];
+        final long start = System.nanoTime();
+        final long deadline = this.config.getTimeLimit() > 0
+                ? start + this.config.getTimeLimit() * 1000000000L : 0;
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new ScenarioWorker(connectionFactory, this.scenario, url, this.config.getHeaders(),
+                    this.config.isKeepAlive(), this.config.getRequests(), deadline, new Random(i + 1), block);
+        }
+        LoadWorker.join(LoadWorker.start(workers));
+        final long duration = System.nanoTime() - start;
+        this.workers = workers;
+        return LoadWorker.merge(workers, duration, -1);
+    }
+
+    /**
+     * Prints the number of requests, failures and latency of each profile of the last run.
+     */
+    public void print(final PrintStream out) {
+        if (this.workers == null) {
+            return;
+        }
+        out.println("Scenario:\t\t\t" + this.scenario.getName());
+        out.println(String.format(Locale.ROOT, "  %-16s%10s%10s%12s%12s%12s",
+                "Profile", "Requests", "Failed", "p50 [ms]", "p99 [ms]", "max [ms]"));
+        final List<Scenario.Profile> profiles = this.scenario.getProfiles();
+        for (int i = 0; i < profiles.size(); i++) {
+            final LatencyHistogram latency = new LatencyHistogram();
+            long failureCount = 0;
+            for (final ScenarioWorker worker : this.workers) {
+                latency.add(worker.getHistogram(i));
+                failureCount += worker.getFailureCount(i);
+            }
+            out.println(String.format(Locale.ROOT, "  %-16s%10d%10d%12.3f%12.3f%12.3f",
+                    profiles.get(i).getName(),
+                    latency.getTotalCount(),
+                    failureCount,
+                    latency.getValueAtPercentile(50.0) / 1000000.0,
+                    latency.getValueAtPercentile(99.0) / 1000000.0,
+                    latency.getMaxValue() / 1000000.0));
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Closed-loop worker that draws every request from a {@link Scenario}. Content
+ * sizes are quantized to four sizes per power of two, so that the number of
+ * distinct responses stays small enough for the payload cache of the server
+ * and the encoded requests can be cached by the worker.
+ */
+class ScenarioWorker extends LoadWorker {
+
+    private final Scenario scenario;
+    private final URL url;
+    private final String[] headers;
+    private final boolean keepAlive;
+    private final int requests;
+    private final long deadline;
+    private final Random random;
+    private final byte[] block;
+    private final List<Scenario.Profile> profiles;
+    private final List<Map<Long, Map<Long, byte[]>>> encoded;
+    private final LatencyHistogram[] histograms;
+    private final long[] failures;
+
+    private long contentLength;
+    private long expectedLength;
+
+    ScenarioWorker(
+            final ConnectionFactory connectionFactory,
+            final Scenario scenario,
+            final URL url,
+            final String[] headers,
+            final boolean keepAlive,
+            final int requests,
+            final long deadline,
+            final Random random,
+            final byte[] block) {
+        super(connectionFactory, null, false, keepAlive);
+        this.scenario = scenario;
+        this.url = url;
+        this.headers = headers;
+        this.keepAlive = keepAlive;
+        this.requests = requests;
+        this.deadline = deadline;
+        this.random = random;
+        this.block = block;
+        this.profiles = scenario.getProfiles();
+        this.encoded = new ArrayList<Map<Long, Map<Long, byte[]>>>(this.profiles.size());
+        this.histograms = new LatencyHistogram[this.profiles.size()];
+        this.failures = new long[this.profiles.size()];
+        for (int i = 0; i < this.profiles.size(); i++) {
+            this.encoded.add(new HashMap<Long, Map<Long, byte[]>>());
+            this.histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Rounds the value to the nearest of four values per power of two.
+     */
+    static long quantize(final long n) {
+        if (n <= 16) {
+            return n;
+        }
+        final int shift = 61 - Long.numberOfLeadingZeros(n);
+        return ((n + (1L << (shift - 1))) >> shift) << shift;
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (int i = 0; i < this.requests; i++) {
+                final int k = this.scenario.sample(this.random);
+                final Scenario.Profile profile = this.profiles.get(k);
+                final long size = profile.getSize() != null
+                        ? Math.min(quantize(profile.getSize().sample(this.random)), Integer.MAX_VALUE) : -1;
+                this.contentLength = profile.getBody() != null ? quantize(profile.getBody().sample(this.random)) : -1;
+                final boolean head = profile.getMethod().equals("HEAD");
+                // Only /rnd is known to serve the requested size exactly
+                this.expectedLength = !head && size >= 0 && profile.getPath().equals("/rnd") ? size : -1;
+                final byte[] request = getRequest(k, size, this.contentLength);
+
+                final long start = System.nanoTime();
+                if (this.deadline != 0 && start - this.deadline > 0) {
+                    break;
+                }
+                final long failureCount = getFailureCount();
+                execute(start, request, head);
+                this.histograms[k].recordValue(System.nanoTime() - start);
+                if (getFailureCount() != failureCount) {
+                    this.failures[k]++;
+                }
+                if (profile.getThinkTime() != null) {
+                    final long thinkTime = profile.getThinkTime().sample(this.random);
+                    if (thinkTime > 0) {
+                        LockSupport.parkNanos(thinkTime * 1000000L);
+                    }
+                }
+            }
+        } finally {
+            closeConnection();
+        }
+    }
+
+    private byte[] getRequest(final int k, final long size, final long contentLength) {
+        final Long sizeKey = Long.valueOf(size);
+        Map<Long, byte[]> map = this.encoded.get(k).get(sizeKey);
+        if (map == null) {
+            map = new HashMap<Long, byte[]>();
+            this.encoded.get(k).put(sizeKey, map);
+        }
+        final Long contentLengthKey = Long.valueOf(contentLength);
+        byte[] request = map.get(contentLengthKey);
+        if (request == null) {
+            request = encode(this.profiles.get(k), size, contentLength);
+            map.put(contentLengthKey, request);
+        }
+        return request;
+    }
+
+    private byte[] encode(final Scenario.Profile profile, final long size, final long contentLength) {
+        final StringBuilder target = new StringBuilder(profile.getPath());
+        if (profile.getQuery() != null) {
+            target.append('?').append(profile.getQuery());
+        }
+        if (size >= 0) {
+            target.append(profile.getQuery() != null ? '&' : '?').append("c=").append(size);
+        }
+        final URL requestUrl;
+        try {
+            requestUrl = new URL(this.url, target.toString());
+        } catch (final MalformedURLException ex) {
+            throw new IllegalArgumentException("Invalid request target: " + target, ex);
+        }
+        final String[] requestHeaders = concat(this.headers, profile.getHeaders());
+        if (contentLength >= 0) {
+            return RequestEncoder.encodeHead(profile.getMethod(), requestUrl, this.keepAlive, requestHeaders,
+                    contentLength);
+        }
+        return RequestEncoder.encode(profile.getMethod(), requestUrl, this.keepAlive, requestHeaders);
+    }
+
+    private static String[] concat(final String[] a, final String[] b) {
+        if (a == null || a.length == 0) {
+            return b;
+        }
+        if (b == null || b.length == 0) {
+            return a;
+        }
+        final String[] headers = new String[a.length + b.length];
+        System.arraycopy(a, 0, headers, 0, a.length);
+        System.arraycopy(b, 0, headers, a.length, b.length);
+        return headers;
+    }
+
+    @Override
+    void sendRequest(final BenchConnection conn, final byte[] request) throws IOException {
+        conn.sendRequest(request);
+        for (long remaining = this.contentLength; remaining > 0; remaining -= this.block.length) {
+            conn.send(this.block, 0, (int) Math.min(remaining, this.block.length));
+        }
+    }
+
+    @Override
+    boolean verifyResponse(final BenchConnection conn) {
+        return this.expectedLength < 0 || conn.getContentLength() == this.expectedLength;
+    }
+
+    LatencyHistogram getHistogram(final int profile) {
+        return this.histograms[profile];
+    }
+
+    long getFailureCount(final int profile) {
+        return this.failures[profile];
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.http.benchmark.BenchConsts;
+
+/**
+ * Keeps a number of connections busy with requests whose responses are read
+ * at a fixed, slow rate. The receive buffers of the connections are kept small
+ * so that the server notices the slow reader early: whatever the server does
+ * not manage to hand over to the kernel stays buffered in the server (or blocks
+ * a thread, depending on the framework).
+ */
+public final class SlowConsumerClient {
+
+    // Small enough to make the server run into back-pressure quickly
+    private static final int RECEIVE_BUFFER_SIZE = 4 * 1024;
+    // Reads per second of a slow connection
+    private static final int READS_PER_SECOND = 20;
+
+    private final InetSocketAddress address;
+    private final byte[] request;
+    private final int connections;
+    private final long bytesPerSecond;
+    private final int socketTimeout;
+
+    private volatile boolean stopped;
+    private Worker[] workers;
+    private Thread[] threads;
+
+    /**
+     * @param url target of the requests of the slow connections.
+     * @param connections number of slow connections.
+     * @param bytesPerSecond read rate of each connection.
+     */
+    public SlowConsumerClient(
+            final URL url, final int connections, final long bytesPerSecond, final int socketTimeout) {
+        super();
+        if (connections <= 0 || bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("Number of connections and read rate must be positive");
+        }
+        this.address = RequestEncoder.getAddress(url);
+        this.request = RequestEncoder.encode("GET", url, true, null);
+        this.connections = connections;
+        this.bytesPerSecond = bytesPerSecond;
+        this.socketTimeout = socketTimeout;
+    }
+
+    public void start() {
+        this.stopped = false;
+        this.workers = new Worker[this.connections];
+        this.threads = new Thread[this.connections];
+        for (int i = 0; i < this.connections; i++) {
+            this.workers[i] = new Worker();
+            this.threads[i] = new Thread(this.workers[i], "bench-slow-client-" + (i + 1));
+            this.threads[i].setDaemon(true);
+            this.threads[i].start();
+        }
+    }
+
+    /**
+     * Waits until every connection has received the first bytes of a response
+     * or the given time has elapsed.
+     *
+     * @return {@code true} if all connections are receiving.
+     */
+    public boolean awaitReceiving(final long timeoutMillis) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (;;) {
+            boolean receiving = true;
+            for (final Worker worker : this.workers) {
+                if (worker.bytesReceived == 0) {
+                    receiving = false;
+                    break;
+                }
+            }
+            if (receiving) {
+                return true;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    public void stop() throws InterruptedException {
+        this.stopped = true;
+        for (int i = 0; i < this.workers.length; i++) {
+            this.workers[i].close();
+            this.threads[i].interrupt();
+        }
+        LoadWorker.join(this.threads);
+    }
+
+    public int getConnections() {
+        return this.connections;
+    }
+
+    public long getBytesPerSecond() {
+        return this.bytesPerSecond;
+    }
+
+    public long getBytesReceived() {
+        long total = 0;
+        for (final Worker worker : this.workers) {
+            total += worker.bytesReceived;
+        }
+        return total;
+    }
+
+    public long getResponseCount() {
+        long total = 0;
+        for (final Worker worker : this.workers) {
+            total += worker.responseCount;
+        }
+        return total;
+    }
+
+    public long getFailureCount() {
+        long total = 0;
+        for (final Worker worker : this.workers) {
+            total += worker.failureCount;
+        }
+        return total;
+    }
+
+    class Worker implements Runnable {
+
+        volatile long bytesReceived;
+        volatile long responseCount;
+        volatile long failureCount;
+
+        private volatile Socket socket;
+        private long start;
+
+        @Override
+        public void run() {
+            // The rate is kept across reconnects
+            this.start = System.nanoTime();
+            while (!stopped) {
+                try {
+                    final Socket socket = new Socket();
+                    this.socket = socket;
+                    if (stopped) {
+                        break;
+                    }
+                    socket.setReceiveBufferSize(RECEIVE_BUFFER_SIZE);
+                    socket.setTcpNoDelay(BenchConsts.TCP_NO_DELAY);
+                    socket.setSoTimeout(socketTimeout);
+                    socket.connect(address, socketTimeout);
+                    final BenchConnection conn = new BenchConnection(
+                            new ThrottledInputStream(socket.getInputStream()), socket.getOutputStream(), socket);
+                    boolean reusable = true;
+                    while (reusable && !stopped) {
+                        conn.sendRequest(request);
+                        reusable = conn.receiveResponse(false);
+                        this.responseCount++;
+                    }
+                    conn.close();
+                } catch (final IOException ex) {
+                    if (!stopped) {
+                        this.failureCount++;
+                    }
+                    close();
+                }
+            }
+        }
+
+        void close() {
+            final Socket socket = this.socket;
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+        }
+
+        /**
+         * Hands out at most a twentieth of a second's worth of bytes per read
+         * and delays reads to keep the average rate of the connection.
+         */
+        class ThrottledInputStream extends FilterInputStream {
+
+            private final int maxRead;
+
+            ThrottledInputStream(final InputStream instream) {
+                super(instream);
+                this.maxRead = (int) Math.max(1, Math.min(BenchConsts.BUF_SIZE, bytesPerSecond / READS_PER_SECOND));
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                final long due = start + bytesReceived * 1000000000L / bytesPerSecond;
+                long now = System.nanoTime();
+                while (due - now > 0) {
+                    LockSupport.parkNanos(due - now);
+                    if (Thread.interrupted() || stopped) {
+                        throw new InterruptedIOException();
+                    }
+                    now = System.nanoTime();
+                }
+                final int n = super.read(b, off, Math.min(len, this.maxRead));
+                if (n > 0) {
+                    bytesReceived += n;
+                }
+                return n;
+            }
+
+        }
+
+    }
+
+}
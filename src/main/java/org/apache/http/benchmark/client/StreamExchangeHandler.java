@@ -0,0 +1,136 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncClientExchangeHandler;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.RequestChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/**
+ * Executes a single request without content and discards the response content.
+ * The outcome is reported to the owning {@link MultiplexingWorker} exactly once.
+ */
+class StreamExchangeHandler implements AsyncClientExchangeHandler {
+
+    private final MultiplexingWorker worker;
+    private final HttpRequest request;
+    private final long startTime;
+
+    private int status;
+    private long bytesReceived;
+    private boolean done;
+
+    StreamExchangeHandler(final MultiplexingWorker worker, final HttpRequest request) {
+        super();
+        this.worker = worker;
+        this.request = request;
+        this.startTime = System.nanoTime();
+    }
+
+    @Override
+    public void produceRequest(
+            final RequestChannel channel, final HttpContext context) throws HttpException, IOException {
+        channel.sendRequest(this.request, null, context);
+    }
+
+    @Override
+    public int available() {
+        return 0;
+    }
+
+    @Override
+    public void produce(final DataStreamChannel channel) throws IOException {
+    }
+
+    @Override
+    public void consumeInformation(final HttpResponse response, final HttpContext context) {
+    }
+
+    @Override
+    public void consumeResponse(
+            final HttpResponse response,
+            final EntityDetails entityDetails,
+            final HttpContext context) throws HttpException, IOException {
+        this.status = response.getCode();
+        if (entityDetails == null) {
+            complete();
+        }
+    }
+
+    @Override
+    public void updateCapacity(final CapacityChannel capacityChannel) throws IOException {
+        capacityChannel.update(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int consume(final ByteBuffer src) throws IOException {
+        this.bytesReceived += src.remaining();
+        src.position(src.limit());
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void streamEnd(final List<? extends Header> trailers) throws HttpException, IOException {
+        complete();
+    }
+
+    private void complete() {
+        if (!this.done) {
+            this.done = true;
+            this.worker.completed(this.startTime, this.status, this.bytesReceived);
+        }
+    }
+
+    @Override
+    public void failed(final Exception cause) {
+        if (!this.done) {
+            this.done = true;
+            this.worker.failed();
+        }
+    }
+
+    @Override
+    public void cancel() {
+        failed(null);
+    }
+
+    @Override
+    public void releaseResources() {
+    }
+
+}
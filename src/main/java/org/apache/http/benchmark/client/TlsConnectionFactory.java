@@ -0,0 +1,142 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.TlsSupport;
+
+/**
+ * Opens TLS connections to the given address. The handshake is completed
+ * when the connection is opened, so that it counts towards the connect time
+ * of the connection churn workload. Later connections resume the session of
+ * an earlier one unless full handshakes are requested, in which case every
+ * connection is opened with an SSL context of its own, which leaves no
+ * session to resume. Creating a context takes microseconds, a full handshake
+ * milliseconds.
+ * <p>
+ * Connections are limited to TLS 1.2. A TLS 1.3 session ticket is used only
+ * once, so with more than one thread about half of the connections found no
+ * session to resume and performed a full handshake. A TLS 1.2 session can be
+ * resumed by any number of connections. Both modes use the same protocol, so
+ * that they differ only in the handshake.
+ */
+public final class TlsConnectionFactory implements ConnectionFactory {
+
+    private static final String[] PROTOCOLS = { "TLSv1.2" };
+
+    private final InetSocketAddress address;
+    private final int socketTimeout;
+    private final String provider;
+    private final boolean fullHandshake;
+    private final SSLSocketFactory socketFactory;
+    private final AtomicLong fullHandshakeCount;
+    private final AtomicLong resumedHandshakeCount;
+
+    private volatile SSLSession lastSession;
+
+    /**
+     * @param provider name or class name of the JSSE provider or {@code null} for the default.
+     * @param fullHandshake {@code true} if sessions are not to be resumed.
+     */
+    public TlsConnectionFactory(
+            final InetSocketAddress address,
+            final int socketTimeout,
+            final String provider,
+            final boolean fullHandshake) throws IOException {
+        super();
+        this.address = address;
+        this.socketTimeout = socketTimeout;
+        this.provider = provider;
+        this.fullHandshake = fullHandshake;
+        this.socketFactory = TlsSupport.createClientContext(provider).getSocketFactory();
+        this.fullHandshakeCount = new AtomicLong();
+        this.resumedHandshakeCount = new AtomicLong();
+    }
+
+    @Override
+    public BenchConnection open() throws IOException {
+        final SSLSocketFactory socketFactory = this.fullHandshake
+                ? TlsSupport.createClientContext(this.provider).getSocketFactory()
+                : this.socketFactory;
+        final long start = System.currentTimeMillis();
+        final Socket plain = new Socket();
+        final SSLSocket socket;
+        try {
+            plain.setTcpNoDelay(BenchConsts.TCP_NO_DELAY);
+            plain.setSoTimeout(this.socketTimeout);
+            plain.connect(this.address, this.socketTimeout);
+            socket = (SSLSocket) socketFactory.createSocket(
+                    plain, this.address.getHostName(), this.address.getPort(), true);
+            socket.setEnabledProtocols(PROTOCOLS);
+            socket.startHandshake();
+        } catch (final IOException ex) {
+            plain.close();
+            throw ex;
+        }
+        final SSLSession session = socket.getSession();
+        // A resumed session was created by an earlier handshake
+        if (session.getCreationTime() < start) {
+            this.resumedHandshakeCount.incrementAndGet();
+        } else {
+            this.fullHandshakeCount.incrementAndGet();
+        }
+        this.lastSession = session;
+        return new BenchConnection(socket);
+    }
+
+    public long getFullHandshakeCount() {
+        return this.fullHandshakeCount.get();
+    }
+
+    public long getResumedHandshakeCount() {
+        return this.resumedHandshakeCount.get();
+    }
+
+    public void print(final PrintStream out) {
+        final SSLSession session = this.lastSession;
+        if (session != null) {
+            out.println("TLS protocol:\t\t\t" + session.getProtocol());
+            out.println("TLS cipher suite:\t\t" + session.getCipherSuite());
+        }
+        final long full = getFullHandshakeCount();
+        final long resumed = getResumedHandshakeCount();
+        out.println(String.format(Locale.ROOT, "TLS handshakes:\t\t\t%d full, %d resumed (%.1f%% resumed)",
+                full, resumed, full + resumed > 0 ? resumed * 100.0 / (full + resumed) : 0.0));
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.net.URL;
+import java.util.Random;
+
+import org.apache.hc.core5.benchmark.Config;
+import org.apache.http.benchmark.UploadDigest;
+
+/**
+ * Closed-loop load generator that uploads content of the given size with
+ * every request. The content is streamed from a small block that is sent
+ * over and over again, so that uploads of hundreds of megabytes do not need
+ * to be held in memory by the client either. A response counts as successful
+ * only if it echoes the checksum and the length of the uploaded content.
+ * <p>
+ * If chunk coding is enabled in the configuration the content is chunk coded
+ * with one chunk per block, otherwise it is sent with a content length.
+ */
+public final class UploadClient {
+
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private final Config config;
+    private final long contentLength;
+    private final ConnectionFactory connectionFactory;
+
+    /**
+     * @param config load generator settings.
+     * @param contentLength length of the uploaded content in bytes.
+     * @param connectionFactory factory of connections to the server or {@code null}
+     *   to connect to the target URL of the configuration over TCP.
+     */
+    public UploadClient(final Config config, final long contentLength, final ConnectionFactory connectionFactory) {
+        super();
+        if (contentLength < 0) {
+            throw new IllegalArgumentException("Content length may not be negative");
+        }
+        this.config = config;
+        this.contentLength = contentLength;
+        this.connectionFactory = connectionFactory;
+    }
+
+    public LoadResult execute() throws InterruptedException {
+        final URL url = this.config.getUrl();
+        final ConnectionFactory connectionFactory = this.connectionFactory != null
+                ? this.connectionFactory
+                : new SocketConnectionFactory(RequestEncoder.getAddress(url), this.config.getSocketTimeoutMillis());
+        final boolean chunked = this.config.isUseChunking();
+        final byte[] head = RequestEncoder.encodeHead("POST", url, this.config.isKeepAlive(),
+                this.config.getHeaders(), chunked ? -1 : this.contentLength);
+
+        // Incompressible content, the same for every request
+        final byte[] block = new byte[(int) Math.min(BLOCK_SIZE, Math.max(this.contentLength, 1))];
+        new Random(0).nextBytes(block);
+        final UploadDigest digest = new UploadDigest();
+        for (long remaining = this.contentLength; remaining > 0; remaining -= block.length) {
+            digest.update(block, 0, (int) Math.min(remaining, block.length));
+        }
+        final byte[] expectedResponse = RequestEncoder.toAscii(digest.toString());
+
+        final int threadCount = this.config.getThreads();
+        final LoadWorker[] workers = new LoadWorker[threadCount];
+        final long start = System.nanoTime();
+        final long deadline = this.config.getTimeLimit() > 0
+                ? start + this.config.getTimeLimit() * 1000000000L : 0;
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new UploadWorker(connectionFactory, head, block, this.contentLength, chunked,
+                    expectedResponse, this.config.isKeepAlive(), this.config.getRequests(), deadline);
+        }
+        LoadWorker.join(LoadWorker.start(workers));
+        final long duration = System.nanoTime() - start;
+        return LoadWorker.merge(workers, duration, -1);
+    }
+
+}
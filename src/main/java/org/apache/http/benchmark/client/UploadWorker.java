@@ -0,0 +1,103 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.io.IOException;
+
+/**
+ * Closed-loop worker that streams request content after the request head
+ * and verifies the digest echoed by the server.
+ */
+class UploadWorker extends ClosedLoopWorker {
+
+    private static final byte[] CRLF = { '\r', '\n' };
+    private static final byte[] LAST_CHUNK = { '0', '\r', '\n', '\r', '\n' };
+
+    private final byte[] block;
+    private final long contentLength;
+    private final boolean chunked;
+    private final byte[] blockChunkHead;
+    private final byte[] expectedResponse;
+    private final byte[] capture;
+
+    UploadWorker(
+            final ConnectionFactory connectionFactory,
+            final byte[] head,
+            final byte[] block,
+            final long contentLength,
+            final boolean chunked,
+            final byte[] expectedResponse,
+            final boolean keepAlive,
+            final int requests,
+            final long deadline) {
+        super(connectionFactory, head, false, keepAlive, requests, deadline);
+        this.block = block;
+        this.contentLength = contentLength;
+        this.chunked = chunked;
+        this.blockChunkHead = chunkHead(block.length);
+        this.expectedResponse = expectedResponse;
+        this.capture = new byte[expectedResponse.length];
+    }
+
+    private static byte[] chunkHead(final int len) {
+        return RequestEncoder.toAscii(new StringBuilder().append(Integer.toHexString(len)).append("\r\n"));
+    }
+
+    @Override
+    void sendRequest(final BenchConnection conn, final byte[] head) throws IOException {
+        conn.setContentCapture(this.capture);
+        conn.sendRequest(head);
+        for (long remaining = this.contentLength; remaining > 0; remaining -= this.block.length) {
+            final int len = (int) Math.min(remaining, this.block.length);
+            if (this.chunked) {
+                conn.sendRequest(len == this.block.length ? this.blockChunkHead : chunkHead(len));
+                conn.send(this.block, 0, len);
+                conn.sendRequest(CRLF);
+            } else {
+                conn.send(this.block, 0, len);
+            }
+        }
+        if (this.chunked) {
+            conn.sendRequest(LAST_CHUNK);
+        }
+    }
+
+    @Override
+    boolean verifyResponse(final BenchConnection conn) {
+        if (conn.getContentLength() != this.expectedResponse.length
+                || conn.getCapturedLength() != this.expectedResponse.length) {
+            return false;
+        }
+        for (int i = 0; i < this.expectedResponse.length; i++) {
+            if (this.capture[i] != this.expectedResponse[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -28,10 +28,17 @@ package org.apache.http.benchmark.httpcore;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.DateTicker;
 import org.apache.http.benchmark.HttpServer;
+import org.apache.http.benchmark.InProcessChannel;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.PayloadFile;
+import org.apache.http.benchmark.ServerConfig;
 import org.apache.http.config.ConnectionConfig;
 import org.apache.http.impl.DefaultConnectionReuseStrategy;
 import org.apache.http.impl.DefaultHttpResponseFactory;
@@ -52,24 +59,59 @@ import org.apache.http.util.VersionInfo;
 
 public class HttpCore4Server implements HttpServer {
 
+    private static final String SERVER_NAME = "HttpCore-NIO-Test/1.1";
+
     private final int port;
+    private final DateTicker dateTicker;
+    private final PayloadFile payloadFile;
+    private final IOEventDispatch ioEventDispatch;
     private final NHttpListener listener;
+    // Resumes chunked responses after the inter-chunk delay
+    private final ScheduledExecutorService scheduler;
 
     public HttpCore4Server(final int port) throws IOException {
+        this(port, ServerConfig.DEFAULT);
+    }
+
+    public HttpCore4Server(final int port, final ServerConfig config) throws IOException {
         if (port <= 0) {
             throw new IllegalArgumentException("Server port may not be negative or null");
         }
+        if (config.isHttp2()) {
+            throw new UnsupportedOperationException("HTTP/2 is not supported by HttpCore 4");
+        }
         this.port = port;
 
-        final HttpProcessor httpproc = new ImmutableHttpProcessor(new HttpResponseInterceptor[] {
-                new ResponseDate(),
-                new ResponseServer("HttpCore-NIO-Test/1.1"),
-                new ResponseContent(),
-                new ResponseConnControl()
-        });
+        final HttpProcessor httpproc;
+        final CachedResponseHeaders cachedHeaders;
+        if (config.isCachedHeaders()) {
+            this.dateTicker = new DateTicker();
+            cachedHeaders = new CachedResponseHeaders(this.dateTicker, SERVER_NAME);
+            httpproc = new ImmutableHttpProcessor(new HttpResponseInterceptor[] {
+                    cachedHeaders,
+                    new ResponseConnControl()
+            });
+        } else {
+            this.dateTicker = null;
+            cachedHeaders = null;
+            httpproc = new ImmutableHttpProcessor(new HttpResponseInterceptor[] {
+                    new ResponseDate(),
+                    new ResponseServer(SERVER_NAME),
+                    new ResponseContent(),
+                    new ResponseConnControl()
+            });
+        }
 
         final UriHttpAsyncRequestHandlerMapper registry = new UriHttpAsyncRequestHandlerMapper();
-        registry.register("/rnd", new NRandomDataHandler());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        registry.register("/rnd", new NRandomDataHandler(new PayloadCache(config), this.scheduler, cachedHeaders));
+        registry.register("/upload", new NUploadHandler());
+        if (config.getFile() != null) {
+            this.payloadFile = new PayloadFile(config.getFile());
+            registry.register("/file", new NFileDataHandler(this.payloadFile));
+        } else {
+            this.payloadFile = null;
+        }
 
         final HttpAsyncService handler = new HttpAsyncService(
                 httpproc,
@@ -78,24 +120,35 @@ public class HttpCore4Server implements HttpServer {
                 registry,
                 null);
 
-        final IOReactorConfig reactorConfig = IOReactorConfig.custom()
-            .setSoReuseAddress(true)
-            .setTcpNoDelay(BenchConsts.TCP_NO_DELAY)
-            .build();
+        final IOReactorConfig.Builder reactorConfigBuilder = IOReactorConfig.custom()
+            .setSoReuseAddress(config.isReuseAddress())
+            .setTcpNoDelay(BenchConsts.TCP_NO_DELAY);
+        if (config.getIoThreads() > 0) {
+            reactorConfigBuilder.setIoThreadCount(config.getIoThreads());
+        }
+        if (config.getBacklog() > 0) {
+            reactorConfigBuilder.setBacklogSize(config.getBacklog());
+        }
+        final IOReactorConfig reactorConfig = reactorConfigBuilder.build();
         final ListeningIOReactor ioreactor = new DefaultListeningIOReactor(reactorConfig);
         final ConnectionConfig connectionConfig = ConnectionConfig.custom()
             .setBufferSize(BenchConsts.BUF_SIZE)
             .setFragmentSizeHint(BenchConsts.BUF_SIZE)
             .build();
-        final IOEventDispatch ioEventDispatch = new DefaultHttpServerIODispatch(handler,
-            connectionConfig);
+        if (config.getSslContext() != null) {
+            this.ioEventDispatch = new DefaultHttpServerIODispatch(handler,
+                config.getSslContext(), connectionConfig);
+        } else {
+            this.ioEventDispatch = new DefaultHttpServerIODispatch(handler,
+                connectionConfig);
+        }
 
-        this.listener = new NHttpListener(ioreactor, ioEventDispatch);
+        this.listener = new NHttpListener(ioreactor, this.ioEventDispatch);
     }
 
     @Override
     public String getName() {
-        return "HttpCore (NIO)";
+        return this.dateTicker != null ? "HttpCore (NIO, cached headers)" : "HttpCore (NIO)";
     }
 
     @Override
@@ -127,6 +180,23 @@ public class HttpCore4Server implements HttpServer {
         if (ex != null) {
             System.out.println("Error: " + ex.getMessage());
         }
+        this.scheduler.shutdownNow();
+        if (this.dateTicker != null) {
+            this.dateTicker.shutdown();
+        }
+        if (this.payloadFile != null) {
+            try {
+                this.payloadFile.close();
+            } catch (final IOException ignore) {
+            }
+        }
+    }
+
+    @Override
+    public InProcessChannel connectInProcess(final int socketTimeout) {
+        final InProcessConnection conn = new InProcessConnection(this.ioEventDispatch, socketTimeout);
+        conn.connect();
+        return conn;
     }
 
     public static void main(final String[] args) throws Exception {
@@ -0,0 +1,218 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SelectionKey;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.http.benchmark.DirectChannel;
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.SessionBufferStatus;
+
+/**
+ * In-process connection that feeds I/O events of an in-memory session
+ * straight into the server's {@link IOEventDispatch}.
+ */
+class InProcessConnection extends DirectChannel {
+
+    private static final SocketAddress ADDRESS = InetSocketAddress.createUnresolved("in-process", 0);
+
+    private final IOEventDispatch ioEventDispatch;
+    private final Session session;
+
+    InProcessConnection(final IOEventDispatch ioEventDispatch, final int socketTimeout) {
+        super(socketTimeout);
+        this.ioEventDispatch = ioEventDispatch;
+        this.session = new Session(socketTimeout);
+    }
+
+    void connect() {
+        this.ioEventDispatch.connected(this.session);
+    }
+
+    @Override
+    protected void inputReady() {
+        this.ioEventDispatch.inputReady(this.session);
+    }
+
+    @Override
+    protected void outputReady() {
+        this.ioEventDispatch.outputReady(this.session);
+    }
+
+    @Override
+    protected boolean isInputRequested() {
+        return (this.session.getEventMask() & SelectionKey.OP_READ) != 0;
+    }
+
+    @Override
+    protected boolean isOutputRequested() {
+        return (this.session.getEventMask() & SelectionKey.OP_WRITE) != 0;
+    }
+
+    @Override
+    protected boolean hasBufferedInput() {
+        return this.session.hasBufferedInput();
+    }
+
+    @Override
+    protected void disconnected() {
+        this.session.close();
+        this.ioEventDispatch.disconnected(this.session);
+    }
+
+    class Session implements IOSession {
+
+        private final Map<String, Object> attributes;
+
+        private volatile int eventMask;
+        private volatile int status;
+        private volatile int socketTimeout;
+        private volatile SessionBufferStatus bufferStatus;
+
+        Session(final int socketTimeout) {
+            super();
+            this.attributes = new ConcurrentHashMap<String, Object>();
+            this.eventMask = SelectionKey.OP_READ;
+            this.status = ACTIVE;
+            this.socketTimeout = socketTimeout;
+        }
+
+        @Override
+        public ByteChannel channel() {
+            return getServerChannel();
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return ADDRESS;
+        }
+
+        @Override
+        public SocketAddress getLocalAddress() {
+            return ADDRESS;
+        }
+
+        @Override
+        public int getEventMask() {
+            return this.eventMask;
+        }
+
+        @Override
+        public synchronized void setEventMask(final int ops) {
+            this.eventMask = ops;
+            if ((ops & SelectionKey.OP_WRITE) != 0) {
+                signal();
+            }
+        }
+
+        @Override
+        public synchronized void setEvent(final int op) {
+            setEventMask(this.eventMask | op);
+        }
+
+        @Override
+        public synchronized void clearEvent(final int op) {
+            this.eventMask = this.eventMask & ~op;
+        }
+
+        @Override
+        public void close() {
+            this.status = CLOSED;
+            serverClosed();
+        }
+
+        @Override
+        public void shutdown() {
+            close();
+        }
+
+        @Override
+        public int getStatus() {
+            return this.status;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return this.status == CLOSED;
+        }
+
+        @Override
+        public int getSocketTimeout() {
+            return this.socketTimeout;
+        }
+
+        @Override
+        public void setSocketTimeout(final int timeout) {
+            this.socketTimeout = timeout;
+        }
+
+        @Override
+        public void setBufferStatus(final SessionBufferStatus status) {
+            this.bufferStatus = status;
+        }
+
+        @Override
+        public boolean hasBufferedInput() {
+            final SessionBufferStatus status = this.bufferStatus;
+            return status != null && status.hasBufferedInput();
+        }
+
+        @Override
+        public boolean hasBufferedOutput() {
+            final SessionBufferStatus status = this.bufferStatus;
+            return status != null && status.hasBufferedOutput();
+        }
+
+        @Override
+        public void setAttribute(final String name, final Object obj) {
+            this.attributes.put(name, obj);
+        }
+
+        @Override
+        public Object getAttribute(final String name) {
+            return this.attributes.get(name);
+        }
+
+        @Override
+        public Object removeAttribute(final String name) {
+            return this.attributes.remove(name);
+        }
+
+        @Override
+        public String toString() {
+            return "in-process";
+        }
+
+    }
+
+}
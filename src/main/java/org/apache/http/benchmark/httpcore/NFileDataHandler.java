@@ -0,0 +1,169 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.MethodNotSupportedException;
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.PayloadFile;
+import org.apache.http.benchmark.RequestParams;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.FileContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.BasicAsyncRequestConsumer;
+import org.apache.http.nio.protocol.HttpAsyncExchange;
+import org.apache.http.nio.protocol.HttpAsyncRequestConsumer;
+import org.apache.http.nio.protocol.HttpAsyncRequestHandler;
+import org.apache.http.nio.protocol.HttpAsyncResponseProducer;
+import org.apache.http.protocol.HttpContext;
+
+class NFileDataHandler implements HttpAsyncRequestHandler<HttpRequest>  {
+
+    private final PayloadFile payloadFile;
+
+    public NFileDataHandler(final PayloadFile payloadFile) {
+        super();
+        this.payloadFile = payloadFile;
+    }
+
+    @Override
+    public HttpAsyncRequestConsumer<HttpRequest> processRequest(
+            final HttpRequest request,
+            final HttpContext context) throws HttpException, IOException {
+        return new BasicAsyncRequestConsumer();
+    }
+
+    @Override
+    public void handle(
+            final HttpRequest request,
+            final HttpAsyncExchange httpexchange,
+            final HttpContext context) throws HttpException, IOException {
+        final String method = request.getRequestLine().getMethod().toUpperCase(Locale.ENGLISH);
+        if (!method.equals("GET") && !method.equals("HEAD") && !method.equals("POST")) {
+            throw new MethodNotSupportedException(method + " method not supported");
+        }
+        final RequestParams params = new RequestParams();
+        try {
+            params.parse(request.getRequestLine().getUri());
+        } catch (final NumberFormatException ex) {
+            final HttpResponse response = httpexchange.getResponse();
+            response.setStatusCode(HttpStatus.SC_BAD_REQUEST);
+            response.setEntity(new StringEntity("Invalid query format: " + ex.getMessage(), ContentType.TEXT_PLAIN));
+            httpexchange.submitResponse();
+            return;
+        }
+        httpexchange.submitResponse(new FileAsyncResponseProducer(
+                this.payloadFile.getChannel(), this.payloadFile.contentLength(params)));
+    }
+
+    /**
+     * Transfers file content directly from the file channel to the socket channel
+     * with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+     * whenever the content encoder supports it.
+     */
+    static class FileAsyncResponseProducer implements HttpAsyncResponseProducer {
+
+        private final FileChannel fileChannel;
+        private final long length;
+
+        private long position;
+        private ByteBuffer buf;
+
+        public FileAsyncResponseProducer(final FileChannel fileChannel, final long length) {
+            super();
+            this.fileChannel = fileChannel;
+            this.length = length;
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+
+        @Override
+        public void failed(final Exception ex) {
+        }
+
+        @Override
+        public HttpResponse generateResponse() {
+            final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+            final BasicHttpEntity entity  = new BasicHttpEntity();
+            entity.setContentLength(this.length);
+            entity.setContentType(ContentType.APPLICATION_OCTET_STREAM.toString());
+            response.setEntity(entity);
+            return response;
+        }
+
+        @Override
+        public void responseCompleted(final HttpContext context) {
+        }
+
+        @Override
+        public void produceContent(
+                final ContentEncoder encoder, final IOControl ioctrl) throws IOException {
+            while (this.position < this.length) {
+                final long bytesWritten;
+                if (encoder instanceof FileContentEncoder) {
+                    bytesWritten = ((FileContentEncoder) encoder).transfer(
+                            this.fileChannel, this.position, this.length - this.position);
+                } else {
+                    if (this.buf == null) {
+                        this.buf = ByteBuffer.allocate(BenchConsts.BUF_SIZE);
+                        this.buf.flip();
+                    }
+                    if (!this.buf.hasRemaining()) {
+                        this.buf.clear();
+                        this.fileChannel.read(this.buf, this.position);
+                        this.buf.flip();
+                    }
+                    bytesWritten = encoder.write(this.buf);
+                }
+                this.position += bytesWritten;
+                if (bytesWritten <= 0) {
+                    break;
+                }
+            }
+            if (this.position >= this.length) {
+                encoder.complete();
+            }
+        }
+
+    }
+
+}
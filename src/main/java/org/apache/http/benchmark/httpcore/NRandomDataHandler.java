@@ -29,6 +29,9 @@ package org.apache.http.benchmark.httpcore;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.http.HttpException;
 import org.apache.http.HttpRequest;
@@ -36,9 +39,12 @@ import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.HttpVersion;
 import org.apache.http.MethodNotSupportedException;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.RequestParams;
 import org.apache.http.entity.BasicHttpEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
 import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.nio.ContentEncoder;
 import org.apache.http.nio.IOControl;
@@ -51,8 +57,19 @@ import org.apache.http.protocol.HttpContext;
 
 class NRandomDataHandler implements HttpAsyncRequestHandler<HttpRequest>  {
 
-    public NRandomDataHandler() {
+    private final PayloadCache payloadCache;
+    private final ScheduledExecutorService scheduler;
+    // Non-null if responses are to carry pre-serialised content headers
+    private final CachedResponseHeaders cachedHeaders;
+
+    public NRandomDataHandler(
+            final PayloadCache payloadCache,
+            final ScheduledExecutorService scheduler,
+            final CachedResponseHeaders cachedHeaders) {
         super();
+        this.payloadCache = payloadCache;
+        this.scheduler = scheduler;
+        this.cachedHeaders = cachedHeaders;
     }
 
     @Override
@@ -71,44 +88,40 @@ class NRandomDataHandler implements HttpAsyncRequestHandler<HttpRequest>  {
         if (!method.equals("GET") && !method.equals("HEAD") && !method.equals("POST")) {
             throw new MethodNotSupportedException(method + " method not supported");
         }
-        final String target = request.getRequestLine().getUri();
-
-        int count = 100;
-
-        final int idx = target.indexOf('?');
-        if (idx != -1) {
-            String s = target.substring(idx + 1);
-            if (s.startsWith("c=")) {
-                s = s.substring(2);
-                try {
-                    count = Integer.parseInt(s);
-                } catch (final NumberFormatException ex) {
-                    final HttpResponse response = httpexchange.getResponse();
-                    response.setStatusCode(HttpStatus.SC_BAD_REQUEST);
-                    response.setEntity(new StringEntity("Invalid query format: " + s, ContentType.TEXT_PLAIN));
-                    httpexchange.submitResponse();
-                    return;
-                }
-            }
+        final RequestParams params = new RequestParams();
+        try {
+            params.parse(request.getRequestLine().getUri());
+        } catch (final NumberFormatException ex) {
+            final HttpResponse response = httpexchange.getResponse();
+            response.setStatusCode(HttpStatus.SC_BAD_REQUEST);
+            response.setEntity(new StringEntity("Invalid query format: " + ex.getMessage(), ContentType.TEXT_PLAIN));
+            httpexchange.submitResponse();
+            return;
+        }
+        final ByteBuffer buf = this.payloadCache.get(params.getSize()).asBuffer();
+        if (params.isChunked()) {
+            httpexchange.submitResponse(new ChunkedAsyncResponseProducer(
+                    params.getStatus(), buf, params.getChunkSize(), params.getDelay(), this.scheduler));
+        } else {
+            httpexchange.submitResponse(new RandomAsyncResponseProducer(params.getStatus(), buf,
+                    this.cachedHeaders));
         }
-        httpexchange.submitResponse(new RandomAsyncResponseProducer(count));
     }
 
     static class RandomAsyncResponseProducer implements HttpAsyncResponseProducer {
 
+        private final int status;
         private final ByteBuffer buf;
         private final int count;
+        private final CachedResponseHeaders cachedHeaders;
 
-        public RandomAsyncResponseProducer(final int count) {
+        public RandomAsyncResponseProducer(
+                final int status, final ByteBuffer buf, final CachedResponseHeaders cachedHeaders) {
             super();
-            this.count = count;
-
-            final byte[] b = new byte[count];
-            final int r = Math.abs(b.hashCode());
-            for (int i = 0; i < count; i++) {
-                b[i] = (byte) ((r + i) % 96 + 32);
-            }
-            this.buf = ByteBuffer.wrap(b);
+            this.status = status;
+            this.buf = buf;
+            this.count = buf.remaining();
+            this.cachedHeaders = cachedHeaders;
         }
 
         @Override
@@ -121,11 +134,15 @@ class NRandomDataHandler implements HttpAsyncRequestHandler<HttpRequest>  {
 
         @Override
         public HttpResponse generateResponse() {
-            final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+            final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, this.status,
+                    EnglishReasonPhraseCatalog.INSTANCE.getReason(this.status, Locale.ENGLISH));
             final BasicHttpEntity entity  = new BasicHttpEntity();
             entity.setContentLength(this.count);
             entity.setContentType(ContentType.TEXT_PLAIN.toString());
             response.setEntity(entity);
+            if (this.cachedHeaders != null) {
+                response.setHeaders(this.cachedHeaders.getContentHeaders(this.count));
+            }
             return response;
         }
 
@@ -149,4 +166,100 @@ class NRandomDataHandler implements HttpAsyncRequestHandler<HttpRequest>  {
 
     }
 
+    /**
+     * Streams the content as chunk coded content, one chunk at a time. The producer
+     * only writes as much as the encoder accepts and continues when asked to produce
+     * more content. If a delay is given output is suspended between chunks and
+     * requested again once the delay has elapsed, so the I/O reactor is never blocked.
+     */
+    static class ChunkedAsyncResponseProducer implements HttpAsyncResponseProducer {
+
+        private final int status;
+        private final ByteBuffer buf;
+        private final int chunkSize;
+        private final long delay;
+        private final ScheduledExecutorService scheduler;
+
+        private volatile ScheduledFuture<?> resumeFuture;
+        private ByteBuffer chunk;
+
+        public ChunkedAsyncResponseProducer(
+                final int status,
+                final ByteBuffer buf,
+                final int chunkSize,
+                final long delay,
+                final ScheduledExecutorService scheduler) {
+            super();
+            this.status = status;
+            this.buf = buf;
+            this.chunkSize = chunkSize;
+            this.delay = delay;
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public void close() throws IOException {
+            final ScheduledFuture<?> future = this.resumeFuture;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public void failed(final Exception ex) {
+        }
+
+        @Override
+        public HttpResponse generateResponse() {
+            final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, this.status,
+                    EnglishReasonPhraseCatalog.INSTANCE.getReason(this.status, Locale.ENGLISH));
+            final BasicHttpEntity entity  = new BasicHttpEntity();
+            entity.setChunked(true);
+            entity.setContentLength(-1);
+            entity.setContentType(ContentType.TEXT_PLAIN.toString());
+            response.setEntity(entity);
+            return response;
+        }
+
+        @Override
+        public void responseCompleted(final HttpContext context) {
+        }
+
+        @Override
+        public void produceContent(
+                final ContentEncoder encoder, final IOControl ioctrl) throws IOException {
+            for (;;) {
+                if (this.chunk == null) {
+                    if (!this.buf.hasRemaining()) {
+                        encoder.complete();
+                        return;
+                    }
+                    final int len = Math.min(this.chunkSize, this.buf.remaining());
+                    this.chunk = this.buf.slice();
+                    this.chunk.limit(len);
+                    this.buf.position(this.buf.position() + len);
+                }
+                encoder.write(this.chunk);
+                if (this.chunk.hasRemaining()) {
+                    // Back-pressure: produce the rest when the session can take more
+                    return;
+                }
+                this.chunk = null;
+                if (this.delay > 0 && this.buf.hasRemaining()) {
+                    ioctrl.suspendOutput();
+                    this.resumeFuture = this.scheduler.schedule(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            ioctrl.requestOutput();
+                        }
+
+                    }, this.delay, TimeUnit.MILLISECONDS);
+                    return;
+                }
+            }
+        }
+
+    }
+
 }
@@ -0,0 +1,122 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.MethodNotSupportedException;
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.UploadDigest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.AbstractAsyncRequestConsumer;
+import org.apache.http.nio.protocol.HttpAsyncExchange;
+import org.apache.http.nio.protocol.HttpAsyncRequestConsumer;
+import org.apache.http.nio.protocol.HttpAsyncRequestHandler;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Checksums the request content as it streams in and responds with the digest.
+ * Unlike {@link org.apache.http.nio.protocol.BasicAsyncRequestConsumer} the
+ * consumer does not buffer the content.
+ */
+class NUploadHandler implements HttpAsyncRequestHandler<UploadDigest>  {
+
+    @Override
+    public HttpAsyncRequestConsumer<UploadDigest> processRequest(
+            final HttpRequest request,
+            final HttpContext context) throws HttpException, IOException {
+        final String method = request.getRequestLine().getMethod().toUpperCase(Locale.ENGLISH);
+        if (!method.equals("POST") && !method.equals("PUT")) {
+            throw new MethodNotSupportedException(method + " method not supported");
+        }
+        return new DigestAsyncRequestConsumer();
+    }
+
+    @Override
+    public void handle(
+            final UploadDigest digest,
+            final HttpAsyncExchange httpexchange,
+            final HttpContext context) throws HttpException, IOException {
+        final HttpResponse response = httpexchange.getResponse();
+        response.setStatusCode(HttpStatus.SC_OK);
+        response.setEntity(new StringEntity(digest.toString(), ContentType.TEXT_PLAIN));
+        httpexchange.submitResponse();
+    }
+
+    static class DigestAsyncRequestConsumer extends AbstractAsyncRequestConsumer<UploadDigest> {
+
+        private final UploadDigest digest;
+
+        private ByteBuffer buf;
+
+        public DigestAsyncRequestConsumer() {
+            super();
+            this.digest = new UploadDigest();
+        }
+
+        @Override
+        protected void onRequestReceived(final HttpRequest request) {
+        }
+
+        @Override
+        protected void onEntityEnclosed(final HttpEntity entity, final ContentType contentType) {
+            this.buf = ByteBuffer.allocate(BenchConsts.BUF_SIZE);
+        }
+
+        @Override
+        protected void onContentReceived(
+                final ContentDecoder decoder, final IOControl ioctrl) throws IOException {
+            while (decoder.read(this.buf) > 0) {
+                this.buf.flip();
+                this.digest.update(this.buf);
+                this.buf.clear();
+            }
+        }
+
+        @Override
+        protected UploadDigest buildResult(final HttpContext context) {
+            return this.digest;
+        }
+
+        @Override
+        protected void releaseResources() {
+            this.buf = null;
+        }
+
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore5;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpResponseInterceptor;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.message.BufferedHeader;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.ResponseContent;
+import org.apache.hc.core5.util.CharArrayBuffer;
+import org.apache.http.benchmark.DateTicker;
+
+/**
+ * Replaces the {@code ResponseDate}, {@code ResponseServer} and {@code ResponseContent}
+ * interceptors with headers serialised once: the {@code Server} header, the
+ * {@code Date} header, serialised again when the {@link DateTicker} ticks, and
+ * the content headers of {@code /rnd} responses per content length. Headers
+ * in serialised form are written out as is by the message writer.
+ */
+class CachedResponseHeaders implements HttpResponseInterceptor {
+
+    private static final int MAX_SIZES = 1024;
+
+    private final DateTicker dateTicker;
+    private final Header serverHeader;
+    private final Header contentTypeHeader;
+    private final ConcurrentMap<Integer, Header[]> contentHeaders;
+    private final ResponseContent responseContent;
+
+    private volatile DateHeader dateHeader;
+
+    CachedResponseHeaders(final DateTicker dateTicker, final String serverName) {
+        super();
+        this.dateTicker = dateTicker;
+        this.serverHeader = serialize(HttpHeaders.SERVER, serverName);
+        this.contentTypeHeader = serialize(HttpHeaders.CONTENT_TYPE, ContentType.TEXT_PLAIN.toString());
+        this.contentHeaders = new ConcurrentHashMap<Integer, Header[]>();
+        this.responseContent = new ResponseContent();
+    }
+
+    private static Header serialize(final String name, final String value) {
+        final CharArrayBuffer buffer = new CharArrayBuffer(name.length() + value.length() + 2);
+        buffer.append(name);
+        buffer.append(": ");
+        buffer.append(value);
+        return BufferedHeader.create(buffer);
+    }
+
+    /**
+     * Returns the {@code Content-Length} and {@code Content-Type} headers of
+     * plain text content of the given length.
+     */
+    Header[] getContentHeaders(final int contentLength) {
+        final Integer key = Integer.valueOf(contentLength);
+        Header[] headers = this.contentHeaders.get(key);
+        if (headers == null) {
+            headers = new Header[] {
+                    serialize(HttpHeaders.CONTENT_LENGTH, Integer.toString(contentLength)),
+                    this.contentTypeHeader
+            };
+            if (this.contentHeaders.size() < MAX_SIZES) {
+                this.contentHeaders.putIfAbsent(key, headers);
+            }
+        }
+        return headers;
+    }
+
+    private Header getDateHeader() {
+        final String date = this.dateTicker.getDate();
+        DateHeader header = this.dateHeader;
+        if (header == null || header.date != date) {
+            header = new DateHeader(date, serialize(HttpHeaders.DATE, date));
+            this.dateHeader = header;
+        }
+        return header.header;
+    }
+
+    @Override
+    public void process(
+            final HttpResponse response,
+            final EntityDetails entity,
+            final HttpContext context) throws HttpException, IOException {
+        if (response.getCode() >= HttpStatus.SC_OK && !response.containsHeader(HttpHeaders.DATE)) {
+            response.addHeader(getDateHeader());
+        }
+        if (!response.containsHeader(HttpHeaders.SERVER)) {
+            response.addHeader(this.serverHeader);
+        }
+        // Content headers set by the handler are already serialised
+        if (!response.containsHeader(HttpHeaders.CONTENT_LENGTH)) {
+            this.responseContent.process(response, entity, context);
+        }
+    }
+
+    static class DateHeader {
+
+        final String date;
+        final Header header;
+
+        DateHeader(final String date, final Header header) {
+            super();
+            this.date = date;
+            this.header = header;
+        }
+
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.impl.BasicEntityDetails;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.ResponseChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/**
+ * Streams the content as chunk coded content, one chunk at a time. The
+ * producer only writes as much as the channel accepts and resumes once it
+ * is asked to produce again. If a delay is given it reports no available
+ * data between chunks and requests output once the delay has elapsed, so
+ * the I/O reactor is never blocked.
+ */
+class ChunkedDataProducer implements AsyncResponseProducer {
+
+    private final int status;
+    private final ByteBuffer buf;
+    private final int chunkSize;
+    private final long delay;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile boolean paused;
+    private volatile boolean completed;
+    private volatile ScheduledFuture<?> resumeFuture;
+    private ByteBuffer chunk;
+
+    /**
+     * @param delay delay between chunks in milliseconds.
+     */
+    ChunkedDataProducer(
+            final int status,
+            final ByteBuffer buf,
+            final int chunkSize,
+            final long delay,
+            final ScheduledExecutorService scheduler) {
+        super();
+        this.status = status;
+        this.buf = buf;
+        this.chunkSize = chunkSize;
+        this.delay = delay;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void sendResponse(
+            final ResponseChannel channel, final HttpContext context) throws HttpException, IOException {
+        // Content of unknown length is chunk coded
+        channel.sendResponse(
+                new BasicHttpResponse(this.status),
+                new BasicEntityDetails(-1, ContentType.TEXT_PLAIN),
+                context);
+    }
+
+    @Override
+    public int available() {
+        if (this.paused || this.completed) {
+            return 0;
+        }
+        if (this.chunk != null) {
+            return this.chunk.remaining();
+        }
+        // The end of stream counts as available until it has been signalled
+        return Math.max(Math.min(this.chunkSize, this.buf.remaining()), 1);
+    }
+
+    @Override
+    public void produce(final DataStreamChannel channel) throws IOException {
+        while (!this.paused) {
+            if (this.chunk == null) {
+                if (!this.buf.hasRemaining()) {
+                    this.completed = true;
+                    channel.endStream(null);
+                    return;
+                }
+                final int len = Math.min(this.chunkSize, this.buf.remaining());
+                this.chunk = this.buf.slice();
+                this.chunk.limit(len);
+                this.buf.position(this.buf.position() + len);
+            }
+            channel.write(this.chunk);
+            if (this.chunk.hasRemaining()) {
+                // Back-pressure: produce the rest when the channel can take more
+                return;
+            }
+            this.chunk = null;
+            if (this.delay > 0 && this.buf.hasRemaining()) {
+                this.paused = true;
+                this.resumeFuture = this.scheduler.schedule(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        paused = false;
+                        channel.requestOutput();
+                    }
+
+                }, this.delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void failed(final Exception ignore) {
+    }
+
+    @Override
+    public void releaseResources() {
+        final ScheduledFuture<?> future = this.resumeFuture;
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+}
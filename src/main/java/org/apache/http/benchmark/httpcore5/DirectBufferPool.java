@@ -0,0 +1,88 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore5;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.benchmark.BenchConsts;
+
+/**
+ * Bounded pool of direct buffers of a fixed size. The pool is split into
+ * stripes selected by the calling thread so that I/O threads, which acquire
+ * and release buffers on their own connections, rarely contend for the same
+ * stripe. Buffers are allocated on demand when a stripe is empty and dropped
+ * when a stripe is full.
+ */
+class DirectBufferPool {
+
+    // Larger than the chunk size hint so that the content encoder hands the buffers
+    // to the socket channel as is rather than copying them into the session buffer
+    static final int BUFFER_SIZE = 8 * BenchConsts.BUF_SIZE;
+
+    private static final int MAX_PER_STRIPE = 64;
+
+    private final List<ArrayDeque<ByteBuffer>> stripes;
+
+    DirectBufferPool(final int stripeCount) {
+        super();
+        final int n = stripeCount > 0 ? stripeCount : 1;
+        this.stripes = new ArrayList<ArrayDeque<ByteBuffer>>(n);
+        for (int i = 0; i < n; i++) {
+            this.stripes.add(new ArrayDeque<ByteBuffer>(MAX_PER_STRIPE));
+        }
+    }
+
+    private ArrayDeque<ByteBuffer> stripe() {
+        return this.stripes.get((int) (Thread.currentThread().getId() % this.stripes.size()));
+    }
+
+    ByteBuffer acquire() {
+        final ArrayDeque<ByteBuffer> stripe = stripe();
+        final ByteBuffer buf;
+        synchronized (stripe) {
+            buf = stripe.pollFirst();
+        }
+        if (buf != null) {
+            buf.clear();
+            return buf;
+        }
+        return ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    void release(final ByteBuffer buf) {
+        final ArrayDeque<ByteBuffer> stripe = stripe();
+        synchronized (stripe) {
+            if (stripe.size() < MAX_PER_STRIPE) {
+                stripe.addFirst(buf);
+            }
+        }
+    }
+
+}
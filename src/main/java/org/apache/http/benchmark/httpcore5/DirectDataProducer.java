@@ -0,0 +1,132 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.impl.BasicEntityDetails;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.ResponseChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/**
+ * Produces the content from a direct buffer drawn from a {@link DirectBufferPool}
+ * rather than from the heap buffer of the payload, which the JDK would copy into
+ * a temporary direct buffer on every socket write. The buffer is filled from the
+ * payload once per {@link DirectBufferPool#BUFFER_SIZE} bytes of content and is
+ * returned to the pool when the exchange completes.
+ */
+class DirectDataProducer implements AsyncResponseProducer {
+
+    private final int status;
+    private final ByteBuffer content;
+    // Pre-serialised content headers or null
+    private final Header[] contentHeaders;
+    private final DirectBufferPool bufferPool;
+
+    private ByteBuffer buf;
+
+    DirectDataProducer(
+            final int status,
+            final ByteBuffer content,
+            final Header[] contentHeaders,
+            final DirectBufferPool bufferPool) {
+        super();
+        this.status = status;
+        this.content = content;
+        this.contentHeaders = contentHeaders;
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public void sendResponse(
+            final ResponseChannel channel, final HttpContext context) throws HttpException, IOException {
+        final HttpResponse response = new BasicHttpResponse(this.status);
+        if (this.contentHeaders != null) {
+            response.setHeaders(this.contentHeaders);
+        }
+        channel.sendResponse(
+                response,
+                new BasicEntityDetails(this.content.remaining(), ContentType.TEXT_PLAIN),
+                context);
+    }
+
+    @Override
+    public int available() {
+        return this.content.remaining() + (this.buf != null ? this.buf.remaining() : 0);
+    }
+
+    @Override
+    public void produce(final DataStreamChannel channel) throws IOException {
+        for (;;) {
+            if (this.buf == null || !this.buf.hasRemaining()) {
+                if (!this.content.hasRemaining()) {
+                    channel.endStream(null);
+                    return;
+                }
+                fill();
+            }
+            channel.write(this.buf);
+            if (this.buf.hasRemaining()) {
+                return;
+            }
+        }
+    }
+
+    private void fill() {
+        if (this.buf == null) {
+            this.buf = this.bufferPool.acquire();
+        }
+        this.buf.clear();
+        final int len = Math.min(this.buf.remaining(), this.content.remaining());
+        final ByteBuffer src = this.content.duplicate();
+        src.limit(src.position() + len);
+        this.buf.put(src);
+        this.buf.flip();
+        this.content.position(this.content.position() + len);
+    }
+
+    @Override
+    public void failed(final Exception ignore) {
+    }
+
+    @Override
+    public void releaseResources() {
+        if (this.buf != null) {
+            this.bufferPool.release(this.buf);
+            this.buf = null;
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.MethodNotSupportedException;
+import org.apache.hc.core5.http.ProtocolException;
+import org.apache.hc.core5.http.impl.BasicEntityDetails;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncResponseProducer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.ResponseChannel;
+import org.apache.hc.core5.http.nio.entity.NoopEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AbstractAsyncRequesterConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.http.HttpStatus;
+import org.apache.http.benchmark.PayloadFile;
+import org.apache.http.benchmark.RequestParams;
+
+/**
+ * Serves a static file from a memory mapped buffer. The mapped buffer is direct,
+ * so the content is written to the socket without being copied through the heap.
+ */
+class FileDataHandler implements AsyncServerRequestHandler<RequestParams> {
+
+    private final PayloadFile payloadFile;
+    private final ByteBuffer content;
+
+    public FileDataHandler(final PayloadFile payloadFile) throws IOException {
+        super();
+        this.payloadFile = payloadFile;
+        this.content = payloadFile.map();
+    }
+
+    @Override
+    public AsyncRequestConsumer<RequestParams> prepare(
+            final HttpRequest request,
+            final EntityDetails entityDetails,
+            final HttpContext context) throws HttpException {
+        final String method = request.getMethod();
+        if (!method.equals("GET") && !method.equals("HEAD") && !method.equals("POST")) {
+            throw new MethodNotSupportedException(method + " method not supported");
+        }
+        final RequestParams params = new RequestParams();
+        try {
+            params.parse(request.getPath());
+        } catch (final NumberFormatException ex) {
+            throw new ProtocolException("Invalid query format: " + ex.getMessage());
+        }
+        return new AbstractAsyncRequesterConsumer<RequestParams, Void>(new NoopEntityConsumer()) {
+
+            @Override
+            protected RequestParams buildResult(
+                    final HttpRequest request, final Void entity, final ContentType contentType) {
+                return params;
+            }
+
+        };
+    }
+
+    @Override
+    public void handle(
+            final RequestParams params,
+            final ResponseTrigger responseTrigger,
+            final HttpContext context) throws HttpException, IOException {
+
+        final ByteBuffer buf = this.content.duplicate();
+        buf.limit((int) this.payloadFile.contentLength(params));
+
+        responseTrigger.submitResponse(new AsyncResponseProducer() {
+
+            @Override
+            public void sendResponse(
+                    final ResponseChannel channel, final HttpContext context) throws HttpException, IOException {
+                channel.sendResponse(
+                        new BasicHttpResponse(HttpStatus.SC_OK),
+                        new BasicEntityDetails(buf.remaining(), ContentType.APPLICATION_OCTET_STREAM),
+                        context);
+            }
+
+            @Override
+            public int available() {
+                return buf.remaining();
+            }
+
+            @Override
+            public void produce(final DataStreamChannel channel) throws IOException {
+                channel.write(buf);
+                if (!buf.hasRemaining()) {
+                    channel.endStream(null);
+                }
+            }
+
+            @Override
+            public void failed(final Exception ignore) {
+            }
+
+            @Override
+            public void releaseResources() {
+            }
+
+        }, context);
+    }
+
+}
@@ -28,45 +28,183 @@ package org.apache.http.benchmark.httpcore5;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 
+import org.apache.hc.core5.concurrent.DefaultThreadFactory;
+import org.apache.hc.core5.function.Supplier;
+import org.apache.hc.core5.http.config.CharCodingConfig;
 import org.apache.hc.core5.http.config.H1Config;
 import org.apache.hc.core5.http.impl.bootstrap.AsyncServerBootstrap;
+import org.apache.hc.core5.http.impl.HttpProcessors;
 import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.impl.nio.ServerHttp1IOEventHandlerFactory;
+import org.apache.hc.core5.http.impl.nio.ServerHttp1StreamDuplexerFactory;
+import org.apache.hc.core5.http.nio.AsyncServerExchangeHandler;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.ssl.BasicServerTlsStrategy;
+import org.apache.hc.core5.http.nio.ssl.FixedPortStrategy;
+import org.apache.hc.core5.http.nio.support.BasicServerExchangeHandler;
+import org.apache.hc.core5.http.nio.support.DefaultAsyncResponseExchangeHandlerFactory;
+import org.apache.hc.core5.http.protocol.HttpProcessor;
+import org.apache.hc.core5.http.protocol.HttpProcessorBuilder;
+import org.apache.hc.core5.http.protocol.RequestHandlerRegistry;
+import org.apache.hc.core5.http.protocol.RequestValidateHost;
+import org.apache.hc.core5.http.protocol.ResponseConnControl;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.reactor.IOEventHandlerFactory;
 import org.apache.hc.core5.reactor.IOReactorConfig;
 import org.apache.hc.core5.reactor.ListenerEndpoint;
 import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.VersionInfo;
 import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.DateTicker;
 import org.apache.http.benchmark.HttpServer;
+import org.apache.http.benchmark.InProcessChannel;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.PayloadFile;
+import org.apache.http.benchmark.ServerConfig;
 
 public class HttpCore5Server implements HttpServer {
 
+    // Enough streams per connection for the multiplexing client to never be throttled
+    private static final int H2_MAX_CONCURRENT_STREAMS = 1000;
+
     private final int port;
+    private final boolean http2;
+    private final boolean directBuffers;
+    private final DateTicker dateTicker;
+    private final HttpProcessor httpProcessor;
+    private final PayloadFile payloadFile;
+    private final H1Config h1Config;
+    private final RequestHandlerRegistry<Supplier<AsyncServerExchangeHandler>> registry;
     private final HttpAsyncServer httpAsyncServer;
+    // Resumes chunked responses after the inter-chunk delay
+    private final ScheduledExecutorService scheduler;
+
+    private IOEventHandlerFactory inProcessHandlerFactory;
 
     public HttpCore5Server(final int port) throws IOException {
+        this(port, ServerConfig.DEFAULT);
+    }
+
+    public HttpCore5Server(final int port, final ServerConfig config) throws IOException {
         if (port <= 0) {
             throw new IllegalArgumentException("Server port may not be negative or null");
         }
         this.port = port;
 
-        this.httpAsyncServer = AsyncServerBootstrap.bootstrap()
-                .setH1Config(H1Config.custom()
-                        .setBufferSize(BenchConsts.BUF_SIZE)
-                        .setChunkSizeHint(BenchConsts.BUF_SIZE)
-                        .build())
-                .setIOReactorConfig(IOReactorConfig.custom()
-                        .setSoReuseAddress(true)
-                        .setTcpNoDelay(BenchConsts.TCP_NO_DELAY)
-                        .build())
-                .register("/rnd", new RandomDataHandler())
-                .create();
+        this.http2 = config.isHttp2();
+        if (this.http2 && config.getSslContext() != null) {
+            throw new UnsupportedOperationException("HTTP/2 over TLS is not supported");
+        }
+        if (this.http2 && config.isCachedHeaders()) {
+            throw new UnsupportedOperationException("Cached headers are not supported over HTTP/2");
+        }
+        if (config.getFile() != null) {
+            this.payloadFile = new PayloadFile(config.getFile());
+        } else {
+            this.payloadFile = null;
+        }
+        final IOReactorConfig.Builder ioReactorConfigBuilder = IOReactorConfig.custom()
+                .setSoReuseAddress(config.isReuseAddress())
+                .setTcpNoDelay(BenchConsts.TCP_NO_DELAY);
+        if (config.getIoThreads() > 0) {
+            ioReactorConfigBuilder.setIoThreadCount(config.getIoThreads());
+        }
+        if (config.getBacklog() > 0) {
+            ioReactorConfigBuilder.setBacklogSize(config.getBacklog());
+        }
+        final IOReactorConfig ioReactorConfig = ioReactorConfigBuilder.build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("chunk-scheduler", true));
+        this.directBuffers = config.isDirectBuffers();
+        final DirectBufferPool bufferPool = this.directBuffers ? new DirectBufferPool(
+                ioReactorConfig.getIoThreadCount()) : null;
+        final CachedResponseHeaders cachedHeaders;
+        if (config.isCachedHeaders()) {
+            this.dateTicker = new DateTicker();
+            cachedHeaders = new CachedResponseHeaders(this.dateTicker,
+                    VersionInfo.getSoftwareInfo("Apache-HttpCore", "org.apache.hc.core5", HttpProcessors.class));
+            this.httpProcessor = HttpProcessorBuilder.create()
+                    .addAll(cachedHeaders, new ResponseConnControl())
+                    .addAll(new RequestValidateHost())
+                    .build();
+        } else {
+            this.dateTicker = null;
+            cachedHeaders = null;
+            this.httpProcessor = HttpProcessors.server();
+        }
+        final RandomDataHandler randomDataHandler = new RandomDataHandler(new PayloadCache(config), this.scheduler,
+                bufferPool, cachedHeaders);
+        this.h1Config = H1Config.custom()
+                .setBufferSize(BenchConsts.BUF_SIZE)
+                .setChunkSizeHint(BenchConsts.BUF_SIZE)
+                .build();
+        // Same handler mapping as set up by the bootstrap, for use by in-process connections
+        this.registry = new RequestHandlerRegistry<Supplier<AsyncServerExchangeHandler>>();
+        final UploadHandler uploadHandler = new UploadHandler();
+        this.registry.register(null, "/rnd", supplier(randomDataHandler));
+        this.registry.register(null, "/upload", supplier(uploadHandler));
+        if (this.http2) {
+            final H2ServerBootstrap bootstrap = H2ServerBootstrap.bootstrap()
+                    .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+                    .setH2Config(H2Config.custom()
+                            .setMaxConcurrentStreams(H2_MAX_CONCURRENT_STREAMS)
+                            .build())
+                    .setIOReactorConfig(ioReactorConfig)
+                    .register("/rnd", randomDataHandler)
+                    .register("/upload", uploadHandler);
+            if (this.payloadFile != null) {
+                bootstrap.register("/file", new FileDataHandler(this.payloadFile));
+            }
+            this.httpAsyncServer = bootstrap.create();
+        } else {
+            final AsyncServerBootstrap bootstrap = AsyncServerBootstrap.bootstrap()
+                    .setHttpProcessor(this.httpProcessor)
+                    .setH1Config(this.h1Config)
+                    .setIOReactorConfig(ioReactorConfig)
+                    .register("/rnd", randomDataHandler)
+                    .register("/upload", uploadHandler);
+            if (config.getSslContext() != null) {
+                bootstrap.setTlsStrategy(new BasicServerTlsStrategy(config.getSslContext(),
+                        new FixedPortStrategy(port)));
+            }
+            if (this.payloadFile != null) {
+                final FileDataHandler fileDataHandler = new FileDataHandler(this.payloadFile);
+                bootstrap.register("/file", fileDataHandler);
+                this.registry.register(null, "/file", supplier(fileDataHandler));
+            }
+            this.httpAsyncServer = bootstrap.create();
+        }
+    }
+
+    private static <T> Supplier<AsyncServerExchangeHandler> supplier(final AsyncServerRequestHandler<T> handler) {
+        return new Supplier<AsyncServerExchangeHandler>() {
+
+            @Override
+            public AsyncServerExchangeHandler get() {
+                return new BasicServerExchangeHandler<T>(handler);
+            }
+
+        };
     }
 
     @Override
     public String getName() {
-        return "HttpCore 5 (async)";
+        final StringBuilder buf = new StringBuilder("HttpCore 5 (async");
+        if (this.http2) {
+            buf.append(", h2c");
+        }
+        if (this.directBuffers) {
+            buf.append(", direct buffers");
+        }
+        if (this.dateTicker != null) {
+            buf.append(", cached headers");
+        }
+        return buf.append(')').toString();
     }
 
     @Override
@@ -96,6 +234,36 @@ public class HttpCore5Server implements HttpServer {
         } catch (final InterruptedException ignore) {
             Thread.currentThread().interrupt();
         }
+        this.scheduler.shutdownNow();
+        if (this.dateTicker != null) {
+            this.dateTicker.shutdown();
+        }
+        if (this.payloadFile != null) {
+            try {
+                this.payloadFile.close();
+            } catch (final IOException ignore) {
+            }
+        }
+    }
+
+    @Override
+    public synchronized InProcessChannel connectInProcess(final int socketTimeout) throws IOException {
+        if (this.http2) {
+            throw new UnsupportedOperationException("In-process connections are not supported over HTTP/2");
+        }
+        if (this.inProcessHandlerFactory == null) {
+            this.inProcessHandlerFactory = new ServerHttp1IOEventHandlerFactory(
+                    new ServerHttp1StreamDuplexerFactory(
+                            this.httpProcessor,
+                            new DefaultAsyncResponseExchangeHandlerFactory(this.registry),
+                            this.h1Config,
+                            CharCodingConfig.DEFAULT,
+                            null),
+                    null);
+        }
+        final InProcessConnection conn = new InProcessConnection(this.inProcessHandlerFactory, socketTimeout);
+        conn.connect();
+        return conn;
     }
 
     public void awaitShutdown() throws InterruptedException {
@@ -0,0 +1,304 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore5;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.NamedEndpoint;
+import org.apache.hc.core5.reactor.Command;
+import org.apache.hc.core5.reactor.IOEventHandler;
+import org.apache.hc.core5.reactor.IOEventHandlerFactory;
+import org.apache.hc.core5.reactor.ProtocolIOSession;
+import org.apache.hc.core5.reactor.ssl.SSLBufferMode;
+import org.apache.hc.core5.reactor.ssl.SSLSessionInitializer;
+import org.apache.hc.core5.reactor.ssl.SSLSessionVerifier;
+import org.apache.hc.core5.reactor.ssl.TlsDetails;
+import org.apache.http.benchmark.DirectChannel;
+
+/**
+ * In-process connection that feeds I/O events of an in-memory session
+ * straight into a protocol handler created by the server's
+ * {@link IOEventHandlerFactory}.
+ */
+class InProcessConnection extends DirectChannel {
+
+    private static final SocketAddress ADDRESS = InetSocketAddress.createUnresolved("in-process", 0);
+
+    private final Session session;
+
+    InProcessConnection(final IOEventHandlerFactory handlerFactory, final int socketTimeout) {
+        super(socketTimeout);
+        this.session = new Session(socketTimeout);
+        this.session.upgrade(handlerFactory.createHandler(this.session, null));
+    }
+
+    void connect() throws IOException {
+        this.session.getHandler().connected(this.session);
+    }
+
+    @Override
+    protected void inputReady() throws IOException {
+        try {
+            this.session.getHandler().inputReady(this.session);
+        } catch (final IOException ex) {
+            this.session.getHandler().exception(this.session, ex);
+            this.session.close(CloseMode.IMMEDIATE);
+            throw ex;
+        }
+    }
+
+    @Override
+    protected void outputReady() throws IOException {
+        try {
+            this.session.getHandler().outputReady(this.session);
+        } catch (final IOException ex) {
+            this.session.getHandler().exception(this.session, ex);
+            this.session.close(CloseMode.IMMEDIATE);
+            throw ex;
+        }
+    }
+
+    @Override
+    protected boolean isInputRequested() {
+        return (this.session.getEventMask() & SelectionKey.OP_READ) != 0;
+    }
+
+    @Override
+    protected boolean isOutputRequested() {
+        return (this.session.getEventMask() & SelectionKey.OP_WRITE) != 0;
+    }
+
+    @Override
+    protected void disconnected() {
+        this.session.close();
+        this.session.getHandler().disconnected(this.session);
+    }
+
+    class Session implements ProtocolIOSession {
+
+        private final Lock lock;
+        private final BlockingDeque<Command> commandQueue;
+
+        private volatile IOEventHandler handler;
+        private volatile int eventMask;
+        private volatile int status;
+        private volatile int socketTimeout;
+        private volatile long lastReadTime;
+        private volatile long lastWriteTime;
+
+        Session(final int socketTimeout) {
+            super();
+            this.lock = new ReentrantLock();
+            this.commandQueue = new LinkedBlockingDeque<Command>();
+            this.eventMask = SelectionKey.OP_READ;
+            this.status = ACTIVE;
+            this.socketTimeout = socketTimeout;
+        }
+
+        @Override
+        public String getId() {
+            return "in-process";
+        }
+
+        @Override
+        public Lock lock() {
+            return this.lock;
+        }
+
+        @Override
+        public void enqueue(final Command command, final Command.Priority priority) {
+            if (priority == Command.Priority.IMMEDIATE) {
+                this.commandQueue.addFirst(command);
+            } else {
+                this.commandQueue.add(command);
+            }
+            setEvent(SelectionKey.OP_WRITE);
+        }
+
+        @Override
+        public boolean hasCommands() {
+            return !this.commandQueue.isEmpty();
+        }
+
+        @Override
+        public Command poll() {
+            return this.commandQueue.poll();
+        }
+
+        @Override
+        public ByteChannel channel() {
+            return getServerChannel();
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return ADDRESS;
+        }
+
+        @Override
+        public SocketAddress getLocalAddress() {
+            return ADDRESS;
+        }
+
+        @Override
+        public int getEventMask() {
+            return this.eventMask;
+        }
+
+        @Override
+        public void setEventMask(final int ops) {
+            this.lock.lock();
+            try {
+                this.eventMask = ops;
+            } finally {
+                this.lock.unlock();
+            }
+            if ((ops & SelectionKey.OP_WRITE) != 0) {
+                signal();
+            }
+        }
+
+        @Override
+        public void setEvent(final int op) {
+            final int ops;
+            this.lock.lock();
+            try {
+                ops = this.eventMask | op;
+                this.eventMask = ops;
+            } finally {
+                this.lock.unlock();
+            }
+            if ((ops & SelectionKey.OP_WRITE) != 0) {
+                signal();
+            }
+        }
+
+        @Override
+        public void clearEvent(final int op) {
+            this.lock.lock();
+            try {
+                this.eventMask = this.eventMask & ~op;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            close(CloseMode.GRACEFUL);
+        }
+
+        @Override
+        public void close(final CloseMode closeMode) {
+            this.status = CLOSED;
+            serverClosed();
+        }
+
+        @Override
+        public int getStatus() {
+            return this.status;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return this.status == CLOSED;
+        }
+
+        @Override
+        public int getSocketTimeoutMillis() {
+            return this.socketTimeout;
+        }
+
+        @Override
+        public void setSocketTimeoutMillis(final int timeout) {
+            this.socketTimeout = timeout;
+        }
+
+        @Override
+        public long getLastReadTimeMillis() {
+            return this.lastReadTime;
+        }
+
+        @Override
+        public long getLastWriteTime() {
+            return this.lastWriteTime;
+        }
+
+        @Override
+        public void updateReadTime() {
+            this.lastReadTime = System.currentTimeMillis();
+        }
+
+        @Override
+        public void updateWriteTime() {
+            this.lastWriteTime = System.currentTimeMillis();
+        }
+
+        @Override
+        public IOEventHandler getHandler() {
+            return this.handler;
+        }
+
+        @Override
+        public void upgrade(final IOEventHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startTls(
+                final SSLContext sslContext,
+                final NamedEndpoint endpoint,
+                final SSLBufferMode sslBufferMode,
+                final SSLSessionInitializer initializer,
+                final SSLSessionVerifier verifier) {
+            throw new UnsupportedOperationException("TLS is not supported by in-process connections");
+        }
+
+        @Override
+        public TlsDetails getTlsDetails() {
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return "in-process";
+        }
+
+    }
+
+}
@@ -28,12 +28,14 @@ package org.apache.http.benchmark.httpcore5;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpException;
 import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.MethodNotSupportedException;
 import org.apache.hc.core5.http.ProtocolException;
 import org.apache.hc.core5.http.impl.BasicEntityDetails;
@@ -46,12 +48,32 @@ import org.apache.hc.core5.http.nio.ResponseChannel;
 import org.apache.hc.core5.http.nio.entity.NoopEntityConsumer;
 import org.apache.hc.core5.http.nio.support.AbstractAsyncRequesterConsumer;
 import org.apache.hc.core5.http.protocol.HttpContext;
-import org.apache.http.HttpStatus;
-
-class RandomDataHandler implements AsyncServerRequestHandler<Integer> {
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.RequestParams;
+
+class RandomDataHandler implements AsyncServerRequestHandler<RequestParams> {
+
+    private final PayloadCache payloadCache;
+    private final ScheduledExecutorService scheduler;
+    // Non-null if content is to be written from pooled direct buffers
+    private final DirectBufferPool bufferPool;
+    // Non-null if responses are to carry pre-serialised content headers
+    private final CachedResponseHeaders cachedHeaders;
+
+    public RandomDataHandler(
+            final PayloadCache payloadCache,
+            final ScheduledExecutorService scheduler,
+            final DirectBufferPool bufferPool,
+            final CachedResponseHeaders cachedHeaders) {
+        super();
+        this.payloadCache = payloadCache;
+        this.scheduler = scheduler;
+        this.bufferPool = bufferPool;
+        this.cachedHeaders = cachedHeaders;
+    }
 
     @Override
-    public AsyncRequestConsumer<Integer> prepare(
+    public AsyncRequestConsumer<RequestParams> prepare(
             final HttpRequest request,
             final EntityDetails entityDetails,
             final HttpContext context) throws HttpException {
@@ -59,27 +81,19 @@ class RandomDataHandler implements AsyncServerRequestHandler<Integer> {
         if (!method.equals("GET") && !method.equals("HEAD") && !method.equals("POST")) {
             throw new MethodNotSupportedException(method + " method not supported");
         }
-        final String path = request.getPath();
-        final AtomicInteger count = new AtomicInteger(100);
-
-        final int idx = path.indexOf('?');
-        if (idx != -1) {
-            String s = path.substring(idx + 1);
-            if (s.startsWith("c=")) {
-                s = s.substring(2);
-                try {
-                    count.set(Integer.parseInt(s));
-                } catch (final NumberFormatException ex) {
-                    throw new ProtocolException("Invalid query format");
-                }
-            }
+        final RequestParams params = new RequestParams();
+        try {
+            params.parse(request.getPath());
+        } catch (final NumberFormatException ex) {
+            throw new ProtocolException("Invalid query format: " + ex.getMessage());
         }
 
-        return new AbstractAsyncRequesterConsumer<Integer, Void>(new NoopEntityConsumer()) {
+        return new AbstractAsyncRequesterConsumer<RequestParams, Void>(new NoopEntityConsumer()) {
 
             @Override
-            protected Integer buildResult(final HttpRequest request, final Void entity, final ContentType contentType) {
-                return count.get();
+            protected RequestParams buildResult(
+                    final HttpRequest request, final Void entity, final ContentType contentType) {
+                return params;
             }
 
         };
@@ -87,25 +101,38 @@ class RandomDataHandler implements AsyncServerRequestHandler<Integer> {
 
     @Override
     public void handle(
-            final Integer count,
+            final RequestParams params,
             final ResponseTrigger responseTrigger,
             final HttpContext context) throws HttpException, IOException {
 
-        final byte[] b = new byte[count];
-        final int r = Math.abs(b.hashCode());
-        for (int i = 0; i < count; i++) {
-            b[i] = (byte) ((r + i) % 96 + 32);
+        final ByteBuffer buf = this.payloadCache.get(params.getSize()).asBuffer();
+        final Header[] contentHeaders = this.cachedHeaders != null
+                ? this.cachedHeaders.getContentHeaders(buf.remaining()) : null;
+
+        if (params.isChunked()) {
+            responseTrigger.submitResponse(new ChunkedDataProducer(params.getStatus(), buf,
+                    params.getChunkSize(), params.getDelay(), this.scheduler), context);
+            return;
+        }
+
+        if (this.bufferPool != null) {
+            responseTrigger.submitResponse(new DirectDataProducer(params.getStatus(), buf, contentHeaders,
+                    this.bufferPool), context);
+            return;
         }
-        final ByteBuffer buf = ByteBuffer.wrap(b);
 
         responseTrigger.submitResponse(new AsyncResponseProducer() {
 
             @Override
             public void sendResponse(
                     final ResponseChannel channel, final HttpContext context) throws HttpException, IOException {
+                final HttpResponse response = new BasicHttpResponse(params.getStatus());
+                if (contentHeaders != null) {
+                    response.setHeaders(contentHeaders);
+                }
                 channel.sendResponse(
-                        new BasicHttpResponse(HttpStatus.SC_OK),
-                        new BasicEntityDetails(count, ContentType.TEXT_PLAIN),
+                        response,
+                        new BasicEntityDetails(buf.remaining(), ContentType.TEXT_PLAIN),
                         context);
             }
 
@@ -0,0 +1,118 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.MethodNotSupportedException;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.BasicResponseProducer;
+import org.apache.hc.core5.http.nio.entity.AbstractBinAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.entity.StringAsyncEntityProducer;
+import org.apache.hc.core5.http.nio.support.AbstractAsyncRequesterConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.UploadDigest;
+
+/**
+ * Checksums the request content as it streams in and responds with the digest.
+ * The content is never buffered beyond the session input buffer.
+ */
+class UploadHandler implements AsyncServerRequestHandler<UploadDigest> {
+
+    @Override
+    public AsyncRequestConsumer<UploadDigest> prepare(
+            final HttpRequest request,
+            final EntityDetails entityDetails,
+            final HttpContext context) throws HttpException {
+        final String method = request.getMethod();
+        if (!method.equals("POST") && !method.equals("PUT")) {
+            throw new MethodNotSupportedException(method + " method not supported");
+        }
+        return new AbstractAsyncRequesterConsumer<UploadDigest, UploadDigest>(new DigestConsumer()) {
+
+            @Override
+            protected UploadDigest buildResult(
+                    final HttpRequest request, final UploadDigest entity, final ContentType contentType) {
+                // Requests without content produce no entity
+                return entity != null ? entity : new UploadDigest();
+            }
+
+        };
+    }
+
+    @Override
+    public void handle(
+            final UploadDigest digest,
+            final ResponseTrigger responseTrigger,
+            final HttpContext context) throws HttpException, IOException {
+        responseTrigger.submitResponse(new BasicResponseProducer(HttpStatus.SC_OK,
+                new StringAsyncEntityProducer(digest.toString(), ContentType.TEXT_PLAIN)), context);
+    }
+
+    static class DigestConsumer extends AbstractBinAsyncEntityConsumer<UploadDigest> {
+
+        private final UploadDigest digest;
+
+        DigestConsumer() {
+            super();
+            this.digest = new UploadDigest();
+        }
+
+        @Override
+        protected void streamStart(final ContentType contentType) {
+        }
+
+        @Override
+        protected int capacity() {
+            return BenchConsts.BUF_SIZE;
+        }
+
+        @Override
+        protected void data(final ByteBuffer src, final boolean endOfStream) {
+            this.digest.update(src);
+        }
+
+        @Override
+        protected UploadDigest generateContent() {
+            return this.digest;
+        }
+
+        @Override
+        public void releaseResources() {
+        }
+
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore5.classic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.MethodNotSupportedException;
+import org.apache.hc.core5.http.ProtocolException;
+import org.apache.hc.core5.http.io.HttpRequestHandler;
+import org.apache.hc.core5.http.io.entity.ByteBufferEntity;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.http.benchmark.PayloadFile;
+import org.apache.http.benchmark.RequestParams;
+
+/**
+ * Serves the memory mapped payload file. The session output buffer copies
+ * the content in slices as it writes it to the socket.
+ */
+class FileDataHandler implements HttpRequestHandler {
+
+    private final PayloadFile payloadFile;
+    private final ByteBuffer content;
+
+    public FileDataHandler(final PayloadFile payloadFile) throws IOException {
+        super();
+        this.payloadFile = payloadFile;
+        this.content = payloadFile.map();
+    }
+
+    @Override
+    public void handle(
+            final ClassicHttpRequest request,
+            final ClassicHttpResponse response,
+            final HttpContext context) throws HttpException, IOException {
+        final String method = request.getMethod();
+        if (!method.equals("GET") && !method.equals("HEAD")) {
+            throw new MethodNotSupportedException(method + " method not supported");
+        }
+        final RequestParams params = new RequestParams();
+        try {
+            params.parse(request.getPath());
+        } catch (final NumberFormatException ex) {
+            throw new ProtocolException("Invalid query format: " + ex.getMessage());
+        }
+        final ByteBuffer buf = this.content.duplicate();
+        buf.limit((int) this.payloadFile.contentLength(params));
+        response.setCode(HttpStatus.SC_OK);
+        // The entity takes the capacity of the buffer for the content length
+        response.setEntity(new ByteBufferEntity(buf.slice(), ContentType.APPLICATION_OCTET_STREAM));
+    }
+
+}
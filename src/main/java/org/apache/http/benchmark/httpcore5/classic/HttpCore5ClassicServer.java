@@ -0,0 +1,303 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore5.classic;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ServerSocketFactory;
+
+import org.apache.hc.core5.concurrent.DefaultThreadFactory;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.config.H1Config;
+import org.apache.hc.core5.http.impl.HttpProcessors;
+import org.apache.hc.core5.http.impl.io.DefaultBHttpServerConnection;
+import org.apache.hc.core5.http.impl.io.HttpService;
+import org.apache.hc.core5.http.io.HttpRequestHandler;
+import org.apache.hc.core5.http.io.support.BasicHttpServerRequestHandler;
+import org.apache.hc.core5.http.protocol.BasicHttpContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.RequestHandlerRegistry;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.VersionInfo;
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.HttpServer;
+import org.apache.http.benchmark.InProcessChannel;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.PayloadFile;
+import org.apache.http.benchmark.ServerConfig;
+
+/**
+ * Blocking HttpCore 5 server that serves each connection from its own thread.
+ * Connections are accepted by a single listener thread and handed over to
+ * a new virtual thread if the runtime supports them (Java 21 and later) or
+ * to a new platform thread otherwise. Handlers block for the duration of
+ * a response, including the delay between the chunks of chunk coded content.
+ */
+public class HttpCore5ClassicServer implements HttpServer {
+
+    private final int port;
+    private final ServerConfig config;
+    private final PayloadFile payloadFile;
+    private final H1Config h1Config;
+    private final HttpService httpService;
+    private final boolean virtualThreads;
+    private final ExecutorService executor;
+    private final Set<DefaultBHttpServerConnection> connections;
+
+    private volatile ServerSocket serverSocket;
+    private Thread listener;
+
+    public HttpCore5ClassicServer(final int port) throws IOException {
+        this(port, ServerConfig.DEFAULT);
+    }
+
+    public HttpCore5ClassicServer(final int port, final ServerConfig config) throws IOException {
+        super();
+        if (port <= 0) {
+            throw new IllegalArgumentException("Server port may not be negative or null");
+        }
+        if (config.isHttp2()) {
+            throw new UnsupportedOperationException("HTTP/2 is not supported by the classic server");
+        }
+        this.port = port;
+        this.config = config;
+        this.payloadFile = config.getFile() != null ? new PayloadFile(config.getFile()) : null;
+        this.h1Config = H1Config.custom()
+                .setBufferSize(BenchConsts.BUF_SIZE)
+                .setChunkSizeHint(BenchConsts.BUF_SIZE)
+                .build();
+
+        final RequestHandlerRegistry<HttpRequestHandler> registry = new RequestHandlerRegistry<HttpRequestHandler>();
+        registry.register(null, "/rnd", new RandomDataHandler(new PayloadCache(config)));
+        registry.register(null, "/upload", new UploadHandler());
+        if (this.payloadFile != null) {
+            registry.register(null, "/file", new FileDataHandler(this.payloadFile));
+        }
+        this.httpService = new HttpService(HttpProcessors.server(), new BasicHttpServerRequestHandler(registry));
+
+        final ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+        this.virtualThreads = virtualThreadExecutor != null;
+        this.executor = virtualThreadExecutor != null ? virtualThreadExecutor
+                : Executors.newCachedThreadPool(new DefaultThreadFactory("classic-worker", true));
+        this.connections = Collections.newSetFromMap(new ConcurrentHashMap<DefaultBHttpServerConnection, Boolean>());
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread for each task or
+     * {@code null} if the runtime does not support virtual threads. The method
+     * is looked up reflectively as the code is compiled for older runtimes.
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (final NoSuchMethodException ex) {
+            return null;
+        } catch (final IllegalAccessException ex) {
+            return null;
+        } catch (final InvocationTargetException ex) {
+            // Virtual threads are a preview feature on Java 19 and 20
+            return null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return this.virtualThreads
+                ? "HttpCore 5 (classic, virtual threads)" : "HttpCore 5 (classic, platform threads)";
+    }
+
+    @Override
+    public String getVersion() {
+        final VersionInfo vinfo = VersionInfo.loadVersionInfo("org.apache.hc.core5",
+                Thread.currentThread().getContextClassLoader());
+        return vinfo.getRelease();
+    }
+
+    @Override
+    public int getPort() {
+        return this.port;
+    }
+
+    @Override
+    public void start() throws Exception {
+        final ServerSocketFactory socketFactory = this.config.getSslContext() != null
+                ? this.config.getSslContext().getServerSocketFactory()
+                : ServerSocketFactory.getDefault();
+        final ServerSocket socket = socketFactory.createServerSocket();
+        socket.setReuseAddress(this.config.isReuseAddress());
+        // A backlog of zero selects the default of the socket implementation
+        socket.bind(new InetSocketAddress(this.port), this.config.getBacklog());
+        this.serverSocket = socket;
+        this.listener = new Thread(new Listener(socket), "classic-listener");
+        this.listener.start();
+    }
+
+    @Override
+    public void shutdown() {
+        final ServerSocket socket = this.serverSocket;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (final IOException ignore) {
+            }
+            try {
+                this.listener.join();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.executor.shutdownNow();
+        // Threads blocked reading from a socket are only released by closing the socket
+        for (final DefaultBHttpServerConnection conn : this.connections) {
+            conn.close(CloseMode.IMMEDIATE);
+        }
+        try {
+            this.executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.payloadFile != null) {
+            try {
+                this.payloadFile.close();
+            } catch (final IOException ignore) {
+            }
+        }
+    }
+
+    @Override
+    public InProcessChannel connectInProcess(final int socketTimeout) throws IOException {
+        throw new UnsupportedOperationException("In-process connections are not supported by the classic server");
+    }
+
+    class Listener implements Runnable {
+
+        private final ServerSocket serverSocket;
+
+        Listener(final ServerSocket serverSocket) {
+            super();
+            this.serverSocket = serverSocket;
+        }
+
+        @Override
+        public void run() {
+            while (!this.serverSocket.isClosed()) {
+                final Socket socket;
+                try {
+                    socket = this.serverSocket.accept();
+                } catch (final IOException ex) {
+                    // Closed by shutdown
+                    return;
+                }
+                try {
+                    socket.setTcpNoDelay(BenchConsts.TCP_NO_DELAY);
+                    executor.execute(new Worker(socket));
+                } catch (final IOException ex) {
+                    closeQuietly(socket);
+                } catch (final RejectedExecutionException ex) {
+                    closeQuietly(socket);
+                }
+            }
+        }
+
+    }
+
+    class Worker implements Runnable {
+
+        private final Socket socket;
+
+        Worker(final Socket socket) {
+            super();
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            final DefaultBHttpServerConnection conn = new DefaultBHttpServerConnection(
+                    config.getSslContext() != null ? "https" : "http", h1Config);
+            connections.add(conn);
+            try {
+                conn.bind(this.socket);
+                if (executor.isShutdown()) {
+                    return;
+                }
+                final HttpContext context = new BasicHttpContext();
+                while (conn.isOpen()) {
+                    httpService.handleRequest(conn, context);
+                }
+            } catch (final IOException ignore) {
+                // Closed by the client or by shutdown
+            } catch (final HttpException ignore) {
+            } finally {
+                connections.remove(conn);
+                conn.close(CloseMode.IMMEDIATE);
+                closeQuietly(this.socket);
+            }
+        }
+
+    }
+
+    static void closeQuietly(final Socket socket) {
+        try {
+            socket.close();
+        } catch (final IOException ignore) {
+        }
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length != 1) {
+            System.out.println("Usage: <port>");
+            System.exit(1);
+        }
+        final int port = Integer.parseInt(args[0]);
+        final HttpCore5ClassicServer server = new HttpCore5ClassicServer(port);
+        System.out.println("Listening on port: " + port);
+        server.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+
+            @Override
+            public void run() {
+                server.shutdown();
+            }
+
+        });
+    }
+
+}
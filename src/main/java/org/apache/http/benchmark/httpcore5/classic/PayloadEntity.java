@@ -0,0 +1,109 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore5.classic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
+import org.apache.http.benchmark.Payload;
+
+/**
+ * Writes the payload straight from its backing array. Chunk coded content
+ * is flushed chunk by chunk, sleeping for the delay between chunks: the
+ * connection thread is blocked for the duration of the response, which
+ * costs next to nothing when it is a virtual thread.
+ */
+class PayloadEntity extends AbstractHttpEntity {
+
+    private final Payload payload;
+    private final int chunkSize;
+    private final int delay;
+
+    /**
+     * @param chunkSize size of the chunks of chunk coded content or zero
+     *   for content with a content length.
+     */
+    PayloadEntity(final Payload payload, final int chunkSize, final int delay) {
+        super();
+        this.payload = payload;
+        this.chunkSize = chunkSize;
+        this.delay = delay;
+        setContentType(ContentType.TEXT_PLAIN.toString());
+        setChunked(chunkSize > 0);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return this.chunkSize > 0 ? -1 : this.payload.size();
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        throw new UnsupportedOperationException("Payload content can only be written out");
+    }
+
+    @Override
+    public void writeTo(final OutputStream outstream) throws IOException {
+        if (this.chunkSize <= 0) {
+            this.payload.writeTo(outstream);
+            return;
+        }
+        final int size = this.payload.size();
+        for (int pos = 0; pos < size; pos += this.chunkSize) {
+            final int len = Math.min(this.chunkSize, size - pos);
+            this.payload.writeTo(outstream, pos, len);
+            outstream.flush();
+            if (this.delay > 0 && pos + len < size) {
+                try {
+                    Thread.sleep(this.delay);
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+}
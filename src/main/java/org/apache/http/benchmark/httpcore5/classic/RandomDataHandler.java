@@ -0,0 +1,76 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore5.classic;
+
+import java.io.IOException;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.MethodNotSupportedException;
+import org.apache.hc.core5.http.ProtocolException;
+import org.apache.hc.core5.http.io.HttpRequestHandler;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.http.benchmark.Payload;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.RequestParams;
+
+class RandomDataHandler implements HttpRequestHandler {
+
+    private final PayloadCache payloadCache;
+
+    public RandomDataHandler(final PayloadCache payloadCache) {
+        super();
+        this.payloadCache = payloadCache;
+    }
+
+    @Override
+    public void handle(
+            final ClassicHttpRequest request,
+            final ClassicHttpResponse response,
+            final HttpContext context) throws HttpException, IOException {
+        final String method = request.getMethod();
+        if (!method.equals("GET") && !method.equals("HEAD") && !method.equals("POST")) {
+            throw new MethodNotSupportedException(method + " method not supported");
+        }
+        final RequestParams params = new RequestParams();
+        try {
+            params.parse(request.getPath());
+        } catch (final NumberFormatException ex) {
+            throw new ProtocolException("Invalid query format: " + ex.getMessage());
+        }
+        // Discard the request content, if any, so that the connection can be kept alive
+        EntityUtils.consume(request.getEntity());
+
+        final Payload payload = this.payloadCache.get(params.getSize());
+        response.setCode(params.getStatus());
+        response.setEntity(new PayloadEntity(payload, params.isChunked() ? params.getChunkSize() : 0,
+                params.getDelay()));
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.httpcore5.classic;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.MethodNotSupportedException;
+import org.apache.hc.core5.http.io.HttpRequestHandler;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.UploadDigest;
+
+/**
+ * Checksums the request content as it is read and responds with the digest.
+ */
+class UploadHandler implements HttpRequestHandler {
+
+    @Override
+    public void handle(
+            final ClassicHttpRequest request,
+            final ClassicHttpResponse response,
+            final HttpContext context) throws HttpException, IOException {
+        final String method = request.getMethod();
+        if (!method.equals("POST") && !method.equals("PUT")) {
+            throw new MethodNotSupportedException(method + " method not supported");
+        }
+        final UploadDigest digest = new UploadDigest();
+        final HttpEntity entity = request.getEntity();
+        if (entity != null) {
+            final InputStream instream = entity.getContent();
+            try {
+                final byte[] buf = new byte[BenchConsts.BUF_SIZE];
+                int n;
+                while ((n = instream.read(buf)) != -1) {
+                    digest.update(buf, 0, n);
+                }
+            } finally {
+                instream.close();
+            }
+        }
+        response.setCode(HttpStatus.SC_OK);
+        response.setEntity(new StringEntity(digest.toString(), ContentType.TEXT_PLAIN));
+    }
+
+}
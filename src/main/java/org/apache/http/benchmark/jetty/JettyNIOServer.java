@@ -27,42 +27,91 @@
 
 package org.apache.http.benchmark.jetty;
 
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
 import org.apache.http.benchmark.BenchConsts;
 import org.apache.http.benchmark.HttpServer;
+import org.apache.http.benchmark.InProcessChannel;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.PayloadFile;
+import org.apache.http.benchmark.ServerConfig;
+import org.eclipse.jetty.server.LocalConnector;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.eclipse.jetty.server.ssl.SslSelectChannelConnector;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
 public class JettyNIOServer implements HttpServer {
 
     private int port;
+    private final boolean cachedHeaders;
+    private final PayloadFile payloadFile;
     private final Server server;
+    // Resumes chunked responses after the inter-chunk delay
+    private final ScheduledExecutorService scheduler;
+
+    private LocalConnector localConnector;
 
-    public JettyNIOServer(final int port) {
+    public JettyNIOServer(final int port) throws IOException {
+        this(port, ServerConfig.DEFAULT);
+    }
+
+    public JettyNIOServer(final int port, final ServerConfig config) throws IOException {
         super();
         if (port <= 0) {
             throw new IllegalArgumentException("Server port may not be negative or null");
         }
+        if (config.isHttp2()) {
+            throw new UnsupportedOperationException("HTTP/2 is not supported by Jetty 8");
+        }
         this.port = port;
-
-        final SelectChannelConnector connector = new SelectChannelConnector();
+        this.payloadFile = config.getFile() != null ? new PayloadFile(config.getFile()) : null;
+
+        final SelectChannelConnector connector;
+        if (config.getSslContext() != null) {
+            final SslContextFactory sslContextFactory = new SslContextFactory();
+            sslContextFactory.setSslContext(config.getSslContext());
+            connector = new SslSelectChannelConnector(sslContextFactory);
+        } else {
+            connector = new SelectChannelConnector();
+        }
         connector.setPort(port);
         connector.setRequestBufferSize(BenchConsts.BUF_SIZE);
         connector.setResponseBufferSize(BenchConsts.BUF_SIZE);
-        connector.setReuseAddress(true);
+        connector.setReuseAddress(config.isReuseAddress());
+        if (config.getBacklog() > 0) {
+            connector.setAcceptQueueSize(config.getBacklog());
+        }
+        // The NIO connector runs one selector per acceptor
+        if (config.getIoThreads() > 0) {
+            connector.setAcceptors(config.getIoThreads());
+        }
 
+        // Acceptor and selector threads are taken from the same pool as the request handling threads
         final QueuedThreadPool threadpool = new QueuedThreadPool();
-        threadpool.setMinThreads(25);
-        threadpool.setMaxThreads(200);
+        if (config.getWorkerThreads() > 0) {
+            threadpool.setMaxThreads(connector.getAcceptors() * 2 + config.getWorkerThreads());
+            threadpool.setMinThreads(Math.min(25, threadpool.getMaxThreads()));
+        } else {
+            threadpool.setMinThreads(25);
+            threadpool.setMaxThreads(200);
+        }
 
         this.server = new Server();
         this.server.addConnector(connector);
         this.server.setThreadPool(threadpool);
-        this.server.setHandler(new RandomDataHandler());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.cachedHeaders = config.isCachedHeaders();
+        // Jetty 8 sends no Date header, so only the content headers are cached
+        this.server.setHandler(new RandomDataHandler(new PayloadCache(config), this.payloadFile, this.scheduler,
+                this.cachedHeaders));
     }
 
     public String getName() {
-        return "Jetty (NIO)";
+        return this.cachedHeaders ? "Jetty (NIO, cached headers)" : "Jetty (NIO)";
     }
 
     public String getVersion() {
@@ -87,6 +136,32 @@ public class JettyNIOServer implements HttpServer {
             this.server.join();
         } catch (final InterruptedException ex) {
         }
+        this.scheduler.shutdownNow();
+        if (this.payloadFile != null) {
+            try {
+                this.payloadFile.close();
+            } catch (final IOException ignore) {
+            }
+        }
+    }
+
+    @Override
+    public synchronized InProcessChannel connectInProcess(final int socketTimeout) throws IOException {
+        if (this.localConnector == null) {
+            // The local connector takes one thread from the pool for its acceptor
+            final LocalConnector connector = new LocalConnector();
+            connector.setMaxIdleTime(socketTimeout);
+            connector.setRequestBufferSize(BenchConsts.BUF_SIZE);
+            connector.setResponseBufferSize(BenchConsts.BUF_SIZE);
+            this.server.addConnector(connector);
+            try {
+                connector.start();
+            } catch (final Exception ex) {
+                throw new IOException("Failed to start local connector: " + ex.getMessage(), ex);
+            }
+            this.localConnector = connector;
+        }
+        return new LocalConnectorChannel(this.localConnector);
     }
 
     public static void main(final String[] args) throws Exception {
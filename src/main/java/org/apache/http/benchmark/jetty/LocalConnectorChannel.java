@@ -0,0 +1,143 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.jetty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.ClosedChannelException;
+
+import org.apache.http.benchmark.InProcessChannel;
+import org.eclipse.jetty.io.ByteArrayBuffer;
+import org.eclipse.jetty.server.LocalConnector;
+
+/**
+ * In-process channel on top of Jetty's {@link LocalConnector}. Requests written
+ * to the channel are collected until the client starts reading the responses;
+ * they are then parsed and handled by the server in one go over an in-memory
+ * endpoint. Every such exchange uses a fresh server connection.
+ */
+class LocalConnectorChannel implements InProcessChannel {
+
+    private final LocalConnector connector;
+    private final ByteArrayOutputStream requests;
+    private final InputStream instream;
+    private final OutputStream outstream;
+
+    private byte[] responses;
+    private int pos;
+    private int limit;
+    private volatile boolean closed;
+
+    LocalConnectorChannel(final LocalConnector connector) {
+        super();
+        this.connector = connector;
+        this.requests = new ByteArrayOutputStream();
+        this.instream = new InputStream() {
+
+            @Override
+            public int read() throws IOException {
+                final byte[] tmp = new byte[1];
+                final int n = read(tmp, 0, 1);
+                return n == -1 ? -1 : tmp[0] & 0xff;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                return receive(b, off, len);
+            }
+
+        };
+        this.outstream = new OutputStream() {
+
+            @Override
+            public void write(final int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                if (closed) {
+                    throw new ClosedChannelException();
+                }
+                requests.write(b, off, len);
+            }
+
+        };
+    }
+
+    private int receive(final byte[] b, final int off, final int len) throws IOException {
+        if (this.closed) {
+            throw new ClosedChannelException();
+        }
+        if (this.pos == this.limit) {
+            if (this.requests.size() == 0) {
+                return -1;
+            }
+            final ByteArrayBuffer response;
+            try {
+                response = this.connector.getResponses(new ByteArrayBuffer(this.requests.toByteArray()), false);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (final IOException ex) {
+                throw ex;
+            } catch (final Exception ex) {
+                throw new IOException(ex.getMessage(), ex);
+            }
+            this.requests.reset();
+            if (response == null || response.length() == 0) {
+                return -1;
+            }
+            this.responses = response.array();
+            this.pos = response.getIndex();
+            this.limit = response.putIndex();
+        }
+        final int n = Math.min(len, this.limit - this.pos);
+        System.arraycopy(this.responses, this.pos, b, off, n);
+        this.pos += n;
+        return n;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return this.instream;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return this.outstream;
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+    }
+
+}
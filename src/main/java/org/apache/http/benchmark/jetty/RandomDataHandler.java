@@ -27,21 +27,68 @@
 package org.apache.http.benchmark.jetty;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.Payload;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.PayloadFile;
+import org.apache.http.benchmark.RequestParams;
+import org.apache.http.benchmark.UploadDigest;
+import org.eclipse.jetty.continuation.Continuation;
+import org.eclipse.jetty.continuation.ContinuationSupport;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeaders;
 import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.ByteArrayBuffer;
+import org.eclipse.jetty.io.View;
+import org.eclipse.jetty.io.nio.DirectNIOBuffer;
+import org.eclipse.jetty.server.AbstractHttpConnection;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.handler.AbstractHandler;
 
 class RandomDataHandler extends AbstractHandler {
 
-    public RandomDataHandler() {
+    private static final String STREAM_ATTRIBUTE = "bench.stream";
+    private static final int MAX_SIZES = 1024;
+
+    private final PayloadCache payloadCache;
+    private final ScheduledExecutorService scheduler;
+    private final ByteBuffer fileContent;
+    private final Buffer fileBuffer;
+    // Pre-serialised Content-Length values per content length, null if headers are not cached
+    private final ConcurrentMap<Integer, Buffer> contentLengths;
+
+    public RandomDataHandler(
+            final PayloadCache payloadCache,
+            final PayloadFile payloadFile,
+            final ScheduledExecutorService scheduler,
+            final boolean cachedHeaders) throws IOException {
         super();
+        this.payloadCache = payloadCache;
+        this.scheduler = scheduler;
+        this.contentLengths = cachedHeaders ? new ConcurrentHashMap<Integer, Buffer>() : null;
+        if (payloadFile != null) {
+            this.fileContent = payloadFile.map();
+            this.fileBuffer = new DirectNIOBuffer(this.fileContent, true);
+        } else {
+            this.fileContent = null;
+            this.fileBuffer = null;
+        }
     }
 
     @Override
@@ -51,7 +98,11 @@ class RandomDataHandler extends AbstractHandler {
             final HttpServletRequest request,
             final HttpServletResponse response) throws IOException, ServletException {
         if (target.equals("/rnd")) {
-            rnd(request, response);
+            rnd(baseRequest, request, response);
+        } else if (target.equals("/file") && this.fileBuffer != null) {
+            file(request, response);
+        } else if (target.equals("/upload")) {
+            upload(request, response);
         } else {
             response.setStatus(HttpStatus.NOT_FOUND_404);
             response.setContentType("text/plain");
@@ -62,33 +113,175 @@ class RandomDataHandler extends AbstractHandler {
     }
 
     private void rnd(
+            final Request baseRequest,
             final HttpServletRequest request,
             final HttpServletResponse response) throws IOException {
-        int count = 100;
-        final String s = request.getParameter("c");
+        final RequestParams params = new RequestParams();
         try {
-            count = Integer.parseInt(s);
+            params.parseQuery(request.getQueryString());
         } catch (final NumberFormatException ex) {
-            response.setStatus(500);
+            response.setStatus(HttpStatus.BAD_REQUEST_400);
+            response.setContentType("text/plain");
             final Writer writer = response.getWriter();
-            writer.write("Invalid query format: " + request.getQueryString());
+            writer.write("Invalid query format: " + ex.getMessage());
             writer.flush();
             return;
         }
 
+        if (params.isChunked()) {
+            stream(request, response, params);
+            return;
+        }
+
+        response.setStatus(params.getStatus());
+        if (this.contentLengths != null) {
+            // Header values in serialised form are added to the response fields as is
+            final HttpFields fields = baseRequest.getResponse().getHttpFields();
+            fields.put(HttpHeaders.CONTENT_TYPE_BUFFER, MimeTypes.TEXT_PLAIN_BUFFER);
+            fields.put(HttpHeaders.CONTENT_LENGTH_BUFFER, contentLength(params.getSize()));
+        } else {
+            response.setContentType("text/plain");
+            response.setContentLength(params.getSize());
+        }
+
+        final Payload payload = this.payloadCache.get(params.getSize());
+
+        final OutputStream outstream = response.getOutputStream();
+        payload.writeTo(outstream);
+        outstream.flush();
+    }
+
+    private Buffer contentLength(final int len) {
+        final Integer key = Integer.valueOf(len);
+        Buffer value = this.contentLengths.get(key);
+        if (value == null) {
+            value = new ByteArrayBuffer(Integer.toString(len)).asImmutableBuffer();
+            if (this.contentLengths.size() < MAX_SIZES) {
+                this.contentLengths.putIfAbsent(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Streams the content as chunk coded content, flushing every chunk. Jetty 8
+     * has no non-blocking output, so a slow client blocks the flush. The delay
+     * between chunks however does not hold up a thread: the request is suspended
+     * and resumed once the delay has elapsed to write the next chunk. Continuation
+     * timeouts are not used for the delay as they are only checked periodically.
+     */
+    private void stream(
+            final HttpServletRequest request,
+            final HttpServletResponse response,
+            final RequestParams params) throws IOException {
+        StreamState state = (StreamState) request.getAttribute(STREAM_ATTRIBUTE);
+        if (state == null) {
+            // Without a content length the content is chunk coded
+            response.setStatus(params.getStatus());
+            response.setContentType("text/plain");
+            state = new StreamState(this.payloadCache.get(params.getSize()));
+        }
+        final OutputStream outstream = response.getOutputStream();
+        final int size = state.payload.size();
+        while (state.pos < size) {
+            final int len = Math.min(params.getChunkSize(), size - state.pos);
+            state.payload.writeTo(outstream, state.pos, len);
+            outstream.flush();
+            state.pos += len;
+            if (params.getDelay() > 0 && state.pos < size) {
+                request.setAttribute(STREAM_ATTRIBUTE, state);
+                final Continuation continuation = ContinuationSupport.getContinuation(request);
+                continuation.setTimeout(0);
+                continuation.suspend();
+                this.scheduler.schedule(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        continuation.resume();
+                    }
+
+                }, params.getDelay(), TimeUnit.MILLISECONDS);
+                return;
+            }
+        }
+        request.removeAttribute(STREAM_ATTRIBUTE);
+    }
+
+    static class StreamState {
+
+        final Payload payload;
+        int pos;
+
+        StreamState(final Payload payload) {
+            super();
+            this.payload = payload;
+        }
+
+    }
+
+    private void upload(
+            final HttpServletRequest request,
+            final HttpServletResponse response) throws IOException {
+        final String method = request.getMethod();
+        if (!method.equals("POST") && !method.equals("PUT")) {
+            response.setStatus(HttpStatus.METHOD_NOT_ALLOWED_405);
+            response.setContentType("text/plain");
+            final Writer writer = response.getWriter();
+            writer.write(method + " method not supported");
+            writer.flush();
+            return;
+        }
+        // Checksum the content as it is read rather than buffering it
+        final UploadDigest digest = new UploadDigest();
+        final InputStream instream = request.getInputStream();
+        final byte[] buf = new byte[BenchConsts.BUF_SIZE];
+        int n;
+        while ((n = instream.read(buf)) != -1) {
+            digest.update(buf, 0, n);
+        }
+        final byte[] content = digest.toString().getBytes("US-ASCII");
+
         response.setStatus(200);
         response.setContentType("text/plain");
-        response.setContentLength(count);
+        response.setContentLength(content.length);
 
-        final byte[] b = new byte[count];
-        final int r = Math.abs(b.hashCode());
-        for (int i = 0; i < count; i++) {
-            b[i] = (byte) ((r + i) % 96 + 32);
-        }
-        
         final OutputStream outstream = response.getOutputStream();
-        outstream.write(b);
+        outstream.write(content);
         outstream.flush();
     }
 
+    private void file(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        final RequestParams params = new RequestParams();
+        try {
+            params.parseQuery(request.getQueryString());
+        } catch (final NumberFormatException ex) {
+            response.setStatus(HttpStatus.BAD_REQUEST_400);
+            response.setContentType("text/plain");
+            final Writer writer = response.getWriter();
+            writer.write("Invalid query format: " + ex.getMessage());
+            writer.flush();
+            return;
+        }
+        final int len = params.hasSize() ? Math.min(params.getSize(), this.fileContent.remaining())
+                : this.fileContent.remaining();
+
+        response.setStatus(200);
+        response.setContentType("application/octet-stream");
+        response.setContentLength(len);
+
+        final OutputStream outstream = response.getOutputStream();
+        // The SSL connection of Jetty 8 fails to encrypt large content buffers handed over as is
+        if (outstream instanceof AbstractHttpConnection.Output && !request.isSecure()) {
+            // Hand the memory mapped buffer over to the connector as is
+            final View view = new View(this.fileBuffer);
+            view.update(0, len);
+            ((AbstractHttpConnection.Output) outstream).sendContent(view);
+        } else {
+            final ByteBuffer content = this.fileContent.duplicate();
+            content.limit(len);
+            Channels.newChannel(outstream).write(content);
+            outstream.flush();
+        }
+    }
+
 }
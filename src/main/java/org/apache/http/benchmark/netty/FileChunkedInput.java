@@ -0,0 +1,84 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.netty;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.stream.ChunkedInput;
+
+/**
+ * Reads a region of a shared file channel in chunks using positional reads,
+ * for connections that cannot use zero-copy transfer because the content is
+ * encrypted. Unlike {@code ChunkedNioFile} the channel is left open at the end.
+ */
+class FileChunkedInput implements ChunkedInput {
+
+    private final FileChannel channel;
+    private final long end;
+    private final int chunkSize;
+
+    private long position;
+
+    FileChunkedInput(final FileChannel channel, final long position, final long length, final int chunkSize) {
+        super();
+        this.channel = channel;
+        this.position = position;
+        this.end = position + length;
+        this.chunkSize = chunkSize;
+    }
+
+    public boolean hasNextChunk() {
+        return this.position < this.end;
+    }
+
+    public Object nextChunk() throws Exception {
+        if (this.position >= this.end) {
+            return null;
+        }
+        final ByteBuffer buf = ByteBuffer.allocate((int) Math.min(this.chunkSize, this.end - this.position));
+        while (buf.hasRemaining()) {
+            if (this.channel.read(buf, this.position + buf.position()) == -1) {
+                throw new EOFException("Premature end of file");
+            }
+        }
+        buf.flip();
+        this.position += buf.remaining();
+        return ChannelBuffers.wrappedBuffer(buf);
+    }
+
+    public boolean isEndOfInput() {
+        return !hasNextChunk();
+    }
+
+    public void close() {
+        // The channel is shared
+    }
+
+}
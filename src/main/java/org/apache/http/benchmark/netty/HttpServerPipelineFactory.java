@@ -27,19 +27,57 @@
 
 package org.apache.http.benchmark.netty;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.PayloadFile;
 import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.Channels;
 import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
 import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
+import org.jboss.netty.handler.ssl.SslHandler;
+import org.jboss.netty.handler.stream.ChunkedWriteHandler;
+import org.jboss.netty.util.Timer;
 
 class HttpServerPipelineFactory implements ChannelPipelineFactory {
 
+    private final PayloadCache payloadCache;
+    private final PayloadFile payloadFile;
+    private final Timer timer;
+    private final SSLContext sslContext;
+    private final ResponseHeadCache headCache;
+
+    public HttpServerPipelineFactory(
+            final PayloadCache payloadCache,
+            final PayloadFile payloadFile,
+            final Timer timer,
+            final SSLContext sslContext,
+            final ResponseHeadCache headCache) {
+        super();
+        this.payloadCache = payloadCache;
+        this.payloadFile = payloadFile;
+        this.timer = timer;
+        this.sslContext = sslContext;
+        this.headCache = headCache;
+    }
+
     public ChannelPipeline getPipeline() throws Exception {
         final ChannelPipeline pipeline = Channels.pipeline();
+        if (this.sslContext != null) {
+            final SSLEngine engine = this.sslContext.createSSLEngine();
+            engine.setUseClientMode(false);
+            pipeline.addLast("ssl", new SslHandler(engine));
+        }
         pipeline.addLast("decoder", new HttpRequestDecoder());
         pipeline.addLast("encoder", new HttpResponseEncoder());
-        pipeline.addLast("handler", new RandomDataHandler());
+        if (this.sslContext != null) {
+            // File regions cannot be encrypted, file content is written in chunks instead
+            pipeline.addLast("chunkedWriter", new ChunkedWriteHandler());
+        }
+        pipeline.addLast("handler", new RandomDataHandler(this.payloadCache, this.payloadFile, this.timer,
+                this.headCache));
         return pipeline;
     }
 
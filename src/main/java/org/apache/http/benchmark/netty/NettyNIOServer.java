@@ -27,35 +27,97 @@
 
 package org.apache.http.benchmark.netty;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.http.benchmark.BenchConsts;
 import org.apache.http.benchmark.HttpServer;
+import org.apache.http.benchmark.InProcessChannel;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.PayloadFile;
+import org.apache.http.benchmark.ServerConfig;
 import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.local.DefaultLocalClientChannelFactory;
+import org.jboss.netty.channel.local.DefaultLocalServerChannelFactory;
+import org.jboss.netty.channel.local.LocalAddress;
+import org.jboss.netty.channel.local.LocalClientChannelFactory;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timer;
 
 public class NettyNIOServer implements HttpServer {
 
     private final int port;
+    private final boolean directBuffers;
+    private final boolean cachedHeaders;
+    private final PayloadFile payloadFile;
+    private final ChannelPipelineFactory pipelineFactory;
     private final ServerBootstrap serverBootstrap;
+    // Resumes chunked responses after the inter-chunk delay
+    private final Timer timer;
 
-    public NettyNIOServer(final int port) {
+    private ServerBootstrap localServerBootstrap;
+    private LocalClientChannelFactory localClientChannelFactory;
+    private LocalAddress localAddress;
+
+    public NettyNIOServer(final int port) throws IOException {
+        this(port, ServerConfig.DEFAULT);
+    }
+
+    public NettyNIOServer(final int port, final ServerConfig config) throws IOException {
         super();
         if (port <= 0) {
             throw new IllegalArgumentException("Server port may not be negative or null");
         }
+        if (config.isHttp2()) {
+            throw new UnsupportedOperationException("HTTP/2 is not supported by Netty 3");
+        }
         this.port = port;
-        this.serverBootstrap = new ServerBootstrap(
-            new NioServerSocketChannelFactory(
-            Executors.newCachedThreadPool(),
-            Executors.newCachedThreadPool()));
-        this.serverBootstrap.setPipelineFactory(new HttpServerPipelineFactory());
+        this.payloadFile = config.getFile() != null ? new PayloadFile(config.getFile()) : null;
+        // Request handlers are executed by the NIO workers, so the worker count
+        // is the number of I/O threads
+        final NioServerSocketChannelFactory channelFactory;
+        if (config.getIoThreads() > 0) {
+            channelFactory = new NioServerSocketChannelFactory(
+                Executors.newCachedThreadPool(),
+                Executors.newCachedThreadPool(),
+                config.getIoThreads());
+        } else {
+            channelFactory = new NioServerSocketChannelFactory(
+                Executors.newCachedThreadPool(),
+                Executors.newCachedThreadPool());
+        }
+        this.serverBootstrap = new ServerBootstrap(channelFactory);
+        this.timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS);
+        this.directBuffers = config.isDirectBuffers();
+        // Netty sends no Date header, so the response heads are entirely static
+        this.cachedHeaders = config.isCachedHeaders();
+        this.pipelineFactory = new HttpServerPipelineFactory(new PayloadCache(config), this.payloadFile,
+                this.timer, config.getSslContext(),
+                this.directBuffers || this.cachedHeaders ? new ResponseHeadCache() : null);
+        this.serverBootstrap.setPipelineFactory(this.pipelineFactory);
         this.serverBootstrap.setOption("child.tcpNoDelay", Boolean.valueOf(BenchConsts.TCP_NO_DELAY));
+        this.serverBootstrap.setOption("reuseAddress", Boolean.valueOf(config.isReuseAddress()));
+        if (config.getBacklog() > 0) {
+            this.serverBootstrap.setOption("backlog", Integer.valueOf(config.getBacklog()));
+        }
     }
 
     @Override
     public String getName() {
+        if (this.directBuffers && this.cachedHeaders) {
+            return "Netty (direct buffers, cached headers)";
+        } else if (this.directBuffers) {
+            return "Netty (direct buffers)";
+        } else if (this.cachedHeaders) {
+            return "Netty (cached headers)";
+        }
         return "Netty";
     }
 
@@ -77,6 +139,40 @@ public class NettyNIOServer implements HttpServer {
     @Override
     public void shutdown() {
         serverBootstrap.releaseExternalResources();
+        synchronized (this) {
+            if (localServerBootstrap != null) {
+                localClientChannelFactory.releaseExternalResources();
+                localServerBootstrap.releaseExternalResources();
+            }
+        }
+        timer.stop();
+        if (payloadFile != null) {
+            try {
+                payloadFile.close();
+            } catch (final IOException ignore) {
+            }
+        }
+    }
+
+    @Override
+    public InProcessChannel connectInProcess(final int socketTimeout) throws IOException {
+        synchronized (this) {
+            if (localServerBootstrap == null) {
+                localServerBootstrap = new ServerBootstrap(new DefaultLocalServerChannelFactory());
+                localServerBootstrap.setPipelineFactory(pipelineFactory);
+                localAddress = new LocalAddress("bench-" + port);
+                localServerBootstrap.bind(localAddress);
+                localClientChannelFactory = new DefaultLocalClientChannelFactory();
+            }
+        }
+        final LocalTransportChannel conn = new LocalTransportChannel(socketTimeout);
+        final Channel channel = localClientChannelFactory.newChannel(Channels.pipeline(conn));
+        final ChannelFuture future = channel.connect(localAddress).awaitUninterruptibly();
+        if (!future.isSuccess()) {
+            throw new IOException("Failed to connect to " + localAddress, future.getCause());
+        }
+        conn.setChannel(channel);
+        return conn;
     }
 
     public static void main(final String[] args) throws Exception {
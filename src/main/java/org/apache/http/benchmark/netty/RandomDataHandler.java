@@ -31,54 +31,114 @@ import static org.jboss.netty.handler.codec.http.HttpHeaders.isKeepAlive;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONNECTION;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONTENT_LENGTH;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
+import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.TRANSFER_ENCODING;
 import static org.jboss.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
 import static org.jboss.netty.handler.codec.http.HttpResponseStatus.OK;
 import static org.jboss.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.Payload;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.PayloadFile;
+import org.apache.http.benchmark.RequestParams;
+import org.apache.http.benchmark.UploadDigest;
+import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.DefaultFileRegion;
 import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
 import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
 import org.jboss.netty.handler.codec.http.HttpChunk;
 import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponse;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.ssl.SslHandler;
 import org.jboss.netty.util.CharsetUtil;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.jboss.netty.util.TimerTask;
 
 class RandomDataHandler extends SimpleChannelUpstreamHandler {
 
+    // Error responses have fixed bodies that are encoded once and wrapped for every response
+    private static final byte[] BAD_REQUEST_BODY = "Invalid query format".getBytes(CharsetUtil.US_ASCII);
+    private static final byte[] METHOD_NOT_ALLOWED_BODY = "Method not supported".getBytes(CharsetUtil.US_ASCII);
+
+    private final PayloadCache payloadCache;
+    private final PayloadFile payloadFile;
+    private final Timer timer;
+    // Non-null if responses to /rnd are to be written with pre-encoded heads
+    private final ResponseHeadCache headCache;
+    // Handlers are created per channel, so the parameters can be reused
+    private final RequestParams params;
+
     private HttpRequest request;
     private boolean readingChunks;
-    private int count;
+    private boolean fileRequest;
+    // Digest of the content of an upload request, null for other requests
+    private UploadDigest uploadDigest;
+    // Content of the chunk coded response being streamed, null if there is none
+    private ByteBuffer stream;
+    private int streamChunkSize;
+    private long streamDelay;
+    private boolean streamKeepAlive;
+    private boolean streamPaused;
+    // Messages received while a chunk coded response is streamed, served once it is complete
+    private final Queue<MessageEvent> pending;
 
-    public RandomDataHandler() {
+    public RandomDataHandler(
+            final PayloadCache payloadCache,
+            final PayloadFile payloadFile,
+            final Timer timer,
+            final ResponseHeadCache headCache) {
         super();
+        this.payloadCache = payloadCache;
+        this.payloadFile = payloadFile;
+        this.timer = timer;
+        this.headCache = headCache;
+        this.params = new RequestParams();
+        this.pending = new ArrayDeque<MessageEvent>();
     }
 
     @Override
-    public void messageReceived(final ChannelHandlerContext ctx, final MessageEvent e) throws Exception {
-        count = 100;
+    public synchronized void messageReceived(final ChannelHandlerContext ctx, final MessageEvent e)
+            throws Exception {
+        if (stream != null || !pending.isEmpty()) {
+            // Pipelined requests must not be answered in the middle of the chunk stream.
+            // Stop reading until the stream is complete, so that the queue stays short.
+            pending.add(e);
+            e.getChannel().setReadable(false);
+            return;
+        }
+        handle(e);
+    }
+
+    private void handle(final MessageEvent e) {
         if (!readingChunks) {
             HttpRequest request = this.request = (HttpRequest) e.getMessage();
             String target = request.getUri();
+            fileRequest = payloadFile != null && target.startsWith("/file");
+            uploadDigest = target.startsWith("/upload") ? new UploadDigest() : null;
 
-            int idx = target.indexOf('?');
-            if (idx != -1) {
-                String s = target.substring(idx + 1);
-                if (s.startsWith("c=")) {
-                    s = s.substring(2);
-                    try {
-                        count = Integer.parseInt(s);
-                    } catch (NumberFormatException ex) {
-                        writeError(e, HttpResponseStatus.BAD_REQUEST, ex.getMessage());
-                        return;
-                    }
-                }
+            try {
+                params.parse(target);
+            } catch (NumberFormatException ex) {
+                writeError(e, HttpResponseStatus.BAD_REQUEST, BAD_REQUEST_BODY);
+                return;
             }
 
             if (is100ContinueExpected(request)) {
@@ -88,10 +148,18 @@ class RandomDataHandler extends SimpleChannelUpstreamHandler {
             if (request.isChunked()) {
                 readingChunks = true;
             } else {
+                if (uploadDigest != null) {
+                    uploadDigest.update(request.getContent().toByteBuffer());
+                }
                 writeResponse(e);
             }
         } else {
             HttpChunk chunk = (HttpChunk) e.getMessage();
+            // Large content is decoded into chunks even if not chunk coded,
+            // so the upload is checksummed without being aggregated
+            if (uploadDigest != null) {
+                uploadDigest.update(chunk.getContent().toByteBuffer());
+            }
             if (chunk.isLast()) {
                 readingChunks = false;
                 writeResponse(e);
@@ -99,14 +167,14 @@ class RandomDataHandler extends SimpleChannelUpstreamHandler {
         }
     }
 
-    private void writeError(final MessageEvent e, final HttpResponseStatus status, final String message) {
+    private void writeError(final MessageEvent e, final HttpResponseStatus status, final byte[] body) {
         // Decide whether to close the connection or not.
         boolean keepAlive = isKeepAlive(request);
 
         // Build the response object.
         HttpResponse response = new DefaultHttpResponse(HTTP_1_1, status);
-        response.setContent(ChannelBuffers.copiedBuffer(message, CharsetUtil.UTF_8));
-        response.setHeader(CONTENT_TYPE, "text/plain; charset=UTF-8");
+        response.setContent(ChannelBuffers.wrappedBuffer(body));
+        response.setHeader(CONTENT_TYPE, "text/plain");
 
         if (keepAlive) {
             // Add 'Content-Length' header only for a keep-alive connection.
@@ -126,23 +194,38 @@ class RandomDataHandler extends SimpleChannelUpstreamHandler {
     }
 
     private void writeResponse(final MessageEvent e) {
+        if (fileRequest) {
+            writeFile(e);
+            return;
+        }
+        if (uploadDigest != null) {
+            writeUploadDigest(e);
+            return;
+        }
+        if (params.isChunked()) {
+            writeChunked(e);
+            return;
+        }
+        if (headCache != null) {
+            writePreEncoded(e);
+            return;
+        }
         // Decide whether to close the connection or not.
         boolean keepAlive = isKeepAlive(request);
 
         // Build the response object.
-        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.valueOf(params.getStatus()));
 
-        byte[] buf = new byte[count];
-        int r = Math.abs(buf.hashCode());
-        for (int i = 0; i < count; i++) {
-            buf[i] = (byte) ((r + i) % 96 + 32);
+        Payload payload = payloadCache.get(params.getSize());
+        // Responses to HEAD requests describe the content without enclosing it
+        if (!HttpMethod.HEAD.equals(request.getMethod())) {
+            response.setContent(ChannelBuffers.wrappedBuffer(payload.asBuffer()));
         }
-        response.setContent(ChannelBuffers.copiedBuffer(buf));
 
         response.setHeader(CONTENT_TYPE, "text/plain");
         if (keepAlive) {
             // Add 'Content-Length' header only for a keep-alive connection.
-            response.setHeader(CONTENT_LENGTH, response.getContent().readableBytes());
+            response.setHeader(CONTENT_LENGTH, payload.size());
             // Add keep alive header as per:
             // - http://www.w3.org/Protocols/HTTP/1.1/draft-ietf-http-v11-spec-01.html#Connection
             response.setHeader(CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
@@ -157,6 +240,205 @@ class RandomDataHandler extends SimpleChannelUpstreamHandler {
         }
     }
 
+    /**
+     * Writes the pre-encoded response head and the content as one composite buffer,
+     * bypassing the response encoder. The buffer is written with a gathering write,
+     * whereas the encoder merges head and content of more than 64k into a single
+     * heap buffer, copying the content once more.
+     */
+    private void writePreEncoded(final MessageEvent e) {
+        // Decide whether to close the connection or not.
+        boolean keepAlive = isKeepAlive(request);
+
+        Payload payload = payloadCache.get(params.getSize());
+        ChannelBuffer head = headCache.get(HttpResponseStatus.valueOf(params.getStatus()), payload.size(), keepAlive);
+
+        // Responses to HEAD requests describe the content without enclosing it
+        ChannelBuffer response;
+        if (HttpMethod.HEAD.equals(request.getMethod())) {
+            response = head;
+        } else {
+            response = ChannelBuffers.wrappedBuffer(true, head, ChannelBuffers.wrappedBuffer(payload.asBuffer()));
+        }
+
+        // Write the response.
+        ChannelFuture future = e.getChannel().write(response);
+
+        // Close the non-keep-alive connection after the write operation is done.
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private void writeFile(final MessageEvent e) {
+        // Decide whether to close the connection or not.
+        boolean keepAlive = isKeepAlive(request);
+
+        long len = payloadFile.contentLength(params);
+
+        // Build the response head. The content is sent separately as a file region.
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
+        response.setHeader(CONTENT_TYPE, "application/octet-stream");
+        response.setHeader(CONTENT_LENGTH, len);
+        if (keepAlive) {
+            response.setHeader(CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+        }
+
+        Channel channel = e.getChannel();
+        ChannelFuture future = channel.write(response);
+
+        if (!HttpMethod.HEAD.equals(request.getMethod())) {
+            if (channel.getPipeline().get(SslHandler.class) != null) {
+                // Encrypted content cannot be transferred from the file directly
+                future = channel.write(
+                        new FileChunkedInput(payloadFile.getChannel(), 0, len, BenchConsts.BUF_SIZE));
+            } else {
+                // Write the content with FileChannel#transferTo. The file channel is shared
+                // and must not be released once the transfer is complete.
+                future = channel.write(
+                        new DefaultFileRegion(payloadFile.getChannel(), 0, len, false));
+            }
+        }
+
+        // Close the non-keep-alive connection after the write operation is done.
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private void writeChunked(final MessageEvent e) {
+        // Decide whether to close the connection or not.
+        boolean keepAlive = isKeepAlive(request);
+
+        // Build the response head. The content follows as HTTP chunks.
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.valueOf(params.getStatus()));
+        response.setHeader(CONTENT_TYPE, "text/plain");
+        response.setHeader(TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+        response.setChunked(true);
+        if (keepAlive) {
+            response.setHeader(CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+        }
+
+        Channel channel = e.getChannel();
+        ChannelFuture future = channel.write(response);
+
+        if (HttpMethod.HEAD.equals(request.getMethod())) {
+            if (!keepAlive) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+            return;
+        }
+        synchronized (this) {
+            stream = payloadCache.get(params.getSize()).asBuffer();
+            streamChunkSize = params.getChunkSize();
+            streamDelay = params.getDelay();
+            streamKeepAlive = keepAlive;
+            streamPaused = false;
+        }
+        writeChunks(channel);
+    }
+
+    /**
+     * Writes chunks as long as the channel is writable. Writing resumes when the
+     * channel becomes writable again or, if there is a delay between chunks,
+     * when the delay has elapsed.
+     */
+    private synchronized void writeChunks(final Channel channel) {
+        while (stream != null && !streamPaused) {
+            if (!stream.hasRemaining()) {
+                ChannelFuture future = channel.write(HttpChunk.LAST_CHUNK);
+                if (!streamKeepAlive) {
+                    future.addListener(ChannelFutureListener.CLOSE);
+                }
+                stream = null;
+                servePending(channel);
+                return;
+            }
+            if (!channel.isWritable()) {
+                return;
+            }
+            ByteBuffer chunk = stream.slice();
+            chunk.limit(Math.min(streamChunkSize, stream.remaining()));
+            stream.position(stream.position() + chunk.remaining());
+            channel.write(new DefaultHttpChunk(ChannelBuffers.wrappedBuffer(chunk)));
+            if (streamDelay > 0 && stream.hasRemaining()) {
+                streamPaused = true;
+                timer.newTimeout(new TimerTask() {
+
+                    @Override
+                    public void run(final Timeout timeout) {
+                        synchronized (RandomDataHandler.this) {
+                            streamPaused = false;
+                        }
+                        writeChunks(channel);
+                    }
+
+                }, streamDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Serves the messages received while the chunk coded response was streamed,
+     * up to the next chunk coded response, and resumes reading once all are served.
+     */
+    private void servePending(final Channel channel) {
+        if (!streamKeepAlive) {
+            pending.clear();
+            return;
+        }
+        while (stream == null && !pending.isEmpty()) {
+            handle(pending.remove());
+        }
+        if (pending.isEmpty()) {
+            channel.setReadable(true);
+        }
+    }
+
+    @Override
+    public void channelInterestChanged(final ChannelHandlerContext ctx, final ChannelStateEvent e)
+            throws Exception {
+        if (e.getChannel().isWritable()) {
+            writeChunks(e.getChannel());
+        }
+        super.channelInterestChanged(ctx, e);
+    }
+
+    @Override
+    public synchronized void channelClosed(final ChannelHandlerContext ctx, final ChannelStateEvent e)
+            throws Exception {
+        stream = null;
+        pending.clear();
+        super.channelClosed(ctx, e);
+    }
+
+    private void writeUploadDigest(final MessageEvent e) {
+        if (!HttpMethod.POST.equals(request.getMethod()) && !HttpMethod.PUT.equals(request.getMethod())) {
+            writeError(e, HttpResponseStatus.METHOD_NOT_ALLOWED, METHOD_NOT_ALLOWED_BODY);
+            return;
+        }
+        // Decide whether to close the connection or not.
+        boolean keepAlive = isKeepAlive(request);
+
+        // Echo the digest of the request content.
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
+        response.setContent(ChannelBuffers.copiedBuffer(uploadDigest.toString(), CharsetUtil.US_ASCII));
+        response.setHeader(CONTENT_TYPE, "text/plain");
+        response.setHeader(CONTENT_LENGTH, response.getContent().readableBytes());
+        if (keepAlive) {
+            response.setHeader(CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+        }
+        uploadDigest = null;
+
+        // Write the response.
+        ChannelFuture future = e.getChannel().write(response);
+
+        // Close the non-keep-alive connection after the write operation is done.
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
     private static void send100Continue(final MessageEvent e) {
         HttpResponse response = new DefaultHttpResponse(HTTP_1_1, CONTINUE);
         e.getChannel().write(response);
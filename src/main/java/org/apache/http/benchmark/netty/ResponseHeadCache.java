@@ -0,0 +1,91 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.netty;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.util.CharsetUtil;
+
+/**
+ * Heads of {@code /rnd} responses encoded once into direct buffers. The heads
+ * only vary in the status, the content length and the persistence of the
+ * connection, of which a benchmark run uses very few combinations. Heads are
+ * encoded per response once the cache is full.
+ */
+class ResponseHeadCache {
+
+    private static final int MAX_HEADS = 1024;
+
+    private final ConcurrentMap<Long, ChannelBuffer> heads;
+
+    ResponseHeadCache() {
+        super();
+        this.heads = new ConcurrentHashMap<Long, ChannelBuffer>();
+    }
+
+    /**
+     * Returns the encoded head including the empty line that terminates it.
+     * The content length is only sent on persistent connections, as by the
+     * regular response path.
+     */
+    ChannelBuffer get(final HttpResponseStatus status, final int contentLength, final boolean keepAlive) {
+        final Long key = Long.valueOf(((long) contentLength << 11) | (status.getCode() << 1) | (keepAlive ? 1 : 0));
+        ChannelBuffer head = this.heads.get(key);
+        if (head == null) {
+            head = encode(status, contentLength, keepAlive);
+            if (this.heads.size() < MAX_HEADS) {
+                final ChannelBuffer existing = this.heads.putIfAbsent(key, head);
+                if (existing != null) {
+                    head = existing;
+                }
+            }
+        }
+        // Each response gets its own reader index
+        return head.duplicate();
+    }
+
+    private static ChannelBuffer encode(
+            final HttpResponseStatus status, final int contentLength, final boolean keepAlive) {
+        final StringBuilder buf = new StringBuilder();
+        buf.append("HTTP/1.1 ").append(status).append("\r\n");
+        buf.append("Content-Type: text/plain\r\n");
+        if (keepAlive) {
+            buf.append("Content-Length: ").append(contentLength).append("\r\n");
+            buf.append("Connection: keep-alive\r\n");
+        }
+        buf.append("\r\n");
+        final byte[] b = buf.toString().getBytes(CharsetUtil.US_ASCII);
+        final ChannelBuffer head = ChannelBuffers.directBuffer(b.length);
+        head.writeBytes(b);
+        return head;
+    }
+
+}
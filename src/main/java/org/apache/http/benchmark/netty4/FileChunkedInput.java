@@ -0,0 +1,112 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.netty4;
+
+import java.io.EOFException;
+import java.nio.channels.FileChannel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.stream.ChunkedInput;
+
+/**
+ * Reads a region of a shared file channel in chunks using positional reads,
+ * for connections that cannot use zero-copy transfer because the content is
+ * encrypted. Unlike {@code ChunkedNioFile} the channel is left open at the end.
+ */
+class FileChunkedInput implements ChunkedInput<ByteBuf> {
+
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+    private final int chunkSize;
+
+    private long position;
+
+    FileChunkedInput(final FileChannel channel, final long position, final long length, final int chunkSize) {
+        super();
+        this.channel = channel;
+        this.start = position;
+        this.position = position;
+        this.end = position + length;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean isEndOfInput() {
+        return this.position >= this.end;
+    }
+
+    @Override
+    @Deprecated
+    public ByteBuf readChunk(final ChannelHandlerContext ctx) throws Exception {
+        return readChunk(ctx.alloc());
+    }
+
+    @Override
+    public ByteBuf readChunk(final ByteBufAllocator allocator) throws Exception {
+        if (this.position >= this.end) {
+            return null;
+        }
+        final int len = (int) Math.min(this.chunkSize, this.end - this.position);
+        final ByteBuf buf = allocator.buffer(len);
+        boolean release = true;
+        try {
+            while (buf.readableBytes() < len) {
+                final int n = buf.writeBytes(this.channel, this.position + buf.readableBytes(),
+                        len - buf.readableBytes());
+                if (n == -1) {
+                    throw new EOFException("Premature end of file");
+                }
+            }
+            this.position += len;
+            release = false;
+            return buf;
+        } finally {
+            if (release) {
+                buf.release();
+            }
+        }
+    }
+
+    @Override
+    public long length() {
+        return this.end - this.start;
+    }
+
+    @Override
+    public long progress() {
+        return this.position - this.start;
+    }
+
+    @Override
+    public void close() {
+        // The channel is shared
+    }
+
+}
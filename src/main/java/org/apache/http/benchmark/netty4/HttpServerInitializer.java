@@ -0,0 +1,105 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.netty4;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http2.Http2MultiplexCodecBuilder;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.PayloadFile;
+
+/**
+ * Sets up HTTP/1.1 connections or, if requested, cleartext HTTP/2 connections
+ * with prior knowledge. HTTP/2 streams are served by child channels that convert
+ * the stream frames to HTTP/1.1 objects, so the same handler serves both.
+ */
+class HttpServerInitializer extends ChannelInitializer<Channel> {
+
+    private static final long H2_MAX_CONCURRENT_STREAMS = 1000;
+
+    private final PayloadCache payloadCache;
+    private final PayloadFile payloadFile;
+    private final SSLContext sslContext;
+    private final boolean http2;
+
+    public HttpServerInitializer(
+            final PayloadCache payloadCache,
+            final PayloadFile payloadFile,
+            final SSLContext sslContext,
+            final boolean http2) {
+        super();
+        this.payloadCache = payloadCache;
+        this.payloadFile = payloadFile;
+        this.sslContext = sslContext;
+        this.http2 = http2;
+    }
+
+    @Override
+    protected void initChannel(final Channel channel) throws Exception {
+        final ChannelPipeline pipeline = channel.pipeline();
+        if (this.http2) {
+            pipeline.addLast("codec", Http2MultiplexCodecBuilder.forServer(new StreamInitializer())
+                    .initialSettings(Http2Settings.defaultSettings().maxConcurrentStreams(H2_MAX_CONCURRENT_STREAMS))
+                    .build());
+            return;
+        }
+        if (this.sslContext != null) {
+            final SSLEngine engine = this.sslContext.createSSLEngine();
+            engine.setUseClientMode(false);
+            pipeline.addLast("ssl", new SslHandler(engine));
+        }
+        pipeline.addLast("codec", new HttpServerCodec());
+        if (this.sslContext != null) {
+            // File regions cannot be encrypted, file content is written in chunks instead
+            pipeline.addLast("chunkedWriter", new ChunkedWriteHandler());
+        }
+        pipeline.addLast("handler", new RandomDataHandler(this.payloadCache, this.payloadFile));
+    }
+
+    class StreamInitializer extends ChannelInitializer<Channel> {
+
+        @Override
+        protected void initChannel(final Channel channel) throws Exception {
+            final ChannelPipeline pipeline = channel.pipeline();
+            pipeline.addLast("codec", new Http2StreamFrameToHttpObjectCodec(true));
+            // File regions cannot be written as stream frames, file content is written in chunks instead
+            pipeline.addLast("chunkedWriter", new ChunkedWriteHandler());
+            pipeline.addLast("handler", new RandomDataHandler(payloadCache, payloadFile));
+        }
+
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.netty4;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.FileRegion;
+import io.netty.util.ReferenceCountUtil;
+import org.apache.http.benchmark.InProcessChannel;
+
+/**
+ * In-process channel on top of Netty's local transport. Requests are decoded,
+ * handled and their responses encoded on the event loop of the local server
+ * channel rather than on a socket event loop.
+ */
+class LocalTransportChannel extends ChannelInboundHandlerAdapter implements InProcessChannel {
+
+    // Distinct from the empty buffers passed on by the encoder
+    private static final ByteBuf END = Unpooled.unreleasableBuffer(Unpooled.EMPTY_BUFFER);
+
+    private final int socketTimeout;
+    private final BlockingQueue<ByteBuf> queue;
+    private final InputStream instream;
+    private final OutputStream outstream;
+
+    private volatile Channel channel;
+    private ByteBuf current;
+
+    LocalTransportChannel(final int socketTimeout) {
+        super();
+        this.socketTimeout = socketTimeout;
+        this.queue = new LinkedBlockingQueue<ByteBuf>();
+        this.instream = new InputStream() {
+
+            @Override
+            public int read() throws IOException {
+                final byte[] tmp = new byte[1];
+                final int n = read(tmp, 0, 1);
+                return n == -1 ? -1 : tmp[0] & 0xff;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                return receive(b, off, len);
+            }
+
+        };
+        this.outstream = new OutputStream() {
+
+            @Override
+            public void write(final int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                send(b, off, len);
+            }
+
+        };
+    }
+
+    void setChannel(final Channel channel) {
+        this.channel = channel;
+    }
+
+    private void send(final byte[] b, final int off, final int len) throws IOException {
+        final Channel channel = this.channel;
+        if (channel == null || !channel.isActive()) {
+            throw new ClosedChannelException();
+        }
+        final ChannelFuture future = channel.writeAndFlush(Unpooled.copiedBuffer(b, off, len));
+        if (future.isDone() && !future.isSuccess()) {
+            throw new IOException("Write failed", future.cause());
+        }
+    }
+
+    private int receive(final byte[] b, final int off, final int len) throws IOException {
+        if (this.current == END) {
+            return -1;
+        }
+        while (this.current == null || !this.current.isReadable()) {
+            if (this.current != null) {
+                this.current.release();
+            }
+            try {
+                this.current = this.socketTimeout > 0
+                        ? this.queue.poll(this.socketTimeout, TimeUnit.MILLISECONDS)
+                        : this.queue.take();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (this.current == null) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            if (this.current == END) {
+                return -1;
+            }
+        }
+        final int n = Math.min(len, this.current.readableBytes());
+        this.current.readBytes(b, off, n);
+        return n;
+    }
+
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
+        if (msg instanceof ByteBuf) {
+            this.queue.add((ByteBuf) msg);
+        } else if (msg instanceof FileRegion) {
+            final FileRegion region = (FileRegion) msg;
+            try {
+                final ByteBuf buf = Unpooled.buffer((int) region.count());
+                final WritableByteChannel target = Channels.newChannel(new ByteBufOutputStream(buf));
+                long pos = 0;
+                while (pos < region.count()) {
+                    pos += region.transferTo(target, pos);
+                }
+                this.queue.add(buf);
+            } finally {
+                region.release();
+            }
+        } else {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    @Override
+    public void channelInactive(final ChannelHandlerContext ctx) {
+        this.queue.add(END);
+    }
+
+    @Override
+    public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
+        ctx.close();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return this.instream;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return this.outstream;
+    }
+
+    @Override
+    public void close() {
+        final Channel channel = this.channel;
+        if (channel != null) {
+            channel.close().awaitUninterruptibly();
+        }
+        ByteBuf buf;
+        while ((buf = this.queue.poll()) != null) {
+            buf.release();
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.netty4;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.Version;
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.HttpServer;
+import org.apache.http.benchmark.InProcessChannel;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.PayloadFile;
+import org.apache.http.benchmark.ServerConfig;
+
+/**
+ * Netty 4 server. Buffers are taken from the pooled direct allocator and the
+ * native epoll transport is used instead of NIO if requested and available.
+ * HTTP/2 is served in cleartext with prior knowledge (h2c) if requested.
+ */
+public class Netty4Server implements HttpServer {
+
+    private final int port;
+    private final ServerConfig config;
+    private final PayloadFile payloadFile;
+    private final PayloadCache payloadCache;
+    private final boolean epoll;
+    private final EventLoopGroup bossGroup;
+    private final EventLoopGroup workerGroup;
+
+    private Channel serverChannel;
+    private EventLoopGroup localGroup;
+    private Channel localServerChannel;
+    private LocalAddress localAddress;
+
+    public Netty4Server(final int port) throws IOException {
+        this(port, ServerConfig.DEFAULT);
+    }
+
+    public Netty4Server(final int port, final ServerConfig config) throws IOException {
+        super();
+        if (port <= 0) {
+            throw new IllegalArgumentException("Server port may not be negative or null");
+        }
+        if (config.isHttp2() && config.getSslContext() != null) {
+            throw new UnsupportedOperationException("HTTP/2 over TLS is not supported");
+        }
+        this.port = port;
+        this.config = config;
+        this.payloadFile = config.getFile() != null ? new PayloadFile(config.getFile()) : null;
+        this.payloadCache = new PayloadCache(config);
+        this.epoll = config.isNativeTransport() && Epoll.isAvailable();
+        // Event loop groups only start their threads once channels are registered
+        if (this.epoll) {
+            this.bossGroup = new EpollEventLoopGroup(1);
+            this.workerGroup = new EpollEventLoopGroup(config.getIoThreads());
+        } else {
+            this.bossGroup = new NioEventLoopGroup(1);
+            this.workerGroup = new NioEventLoopGroup(config.getIoThreads());
+        }
+    }
+
+    @Override
+    public String getName() {
+        final String transport = this.epoll ? "epoll" : "NIO";
+        return this.config.isHttp2() ? "Netty 4 (" + transport + ", h2c)" : "Netty 4 (" + transport + ")";
+    }
+
+    @Override
+    public String getVersion() {
+        final Version version = Version.identify().get("netty-common");
+        return version != null ? version.artifactVersion() : "4.1";
+    }
+
+    @Override
+    public int getPort() {
+        return this.port;
+    }
+
+    @Override
+    public void start() throws Exception {
+        final Class<? extends ServerChannel> channelClass = this.epoll
+                ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+        final ServerBootstrap bootstrap = new ServerBootstrap()
+                .group(this.bossGroup, this.workerGroup)
+                .channel(channelClass)
+                .option(ChannelOption.SO_REUSEADDR, Boolean.valueOf(this.config.isReuseAddress()))
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childOption(ChannelOption.TCP_NODELAY, Boolean.valueOf(BenchConsts.TCP_NO_DELAY))
+                .childHandler(new HttpServerInitializer(this.payloadCache, this.payloadFile,
+                        this.config.getSslContext(), this.config.isHttp2()));
+        if (this.config.getBacklog() > 0) {
+            bootstrap.option(ChannelOption.SO_BACKLOG, Integer.valueOf(this.config.getBacklog()));
+        }
+        this.serverChannel = bootstrap.bind(new InetSocketAddress(this.port)).sync().channel();
+    }
+
+    @Override
+    public void shutdown() {
+        if (this.serverChannel != null) {
+            this.serverChannel.close().awaitUninterruptibly();
+        }
+        synchronized (this) {
+            if (this.localGroup != null) {
+                this.localServerChannel.close().awaitUninterruptibly();
+                this.localGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly();
+            }
+        }
+        this.bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly();
+        this.workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly();
+        if (this.payloadFile != null) {
+            try {
+                this.payloadFile.close();
+            } catch (final IOException ignore) {
+            }
+        }
+    }
+
+    @Override
+    public InProcessChannel connectInProcess(final int socketTimeout) throws IOException {
+        synchronized (this) {
+            if (this.localGroup == null) {
+                this.localGroup = new DefaultEventLoopGroup(1);
+                this.localAddress = new LocalAddress("bench-" + this.port);
+                this.localServerChannel = new ServerBootstrap()
+                        .group(this.localGroup)
+                        .channel(LocalServerChannel.class)
+                        .childHandler(new HttpServerInitializer(this.payloadCache, this.payloadFile, null, false))
+                        .bind(this.localAddress)
+                        .syncUninterruptibly()
+                        .channel();
+            }
+        }
+        final LocalTransportChannel conn = new LocalTransportChannel(socketTimeout);
+        final ChannelFuture future = new Bootstrap()
+                .group(this.localGroup)
+                .channel(LocalChannel.class)
+                .handler(conn)
+                .connect(this.localAddress)
+                .awaitUninterruptibly();
+        if (!future.isSuccess()) {
+            throw new IOException("Failed to connect to " + this.localAddress, future.cause());
+        }
+        conn.setChannel(future.channel());
+        return conn;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length != 1) {
+            System.out.println("Usage: <port>");
+            System.exit(1);
+        }
+        final int port = Integer.parseInt(args[0]);
+        final Netty4Server server = new Netty4Server(port);
+        System.out.println("Listening on port: " + port);
+        server.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+
+            @Override
+            public void run() {
+                server.shutdown();
+            }
+
+        });
+    }
+
+}
@@ -0,0 +1,341 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.netty4;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.ReferenceCountUtil;
+import org.apache.http.benchmark.BenchConsts;
+import org.apache.http.benchmark.Payload;
+import org.apache.http.benchmark.PayloadCache;
+import org.apache.http.benchmark.PayloadFile;
+import org.apache.http.benchmark.RequestParams;
+import org.apache.http.benchmark.UploadDigest;
+
+/**
+ * Request content is not aggregated: uploads are checksummed as the content
+ * arrives and the response is written once the last content has been received.
+ * All callbacks, including the resumption of chunked responses after the
+ * inter-chunk delay, run on the event loop of the channel.
+ */
+class RandomDataHandler extends ChannelInboundHandlerAdapter {
+
+    private final PayloadCache payloadCache;
+    private final PayloadFile payloadFile;
+    // Handlers are created per channel, so the parameters can be reused
+    private final RequestParams params;
+
+    private HttpRequest request;
+    private boolean keepAlive;
+    private boolean fileRequest;
+    // The response to the current request has already been sent
+    private boolean rejected;
+    // Digest of the content of an upload request, null for other requests
+    private UploadDigest uploadDigest;
+    // Content of the chunk coded response being streamed, null if there is none
+    private ByteBuffer stream;
+    private int streamChunkSize;
+    private long streamDelay;
+    private boolean streamKeepAlive;
+    private boolean streamPaused;
+
+    public RandomDataHandler(final PayloadCache payloadCache, final PayloadFile payloadFile) {
+        super();
+        this.payloadCache = payloadCache;
+        this.payloadFile = payloadFile;
+        this.params = new RequestParams();
+    }
+
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
+        try {
+            if (msg instanceof HttpRequest) {
+                HttpRequest request = this.request = (HttpRequest) msg;
+                String target = request.uri();
+                keepAlive = HttpUtil.isKeepAlive(request);
+                fileRequest = payloadFile != null && target.startsWith("/file");
+                uploadDigest = target.startsWith("/upload") ? new UploadDigest() : null;
+                rejected = false;
+
+                try {
+                    params.parse(target);
+                } catch (NumberFormatException ex) {
+                    rejected = true;
+                    writeError(ctx, HttpResponseStatus.BAD_REQUEST, ex.getMessage());
+                    return;
+                }
+
+                if (HttpUtil.is100ContinueExpected(request)) {
+                    send100Continue(ctx);
+                }
+            }
+            if (msg instanceof HttpContent && !rejected) {
+                HttpContent content = (HttpContent) msg;
+                if (uploadDigest != null) {
+                    uploadDigest.update(content.content().nioBuffer());
+                }
+                if (content instanceof LastHttpContent) {
+                    writeResponse(ctx);
+                }
+            }
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    private void writeError(final ChannelHandlerContext ctx, final HttpResponseStatus status, final String message) {
+        // Build the response object.
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, status,
+                ByteBufUtil.writeUtf8(ctx.alloc(), message));
+        response.headers().set(CONTENT_TYPE, "text/plain; charset=UTF-8");
+        HttpUtil.setContentLength(response, response.content().readableBytes());
+        HttpUtil.setKeepAlive(response, keepAlive);
+
+        // Write the response.
+        ChannelFuture future = ctx.writeAndFlush(response);
+
+        // Close the non-keep-alive connection after the write operation is done.
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private void writeResponse(final ChannelHandlerContext ctx) {
+        if (fileRequest) {
+            writeFile(ctx);
+            return;
+        }
+        if (uploadDigest != null) {
+            writeUploadDigest(ctx);
+            return;
+        }
+        if (params.isChunked()) {
+            writeChunked(ctx);
+            return;
+        }
+        Payload payload = payloadCache.get(params.getSize());
+        // Responses to HEAD requests describe the content without enclosing it
+        ByteBuf content = HttpMethod.HEAD.equals(request.method())
+                ? Unpooled.EMPTY_BUFFER : Unpooled.wrappedBuffer(payload.asBuffer());
+
+        // Build the response object.
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1,
+                HttpResponseStatus.valueOf(params.getStatus()), content);
+        response.headers().set(CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN);
+        HttpUtil.setContentLength(response, payload.size());
+        HttpUtil.setKeepAlive(response, keepAlive);
+
+        // Write the response.
+        ChannelFuture future = ctx.writeAndFlush(response);
+
+        // Close the non-keep-alive connection after the write operation is done.
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private void writeFile(final ChannelHandlerContext ctx) {
+        long len = payloadFile.contentLength(params);
+
+        // Build the response head. The content is sent separately as a file region.
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
+        response.headers().set(CONTENT_TYPE, HttpHeaderValues.APPLICATION_OCTET_STREAM);
+        HttpUtil.setContentLength(response, len);
+        HttpUtil.setKeepAlive(response, keepAlive);
+        ctx.write(response);
+
+        ChannelFuture future;
+        if (HttpMethod.HEAD.equals(request.method())) {
+            future = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        } else if (ctx.pipeline().get(ChunkedWriteHandler.class) != null) {
+            // Encrypted content or HTTP/2 stream content cannot be transferred from the file directly
+            future = ctx.writeAndFlush(new HttpChunkedInput(
+                    new FileChunkedInput(payloadFile.getChannel(), 0, len, BenchConsts.BUF_SIZE)));
+        } else {
+            // Write the content with FileChannel#transferTo (sendfile with the epoll transport)
+            ctx.write(new SharedFileRegion(payloadFile.getChannel(), 0, len));
+            future = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        }
+
+        // Close the non-keep-alive connection after the write operation is done.
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private void writeChunked(final ChannelHandlerContext ctx) {
+        // Build the response head. The content follows as HTTP chunks.
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.valueOf(params.getStatus()));
+        response.headers().set(CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN);
+        HttpUtil.setTransferEncodingChunked(response, true);
+        HttpUtil.setKeepAlive(response, keepAlive);
+        ctx.writeAndFlush(response);
+
+        if (HttpMethod.HEAD.equals(request.method())) {
+            ChannelFuture future = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+            if (!keepAlive) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+            return;
+        }
+        stream = payloadCache.get(params.getSize()).asBuffer();
+        streamChunkSize = params.getChunkSize();
+        streamDelay = params.getDelay();
+        streamKeepAlive = keepAlive;
+        streamPaused = false;
+        writeChunks(ctx);
+    }
+
+    /**
+     * Writes chunks as long as the channel is writable. Writing resumes when the
+     * channel becomes writable again or, if there is a delay between chunks,
+     * when the delay has elapsed.
+     */
+    private void writeChunks(final ChannelHandlerContext ctx) {
+        while (stream != null && !streamPaused) {
+            if (!stream.hasRemaining()) {
+                ChannelFuture future = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+                if (!streamKeepAlive) {
+                    future.addListener(ChannelFutureListener.CLOSE);
+                }
+                stream = null;
+                return;
+            }
+            if (!ctx.channel().isWritable()) {
+                return;
+            }
+            ByteBuffer chunk = stream.slice();
+            chunk.limit(Math.min(streamChunkSize, stream.remaining()));
+            stream.position(stream.position() + chunk.remaining());
+            ctx.writeAndFlush(new DefaultHttpContent(Unpooled.wrappedBuffer(chunk)));
+            if (streamDelay > 0 && stream.hasRemaining()) {
+                streamPaused = true;
+                ctx.executor().schedule(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        streamPaused = false;
+                        writeChunks(ctx);
+                    }
+
+                }, streamDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(final ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            writeChunks(ctx);
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(final ChannelHandlerContext ctx) throws Exception {
+        stream = null;
+        super.channelInactive(ctx);
+    }
+
+    private void writeUploadDigest(final ChannelHandlerContext ctx) {
+        if (!HttpMethod.POST.equals(request.method()) && !HttpMethod.PUT.equals(request.method())) {
+            writeError(ctx, HttpResponseStatus.METHOD_NOT_ALLOWED, request.method() + " method not supported");
+            return;
+        }
+        // Echo the digest of the request content.
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, OK,
+                ByteBufUtil.writeAscii(ctx.alloc(), uploadDigest.toString()));
+        response.headers().set(CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN);
+        HttpUtil.setContentLength(response, response.content().readableBytes());
+        HttpUtil.setKeepAlive(response, keepAlive);
+        uploadDigest = null;
+
+        // Write the response.
+        ChannelFuture future = ctx.writeAndFlush(response);
+
+        // Close the non-keep-alive connection after the write operation is done.
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private static void send100Continue(final ChannelHandlerContext ctx) {
+        ctx.writeAndFlush(new DefaultFullHttpResponse(HTTP_1_1, CONTINUE));
+    }
+
+    @Override
+    public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) throws Exception {
+        cause.printStackTrace();
+        ctx.close();
+    }
+
+    /**
+     * Region of the shared payload file. The file channel must stay open once
+     * the transfer is complete.
+     */
+    static class SharedFileRegion extends DefaultFileRegion {
+
+        SharedFileRegion(final FileChannel file, final long position, final long count) {
+            super(file, position, count);
+        }
+
+        @Override
+        protected void deallocate() {
+        }
+
+    }
+
+}
@@ -0,0 +1,470 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.result;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.http.benchmark.client.LatencyHistogram;
+import org.apache.http.benchmark.client.LoadResult;
+
+/**
+ * Outcome of one measured run in a form that can be exported and compared.
+ * Latency figures are in milliseconds and are {@code NaN} if latency was not
+ * recorded. Runs are identified by server name, mode and parameters; the
+ * version is deliberately not part of the key so that runs of different
+ * library versions can be compared.
+ */
+public final class BenchResult {
+
+    private final String serverName;
+    private final String serverVersion;
+    private final String mode;
+    private final long timestamp;
+    private final Map<String, String> parameters;
+    private final int concurrency;
+    private final double durationMillis;
+    private final long successCount;
+    private final long failureCount;
+    private final long bytesReceived;
+    private final long bytesSent;
+    private final double requestsPerSecond;
+    private final double latencyMean;
+    private final double latencyP50;
+    private final double latencyP90;
+    private final double latencyP99;
+    private final double latencyP999;
+    private final double latencyMax;
+    private final long gcCount;
+    private final long gcTimeMillis;
+    private final double cpuTimeMillis;
+    private final double serverCpuTimeMillis;
+    private final long allocatedBytes;
+    private final int threadCount;
+    private final int peakThreadCount;
+
+    BenchResult(final Builder builder) {
+        super();
+        this.serverName = builder.serverName;
+        this.serverVersion = builder.serverVersion;
+        this.mode = builder.mode;
+        this.timestamp = builder.timestamp;
+        this.parameters = Collections.unmodifiableMap(new LinkedHashMap<String, String>(builder.parameters));
+        this.concurrency = builder.concurrency;
+        this.durationMillis = builder.durationMillis;
+        this.successCount = builder.successCount;
+        this.failureCount = builder.failureCount;
+        this.bytesReceived = builder.bytesReceived;
+        this.bytesSent = builder.bytesSent;
+        this.requestsPerSecond = builder.requestsPerSecond;
+        this.latencyMean = builder.latencyMean;
+        this.latencyP50 = builder.latencyP50;
+        this.latencyP90 = builder.latencyP90;
+        this.latencyP99 = builder.latencyP99;
+        this.latencyP999 = builder.latencyP999;
+        this.latencyMax = builder.latencyMax;
+        this.gcCount = builder.gcCount;
+        this.gcTimeMillis = builder.gcTimeMillis;
+        this.cpuTimeMillis = builder.cpuTimeMillis;
+        this.serverCpuTimeMillis = builder.serverCpuTimeMillis;
+        this.allocatedBytes = builder.allocatedBytes;
+        this.threadCount = builder.threadCount;
+        this.peakThreadCount = builder.peakThreadCount;
+    }
+
+    public String getServerName() {
+        return this.serverName;
+    }
+
+    public String getServerVersion() {
+        return this.serverVersion;
+    }
+
+    /**
+     * Returns the load generation mode such as {@code closed-loop}, {@code open-loop},
+     * {@code pipelined} or {@code h2c}.
+     */
+    public String getMode() {
+        return this.mode;
+    }
+
+    /**
+     * Returns the time the run was completed in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    /**
+     * Returns the settings that distinguish the run from other runs of the same server and mode.
+     */
+    public Map<String, String> getParameters() {
+        return this.parameters;
+    }
+
+    public int getConcurrency() {
+        return this.concurrency;
+    }
+
+    public double getDurationMillis() {
+        return this.durationMillis;
+    }
+
+    public long getSuccessCount() {
+        return this.successCount;
+    }
+
+    public long getFailureCount() {
+        return this.failureCount;
+    }
+
+    public long getBytesReceived() {
+        return this.bytesReceived;
+    }
+
+    public long getBytesSent() {
+        return this.bytesSent;
+    }
+
+    public double getRequestsPerSecond() {
+        return this.requestsPerSecond;
+    }
+
+    public double getLatencyMean() {
+        return this.latencyMean;
+    }
+
+    public double getLatencyP50() {
+        return this.latencyP50;
+    }
+
+    public double getLatencyP90() {
+        return this.latencyP90;
+    }
+
+    public double getLatencyP99() {
+        return this.latencyP99;
+    }
+
+    public double getLatencyP999() {
+        return this.latencyP999;
+    }
+
+    public double getLatencyMax() {
+        return this.latencyMax;
+    }
+
+    /**
+     * Returns the number of garbage collections during the run or {@code -1} if not recorded.
+     */
+    public long getGcCount() {
+        return this.gcCount;
+    }
+
+    /**
+     * Returns the time spent in garbage collection during the run or {@code -1} if not recorded.
+     */
+    public long getGcTimeMillis() {
+        return this.gcTimeMillis;
+    }
+
+    /**
+     * Returns process CPU time in milliseconds or {@code -1} if not available.
+     */
+    public double getCpuTimeMillis() {
+        return this.cpuTimeMillis;
+    }
+
+    /**
+     * Returns CPU time of the server threads in milliseconds or {@code -1} if not available.
+     */
+    public double getServerCpuTimeMillis() {
+        return this.serverCpuTimeMillis;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the server threads or {@code -1} if not available.
+     */
+    public long getAllocatedBytes() {
+        return this.allocatedBytes;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the server threads per successful request
+     * or {@code NaN} if not available.
+     */
+    public double getAllocatedBytesPerRequest() {
+        return this.allocatedBytes >= 0 && this.successCount > 0
+                ? (double) this.allocatedBytes / this.successCount : Double.NaN;
+    }
+
+    /**
+     * Returns the number of server threads at the end of the run or {@code -1} if not recorded.
+     */
+    public int getThreadCount() {
+        return this.threadCount;
+    }
+
+    /**
+     * Returns the peak number of threads of the process during the run or {@code -1} if not recorded.
+     */
+    public int getPeakThreadCount() {
+        return this.peakThreadCount;
+    }
+
+    /**
+     * Returns the key identifying comparable runs.
+     */
+    public String getKey() {
+        final StringBuilder buf = new StringBuilder();
+        buf.append(this.serverName).append(' ').append(this.mode);
+        for (final Map.Entry<String, String> entry : this.parameters.entrySet()) {
+            buf.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return buf.toString();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder();
+        buf.append("[server=").append(this.serverName)
+            .append(", version=").append(this.serverVersion)
+            .append(", mode=").append(this.mode)
+            .append(", parameters=").append(this.parameters)
+            .append(", requestsPerSecond=").append(this.requestsPerSecond)
+            .append(", failureCount=").append(this.failureCount)
+            .append("]");
+        return buf.toString();
+    }
+
+    public static BenchResult.Builder custom() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private String serverName;
+        private String serverVersion;
+        private String mode;
+        private long timestamp;
+        private final Map<String, String> parameters;
+        private int concurrency;
+        private double durationMillis;
+        private long successCount;
+        private long failureCount;
+        private long bytesReceived;
+        private long bytesSent;
+        private double requestsPerSecond;
+        private double latencyMean;
+        private double latencyP50;
+        private double latencyP90;
+        private double latencyP99;
+        private double latencyP999;
+        private double latencyMax;
+        private long gcCount;
+        private long gcTimeMillis;
+        private double cpuTimeMillis;
+        private double serverCpuTimeMillis;
+        private long allocatedBytes;
+        private int threadCount;
+        private int peakThreadCount;
+
+        Builder() {
+            this.timestamp = System.currentTimeMillis();
+            this.parameters = new LinkedHashMap<String, String>();
+            this.latencyMean = Double.NaN;
+            this.latencyP50 = Double.NaN;
+            this.latencyP90 = Double.NaN;
+            this.latencyP99 = Double.NaN;
+            this.latencyP999 = Double.NaN;
+            this.latencyMax = Double.NaN;
+            this.gcCount = -1;
+            this.gcTimeMillis = -1;
+            this.cpuTimeMillis = -1;
+            this.serverCpuTimeMillis = -1;
+            this.allocatedBytes = -1;
+            this.threadCount = -1;
+            this.peakThreadCount = -1;
+        }
+
+        public Builder setServer(final String serverName, final String serverVersion) {
+            this.serverName = serverName;
+            this.serverVersion = serverVersion;
+            return this;
+        }
+
+        public Builder setMode(final String mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public Builder setTimestamp(final long timestamp) {
+            this.timestamp = timestamp;
+            return this;
+        }
+
+        public Builder setParameter(final String name, final Object value) {
+            this.parameters.put(name, String.valueOf(value));
+            return this;
+        }
+
+        public Builder setConcurrency(final int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        public Builder setDurationMillis(final double durationMillis) {
+            this.durationMillis = durationMillis;
+            return this;
+        }
+
+        public Builder setSuccessCount(final long successCount) {
+            this.successCount = successCount;
+            return this;
+        }
+
+        public Builder setFailureCount(final long failureCount) {
+            this.failureCount = failureCount;
+            return this;
+        }
+
+        public Builder setBytesReceived(final long bytesReceived) {
+            this.bytesReceived = bytesReceived;
+            return this;
+        }
+
+        public Builder setBytesSent(final long bytesSent) {
+            this.bytesSent = bytesSent;
+            return this;
+        }
+
+        public Builder setRequestsPerSecond(final double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+            return this;
+        }
+
+        public Builder setLatency(
+                final double mean,
+                final double p50,
+                final double p90,
+                final double p99,
+                final double p999,
+                final double max) {
+            this.latencyMean = mean;
+            this.latencyP50 = p50;
+            this.latencyP90 = p90;
+            this.latencyP99 = p99;
+            this.latencyP999 = p999;
+            this.latencyMax = max;
+            return this;
+        }
+
+        public Builder setLatency(final LatencyHistogram histogram) {
+            return setLatency(
+                    histogram.getMean() / 1000000.0,
+                    histogram.getValueAtPercentile(50.0) / 1000000.0,
+                    histogram.getValueAtPercentile(90.0) / 1000000.0,
+                    histogram.getValueAtPercentile(99.0) / 1000000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000000.0,
+                    histogram.getMaxValue() / 1000000.0);
+        }
+
+        /**
+         * Sets the counters, the throughput and the latency distribution of a load generator run.
+         */
+        public Builder setLoadResult(final LoadResult result) {
+            this.concurrency = result.getConcurrency();
+            this.durationMillis = result.getDurationNanos() / 1000000.0;
+            this.successCount = result.getSuccessCount();
+            this.failureCount = result.getFailureCount();
+            this.bytesReceived = result.getBytesReceived();
+            this.bytesSent = result.getBytesSent();
+            this.requestsPerSecond = result.getRequestsPerSecond();
+            return setLatency(result.getLatency());
+        }
+
+        /**
+         * Sets the runtime statistics of the run, unless {@code null}.
+         */
+        public Builder setRuntimeStats(final RuntimeStats stats) {
+            if (stats == null) {
+                return this;
+            }
+            this.gcCount = stats.getGcCount();
+            this.gcTimeMillis = stats.getGcTimeMillis();
+            this.cpuTimeMillis = stats.getCpuTimeNanos() >= 0 ? stats.getCpuTimeNanos() / 1000000.0 : -1;
+            this.serverCpuTimeMillis = stats.getServerCpuTimeNanos() >= 0
+                    ? stats.getServerCpuTimeNanos() / 1000000.0 : -1;
+            this.allocatedBytes = stats.getServerAllocatedBytes();
+            this.threadCount = stats.getServerThreadCount();
+            this.peakThreadCount = stats.getPeakThreadCount();
+            return this;
+        }
+
+        public Builder setGcCount(final long gcCount) {
+            this.gcCount = gcCount;
+            return this;
+        }
+
+        public Builder setGcTimeMillis(final long gcTimeMillis) {
+            this.gcTimeMillis = gcTimeMillis;
+            return this;
+        }
+
+        public Builder setCpuTimeMillis(final double cpuTimeMillis) {
+            this.cpuTimeMillis = cpuTimeMillis;
+            return this;
+        }
+
+        public Builder setServerCpuTimeMillis(final double serverCpuTimeMillis) {
+            this.serverCpuTimeMillis = serverCpuTimeMillis;
+            return this;
+        }
+
+        public Builder setAllocatedBytes(final long allocatedBytes) {
+            this.allocatedBytes = allocatedBytes;
+            return this;
+        }
+
+        public Builder setThreadCount(final int threadCount) {
+            this.threadCount = threadCount;
+            return this;
+        }
+
+        public Builder setPeakThreadCount(final int peakThreadCount) {
+            this.peakThreadCount = peakThreadCount;
+            return this;
+        }
+
+        public BenchResult build() {
+            return new BenchResult(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.result;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Summary of repeated measurement iterations. The results are grouped by
+ * their key and for each metric the mean is reported together with the half
+ * width of its 95% confidence interval, based on Student's t distribution.
+ */
+public final class IterationSummary {
+
+    // Two-sided 95% critical values of Student's t distribution for 1 to 30 degrees of freedom
+    private static final double[] T_95 = {
+        12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+        2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+        2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+    };
+    private static final double Z_95 = 1.960;
+
+    private IterationSummary() {
+    }
+
+    public static void print(final List<BenchResult> results, final PrintStream out) {
+        final Map<String, List<BenchResult>> map = new LinkedHashMap<String, List<BenchResult>>();
+        for (final BenchResult result : results) {
+            List<BenchResult> list = map.get(result.getKey());
+            if (list == null) {
+                list = new ArrayList<BenchResult>();
+                map.put(result.getKey(), list);
+            }
+            list.add(result);
+        }
+        for (final Map.Entry<String, List<BenchResult>> entry : map.entrySet()) {
+            final List<BenchResult> list = entry.getValue();
+            final int n = list.size();
+            final double[] requestsPerSecond = new double[n];
+            final double[] latencyP50 = new double[n];
+            final double[] latencyP99 = new double[n];
+            final double[] allocated = new double[n];
+            for (int i = 0; i < n; i++) {
+                final BenchResult result = list.get(i);
+                requestsPerSecond[i] = result.getRequestsPerSecond();
+                latencyP50[i] = result.getLatencyP50();
+                latencyP99[i] = result.getLatencyP99();
+                allocated[i] = result.getAllocatedBytesPerRequest();
+            }
+            out.println(entry.getKey());
+            out.println(String.format(Locale.ROOT, "  %-22s%14s%14s", "", "mean", "95% CI"));
+            printMetric(out, "Requests per second", requestsPerSecond);
+            printMetric(out, "p50 [ms]", latencyP50);
+            printMetric(out, "p99 [ms]", latencyP99);
+            printMetric(out, "Allocated [B/req]", allocated);
+            out.println(String.format(Locale.ROOT, "  %-22s%14d", "Iterations", n));
+            out.println();
+        }
+    }
+
+    private static void printMetric(final PrintStream out, final String name, final double[] values) {
+        final double mean = getMean(values);
+        if (Double.isNaN(mean)) {
+            return;
+        }
+        final double halfWidth = getHalfWidth(values);
+        out.println(String.format(Locale.ROOT, "  %-22s%14.3f%14s%s", name, mean,
+                Double.isNaN(halfWidth) ? "-" : String.format(Locale.ROOT, "+/- %.3f", halfWidth),
+                Double.isNaN(halfWidth) || mean == 0
+                        ? "" : String.format(Locale.ROOT, " (%.1f%%)", halfWidth * 100 / mean)));
+    }
+
+    /**
+     * Returns the mean of the values or {@code NaN} if any value is {@code NaN}.
+     */
+    static double getMean(final double[] values) {
+        double sum = 0;
+        for (final double value : values) {
+            sum += value;
+        }
+        return values.length > 0 ? sum / values.length : Double.NaN;
+    }
+
+    /**
+     * Returns the half width of the 95% confidence interval of the mean of the values
+     * or {@code NaN} if there are less than two values.
+     */
+    static double getHalfWidth(final double[] values) {
+        final int n = values.length;
+        if (n < 2) {
+            return Double.NaN;
+        }
+        final double mean = getMean(values);
+        double sum = 0;
+        for (final double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        final double stdDev = Math.sqrt(sum / (n - 1));
+        final double t = n - 1 <= T_95.length ? T_95[n - 2] : Z_95;
+        return t * stdDev / Math.sqrt(n);
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.result;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON parser sufficient to read back result files. Objects are
+ * represented as {@link Map}s preserving member order, arrays as {@link List}s,
+ * numbers as {@link Double}s.
+ */
+final class JsonParser {
+
+    private final CharSequence s;
+    private int pos;
+
+    private JsonParser(final CharSequence s) {
+        this.s = s;
+    }
+
+    static Object parse(final CharSequence s) throws IOException {
+        final JsonParser parser = new JsonParser(s);
+        final Object value = parser.parseValue();
+        parser.skipWhitespace();
+        if (parser.pos < s.length()) {
+            throw parser.error("Unexpected content");
+        }
+        return value;
+    }
+
+    private IOException error(final String message) {
+        return new IOException(message + " at offset " + this.pos);
+    }
+
+    private void skipWhitespace() {
+        while (this.pos < this.s.length() && Character.isWhitespace(this.s.charAt(this.pos))) {
+            this.pos++;
+        }
+    }
+
+    private char peek() throws IOException {
+        skipWhitespace();
+        if (this.pos >= this.s.length()) {
+            throw error("Unexpected end of input");
+        }
+        return this.s.charAt(this.pos);
+    }
+
+    private void expect(final char ch) throws IOException {
+        if (peek() != ch) {
+            throw error("Expected '" + ch + "'");
+        }
+        this.pos++;
+    }
+
+    private Object parseValue() throws IOException {
+        final char ch = peek();
+        switch (ch) {
+            case '{':
+                return parseObject();
+            case '[':
+                return parseArray();
+            case '"':
+                return parseString();
+            case 't':
+                parseLiteral("true");
+                return Boolean.TRUE;
+            case 'f':
+                parseLiteral("false");
+                return Boolean.FALSE;
+            case 'n':
+                parseLiteral("null");
+                return null;
+            default:
+                return parseNumber();
+        }
+    }
+
+    private Map<String, Object> parseObject() throws IOException {
+        expect('{');
+        final Map<String, Object> map = new LinkedHashMap<String, Object>();
+        if (peek() == '}') {
+            this.pos++;
+            return map;
+        }
+        for (;;) {
+            if (peek() != '"') {
+                throw error("Expected member name");
+            }
+            final String name = parseString();
+            expect(':');
+            map.put(name, parseValue());
+            if (peek() == ',') {
+                this.pos++;
+            } else {
+                expect('}');
+                return map;
+            }
+        }
+    }
+
+    private List<Object> parseArray() throws IOException {
+        expect('[');
+        final List<Object> list = new ArrayList<Object>();
+        if (peek() == ']') {
+            this.pos++;
+            return list;
+        }
+        for (;;) {
+            list.add(parseValue());
+            if (peek() == ',') {
+                this.pos++;
+            } else {
+                expect(']');
+                return list;
+            }
+        }
+    }
+
+    private String parseString() throws IOException {
+        expect('"');
+        final StringBuilder buf = new StringBuilder();
+        while (this.pos < this.s.length()) {
+            final char ch = this.s.charAt(this.pos++);
+            if (ch == '"') {
+                return buf.toString();
+            }
+            if (ch != '\\') {
+                buf.append(ch);
+                continue;
+            }
+            if (this.pos >= this.s.length()) {
+                break;
+            }
+            final char esc = this.s.charAt(this.pos++);
+            switch (esc) {
+                case 'b':
+                    buf.append('\b');
+                    break;
+                case 'f':
+                    buf.append('\f');
+                    break;
+                case 'n':
+                    buf.append('\n');
+                    break;
+                case 'r':
+                    buf.append('\r');
+                    break;
+                case 't':
+                    buf.append('\t');
+                    break;
+                case 'u':
+                    if (this.pos + 4 > this.s.length()) {
+                        throw error("Invalid unicode escape");
+                    }
+                    try {
+                        buf.append((char) Integer.parseInt(this.s.subSequence(this.pos, this.pos + 4).toString(), 16));
+                    } catch (final NumberFormatException ex) {
+                        throw error("Invalid unicode escape");
+                    }
+                    this.pos += 4;
+                    break;
+                default:
+                    buf.append(esc);
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private void parseLiteral(final String literal) throws IOException {
+        if (this.pos + literal.length() > this.s.length()
+                || !literal.contentEquals(this.s.subSequence(this.pos, this.pos + literal.length()))) {
+            throw error("Unexpected token");
+        }
+        this.pos += literal.length();
+    }
+
+    private Double parseNumber() throws IOException {
+        final int start = this.pos;
+        while (this.pos < this.s.length() && "+-0123456789.eE".indexOf(this.s.charAt(this.pos)) >= 0) {
+            this.pos++;
+        }
+        if (start == this.pos) {
+            throw error("Unexpected character");
+        }
+        try {
+            return Double.valueOf(this.s.subSequence(start, this.pos).toString());
+        } catch (final NumberFormatException ex) {
+            throw error("Invalid number");
+        }
+    }
+
+}
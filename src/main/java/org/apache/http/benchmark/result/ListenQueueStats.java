@@ -0,0 +1,111 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.result;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Snapshot of the cumulative listen queue counters of the operating system:
+ * connections dropped because the accept queue of a listening socket was full
+ * ({@code ListenOverflows}) and connection requests dropped for any reason
+ * ({@code ListenDrops}). The counters are system wide and read from
+ * {@code /proc/net/netstat}, so they are only available on Linux.
+ */
+public final class ListenQueueStats {
+
+    private static final File NETSTAT = new File("/proc/net/netstat");
+
+    private final long overflows;
+    private final long drops;
+
+    ListenQueueStats(final long overflows, final long drops) {
+        super();
+        this.overflows = overflows;
+        this.drops = drops;
+    }
+
+    public static ListenQueueStats capture() {
+        long overflows = -1;
+        long drops = -1;
+        if (NETSTAT.canRead()) {
+            try {
+                final BufferedReader reader = new BufferedReader(new FileReader(NETSTAT));
+                try {
+                    // Pairs of lines: counter names followed by their values
+                    String names;
+                    while ((names = reader.readLine()) != null) {
+                        final String values = reader.readLine();
+                        if (values == null || !names.startsWith("TcpExt:")) {
+                            continue;
+                        }
+                        final String[] n = names.split(" ");
+                        final String[] v = values.split(" ");
+                        for (int i = 1; i < n.length && i < v.length; i++) {
+                            if (n[i].equals("ListenOverflows")) {
+                                overflows = Long.parseLong(v[i]);
+                            } else if (n[i].equals("ListenDrops")) {
+                                drops = Long.parseLong(v[i]);
+                            }
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (final IOException ignore) {
+            } catch (final NumberFormatException ignore) {
+            }
+        }
+        return new ListenQueueStats(overflows, drops);
+    }
+
+    /**
+     * Returns the counts between the given earlier snapshot and this one.
+     */
+    public ListenQueueStats since(final ListenQueueStats start) {
+        return new ListenQueueStats(
+                this.overflows >= 0 && start.overflows >= 0 ? this.overflows - start.overflows : -1,
+                this.drops >= 0 && start.drops >= 0 ? this.drops - start.drops : -1);
+    }
+
+    /**
+     * Returns the number of accept queue overflows or {@code -1} if not supported by the platform.
+     */
+    public long getOverflows() {
+        return this.overflows;
+    }
+
+    /**
+     * Returns the number of dropped connection requests or {@code -1} if not supported by the platform.
+     */
+    public long getDrops() {
+        return this.drops;
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.result;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two sets of results and flags regressions. Results are matched
+ * by {@link BenchResult#getKey()}; repeated runs of the same configuration
+ * are averaged. A regression is a drop in throughput or an increase of median
+ * or 99th percentile latency by more than the noise threshold, or a higher
+ * share of failed requests.
+ */
+public final class ResultComparison {
+
+    /**
+     * Failure ratio increase (in absolute terms) tolerated before it is flagged.
+     */
+    private static final double FAILURE_RATIO_TOLERANCE = 0.001;
+
+    private final double threshold;
+
+    /**
+     * @param threshold relative change considered to be noise, e.g. {@code 0.05} for 5%.
+     */
+    public ResultComparison(final double threshold) {
+        super();
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold may not be negative");
+        }
+        this.threshold = threshold;
+    }
+
+    /**
+     * Prints the comparison and returns the number of regressions found.
+     */
+    public int compare(final List<BenchResult> baseline, final List<BenchResult> current, final PrintStream out) {
+        final Map<String, Summary> before = summarize(baseline);
+        final Map<String, Summary> after = summarize(current);
+        int regressions = 0;
+        for (final Map.Entry<String, Summary> entry : after.entrySet()) {
+            final String key = entry.getKey();
+            final Summary b = before.get(key);
+            final Summary a = entry.getValue();
+            out.println(key);
+            if (b == null) {
+                out.println("  no baseline");
+                out.println();
+                continue;
+            }
+            out.println(String.format(Locale.ROOT, "  %-22s%14s%14s%10s", "", "baseline", "current", "change"));
+            regressions += compareMetric(out, "Requests per second", b.getRequestsPerSecond(),
+                    a.getRequestsPerSecond(), false);
+            regressions += compareMetric(out, "p50 [ms]", b.getLatencyP50(), a.getLatencyP50(), true);
+            regressions += compareMetric(out, "p99 [ms]", b.getLatencyP99(), a.getLatencyP99(), true);
+            regressions += compareMetric(out, "Allocated [B/req]", b.getAllocatedBytesPerRequest(),
+                    a.getAllocatedBytesPerRequest(), true);
+            final boolean failed = a.getFailureRatio() > b.getFailureRatio() + FAILURE_RATIO_TOLERANCE;
+            out.println(String.format(Locale.ROOT, "  %-22s%13.3f%%%13.3f%%%10s%s", "Failed requests",
+                    b.getFailureRatio() * 100, a.getFailureRatio() * 100, "", failed ? "  REGRESSION" : ""));
+            if (failed) {
+                regressions++;
+            }
+            out.println();
+        }
+        for (final String key : before.keySet()) {
+            if (!after.containsKey(key)) {
+                out.println(key);
+                out.println("  missing from current results");
+                out.println();
+            }
+        }
+        out.println(String.format(Locale.ROOT, "Regressions (threshold %.1f%%):\t%d",
+                this.threshold * 100, regressions));
+        return regressions;
+    }
+
+    private int compareMetric(
+            final PrintStream out,
+            final String name,
+            final double before,
+            final double after,
+            final boolean lowerIsBetter) {
+        if (Double.isNaN(before) || Double.isNaN(after)) {
+            return 0;
+        }
+        final double change = before != 0 ? (after - before) / before : 0;
+        final boolean regression = lowerIsBetter ? change > this.threshold : change < -this.threshold;
+        out.println(String.format(Locale.ROOT, "  %-22s%14.3f%14.3f%+9.1f%%%s",
+                name, before, after, change * 100, regression ? "  REGRESSION" : ""));
+        return regression ? 1 : 0;
+    }
+
+    private static Map<String, Summary> summarize(final List<BenchResult> results) {
+        final Map<String, Summary> map = new LinkedHashMap<String, Summary>();
+        for (final BenchResult result : results) {
+            Summary summary = map.get(result.getKey());
+            if (summary == null) {
+                summary = new Summary();
+                map.put(result.getKey(), summary);
+            }
+            summary.add(result);
+        }
+        return map;
+    }
+
+    static class Summary {
+
+        private int count;
+        private int latencyCount;
+        private double requestsPerSecond;
+        private double latencyP50;
+        private double latencyP99;
+        private long successCount;
+        private long failureCount;
+        private long allocatedBytes;
+        private long allocatedSuccessCount;
+
+        void add(final BenchResult result) {
+            this.count++;
+            this.requestsPerSecond += result.getRequestsPerSecond();
+            if (!Double.isNaN(result.getLatencyP50()) && !Double.isNaN(result.getLatencyP99())) {
+                this.latencyCount++;
+                this.latencyP50 += result.getLatencyP50();
+                this.latencyP99 += result.getLatencyP99();
+            }
+            this.successCount += result.getSuccessCount();
+            this.failureCount += result.getFailureCount();
+            if (result.getAllocatedBytes() >= 0) {
+                this.allocatedBytes += result.getAllocatedBytes();
+                this.allocatedSuccessCount += result.getSuccessCount();
+            }
+        }
+
+        double getRequestsPerSecond() {
+            return this.requestsPerSecond / this.count;
+        }
+
+        double getLatencyP50() {
+            return this.latencyCount > 0 ? this.latencyP50 / this.latencyCount : Double.NaN;
+        }
+
+        double getLatencyP99() {
+            return this.latencyCount > 0 ? this.latencyP99 / this.latencyCount : Double.NaN;
+        }
+
+        double getAllocatedBytesPerRequest() {
+            return this.allocatedSuccessCount > 0
+                    ? (double) this.allocatedBytes / this.allocatedSuccessCount : Double.NaN;
+        }
+
+        double getFailureRatio() {
+            final long total = this.successCount + this.failureCount;
+            return total > 0 ? (double) this.failureCount / total : 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,255 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.result;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads results written by {@link ResultWriter}.
+ */
+public final class ResultReader {
+
+    private ResultReader() {
+    }
+
+    public static List<BenchResult> read(final File file) throws IOException {
+        final String content = readContent(file);
+        try {
+            return ResultWriter.isCsv(file) ? parseCsv(content) : parseJson(content);
+        } catch (final IOException ex) {
+            throw new IOException("Invalid result file " + file + ": " + ex.getMessage());
+        }
+    }
+
+    private static String readContent(final File file) throws IOException {
+        final Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            final StringBuilder buf = new StringBuilder();
+            final char[] tmp = new char[4096];
+            int l;
+            while ((l = reader.read(tmp)) != -1) {
+                buf.append(tmp, 0, l);
+            }
+            return buf.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    static List<BenchResult> parseJson(final CharSequence content) throws IOException {
+        final Object root = JsonParser.parse(content);
+        if (!(root instanceof Map)) {
+            throw new IOException("Expected JSON object");
+        }
+        final Object list = ((Map<?, ?>) root).get("results");
+        if (!(list instanceof List)) {
+            throw new IOException("Expected 'results' array");
+        }
+        final DateFormat dateFormat = ResultWriter.createDateFormat();
+        final List<BenchResult> results = new ArrayList<BenchResult>();
+        for (final Object item : (List<?>) list) {
+            if (!(item instanceof Map)) {
+                throw new IOException("Expected result object");
+            }
+            final Map<?, ?> map = (Map<?, ?>) item;
+            final BenchResult.Builder builder = BenchResult.custom()
+                    .setServer(getString(map, "server"), getString(map, "version"))
+                    .setMode(getString(map, "mode"))
+                    .setTimestamp(parseTimestamp(dateFormat, getString(map, "timestamp")))
+                    .setConcurrency((int) getNumber(map, "concurrency"))
+                    .setDurationMillis(getNumber(map, "durationMillis"))
+                    .setSuccessCount((long) getNumber(map, "successCount"))
+                    .setFailureCount((long) getNumber(map, "failureCount"))
+                    .setBytesReceived((long) getNumber(map, "bytesReceived"))
+                    .setBytesSent((long) getNumber(map, "bytesSent"))
+                    .setRequestsPerSecond(getNumber(map, "requestsPerSecond"))
+                    .setGcCount((long) getNumber(map, "gcCount"))
+                    .setGcTimeMillis((long) getNumber(map, "gcTimeMillis"))
+                    .setCpuTimeMillis(getNumber(map, "cpuTimeMillis"))
+                    .setServerCpuTimeMillis(orUnknown(getNumber(map, "serverCpuTimeMillis")))
+                    .setAllocatedBytes((long) orUnknown(getNumber(map, "allocatedBytes")))
+                    .setThreadCount((int) orUnknown(getNumber(map, "threadCount")))
+                    .setPeakThreadCount((int) orUnknown(getNumber(map, "peakThreadCount")));
+            final Object params = map.get("parameters");
+            if (params instanceof Map) {
+                for (final Map.Entry<?, ?> entry : ((Map<?, ?>) params).entrySet()) {
+                    builder.setParameter(String.valueOf(entry.getKey()), entry.getValue());
+                }
+            }
+            final Object latency = map.get("latencyMillis");
+            if (latency instanceof Map) {
+                final Map<?, ?> l = (Map<?, ?>) latency;
+                builder.setLatency(getNumber(l, "mean"), getNumber(l, "p50"), getNumber(l, "p90"),
+                        getNumber(l, "p99"), getNumber(l, "p99.9"), getNumber(l, "max"));
+            }
+            results.add(builder.build());
+        }
+        return results;
+    }
+
+    static List<BenchResult> parseCsv(final CharSequence content) throws IOException {
+        final List<String[]> rows = splitCsv(content);
+        final List<BenchResult> results = new ArrayList<BenchResult>();
+        if (rows.isEmpty()) {
+            return results;
+        }
+        final String[] header = rows.get(0);
+        final DateFormat dateFormat = ResultWriter.createDateFormat();
+        for (int i = 1; i < rows.size(); i++) {
+            final String[] row = rows.get(i);
+            final Map<String, String> map = new HashMap<String, String>();
+            for (int n = 0; n < header.length && n < row.length; n++) {
+                map.put(header[n], row[n]);
+            }
+            final BenchResult.Builder builder = BenchResult.custom()
+                    .setServer(map.get("server"), map.get("version"))
+                    .setMode(map.get("mode"))
+                    .setTimestamp(parseTimestamp(dateFormat, map.get("timestamp")))
+                    .setConcurrency((int) parseNumber(map.get("concurrency")))
+                    .setDurationMillis(parseNumber(map.get("durationMillis")))
+                    .setSuccessCount((long) parseNumber(map.get("successCount")))
+                    .setFailureCount((long) parseNumber(map.get("failureCount")))
+                    .setBytesReceived((long) parseNumber(map.get("bytesReceived")))
+                    .setBytesSent((long) parseNumber(map.get("bytesSent")))
+                    .setRequestsPerSecond(parseNumber(map.get("requestsPerSecond")))
+                    .setLatency(
+                            parseNumber(map.get("latencyMeanMillis")),
+                            parseNumber(map.get("latencyP50Millis")),
+                            parseNumber(map.get("latencyP90Millis")),
+                            parseNumber(map.get("latencyP99Millis")),
+                            parseNumber(map.get("latencyP999Millis")),
+                            parseNumber(map.get("latencyMaxMillis")))
+                    .setGcCount((long) parseNumber(map.get("gcCount")))
+                    .setGcTimeMillis((long) parseNumber(map.get("gcTimeMillis")))
+                    .setCpuTimeMillis(parseNumber(map.get("cpuTimeMillis")))
+                    .setServerCpuTimeMillis(orUnknown(parseNumber(map.get("serverCpuTimeMillis"))))
+                    .setAllocatedBytes((long) orUnknown(parseNumber(map.get("allocatedBytes"))))
+                    .setThreadCount((int) orUnknown(parseNumber(map.get("threadCount"))))
+                    .setPeakThreadCount((int) orUnknown(parseNumber(map.get("peakThreadCount"))));
+            final String params = map.get("parameters");
+            if (params != null && params.length() > 0) {
+                final Object obj = JsonParser.parse(params);
+                if (obj instanceof Map) {
+                    for (final Map.Entry<?, ?> entry : ((Map<?, ?>) obj).entrySet()) {
+                        builder.setParameter(String.valueOf(entry.getKey()), entry.getValue());
+                    }
+                }
+            }
+            results.add(builder.build());
+        }
+        return results;
+    }
+
+    private static List<String[]> splitCsv(final CharSequence content) {
+        final List<String[]> rows = new ArrayList<String[]>();
+        final List<String> row = new ArrayList<String>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < content.length(); i++) {
+            final char ch = content.charAt(i);
+            if (quoted) {
+                if (ch == '"') {
+                    if (i + 1 < content.length() && content.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                row.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '\n') {
+                row.add(field.toString());
+                field.setLength(0);
+                rows.add(row.toArray(new String[row.size()]));
+                row.clear();
+            } else if (ch != '\r') {
+                field.append(ch);
+            }
+        }
+        if (field.length() > 0 || !row.isEmpty()) {
+            row.add(field.toString());
+            rows.add(row.toArray(new String[row.size()]));
+        }
+        return rows;
+    }
+
+    private static String getString(final Map<?, ?> map, final String name) {
+        final Object value = map.get(name);
+        return value != null ? value.toString() : null;
+    }
+
+    private static double getNumber(final Map<?, ?> map, final String name) {
+        final Object value = map.get(name);
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    private static double parseNumber(final String s) throws IOException {
+        if (s == null || s.length() == 0) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(s);
+        } catch (final NumberFormatException ex) {
+            throw new IOException("Invalid number: " + s);
+        }
+    }
+
+    /**
+     * Maps a missing value to {@code -1} for metrics not recorded by older result files.
+     */
+    private static double orUnknown(final double value) {
+        return Double.isNaN(value) ? -1 : value;
+    }
+
+    private static long parseTimestamp(final DateFormat dateFormat, final String s) throws IOException {
+        if (s == null || s.length() == 0) {
+            return 0;
+        }
+        try {
+            return dateFormat.parse(s).getTime();
+        } catch (final ParseException ex) {
+            throw new IOException("Invalid timestamp: " + s);
+        }
+    }
+
+}
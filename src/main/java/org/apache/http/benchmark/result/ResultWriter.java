@@ -0,0 +1,238 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.result;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Writes results to a JSON or a CSV file depending on the file extension.
+ * Results are appended to those already contained in the file so that
+ * repeated runs can be collected in one file.
+ */
+public final class ResultWriter {
+
+    static final String[] CSV_COLUMNS = {
+        "server", "version", "mode", "timestamp", "parameters", "concurrency", "durationMillis",
+        "successCount", "failureCount", "bytesReceived", "bytesSent", "requestsPerSecond",
+        "latencyMeanMillis", "latencyP50Millis", "latencyP90Millis", "latencyP99Millis",
+        "latencyP999Millis", "latencyMaxMillis", "gcCount", "gcTimeMillis", "cpuTimeMillis",
+        "serverCpuTimeMillis", "allocatedBytes", "allocatedBytesPerRequest", "threadCount", "peakThreadCount"
+    };
+
+    private ResultWriter() {
+    }
+
+    static boolean isCsv(final File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".csv");
+    }
+
+    static DateFormat createDateFormat() {
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ROOT);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return dateFormat;
+    }
+
+    public static void write(final File file, final List<BenchResult> results) throws IOException {
+        if (isCsv(file)) {
+            final boolean append = file.length() > 0;
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(file, append), "UTF-8");
+            try {
+                if (!append) {
+                    writeCsvRow(writer, CSV_COLUMNS);
+                }
+                for (final BenchResult result : results) {
+                    writeCsvRow(writer, toCsvRow(result));
+                }
+            } finally {
+                writer.close();
+            }
+        } else {
+            final List<BenchResult> all = new ArrayList<BenchResult>();
+            if (file.length() > 0) {
+                all.addAll(ResultReader.read(file));
+            }
+            all.addAll(results);
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            try {
+                writeJson(writer, all);
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+    static void writeJson(final Writer writer, final List<BenchResult> results) throws IOException {
+        final DateFormat dateFormat = createDateFormat();
+        writer.write("{\n  \"results\": [");
+        for (final Iterator<BenchResult> it = results.iterator(); it.hasNext();) {
+            final BenchResult result = it.next();
+            writer.write("\n    {\n");
+            writeMember(writer, "server", quote(result.getServerName()));
+            writeMember(writer, "version", quote(result.getServerVersion()));
+            writeMember(writer, "mode", quote(result.getMode()));
+            writeMember(writer, "timestamp", quote(dateFormat.format(new Date(result.getTimestamp()))));
+            writeMember(writer, "parameters", toJson(result.getParameters()));
+            writeMember(writer, "concurrency", Integer.toString(result.getConcurrency()));
+            writeMember(writer, "durationMillis", format(result.getDurationMillis()));
+            writeMember(writer, "successCount", Long.toString(result.getSuccessCount()));
+            writeMember(writer, "failureCount", Long.toString(result.getFailureCount()));
+            writeMember(writer, "bytesReceived", Long.toString(result.getBytesReceived()));
+            writeMember(writer, "bytesSent", Long.toString(result.getBytesSent()));
+            writeMember(writer, "requestsPerSecond", format(result.getRequestsPerSecond()));
+            writeMember(writer, "latencyMillis", "{"
+                    + "\"mean\": " + format(result.getLatencyMean())
+                    + ", \"p50\": " + format(result.getLatencyP50())
+                    + ", \"p90\": " + format(result.getLatencyP90())
+                    + ", \"p99\": " + format(result.getLatencyP99())
+                    + ", \"p99.9\": " + format(result.getLatencyP999())
+                    + ", \"max\": " + format(result.getLatencyMax()) + "}");
+            writeMember(writer, "gcCount", Long.toString(result.getGcCount()));
+            writeMember(writer, "gcTimeMillis", Long.toString(result.getGcTimeMillis()));
+            writeMember(writer, "cpuTimeMillis", format(result.getCpuTimeMillis()));
+            writeMember(writer, "serverCpuTimeMillis", format(result.getServerCpuTimeMillis()));
+            writeMember(writer, "allocatedBytes", Long.toString(result.getAllocatedBytes()));
+            writeMember(writer, "allocatedBytesPerRequest", format(result.getAllocatedBytesPerRequest()));
+            writeMember(writer, "threadCount", Integer.toString(result.getThreadCount()));
+            writer.write("      \"peakThreadCount\": " + result.getPeakThreadCount() + "\n    }");
+            if (it.hasNext()) {
+                writer.write(",");
+            }
+        }
+        writer.write("\n  ]\n}\n");
+    }
+
+    private static void writeMember(final Writer writer, final String name, final String value) throws IOException {
+        writer.write("      \"" + name + "\": " + value + ",\n");
+    }
+
+    static String format(final double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "null";
+        }
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    static String quote(final String s) {
+        if (s == null) {
+            return "null";
+        }
+        final StringBuilder buf = new StringBuilder(s.length() + 2);
+        buf.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char ch = s.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                buf.append('\\').append(ch);
+            } else if (ch < 0x20) {
+                buf.append(String.format(Locale.ROOT, "\\u%04x", Integer.valueOf(ch)));
+            } else {
+                buf.append(ch);
+            }
+        }
+        buf.append('"');
+        return buf.toString();
+    }
+
+    static String toJson(final Map<String, String> map) {
+        final StringBuilder buf = new StringBuilder();
+        buf.append('{');
+        for (final Iterator<Map.Entry<String, String>> it = map.entrySet().iterator(); it.hasNext();) {
+            final Map.Entry<String, String> entry = it.next();
+            buf.append(quote(entry.getKey())).append(": ").append(quote(entry.getValue()));
+            if (it.hasNext()) {
+                buf.append(", ");
+            }
+        }
+        buf.append('}');
+        return buf.toString();
+    }
+
+    private static String[] toCsvRow(final BenchResult result) {
+        final String[] row = new String[CSV_COLUMNS.length];
+        row[0] = result.getServerName();
+        row[1] = result.getServerVersion();
+        row[2] = result.getMode();
+        row[3] = createDateFormat().format(new Date(result.getTimestamp()));
+        row[4] = toJson(result.getParameters());
+        row[5] = Integer.toString(result.getConcurrency());
+        row[6] = formatCsv(result.getDurationMillis());
+        row[7] = Long.toString(result.getSuccessCount());
+        row[8] = Long.toString(result.getFailureCount());
+        row[9] = Long.toString(result.getBytesReceived());
+        row[10] = Long.toString(result.getBytesSent());
+        row[11] = formatCsv(result.getRequestsPerSecond());
+        row[12] = formatCsv(result.getLatencyMean());
+        row[13] = formatCsv(result.getLatencyP50());
+        row[14] = formatCsv(result.getLatencyP90());
+        row[15] = formatCsv(result.getLatencyP99());
+        row[16] = formatCsv(result.getLatencyP999());
+        row[17] = formatCsv(result.getLatencyMax());
+        row[18] = Long.toString(result.getGcCount());
+        row[19] = Long.toString(result.getGcTimeMillis());
+        row[20] = formatCsv(result.getCpuTimeMillis());
+        row[21] = formatCsv(result.getServerCpuTimeMillis());
+        row[22] = Long.toString(result.getAllocatedBytes());
+        row[23] = formatCsv(result.getAllocatedBytesPerRequest());
+        row[24] = Integer.toString(result.getThreadCount());
+        row[25] = Integer.toString(result.getPeakThreadCount());
+        return row;
+    }
+
+    private static String formatCsv(final double value) {
+        return Double.isNaN(value) ? "" : format(value);
+    }
+
+    private static void writeCsvRow(final Writer writer, final String[] row) throws IOException {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            final String value = row[i] != null ? row[i] : "";
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+}
@@ -0,0 +1,309 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.result;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Snapshot of cumulative garbage collection and CPU usage of the JVM.
+ * As the servers and the load generator share the JVM the figures cover both.
+ * <p>
+ * CPU time and allocated bytes are also captured per thread for the threads of
+ * the given server thread group and the carrier threads of virtual threads,
+ * so that they can be attributed to the server.
+ * Threads that terminate between two snapshots are not accounted for. With
+ * in-process connections part of the server's work runs on the load generator
+ * threads and is not attributed to the server.
+ */
+public final class RuntimeStats {
+
+    private final long gcCount;
+    private final long gcTimeMillis;
+    private final long cpuTimeNanos;
+    private final long serverCpuTimeNanos;
+    private final long serverAllocatedBytes;
+    private final int serverThreadCount;
+    private final int peakThreadCount;
+    // Per thread counters of a snapshot, null if the difference of two snapshots
+    private final Map<Long, long[]> threads;
+
+    RuntimeStats(
+            final long gcCount,
+            final long gcTimeMillis,
+            final long cpuTimeNanos,
+            final long serverCpuTimeNanos,
+            final long serverAllocatedBytes,
+            final int serverThreadCount,
+            final int peakThreadCount,
+            final Map<Long, long[]> threads) {
+        super();
+        this.gcCount = gcCount;
+        this.gcTimeMillis = gcTimeMillis;
+        this.cpuTimeNanos = cpuTimeNanos;
+        this.serverCpuTimeNanos = serverCpuTimeNanos;
+        this.serverAllocatedBytes = serverAllocatedBytes;
+        this.serverThreadCount = serverThreadCount;
+        this.peakThreadCount = peakThreadCount;
+        this.threads = threads;
+    }
+
+    /**
+     * Captures a snapshot, attributing the threads of the given thread group to the server.
+     * The peak thread count of the JVM is reset, so that the next snapshot reports the peak
+     * since this one.
+     */
+    public static RuntimeStats capture(final ThreadGroup serverThreads) {
+        long gcCount = 0;
+        long gcTime = 0;
+        for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc.getCollectionCount() > 0) {
+                gcCount += gc.getCollectionCount();
+            }
+            if (gc.getCollectionTime() > 0) {
+                gcTime += gc.getCollectionTime();
+            }
+        }
+        long cpuTime = -1;
+        final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            cpuTime = ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        final boolean cpuSupported = threadBean.isThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+        final com.sun.management.ThreadMXBean allocationBean = getAllocationBean(threadBean);
+        final long[] ids = getThreadIds(serverThreads);
+        final long[] allocated = allocationBean != null ? allocationBean.getThreadAllocatedBytes(ids) : null;
+        final Map<Long, long[]> threads = new HashMap<Long, long[]>();
+        long serverCpuTime = cpuSupported ? 0 : -1;
+        long serverAllocated = allocated != null ? 0 : -1;
+        for (int i = 0; i < ids.length; i++) {
+            final long threadCpuTime = cpuSupported ? threadBean.getThreadCpuTime(ids[i]) : -1;
+            final long threadAllocated = allocated != null ? allocated[i] : -1;
+            threads.put(Long.valueOf(ids[i]), new long[] { threadCpuTime, threadAllocated });
+            if (serverCpuTime >= 0 && threadCpuTime >= 0) {
+                serverCpuTime += threadCpuTime;
+            }
+            if (serverAllocated >= 0 && threadAllocated >= 0) {
+                serverAllocated += threadAllocated;
+            }
+        }
+        final int peakThreadCount = threadBean.getPeakThreadCount();
+        threadBean.resetPeakThreadCount();
+        return new RuntimeStats(gcCount, gcTime, cpuTime, serverCpuTime, serverAllocated, threads.size(),
+                peakThreadCount, threads);
+    }
+
+    private static com.sun.management.ThreadMXBean getAllocationBean(final ThreadMXBean threadBean) {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the ids of the threads of the given group and of the carrier threads of
+     * virtual threads. Virtual threads are not visible to the thread MXBean, their CPU
+     * time and allocations are accounted to the carrier threads they are mounted on.
+     * Only servers start virtual threads, so the carrier threads count as server threads.
+     */
+    private static long[] getThreadIds(final ThreadGroup group) {
+        ThreadGroup root = group;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        Thread[] list = new Thread[root.activeCount() + 16];
+        int count = root.enumerate(list, true);
+        // Threads may have been started in the meantime
+        while (count == list.length) {
+            list = new Thread[list.length * 2];
+            count = root.enumerate(list, true);
+        }
+        final List<Thread> threads = new ArrayList<Thread>(count);
+        for (int i = 0; i < count; i++) {
+            final Thread thread = list[i];
+            // The group of a terminated thread is null
+            final ThreadGroup threadGroup = thread.getThreadGroup();
+            if ((threadGroup != null && group.parentOf(threadGroup)) || isCarrierThread(thread)) {
+                threads.add(thread);
+            }
+        }
+        final long[] ids = new long[threads.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = threads.get(i).getId();
+        }
+        return ids;
+    }
+
+    private static boolean isCarrierThread(final Thread thread) {
+        return thread.getClass().getName().equals("jdk.internal.misc.CarrierThread");
+    }
+
+    /**
+     * Returns the usage between the given earlier snapshot and this one.
+     */
+    public RuntimeStats since(final RuntimeStats start) {
+        long serverCpuTime = this.serverCpuTimeNanos >= 0 && start.serverCpuTimeNanos >= 0 ? 0 : -1;
+        long serverAllocated = this.serverAllocatedBytes >= 0 && start.serverAllocatedBytes >= 0 ? 0 : -1;
+        if (this.threads != null && start.threads != null) {
+            for (final Map.Entry<Long, long[]> entry : this.threads.entrySet()) {
+                final long[] after = entry.getValue();
+                // Threads started after the earlier snapshot count in full
+                final long[] before = start.threads.get(entry.getKey());
+                if (serverCpuTime >= 0 && after[0] >= 0) {
+                    serverCpuTime += after[0] - (before != null && before[0] >= 0 ? before[0] : 0);
+                }
+                if (serverAllocated >= 0 && after[1] >= 0) {
+                    serverAllocated += after[1] - (before != null && before[1] >= 0 ? before[1] : 0);
+                }
+            }
+        } else {
+            serverCpuTime = -1;
+            serverAllocated = -1;
+        }
+        return new RuntimeStats(
+                this.gcCount - start.gcCount,
+                this.gcTimeMillis - start.gcTimeMillis,
+                this.cpuTimeNanos >= 0 && start.cpuTimeNanos >= 0 ? this.cpuTimeNanos - start.cpuTimeNanos : -1,
+                serverCpuTime,
+                serverAllocated,
+                this.serverThreadCount,
+                this.peakThreadCount,
+                null);
+    }
+
+    public long getGcCount() {
+        return this.gcCount;
+    }
+
+    public long getGcTimeMillis() {
+        return this.gcTimeMillis;
+    }
+
+    /**
+     * Returns process CPU time in nanoseconds or {@code -1} if not supported by the JVM.
+     */
+    public long getCpuTimeNanos() {
+        return this.cpuTimeNanos;
+    }
+
+    /**
+     * Returns CPU time of the server threads in nanoseconds or {@code -1} if not supported by the JVM.
+     */
+    public long getServerCpuTimeNanos() {
+        return this.serverCpuTimeNanos;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the server threads or {@code -1} if not supported
+     * by the JVM.
+     */
+    public long getServerAllocatedBytes() {
+        return this.serverAllocatedBytes;
+    }
+
+    /**
+     * Returns the number of live server threads at the time of the (later) snapshot.
+     */
+    public int getServerThreadCount() {
+        return this.serverThreadCount;
+    }
+
+    /**
+     * Returns the peak number of live threads of the JVM, including the load generator threads,
+     * since the previous snapshot.
+     */
+    public int getPeakThreadCount() {
+        return this.peakThreadCount;
+    }
+
+    /**
+     * Formats the figures as a single line of text that {@link #parse(String)} turns back into
+     * statistics, so that they can be passed from the JVM of a server to the load generator.
+     * Per thread counters are not included.
+     */
+    public String format() {
+        return this.gcCount + " " + this.gcTimeMillis + " " + this.cpuTimeNanos + " " + this.serverCpuTimeNanos
+                + " " + this.serverAllocatedBytes + " " + this.serverThreadCount + " " + this.peakThreadCount;
+    }
+
+    /**
+     * Parses statistics formatted by {@link #format()}.
+     *
+     * @throws IllegalArgumentException if the text is not a valid format
+     */
+    public static RuntimeStats parse(final String s) {
+        final String[] values = s.trim().split(" ");
+        if (values.length != 7) {
+            throw new IllegalArgumentException("Invalid runtime statistics: " + s);
+        }
+        return new RuntimeStats(
+                Long.parseLong(values[0]),
+                Long.parseLong(values[1]),
+                Long.parseLong(values[2]),
+                Long.parseLong(values[3]),
+                Long.parseLong(values[4]),
+                Integer.parseInt(values[5]),
+                Integer.parseInt(values[6]),
+                null);
+    }
+
+    /**
+     * Prints the usage, relative to the given number of requests where applicable.
+     */
+    public void print(final PrintStream out, final long requests) {
+        out.println(String.format(Locale.ROOT, "GC collections:\t\t\t%d (%d ms, %.3f ms mean pause)",
+                this.gcCount, this.gcTimeMillis, this.gcCount > 0 ? (double) this.gcTimeMillis / this.gcCount : 0.0));
+        if (this.cpuTimeNanos >= 0) {
+            out.println(String.format(Locale.ROOT, "CPU time (process):\t\t%.1f ms", this.cpuTimeNanos / 1000000.0));
+        }
+        if (this.serverCpuTimeNanos >= 0) {
+            out.println(String.format(Locale.ROOT, "CPU time (server):\t\t%.1f ms (%.1f us per request)",
+                    this.serverCpuTimeNanos / 1000000.0,
+                    requests > 0 ? this.serverCpuTimeNanos / 1000.0 / requests : 0.0));
+        }
+        if (this.serverAllocatedBytes >= 0) {
+            out.println(String.format(Locale.ROOT, "Allocated (server):\t\t%,d bytes (%,d bytes per request)",
+                    this.serverAllocatedBytes, requests > 0 ? this.serverAllocatedBytes / requests : 0));
+        }
+        out.println("Threads:\t\t\t" + this.serverThreadCount + " server, " + this.peakThreadCount
+                + " peak in process");
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.benchmark.client;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+
+    private static void assertWithinBound(final long value) {
+        final long equivalent = LatencyHistogram.highestEquivalentValue(LatencyHistogram.indexOf(value));
+        Assert.assertTrue("Value " + value + " reported as " + equivalent, equivalent >= value);
+        // Relative error below 1/128
+        Assert.assertTrue("Value " + value + " reported as " + equivalent,
+                equivalent == value || (equivalent - value) * 128 < value);
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        for (long value = 0; value < 256; value++) {
+            Assert.assertEquals(value, LatencyHistogram.highestEquivalentValue(LatencyHistogram.indexOf(value)));
+        }
+    }
+
+    @Test
+    public void testRelativeErrorAtBucketBoundaries() {
+        for (int bit = 8; bit < 63; bit++) {
+            final long power = 1L << bit;
+            assertWithinBound(power - 1);
+            assertWithinBound(power);
+            assertWithinBound(power + 1);
+            assertWithinBound(power + power / 2 - 1);
+        }
+        assertWithinBound(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testRelativeErrorOfRandomValues() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 1000000; i++) {
+            assertWithinBound((random.nextLong() >>> 1) >>> random.nextInt(63));
+        }
+    }
+
+    @Test
+    public void testPercentileWithinBound() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1000; value <= 1000000000L; value *= 10) {
+            histogram.reset();
+            histogram.recordValue(value);
+            histogram.recordValue(Long.MAX_VALUE / 2);
+            final long median = histogram.getValueAtPercentile(50.0);
+            Assert.assertTrue(median >= value);
+            Assert.assertTrue(median - value < value / 128.0);
+        }
+    }
+
+}